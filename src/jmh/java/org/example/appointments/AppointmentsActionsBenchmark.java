@@ -0,0 +1,158 @@
+package org.example.appointments;
+
+import org.example.benchmark.BenchmarkJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every appointments {@code @Action}, called in-process (no HTTP, no LLM), with and without the write-ahead
+ * log, plus the raw first-free-slot search and bulk scheduling on the bulk pipeline (scored per booking).
+ * Bookings rotate over 1,000 doctors and the whole calendar so the scheduling benchmarks measure successful
+ * bookings rather than full days.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class AppointmentsActionsBenchmark {
+
+    private static final int DOCTORS = 1_000;
+    private static final int DAYS = 366;
+    private static final int BULK = 1_000;
+
+    @Param({BenchmarkJournal.NOOP, BenchmarkJournal.SEGMENT_LOG})
+    public String journal;
+
+    private BenchmarkJournal journals;
+    private AppointmentBook book;
+    private AppointmentsService service;
+    private String[] doctors;
+    private String[] dates;
+    private String appointmentId;
+    private String tomorrow;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        journals = BenchmarkJournal.create(journal, "appointments");
+        List<String> rooms = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            rooms.add("Room " + (100 + i));
+        }
+        LocalDate today = LocalDate.now();
+        book = new AppointmentBook(today, DAYS, rooms, journals.journal());
+        service = new AppointmentsService(book);
+        doctors = new String[DOCTORS];
+        for (int i = 0; i < DOCTORS; i++) {
+            doctors[i] = "Doctor " + i;
+        }
+        dates = new String[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            dates[i] = today.plusDays(i).toString();
+        }
+        tomorrow = dates[1];
+        appointmentId = book.book("PT-0000000000001", "Johnson", "Cardiology consultation", today.plusDays(1), 12,
+                AppointmentBook.DEFAULT_SLOT_COUNT).appointment().appointmentId();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        journals.close();
+    }
+
+    @Benchmark
+    public String scheduleAppointment() {
+        int i = next++;
+        return service.scheduleAppointment("PT-0000000000001", doctors[i % DOCTORS], "Cardiology consultation",
+                dates[(i / DOCTORS) % DAYS]);
+    }
+
+    @Benchmark
+    public String getAppointmentDetails() {
+        return service.getAppointmentDetails(appointmentId);
+    }
+
+    @Benchmark
+    public String cancelAppointment() {
+        return service.cancelAppointment(appointmentId, "Patient request");
+    }
+
+    @Benchmark
+    public String rescheduleAppointment() {
+        return service.rescheduleAppointment(appointmentId, dates[2 + (next++ & 1)]);
+    }
+
+    @Benchmark
+    public String getAvailableSlots() {
+        return service.getAvailableSlots("Johnson", tomorrow);
+    }
+
+    @Benchmark
+    public int firstFreeSlot() {
+        return book.nextAvailable("Johnson", LocalDate.now(), 0, AppointmentBook.DEFAULT_SLOT_COUNT, 30).getMinute();
+    }
+
+    @Benchmark
+    public String getUpcomingAppointments() {
+        return service.getUpcomingAppointments("PT-0000000000001");
+    }
+
+    @Benchmark
+    public String checkInPatient() {
+        return service.checkInPatient(appointmentId, "PT-0000000000001");
+    }
+
+    @Benchmark
+    public String sendAppointmentReminder() {
+        return service.sendAppointmentReminder(appointmentId);
+    }
+
+    @Benchmark
+    public String sendRemindersForDate() {
+        return service.sendRemindersForDate(tomorrow);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK)
+    public long scheduleAll() throws IOException {
+        long[] results = {0};
+        service.scheduleAll(new Iterator<>() {
+            private int remaining = BULK;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public BookingRequest next() {
+                remaining--;
+                int i = next++;
+                return new BookingRequest("PT-0000000000001", doctors[i % DOCTORS], "Cardiology consultation",
+                        dates[(i / DOCTORS) % DAYS]);
+            }
+        }, result -> results[0]++);
+        return results[0];
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result file with the stored baseline and fails on regressions.
+ * <p>
+ * Usage: {@code BaselineCheck <results.json> <baseline.json> [tolerance]}. A benchmark regresses when
+ * its score moves against the mode (throughput down, time up) by more than {@code tolerance} (default
+ * 0.10), or when its normalized allocation ({@code gc.alloc.rate.norm}, from {@code -prof gc}) grows by
+ * more than the tolerance plus 16 bytes. When no baseline exists yet, the results become the baseline.
+ */
+public final class BaselineCheck {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+    private static final double ALLOCATION_SLACK_BYTES = 16;
+
+    private record Score(String mode, String unit, double value, Double bytesPerOp) {
+    }
+
+    private BaselineCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: BaselineCheck <results.json> <baseline.json> [tolerance]");
+        }
+        Path results = Paths.get(args[0]);
+        Path baseline = Paths.get(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+
+        if (!Files.exists(baseline)) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.copy(results, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("No baseline at " + baseline + "; recorded " + results + " as the new baseline");
+            return;
+        }
+
+        Map<String, Score> current = read(results);
+        Map<String, Score> previous = read(baseline);
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score before = previous.get(entry.getKey());
+            if (before == null) {
+                System.out.println("NEW        " + entry.getKey());
+                continue;
+            }
+            Score now = entry.getValue();
+            double change = (now.value() - before.value()) / before.value();
+            boolean slower = "thrpt".equals(now.mode()) ? change < -tolerance : change > tolerance;
+            System.out.printf("%-10s %s: %.3f -> %.3f %s (%+.1f%%)%n", slower ? "REGRESSED" : "ok",
+                    entry.getKey(), before.value(), now.value(), now.unit(), change * 100);
+            if (slower) {
+                regressions.add(entry.getKey() + " score");
+            }
+            if (before.bytesPerOp() != null && now.bytesPerOp() != null
+                    && now.bytesPerOp() > before.bytesPerOp() * (1 + tolerance) + ALLOCATION_SLACK_BYTES) {
+                System.out.printf("REGRESSED  %s: allocation %.0f -> %.0f B/op%n",
+                        entry.getKey(), before.bytesPerOp(), now.bytesPerOp());
+                regressions.add(entry.getKey() + " allocation");
+            }
+        }
+        if (!regressions.isEmpty()) {
+            throw new IllegalStateException(regressions.size() + " benchmark regression(s) against " + baseline
+                    + ": " + regressions);
+        }
+    }
+
+    private static Map<String, Score> read(Path file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : MAPPER.readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            for (Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields(); params.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            Double bytesPerOp = null;
+            for (Iterator<Map.Entry<String, JsonNode>> metrics = run.path("secondaryMetrics").fields(); metrics.hasNext(); ) {
+                Map.Entry<String, JsonNode> metric = metrics.next();
+                if (metric.getKey().endsWith(ALLOCATION_METRIC)) {
+                    bytesPerOp = metric.getValue().path("score").asDouble();
+                }
+            }
+            JsonNode primary = run.path("primaryMetric");
+            scores.put(key.toString(), new Score(run.path("mode").asText(), primary.path("scoreUnit").asText(),
+                    primary.path("score").asDouble(), bytesPerOp));
+        }
+        return scores;
+    }
+}
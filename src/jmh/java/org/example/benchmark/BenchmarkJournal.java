@@ -0,0 +1,61 @@
+package org.example.benchmark;
+
+import org.example.common.wal.Journal;
+import org.example.common.wal.SegmentLog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Journal for one benchmark iteration: either {@link Journal#NOOP} ({@code "noop"}) or a
+ * {@link SegmentLog} in a fresh temp directory ({@code "segment-log"}) that is deleted on close.
+ */
+public final class BenchmarkJournal implements AutoCloseable {
+
+    public static final String NOOP = "noop";
+    public static final String SEGMENT_LOG = "segment-log";
+
+    private final Journal journal;
+    private final Path directory;
+
+    private BenchmarkJournal(Journal journal, Path directory) {
+        this.journal = journal;
+        this.directory = directory;
+    }
+
+    public static BenchmarkJournal create(String kind, String domain) {
+        if (NOOP.equals(kind)) {
+            return new BenchmarkJournal(Journal.NOOP, null);
+        }
+        if (!SEGMENT_LOG.equals(kind)) {
+            throw new IllegalArgumentException("Unknown journal kind: " + kind);
+        }
+        try {
+            Path directory = Files.createTempDirectory("bench-wal-" + domain);
+            return new BenchmarkJournal(SegmentLog.open(directory, SegmentLog.Options.defaults()), directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create a journal directory for " + domain, e);
+        }
+    }
+
+    public Journal journal() {
+        return journal;
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to delete " + directory, e);
+        }
+    }
+}
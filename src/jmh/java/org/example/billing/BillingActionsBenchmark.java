@@ -0,0 +1,115 @@
+package org.example.billing;
+
+import org.example.benchmark.BenchmarkJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every billing {@code @Action}, called in-process (no HTTP, no LLM), with and without the write-ahead log.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BillingActionsBenchmark {
+
+    @Param({BenchmarkJournal.NOOP, BenchmarkJournal.SEGMENT_LOG})
+    public String journal;
+
+    private BenchmarkJournal journals;
+    private BillingService service;
+    private ClaimPipeline claims;
+    private EligibilityCache eligibility;
+    private String invoiceId;
+    private String claimId;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        journals = BenchmarkJournal.create(journal, "billing");
+        Path statements;
+        try {
+            statements = Files.createTempDirectory("billing-statements");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        BillingLedger ledger = new BillingLedger(journals.journal());
+        claims = new ClaimPipeline(journals.journal(), ledger, new LocalClearinghouse(0, 90));
+        eligibility = EligibilityCache.configured();
+        service = new BillingService(journals.journal(), ledger, claims, eligibility, statements);
+        String claim = service.submitInsuranceClaim("PT-0000000000001", "BlueCross", "99213", 150.0);
+        claimId = claim.substring(claim.indexOf("CLM-"), claim.indexOf('\n', claim.indexOf("CLM-")));
+        String invoice = service.generateInvoice("PT-0000000000001", "Office visit", 150.0);
+        invoiceId = invoice.substring(invoice.indexOf("INV-"), invoice.indexOf('\n', invoice.indexOf("INV-")));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        claims.close();
+        eligibility.close();
+        journals.close();
+    }
+
+    @Benchmark
+    public String generateInvoice() {
+        return service.generateInvoice("PT-0000000000001", "Office visit", 150.0);
+    }
+
+    @Benchmark
+    public String processPayment() {
+        return service.processPayment(invoiceId, 0.01, "Credit Card");
+    }
+
+    @Benchmark
+    public String submitInsuranceClaim() {
+        return service.submitInsuranceClaim("PT-0000000000001", "BlueCross", "99213", 150.0);
+    }
+
+    @Benchmark
+    public String getClaimStatus() {
+        return service.getClaimStatus(claimId);
+    }
+
+    @Benchmark
+    public String getAccountBalance() {
+        return service.getAccountBalance("PT-0000000000001");
+    }
+
+    @Benchmark
+    public String setupPaymentPlan() {
+        return service.setupPaymentPlan("PT-0000000000001", 1200.0, 12);
+    }
+
+    @Benchmark
+    public String generateStatement() {
+        return service.generateStatement("PT-0000000000001", "2026-01");
+    }
+
+    @Benchmark
+    public String generateAllStatements() {
+        return service.generateAllStatements("2026-01");
+    }
+
+    @Benchmark
+    public String verifyInsurance() {
+        return service.verifyInsurance("PT-0000000000001", "BlueCross", "BC-778812");
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.billing;
+
+import org.example.common.wal.Journal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end claim throughput: {@value #CLAIMS} claims over five providers are submitted and the invocation
+ * ends when the stub clearinghouse has decided all of them. Reported per claim; the target is at least
+ * 50,000 claims a minute (about 0.83 per millisecond) with a 50 ms clearinghouse round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ClaimPipelineBenchmark {
+
+    private static final int CLAIMS = 10_000;
+    private static final String[] PROVIDERS = {"BlueCross", "Aetna", "Cigna", "UnitedHealthcare", "Humana"};
+
+    @Param({"50"})
+    public long clearinghouseMillis;
+
+    private ClaimPipeline claims;
+    private long nextId;
+    private long submitted;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        claims = new ClaimPipeline(Journal.NOOP, new BillingLedger(), new LocalClearinghouse(clearinghouseMillis, 90));
+        submitted = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        claims.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CLAIMS)
+    public long submitAndDecide() throws InterruptedException {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < CLAIMS; i++) {
+            long id = nextId++;
+            if (claims.submit("CLM-" + id, "PT-" + (id % 100_000), PROVIDERS[i % PROVIDERS.length], "99213", 15_000,
+                    today) != null) {
+                submitted++;
+            }
+        }
+        while (claims.count(ClaimStatus.APPROVED) < submitted) {
+            Thread.sleep(1);
+        }
+        return submitted;
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.billing;
+
+import org.example.common.ReadThroughCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code verifyInsurance} lookups from 16 threads against a stub payer that takes {@code payerMillis} per
+ * call. Policies are drawn with a skew (a fifth of them get four fifths of the lookups), as for a clinic's
+ * regular patients. {@code ttlMillis=0} turns caching off, leaving only request coalescing. The hit ratio and
+ * payer calls of each iteration are printed with its result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class EligibilityCacheBenchmark {
+
+    @Param({"20"})
+    public long payerMillis;
+
+    @Param({"0", "60000"})
+    public long ttlMillis;
+
+    @Param({"20000"})
+    public int policies;
+
+    private StubPayer payer;
+    private EligibilityCache cache;
+    private String[] policyNumbers;
+    private long hitsBefore;
+    private long missesBefore;
+    private long payerCallsBefore;
+
+    @State(Scope.Thread)
+    public static class Picker {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        payer = new StubPayer(payerMillis);
+        cache = new EligibilityCache(payer, new ReadThroughCache.Options(ttlMillis, ttlMillis, policies));
+        policyNumbers = new String[policies];
+        for (int i = 0; i < policies; i++) {
+            policyNumbers[i] = String.format("BC-%06d", i);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        hitsBefore = cache.hits();
+        missesBefore = cache.misses();
+        payerCallsBefore = payer.lookups();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportIteration() {
+        long hits = cache.hits() - hitsBefore;
+        long misses = cache.misses() - missesBefore;
+        System.out.printf("%nhit ratio %.4f (%d hits, %d misses, %d payer calls)%n",
+                hits / (double) Math.max(1, hits + misses), hits, misses, payer.lookups() - payerCallsBefore);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.close();
+    }
+
+    @Benchmark
+    public Eligibility verifyInsurance(Picker picker) {
+        int hot = policies / 5;
+        int policy = picker.random.nextInt(5) < 4 ? picker.random.nextInt(hot) : picker.random.nextInt(policies);
+        return cache.lookup("BlueCross", policyNumbers[policy]);
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.billing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Month-end statement run over a synthetic ledger of {@code lines} lines spread over {@code patients}
+ * patients and one quarter, writing one month of statements to a temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class StatementRunBenchmark {
+
+    private static final String[] SERVICES = {"Office Visit", "Laboratory Tests", "X-Ray Imaging", "MRI Scan"};
+    private static final LocalDate QUARTER = LocalDate.of(2026, 1, 1);
+
+    @Param({"10000000"})
+    public int lines;
+
+    @Param({"1000000"})
+    public int patients;
+
+    private BillingLedger ledger;
+    private Path directory;
+    private StatementPeriod period;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ledger = new BillingLedger();
+        SplittableRandom random = new SplittableRandom(42);
+        String[] patientIds = new String[patients];
+        for (int i = 0; i < patients; i++) {
+            patientIds[i] = String.format("PT-%013d", i);
+        }
+        BillingLedger.Kind[] kinds = BillingLedger.Kind.values();
+        int linesPerDay = Math.max(1, lines / 90);
+        for (int i = 0; i < lines; i++) {
+            ledger.post(patientIds[random.nextInt(patients)], kinds[random.nextInt(kinds.length)],
+                    100 + random.nextInt(50_000), SERVICES[random.nextInt(SERVICES.length)],
+                    QUARTER.plusDays(i / linesPerDay));
+        }
+        directory = Files.createTempDirectory("statement-run");
+        period = StatementPeriod.parse("2026-02");
+    }
+
+    @Benchmark
+    public StatementRun.Summary writeAll() throws IOException {
+        return StatementRun.writeAll(ledger, period, QUARTER.plusMonths(3), directory);
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IDs allocated per microsecond from one shared generator, by one caller and by eight contending on its CAS word,
+ * as a raw {@code long} and formatted as {@code PREFIX-XXXXXXXXXXXXX}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private final IdGenerator generator = new IdGenerator(1);
+
+    @Benchmark
+    @Threads(1)
+    public long nextLong() {
+        return generator.nextLong();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long nextLongContended() {
+        return generator.nextLong();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String nextId() {
+        return generator.nextId("APT");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String nextIdContended() {
+        return generator.nextId("APT");
+    }
+}
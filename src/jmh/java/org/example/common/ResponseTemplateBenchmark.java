@@ -0,0 +1,101 @@
+package org.example.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and, with {@code -prof gc}, bytes allocated to render the {@code generateInvoice} response: with
+ * {@code String.format}, with a {@link ResponseTemplate} built into a {@code String}, and with a
+ * {@link ResponseTemplate} written straight to a response writer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseTemplateBenchmark {
+
+    private static final String PATTERN = "Invoice Generated Successfully!\n" +
+            "Invoice ID: %s\n" +
+            "Patient ID: %s\n" +
+            "=================================\n" +
+            "Service Type: %s\n" +
+            "Service Amount: $%.2f\n" +
+            "Tax (8%%): $%.2f\n" +
+            "Total Amount: $%.2f\n" +
+            "Invoice Date: %s\n" +
+            "Due Date: %s\n" +
+            "Status: PENDING PAYMENT\n" +
+            "Payment Methods: Cash, Credit Card, Insurance";
+    private static final ResponseTemplate TEMPLATE = ResponseTemplate.compile(PATTERN);
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    private final String invoiceId = "INV-0K3M9QZ1A7B2C";
+    private final String patientId = "PT-0K3M2XY8R4D1E";
+    private final String serviceType = "Laboratory Tests";
+    private final double amount = 185.50;
+    private final double tax = amount * 0.08;
+    private final LocalDate date = LocalDate.of(2026, 3, 9);
+    private final LocalDate due = date.plusDays(30);
+
+    private Writer writer;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        writer = new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int length) {
+                blackhole.consume(chars);
+            }
+
+            @Override
+            public Writer append(CharSequence text) {
+                blackhole.consume(text);
+                return this;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        return String.format(Locale.ROOT, PATTERN, invoiceId, patientId, serviceType, amount, tax, amount + tax,
+                date, due);
+    }
+
+    @Benchmark
+    public String template() {
+        return TEMPLATE.render().arg(invoiceId).arg(patientId).arg(serviceType).arg(amount).arg(tax)
+                .arg(amount + tax).arg(date, DATE).arg(due, DATE).build();
+    }
+
+    @Benchmark
+    public Writer templateToWriter() {
+        TEMPLATE.renderTo(writer).arg(invoiceId).arg(patientId).arg(serviceType).arg(amount).arg(tax)
+                .arg(amount + tax).arg(date, DATE).arg(due, DATE).build();
+        return writer;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.common.events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Events published per millisecond by four threads into one bus with one to four subscriptions, each counting
+ * what it is handed. Check {@code dropped} in the output: a score bought by dropping events is no score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class EventBusBenchmark {
+
+    private static final DomainEvent CHECKED_IN = new DomainEvent.AppointmentCheckedIn("APT-1", "PT-1", "Johnson",
+            "Clinic", Instant.EPOCH);
+
+    @Param({"1", "4"})
+    public int subscriptions;
+
+    private EventBus bus;
+    private final LongAdder received = new LongAdder();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        bus = new EventBus(new EventBus.Options(1 << 16, 256, 100));
+        for (int i = 0; i < subscriptions; i++) {
+            bus.subscribe("bench-" + i, events -> received.add(events.size()), Set.of());
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        System.out.println(" dropped=" + bus.droppedCount() + " received=" + received.sumThenReset());
+        bus.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean publish() {
+        return bus.publish(CHECKED_IN);
+    }
+}
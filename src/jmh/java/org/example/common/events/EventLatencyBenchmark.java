@@ -0,0 +1,90 @@
+package org.example.common.events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.ServerSocket;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end event latency: from {@code publish} until the subscriber has the event, on one bus and across a
+ * loopback {@link EventRelay} into a second bus. Sample mode, so p50/p99 come with the score. With
+ * {@code gapMicros} the bus sits idle before every event (outside the measurement), so the subscription has
+ * parked and its wake-up is part of the latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class EventLatencyBenchmark {
+
+    private static final DomainEvent LAB_READY = new DomainEvent.LabResultReady("LAB-1", "PT-1", "CBC", 0,
+            Instant.EPOCH);
+
+    @Param({"in-process", "relay"})
+    public String path;
+
+    @Param({"0", "2000"})
+    public long gapMicros;
+
+    private EventBus local;
+    private EventBus remote;
+    private ServerSocket relayServer;
+    private volatile long received;
+    private long sent;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        local = new EventBus(EventBus.Options.defaults());
+        EventBus receiving = local;
+        if (path.equals("relay")) {
+            remote = new EventBus(EventBus.Options.defaults());
+            relayServer = EventRelay.listen(remote, 0);
+            EventRelay.Target target = new EventRelay.Target("localhost:" + relayServer.getLocalPort());
+            local.subscribe("relay", target::send, Set.of(), false);
+            receiving = remote;
+        }
+        receiving.subscribe("latency", events -> received += events.size(), Set.of());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        local.close();
+        if (remote != null) {
+            relayServer.close();
+            remote.close();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void pause() throws InterruptedException {
+        if (gapMicros > 0) {
+            TimeUnit.MICROSECONDS.sleep(gapMicros);
+        }
+    }
+
+    @Benchmark
+    public long publishToDelivery() {
+        long target = ++sent;
+        local.publish(LAB_READY);
+        while (received < target) {
+            Thread.onSpinWait();
+        }
+        return target;
+    }
+}
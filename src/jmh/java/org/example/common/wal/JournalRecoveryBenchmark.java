@@ -0,0 +1,102 @@
+package org.example.common.wal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.example.common.wal.FieldCodec.fields;
+
+/**
+ * Recovery of a journal holding about 1 GB of patient records: opening the {@link SegmentLog} and replaying
+ * and decoding every entry, as a store does on start. The log is written once per trial, either as 64 MB
+ * segments or as one segment of the whole size, which is replayed through several mapped windows. The files
+ * stay in the page cache between iterations, so this measures the replay itself rather than the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class JournalRecoveryBenchmark {
+
+    private static final String[] NAMES = {"Alice Johnson", "Bob Martinez", "Chen Wei", "Dana Okafor"};
+    private static final String[] STREETS = {"Oak Street", "Main Street", "Elm Avenue", "Harbor Road"};
+
+    @Param({"1024"})
+    public int logMegabytes;
+
+    @Param({"64", "1024"})
+    public int segmentMegabytes;
+
+    private Path directory;
+    private long entries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("bench-wal-recovery");
+        SegmentLog.Options options = new SegmentLog.Options((long) segmentMegabytes << 20, 4096, 1 << 16,
+                Integer.MAX_VALUE, false);
+        SplittableRandom random = new SplittableRandom(42);
+        long target = (long) logMegabytes << 20;
+        long written = 0;
+        try (SegmentLog log = SegmentLog.open(directory, options)) {
+            while (written < target) {
+                String patientId = String.format("PT-%013d", entries++);
+                Map<String, String> record = fields("createdDate", "2026-01-15",
+                        "NAME", NAMES[random.nextInt(NAMES.length)],
+                        "AGE", String.valueOf(18 + random.nextInt(70)),
+                        "BLOOD_TYPE", "O+",
+                        "ADDRESS", (1 + random.nextInt(9999)) + " " + STREETS[random.nextInt(STREETS.length)],
+                        "PHONE", "555-01" + (10 + random.nextInt(90)),
+                        "ALLERGIES", "Penicillin",
+                        "MEDICATIONS", "Lisinopril 10mg daily; Metformin 500mg twice daily",
+                        "lastVisit", "2026-03-02");
+                LogEntry entry = new LogEntry("patient", patientId, FieldCodec.encode(record));
+                written += 8 + 2 + entry.stream().length() + 2 + patientId.length() + 4 + entry.payload().length;
+                log.append(entry);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to delete " + directory, e);
+        }
+    }
+
+    @Benchmark
+    public long recover() {
+        long[] replayed = new long[1];
+        try (SegmentLog log = SegmentLog.open(directory, SegmentLog.Options.defaults())) {
+            log.replay(entry -> replayed[0] += FieldCodec.decode(entry.payload()).size());
+        }
+        if (replayed[0] < entries) {
+            throw new IllegalStateException("Replayed " + replayed[0] + " fields from " + entries + " entries");
+        }
+        return replayed[0];
+    }
+}
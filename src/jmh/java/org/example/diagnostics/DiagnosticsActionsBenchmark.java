@@ -0,0 +1,103 @@
+package org.example.diagnostics;
+
+import org.example.benchmark.BenchmarkJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every diagnostics {@code @Action}, called in-process (no HTTP, no LLM), with and without the write-ahead log.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DiagnosticsActionsBenchmark {
+
+    @Param({BenchmarkJournal.NOOP, BenchmarkJournal.SEGMENT_LOG})
+    public String journal;
+
+    private BenchmarkJournal journals;
+    private OrderDispatcher dispatcher;
+    private DiagnosticsService service;
+    private String labOrderId;
+    private String imagingOrderId;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        journals = BenchmarkJournal.create(journal, "diagnostics");
+        // Stations finish at once so the orders placed by the benchmark do not pile up.
+        dispatcher = new OrderDispatcher(journals.journal(), OrderDispatcher.Options.defaults(),
+                modality -> new SimulatedStation(0));
+        service = new DiagnosticsService(journals.journal(), new LabSeriesStore(null, Integer.MAX_VALUE), dispatcher);
+        String order = service.orderLabTests("PT-0000000000001", "Complete Blood Count", "ROUTINE");
+        labOrderId = order.substring(order.indexOf("LAB-"), order.indexOf('\n', order.indexOf("LAB-")));
+        service.recordLabResult(labOrderId, "Hemoglobin", 14.5);
+        service.recordLabResult(labOrderId, "WBC", 7.5);
+        for (String analyte : new String[]{"Total Cholesterol", "LDL", "HDL", "Triglycerides"}) {
+            service.recordLabResult(labOrderId, analyte, 120);
+        }
+        String scan = service.orderImagingScan("PT-0000000000001", "X-Ray", "Chest", "Cough for three weeks");
+        imagingOrderId = scan.substring(scan.indexOf("IMG-"), scan.indexOf('\n', scan.indexOf("IMG-")));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        dispatcher.close();
+        journals.close();
+    }
+
+    @Benchmark
+    public String orderLabTests() {
+        return service.orderLabTests("PT-0000000000001", "Complete Blood Count", "URGENT");
+    }
+
+    @Benchmark
+    public String recordLabResult() {
+        return service.recordLabResult(labOrderId, "Platelets", 250);
+    }
+
+    @Benchmark
+    public String getLabResults() {
+        return service.getLabResults(labOrderId);
+    }
+
+    @Benchmark
+    public String orderImagingScan() {
+        return service.orderImagingScan("PT-0000000000001", "MRI", "Knee", "Persistent pain after fall");
+    }
+
+    @Benchmark
+    public String getImagingResults() {
+        return service.getImagingResults(imagingOrderId);
+    }
+
+    @Benchmark
+    public String analyzeDiagnosticTrends() {
+        return service.analyzeDiagnosticTrends("PT-0000000000001", "Lipid Panel");
+    }
+
+    @Benchmark
+    public String createDiagnosticReport() {
+        return service.createDiagnosticReport("PT-0000000000001", "Hypertension");
+    }
+
+    @Benchmark
+    public String scheduleFollowUpTests() {
+        return service.scheduleFollowUpTests("PT-0000000000001", labOrderId);
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.diagnostics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Sends one stored study of {@code megabytes} over a loopback socket to a reader that discards it:
+ * {@link ImagingBlobStore#transferTo} as the study endpoint does, against copying through a heap
+ * {@code byte[]}, with reading the file alone as the disk-speed baseline. Run with {@code -prof gc}: the
+ * transfer allocates next to nothing per study whatever its size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms256m", "-Xmx256m"})
+public class ImagingStreamBenchmark {
+
+    @Param({"512"})
+    public int megabytes;
+
+    private Path directory;
+    private ImagingBlobStore store;
+    private ImagingBlobStore.Blob blob;
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private Thread reader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("imaging-blobs");
+        store = new ImagingBlobStore(directory);
+        blob = store.put(randomBytes((long) megabytes << 20));
+
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel accepted = server.accept();
+        reader = new Thread(() -> {
+            ByteBuffer sink = ByteBuffer.allocateDirect(1 << 20);
+            try (accepted) {
+                while (accepted.read(sink.clear()) >= 0) {
+                    // discard
+                }
+            } catch (IOException e) {
+                // closed by tear-down
+            }
+        }, "study-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, InterruptedException {
+        client.close();
+        reader.join();
+        server.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long diskRead() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        long read = 0;
+        try (FileChannel in = FileChannel.open(blob.path(), StandardOpenOption.READ)) {
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer.clear())) {
+                read += n;
+            }
+        }
+        return read;
+    }
+
+    @Benchmark
+    public void transferTo() throws IOException {
+        store.transferTo(blob, 0, blob.size(), client);
+    }
+
+    @Benchmark
+    public void heapCopy() throws IOException {
+        OutputStream out = Channels.newOutputStream(client);
+        try (InputStream in = Files.newInputStream(blob.path())) {
+            byte[] buffer = new byte[64 << 10];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+        }
+    }
+
+    private static ReadableByteChannel randomBytes(long size) {
+        ByteBuffer pattern = ByteBuffer.allocateDirect(1 << 20);
+        SplittableRandom random = new SplittableRandom(42);
+        while (pattern.remaining() >= Long.BYTES) {
+            pattern.putLong(random.nextLong());
+        }
+        return new ReadableByteChannel() {
+            private long left = size;
+
+            @Override
+            public int read(ByteBuffer target) {
+                if (left == 0) {
+                    return -1;
+                }
+                int count = (int) Math.min(left, Math.min(target.remaining(), pattern.capacity()));
+                target.put(pattern.duplicate().clear().limit(count));
+                left -= count;
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.diagnostics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trend queries over ten years of hourly heart-rate readings (87,660 points) for one patient, with every
+ * chunk on the heap or every full chunk spilled to a mapped file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class LabTrendBenchmark {
+
+    private static final String PATIENT = "PT-0000000000001";
+    private static final long HOUR = 3600;
+    private static final long START = 1_500_000_000L;
+
+    @Param({"heap", "mapped"})
+    public String storage;
+
+    private LabSeriesStore store;
+    private LabSeriesStore.Series series;
+    private Path directory;
+    private long end;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        boolean mapped = storage.equals("mapped");
+        directory = mapped ? Files.createTempDirectory("lab-series") : null;
+        store = new LabSeriesStore(directory, 1);
+        SplittableRandom random = new SplittableRandom(42);
+        int points = (int) TimeUnit.DAYS.toHours(3653);
+        for (int i = 0; i < points; i++) {
+            double circadian = 8 * Math.sin(2 * Math.PI * (i % 24) / 24.0);
+            store.append(PATIENT, Analyte.HEART_RATE, START + i * HOUR, 72 + circadian + random.nextGaussian() * 9);
+        }
+        series = store.series(PATIENT, Analyte.HEART_RATE);
+        end = series.lastSecond();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        if (directory != null) {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Benchmark
+    public TrendAnalysis.Trend tenYears() {
+        return TrendAnalysis.analyze(series, Analyte.HEART_RATE, START, end, TimeUnit.DAYS.toSeconds(30));
+    }
+
+    @Benchmark
+    public TrendAnalysis.Trend lastYear() {
+        return TrendAnalysis.analyze(series, Analyte.HEART_RATE, end - TimeUnit.DAYS.toSeconds(365), end,
+                TimeUnit.DAYS.toSeconds(30));
+    }
+}
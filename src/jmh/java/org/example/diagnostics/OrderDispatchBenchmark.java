@@ -0,0 +1,101 @@
+package org.example.diagnostics;
+
+import org.example.common.metrics.MetricsRegistry;
+import org.example.common.wal.Journal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time from submitting a lab order of {@code priority} until a station starts on it, while a background thread
+ * keeps {@code backlog} routine lab orders queued. Each analyzer stand-in takes {@code serviceMillis} per order.
+ * The lab queue-wait percentiles by priority are printed after the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class OrderDispatchBenchmark {
+
+    @Param({"STAT", "URGENT"})
+    public Priority priority;
+
+    @Param({"10000"})
+    public int backlog;
+
+    @Param({"5"})
+    public long serviceMillis;
+
+    private final Map<String, CompletableFuture<Void>> started = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private OrderDispatcher dispatcher;
+    private Thread flood;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dispatcher = new OrderDispatcher(Journal.NOOP, OrderDispatcher.Options.defaults(),
+                modality -> new SimulatedStation(serviceMillis));
+        dispatcher.addListener(order -> {
+            if (order.status() == OrderStatus.IN_PROGRESS) {
+                CompletableFuture<Void> waiting = started.remove(order.orderId());
+                if (waiting != null) {
+                    waiting.complete(null);
+                }
+            }
+        });
+        flood = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                while (dispatcher.ahead(Modality.LAB, Priority.ROUTINE) < backlog) {
+                    dispatcher.submit("R-" + ids.incrementAndGet(), "PT-0000000000002", Modality.LAB,
+                            Priority.ROUTINE, "Lipid Panel", null, 0);
+                }
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "routine-flood");
+        flood.setDaemon(true);
+        flood.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        flood.interrupt();
+        flood.join();
+        dispatcher.close();
+        StringBuilder metrics = new StringBuilder();
+        MetricsRegistry.shared().writePrometheus(metrics);
+        metrics.toString().lines()
+               .filter(line -> line.startsWith("diagnostics_order_queue_wait") && line.contains("modality=\"LAB\""))
+               .forEach(System.out::println);
+    }
+
+    @Benchmark
+    public void untilStarted() {
+        String orderId = "O-" + ids.incrementAndGet();
+        CompletableFuture<Void> waiting = new CompletableFuture<>();
+        started.put(orderId, waiting);
+        dispatcher.submit(orderId, "PT-0000000000001", Modality.LAB, priority, "Basic Metabolic Panel", null, 0);
+        waiting.join();
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.healthcareclient;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stub agents with injectable faults, for resilience benchmarks. Each agent answers after its base latency; a
+ * share of its calls can instead take the slow latency (a latency tail, or a brownout when the share is 100) or
+ * fail. Waits are interruptible, like a blocked HTTP call, so abandoned calls free their thread.
+ */
+public class FaultyAgent implements AgentTransport, AgentToolClient {
+
+    public record Fault(long latencyMillis, int slowPercent, long slowLatencyMillis, int failurePercent) {
+
+        public static Fault healthy(long latencyMillis) {
+            return new Fault(latencyMillis, 0, 0, 0);
+        }
+    }
+
+    private final Map<AgentDomain, Fault> faults = new EnumMap<>(AgentDomain.class);
+
+    public FaultyAgent(long latencyMillis) {
+        for (AgentDomain domain : AgentDomain.values()) {
+            faults.put(domain, Fault.healthy(latencyMillis));
+        }
+    }
+
+    public FaultyAgent inject(AgentDomain domain, Fault fault) {
+        faults.put(domain, fault);
+        return this;
+    }
+
+    @Override
+    public String send(AgentDomain domain, String query) {
+        return answer(domain, query);
+    }
+
+    @Override
+    public String callTool(AgentDomain domain, String toolName, String plainEnglishArguments) {
+        return answer(domain, toolName + " " + plainEnglishArguments);
+    }
+
+    private String answer(AgentDomain domain, String request) {
+        Fault fault = faults.get(domain);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean slow = random.nextInt(100) < fault.slowPercent();
+        try {
+            TimeUnit.MILLISECONDS.sleep(slow ? fault.slowLatencyMillis() : fault.latencyMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Call to " + domain + " abandoned", e);
+        }
+        if (random.nextInt(100) < fault.failurePercent()) {
+            throw new IllegalStateException(domain + " answered HTTP 500");
+        }
+        return domain.getKey() + " answered: " + request;
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.healthcareclient;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cross-domain requests from {@link HealthcareMeshClient} against agents with a fixed simulated
+ * latency: scatter-gather versus one call after another, and the workflow DAG versus running its
+ * nodes serially in topological order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeshFanOutBenchmark {
+
+    private static final Duration DEADLINE = Duration.ofSeconds(30);
+
+    @Param({"5", "50"})
+    public long agentLatencyMillis;
+
+    private AgentTransport transport;
+    private ScatterGatherExecutor scatterGather;
+    private WorkflowEngine workflowEngine;
+    private List<SubQuery> overview;
+    private Workflow visit;
+
+    @Setup
+    public void setUp() {
+        transport = new StubAgentTransport(agentLatencyMillis);
+        scatterGather = new ScatterGatherExecutor(transport);
+        workflowEngine = new WorkflowEngine(transport);
+        overview = SubQuery.patientOverview("PT-12345");
+        visit = Workflow.builder("cardiology-visit")
+                .node("history", AgentDomain.PATIENT_RECORDS, "Get medical history for patient ID PT-12345")
+                .node("labs", AgentDomain.DIAGNOSTICS, "Analyze recent lab result trends for patient PT-12345")
+                .node("balance", AgentDomain.BILLING, "Get account balance for patient PT-12345")
+                .node("appointment", AgentDomain.APPOINTMENTS,
+                        "Schedule appointment for patient PT-12345 with Dr. Johnson on February 10, 2026")
+                .node("invoice", AgentDomain.BILLING, List.of("appointment"), upstream ->
+                        "Generate invoice for patient PT-12345, amount $150\n" + upstream.get("appointment"))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        scatterGather.close();
+        workflowEngine.close();
+    }
+
+    @Benchmark
+    public ScatterGatherResult scatterGather() {
+        return scatterGather.gather(overview, DEADLINE);
+    }
+
+    @Benchmark
+    public List<String> serialQueries() {
+        List<String> answers = new ArrayList<>(overview.size());
+        for (SubQuery subQuery : overview) {
+            answers.add(transport.send(subQuery.domain(), subQuery.query()));
+        }
+        return answers;
+    }
+
+    @Benchmark
+    public WorkflowResult workflowDag() {
+        return workflowEngine.run(visit, DEADLINE);
+    }
+
+    @Benchmark
+    public Map<String, String> workflowSerial() {
+        Map<String, String> answers = new HashMap<>();
+        for (String nodeId : visit.getTopologicalOrder()) {
+            Workflow.Node node = visit.getNodes().get(nodeId);
+            answers.put(nodeId, transport.send(node.domain(), node.query().apply(answers)));
+        }
+        return answers;
+    }
+}
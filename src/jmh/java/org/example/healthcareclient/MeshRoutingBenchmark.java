@@ -0,0 +1,88 @@
+package org.example.healthcareclient;
+
+import org.example.billing.BillingService;
+import org.example.billing.EligibilityCache;
+import org.example.common.ActionDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query routing in {@link HealthcareMeshClient}'s request path against {@link StubLlmClient}:
+ * a {@link RoutingCache} hit, the LLM resolution a miss pays for, and a typed fast-path call
+ * compared with the same call routed through the LLM first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dhealthcare.persistence.enabled=false")
+public class MeshRoutingBenchmark {
+
+    private static final int QUERY_COUNT = 1 << 10;
+
+    @Param({"0", "200"})
+    public long llmLatencyMillis;
+
+    private SemanticRouter router;
+    private LlmRouteResolver resolver;
+    private ActionDispatcher billing;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        resolver = new LlmRouteResolver(new StubLlmClient(llmLatencyMillis));
+        router = new SemanticRouter(new RoutingCache(10_000), resolver, new JsonRpcAgentClient(),
+                new StubAgentTransport(0));
+        billing = ActionDispatcher.of(new BillingService(EligibilityCache.configured()));
+        queries = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            String patientId = "PT-" + Integer.toString(10_000 + i, 36).toUpperCase();
+            queries[i] = switch (i % 4) {
+                case 0 -> "Get account balance for patient " + patientId;
+                case 1 -> "Get medical history for patient ID " + patientId;
+                case 2 -> "Get upcoming appointments for patient " + patientId;
+                default -> "Analyze recent lab result trends for patient " + patientId;
+            };
+            router.route(queries[i]);
+        }
+    }
+
+    private String nextQuery() {
+        return queries[next++ & (QUERY_COUNT - 1)];
+    }
+
+    @Benchmark
+    public Route routeCacheHit() {
+        return router.route(nextQuery());
+    }
+
+    @Benchmark
+    public Route routeCacheMiss() {
+        return resolver.resolve(nextQuery());
+    }
+
+    @Benchmark
+    public Object fastPathDispatch() {
+        return billing.invoke("getAccountBalance", List.of("PT-12345"));
+    }
+
+    @Benchmark
+    public Object llmRoutedDispatch() {
+        Route route = resolver.resolve("Get account balance for patient PT-12345");
+        return billing.invoke(route.action(), List.of("PT-12345"));
+    }
+}
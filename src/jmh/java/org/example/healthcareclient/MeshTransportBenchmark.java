@@ -0,0 +1,154 @@
+package org.example.healthcareclient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.common.metrics.MetricsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A thousand concurrent {@code getAccountBalance} calls to one stub agent on loopback, answered after
+ * {@code serviceMicros} per request (not per call, so a batch costs as much as a single call). {@code fastPath} is
+ * {@link FastPathClient} on 256 threads; {@code pooled} is {@link PooledAgentClient} with batching
+ * ({@code lingerMicros} above 0) or without. {@code patients} of 1000 makes every call distinct, 50 lets
+ * single flight share answers. Each iteration prints the connections the stub accepted and the requests it served.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-Dmesh.agent.billing.url=http://127.0.0.1:18874/"})
+public class MeshTransportBenchmark {
+
+    private static final int CALLS = 1000;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Param({"fastPath", "pooled"})
+    public String client;
+
+    @Param({"0", "200"})
+    public long lingerMicros;
+
+    @Param({"1000", "50"})
+    public int patients;
+
+    @Param({"500"})
+    public long serviceMicros;
+
+    private HttpServer stub;
+    private ExecutorService stubThreads;
+    private ExecutorService callers;
+    private FastPathClient fastPath;
+    private PooledAgentClient pooled;
+    private final Set<Integer> connections = ConcurrentHashMap.newKeySet();
+    private final LongAdder requests = new LongAdder();
+
+    @Setup
+    public void setUp() throws IOException {
+        stubThreads = Executors.newFixedThreadPool(64);
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 18874), 1024);
+        stub.createContext("/actions", this::answer);
+        stub.setExecutor(stubThreads);
+        stub.start();
+        callers = Executors.newFixedThreadPool(256);
+        fastPath = new FastPathClient();
+        pooled = new PooledAgentClient(new PooledAgentClient.Options(32, lingerMicros, 4, Duration.ofSeconds(5),
+                Duration.ofSeconds(30), List.of("get")), new MetricsRegistry());
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        System.out.println(" connections=" + connections.size() + " requests=" + requests.sumThenReset());
+        connections.clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pooled.close();
+        callers.shutdownNow();
+        stub.stop(0);
+        stubThreads.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public int calls() {
+        List<CompletableFuture<String>> answers = new ArrayList<>(CALLS);
+        for (int i = 0; i < CALLS; i++) {
+            String patientId = "PT-" + (i % patients);
+            answers.add("pooled".equals(client)
+                    ? pooled.invokeAsync(AgentDomain.BILLING, "getAccountBalance", patientId)
+                    : CompletableFuture.supplyAsync(
+                            () -> fastPath.invoke(AgentDomain.BILLING, "getAccountBalance", patientId), callers));
+        }
+        int length = 0;
+        for (CompletableFuture<String> answer : answers) {
+            length += answer.join().length();
+        }
+        return length;
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        connections.add(exchange.getRemoteAddress().getPort());
+        requests.increment();
+        String path = exchange.getRequestURI().getPath();
+        String body;
+        if ("GET".equals(exchange.getRequestMethod())) {
+            body = "[\"getAccountBalance\"]";
+        } else if (path.equals("/actions") || path.equals("/actions/")) {
+            ArrayNode responses = MAPPER.createArrayNode();
+            for (JsonNode call : MAPPER.readTree(exchange.getRequestBody())) {
+                ObjectNode response = responses.addObject();
+                response.put("jsonrpc", "2.0");
+                response.set("id", call.get("id"));
+                response.put("result", balance(call.path("params").path(0).asText()));
+            }
+            body = responses.toString();
+        } else {
+            body = balance(MAPPER.readTree(exchange.getRequestBody()).path(0).asText());
+        }
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(serviceMicros));
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String balance(String patientId) {
+        return "Account balance for " + patientId + ": $0.00";
+    }
+}
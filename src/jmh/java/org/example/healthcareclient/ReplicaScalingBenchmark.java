@@ -0,0 +1,128 @@
+package org.example.healthcareclient;
+
+import org.example.common.metrics.MetricsRegistry;
+import org.example.patientrecords.PatientRecordsServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Fast-path reads per millisecond from 64 callers against 1, 2 or 4 {@code PatientRecordsServer} processes that
+ * register in a temporary replica directory, balanced by power of two choices ({@code p2c}) or by each patient's
+ * owner on the hash ring ({@code affinity}). Each replica is held to {@code serverCpus} processors and as many
+ * Tomcat threads as calls it should run at once, so a replica is the unit of capacity; throughput can only grow
+ * linearly with replicas while the host has {@code replicas * serverCpus} cores to spare beyond the benchmark's
+ * own. Server output goes to {@code target/replica-scaling.log}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(64)
+public class ReplicaScalingBenchmark {
+
+    private static final Duration READY_TIMEOUT = Duration.ofSeconds(120);
+
+    @Param({"1", "2", "4"})
+    public int replicas;
+
+    @Param({"p2c", "affinity"})
+    public String balance;
+
+    @Param({"2"})
+    public int serverCpus;
+
+    private final List<Process> servers = new ArrayList<>();
+    private Path directory;
+    private ReplicaRegistry registry;
+    private BalancedAgentClient client;
+    private String[] patientIds;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        directory = Files.createTempDirectory("mesh-replicas");
+        for (int i = 0; i < replicas; i++) {
+            servers.add(new ProcessBuilder(
+                    Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-Xmx512m", "-XX:ActiveProcessorCount=" + serverCpus,
+                    "-Dserver.port=0",
+                    "-Dserver.tomcat.threads.max=" + serverCpus * 4,
+                    "-Dhealthcare.persistence.enabled=false",
+                    "-Dmesh.node.id=" + (i + 1),
+                    "-Dmesh.registry.dir=" + directory,
+                    "-Dmesh.registry.heartbeat-ms=500",
+                    "-cp", System.getProperty("java.class.path"),
+                    PatientRecordsServer.class.getName())
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(new File("target/replica-scaling.log")))
+                    .start());
+        }
+        registry = new ReplicaRegistry(directory, Duration.ofMillis(500), new MetricsRegistry());
+        if (!registry.awaitReplicas(AgentDomain.PATIENT_RECORDS, replicas, READY_TIMEOUT)) {
+            throw new IllegalStateException(replicas + " replicas not registered after " + READY_TIMEOUT
+                    + "; see target/replica-scaling.log");
+        }
+        registry.refresh();
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        client = new BalancedAgentClient(registry, new JsonRpcAgentClient(http, Duration.ofSeconds(30)),
+                new FastPathClient(http, Duration.ofSeconds(30)), url -> null, balance.equals("affinity"));
+        patientIds = new String[10_000];
+        for (int i = 0; i < patientIds.length; i++) {
+            patientIds[i] = "PT-" + Integer.toString(i, 32).toUpperCase(Locale.ROOT);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        for (Replica replica : registry.pool(AgentDomain.PATIENT_RECORDS).replicas()) {
+            System.out.println(" " + replica.url() + " ewma="
+                    + TimeUnit.NANOSECONDS.toMicros(replica.ewmaNanos()) + "us");
+        }
+        registry.close();
+        for (Process server : servers) {
+            server.destroy();
+        }
+        for (Process server : servers) {
+            if (!server.waitFor(10, TimeUnit.SECONDS)) {
+                server.destroyForcibly().waitFor();
+            }
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public String getPatientHistory() {
+        String patientId = patientIds[ThreadLocalRandom.current().nextInt(patientIds.length)];
+        return client.invoke(AgentDomain.PATIENT_RECORDS, "getPatientHistory", patientId);
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.healthcareclient;
+
+import org.example.common.metrics.MetricsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 32 callers spread over the four agents of a {@link FaultyAgent} mesh (5 ms per call), calling them directly or
+ * through {@link ResilientTransport}:
+ * <ul>
+ *     <li>{@code brownout} - diagnostics takes 2 s per call</li>
+ *     <li>{@code failing} - diagnostics fails every call after 200 ms</li>
+ *     <li>{@code tail} - every agent takes 250 ms on 2% of calls</li>
+ * </ul>
+ * The score is the latency of one call, successful or not; each iteration prints the calls each agent answered
+ * and how many were refused. With {@code guarded} the healthy agents should keep their throughput through a
+ * brownout, and hedging should cut the p99 of the tail.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(32)
+public class ResilienceBenchmark {
+
+    private static final AgentDomain[] DOMAINS = AgentDomain.values();
+
+    @Param({"healthy", "brownout", "failing", "tail"})
+    public String fault;
+
+    @Param({"false", "true"})
+    public boolean guarded;
+
+    private AgentToolClient client;
+    private ResilientTransport resilient;
+    private final Map<AgentDomain, LongAdder> answered = new EnumMap<>(AgentDomain.class);
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @Setup
+    public void setUp() {
+        FaultyAgent agents = new FaultyAgent(5);
+        switch (fault) {
+            case "brownout" -> agents.inject(AgentDomain.DIAGNOSTICS, new FaultyAgent.Fault(5, 100, 2000, 0));
+            case "failing" -> agents.inject(AgentDomain.DIAGNOSTICS, new FaultyAgent.Fault(5, 100, 200, 100));
+            case "tail" -> {
+                for (AgentDomain domain : DOMAINS) {
+                    agents.inject(domain, new FaultyAgent.Fault(5, 2, 250, 0));
+                }
+            }
+            default -> {
+            }
+        }
+        for (AgentDomain domain : DOMAINS) {
+            answered.put(domain, new LongAdder());
+        }
+        if (guarded) {
+            resilient = new ResilientTransport(agents, agents, agents, new ResilientTransport.Options("gradient", 20,
+                    200, 20, 50, 2000, 3, Duration.ofSeconds(1), List.of("get"), 10, 100), new MetricsRegistry());
+            client = resilient;
+        } else {
+            client = agents;
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        StringBuilder line = new StringBuilder(" answered");
+        answered.forEach((domain, count) -> line.append(' ').append(domain.getKey()).append('=')
+                .append(count.sumThenReset()));
+        System.out.println(line + " refused=" + refused.sumThenReset() + " failed=" + failed.sumThenReset());
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (resilient != null) {
+            resilient.close();
+        }
+    }
+
+    @Benchmark
+    public String call() {
+        AgentDomain domain = DOMAINS[ThreadLocalRandom.current().nextInt(DOMAINS.length)];
+        try {
+            String answer = client.callTool(domain, "getPatientSummary", "patient PT-12345");
+            answered.get(domain).increment();
+            return answer;
+        } catch (AgentUnavailableException e) {
+            refused.increment();
+            return null;
+        } catch (IllegalStateException e) {
+            failed.increment();
+            return null;
+        }
+    }
+}
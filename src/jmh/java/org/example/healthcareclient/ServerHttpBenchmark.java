@@ -0,0 +1,103 @@
+package org.example.healthcareclient;
+
+import org.example.appointments.AppointmentsServer;
+import org.example.billing.BillingServer;
+import org.example.diagnostics.DiagnosticsServer;
+import org.example.patientrecords.PatientRecordsServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end HTTP calls against each {@code *Server} on its configured port. A server that is not
+ * already listening is started inside the benchmark fork. {@code fastPath} measures the
+ * {@code /actions} endpoint; {@code jsonRpcToolCall} goes through the server's LLM argument
+ * extraction and therefore needs the keys in {@code tools4ai.properties}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dhealthcare.persistence.enabled=false")
+public class ServerHttpBenchmark {
+
+    @Param({"PATIENT_RECORDS", "APPOINTMENTS", "DIAGNOSTICS", "BILLING"})
+    public AgentDomain domain;
+
+    private final FastPathClient fastPath = new FastPathClient();
+    private final JsonRpcAgentClient agentClient = new JsonRpcAgentClient();
+    private ConfigurableApplicationContext server;
+    private String action;
+    private String argument;
+
+    @Setup
+    public void setUp() {
+        switch (domain) {
+            case PATIENT_RECORDS -> use("getImmunizationRecords", "PT-12345");
+            case APPOINTMENTS -> use("getAppointmentDetails", "APT-12345");
+            case DIAGNOSTICS -> use("getLabResults", "LAB-12345");
+            case BILLING -> use("getAccountBalance", "PT-12345");
+        }
+        if (!listening(URI.create(domain.getUrl()))) {
+            server = SpringApplication.run(serverClass(domain));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Benchmark
+    public String fastPath() {
+        return fastPath.invoke(domain, action, argument);
+    }
+
+    @Benchmark
+    public String jsonRpcToolCall() {
+        return agentClient.callTool(domain, action, argument);
+    }
+
+    private void use(String action, String argument) {
+        this.action = action;
+        this.argument = argument;
+    }
+
+    static Class<?> serverClass(AgentDomain domain) {
+        return switch (domain) {
+            case PATIENT_RECORDS -> PatientRecordsServer.class;
+            case APPOINTMENTS -> AppointmentsServer.class;
+            case DIAGNOSTICS -> DiagnosticsServer.class;
+            case BILLING -> BillingServer.class;
+        };
+    }
+
+    private static boolean listening(URI url) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(url.getHost(), url.getPort()), 500);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
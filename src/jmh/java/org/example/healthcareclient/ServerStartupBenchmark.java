@@ -0,0 +1,129 @@
+package org.example.healthcareclient;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first request: from launching a server JVM until its {@code GET /actions} first answers 200.
+ * {@code standard} runs the server from this fork's classpath; {@code fast} runs it as built by
+ * {@code mvn -Pfast-startup package} - the application jar, Spring AOT and the server's CDS archive - and
+ * fails if that build is missing. Server output goes to {@code target/server-startup.log}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ServerStartupBenchmark {
+
+    private static final Path TARGET = Path.of("target");
+    private static final Duration READY_TIMEOUT = Duration.ofSeconds(60);
+
+    @Param({"PATIENT_RECORDS", "APPOINTMENTS", "DIAGNOSTICS", "BILLING"})
+    public AgentDomain domain;
+
+    @Param({"standard", "fast"})
+    public String mode;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+    private List<String> command;
+    private HttpRequest ready;
+    private Process server;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Dserver.port=" + port, "-Dhealthcare.persistence.enabled=false"));
+        if (mode.equals("fast")) {
+            Path archive = TARGET.resolve("cds-" + domain.getKey() + ".jsa");
+            if (!Files.exists(archive)) {
+                throw new IllegalStateException(archive + " is missing; build with mvn -Pfast-startup package");
+            }
+            command.addAll(List.of("-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true",
+                    "-cp", applicationJar().toAbsolutePath().toString()));
+        } else {
+            command.addAll(List.of("-cp", System.getProperty("java.class.path")));
+        }
+        command.add(ServerHttpBenchmark.serverClass(domain).getName());
+        ready = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actions"))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws InterruptedException {
+        if (server != null) {
+            server.destroy();
+            if (!server.waitFor(10, TimeUnit.SECONDS)) {
+                server.destroyForcibly().waitFor();
+            }
+            server = null;
+        }
+    }
+
+    @Benchmark
+    public int timeToFirstRequest() throws IOException, InterruptedException {
+        server = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(new File("target/server-startup.log")))
+                .start();
+        long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!server.isAlive()) {
+                throw new IllegalStateException(domain + " server exited with " + server.exitValue()
+                        + "; see target/server-startup.log");
+            }
+            try {
+                HttpResponse<Void> response = httpClient.send(ready, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    return response.statusCode();
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException(domain + " server not ready after " + READY_TIMEOUT);
+    }
+
+    private static Path applicationJar() throws IOException {
+        try (DirectoryStream<Path> jars = Files.newDirectoryStream(TARGET, "healthcare-agentic-mesh-*.jar")) {
+            for (Path jar : jars) {
+                return jar;
+            }
+        }
+        throw new IllegalStateException("No application jar in target; build with mvn -Pfast-startup package");
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.healthcareclient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers every query after a fixed simulated agent latency, for fan-out and workflow benchmarks.
+ */
+public class StubAgentTransport implements AgentTransport {
+
+    private final long latencyNanos;
+
+    public StubAgentTransport(long latencyMillis) {
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+    }
+
+    @Override
+    public String send(AgentDomain domain, String query) {
+        StubLlmClient.pause(latencyNanos);
+        return domain.getKey() + " answered: " + query;
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.healthcareclient;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stands in for the model in mesh benchmarks: picks the route by keyword after a fixed simulated
+ * latency, so client-side overhead can be measured without network calls or API keys.
+ */
+public class StubLlmClient implements LlmClient {
+
+    private static final String[][] ROUTES = {
+            {"invoice", "billingOperations.generateInvoice"},
+            {"balance", "billingOperations.getAccountBalance"},
+            {"claim", "billingOperations.getClaimStatus"},
+            {"history", "patientRecordsOperations.getPatientHistory"},
+            {"vital", "patientRecordsOperations.getVitalSigns"},
+            {"upcoming", "appointmentsOperations.getUpcomingAppointments"},
+            {"schedule", "appointmentsOperations.scheduleAppointment"},
+            {"trend", "diagnosticsOperations.analyzeDiagnosticTrends"},
+            {"lab", "diagnosticsOperations.orderLabTests"},
+    };
+
+    private final long latencyNanos;
+
+    public StubLlmClient(long latencyMillis) {
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+    }
+
+    @Override
+    public String complete(String prompt) {
+        pause(latencyNanos);
+        String query = prompt.substring(prompt.lastIndexOf("Query: ") + 7).toLowerCase();
+        for (String[] route : ROUTES) {
+            if (query.contains(route[0])) {
+                return route[1];
+            }
+        }
+        return "none";
+    }
+
+    static void pause(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        for (long left = nanos; left > 0; left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+        }
+    }
+}
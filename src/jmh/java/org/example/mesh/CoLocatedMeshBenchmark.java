@@ -0,0 +1,159 @@
+package org.example.mesh;
+
+import org.example.healthcareclient.AgentDomain;
+import org.example.healthcareclient.FastPathClient;
+import org.example.healthcareclient.InProcessTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One structured call per agent in turn ({@code getImmunizationRecords}, {@code getAppointmentDetails},
+ * {@code getLabResults}, {@code getAccountBalance}) against three topologies:
+ * <ul>
+ *     <li>{@code processes} - the four servers as separate JVMs, called over HTTP</li>
+ *     <li>{@code colocated-http} - a {@link CoLocatedMesh} in this JVM, called over HTTP like an outside client</li>
+ *     <li>{@code colocated} - the same mesh called through {@link InProcessTransport}</li>
+ * </ul>
+ * The resident memory of the agents (the four processes, or what starting the mesh added to this one) is
+ * printed after start-up. Linux only, as it is read from {@code /proc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dhealthcare.persistence.enabled=false")
+public class CoLocatedMeshBenchmark {
+
+    private static final AgentDomain[] DOMAINS = AgentDomain.values();
+    private static final String[] ACTIONS = {"getImmunizationRecords", "getAppointmentDetails", "getLabResults",
+            "getAccountBalance"};
+    private static final String[] ARGUMENTS = {"PT-12345", "APT-12345", "LAB-12345", "PT-12345"};
+    private static final Duration READY_TIMEOUT = Duration.ofSeconds(120);
+
+    @Param({"processes", "colocated-http", "colocated"})
+    public String topology;
+
+    private final List<Process> servers = new ArrayList<>();
+    private CoLocatedMesh mesh;
+    private InProcessTransport inProcess;
+    private FastPathClient http;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        long before = residentKilobytes(ProcessHandle.current().pid());
+        long footprint;
+        if (topology.equals("processes")) {
+            for (AgentDomain domain : DOMAINS) {
+                int port = freePort();
+                servers.add(new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                        "-Dserver.port=" + port, "-Dhealthcare.persistence.enabled=false",
+                        "-cp", System.getProperty("java.class.path"), CoLocatedMesh.serverClassName(domain))
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start());
+                System.setProperty("mesh.agent." + domain.getKey() + ".url", "http://localhost:" + port + "/");
+            }
+            for (AgentDomain domain : DOMAINS) {
+                awaitReady(domain);
+            }
+            footprint = 0;
+            for (Process server : servers) {
+                footprint += residentKilobytes(server.pid());
+            }
+        } else {
+            mesh = CoLocatedMesh.start("--server.port=0");
+            for (AgentDomain domain : DOMAINS) {
+                System.setProperty("mesh.agent." + domain.getKey() + ".url",
+                        "http://localhost:" + mesh.port(domain) + "/");
+            }
+            footprint = residentKilobytes(ProcessHandle.current().pid()) - before;
+        }
+        inProcess = mesh == null ? null : new InProcessTransport(mesh);
+        http = new FastPathClient();
+        System.out.println("\nfootprint " + topology + ": " + (footprint >> 10) + " MB resident");
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        if (mesh != null) {
+            mesh.close();
+        }
+        for (Process server : servers) {
+            server.destroy();
+            server.waitFor(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public String call() {
+        int i = next++ & 3;
+        if (topology.equals("colocated")) {
+            return inProcess.invoke(DOMAINS[i], ACTIONS[i], ARGUMENTS[i]);
+        }
+        return http.invoke(DOMAINS[i], ACTIONS[i], ARGUMENTS[i]);
+    }
+
+    private static void awaitReady(AgentDomain domain) throws InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(domain.getUrl() + "actions")).GET().build();
+        long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(50);
+        }
+        throw new IllegalStateException(domain + " server not ready after " + READY_TIMEOUT);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * {@code VmRSS} of a process, or 0 where {@code /proc} is not available.
+     */
+    private static long residentKilobytes(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // not Linux
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.patientrecords;
+
+import org.example.benchmark.BenchmarkJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every patient records {@code @Action}, called in-process (no HTTP, no LLM). The store and journal
+ * are rebuilt for each iteration so write benchmarks do not measure an ever-growing heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PatientRecordsActionsBenchmark {
+
+    @Param({BenchmarkJournal.NOOP, BenchmarkJournal.SEGMENT_LOG})
+    public String journal;
+
+    private BenchmarkJournal journals;
+    private PatientRecordsService service;
+    private String patientId;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        journals = BenchmarkJournal.create(journal, "patientrecords");
+        PatientStore store = new PatientStore(1 << 16, journals.journal());
+        service = new PatientRecordsService(store);
+        for (int i = 0; i < 1_000; i++) {
+            service.createPatientRecord("Patient " + i, 20 + i % 60, i % 2 == 0 ? "O+" : "A-", i + " Main St");
+        }
+        patientId = store.create("Jane Doe", 42, "O+", "12 Main St").getPatientId();
+        store.update(patientId, PatientField.ALLERGIES, "Penicillin");
+        store.addNote(patientId, "Progress", "Blood pressure stable", "Dr. Smith");
+        service.recordVitalSigns(patientId, "120/80", 72, 98.6, 98);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        journals.close();
+    }
+
+    @Benchmark
+    public String createPatientRecord() {
+        return service.createPatientRecord("John Roe", 57, "B+", "48 Oak Avenue");
+    }
+
+    @Benchmark
+    public String getPatientHistory() {
+        return service.getPatientHistory(patientId);
+    }
+
+    @Benchmark
+    public String updatePatientInfo() {
+        return service.updatePatientInfo(patientId, "medications", "Lisinopril 10mg daily");
+    }
+
+    @Benchmark
+    public String addMedicalNote() {
+        return service.addMedicalNote(patientId, "Progress", "Patient reports improved sleep");
+    }
+
+    @Benchmark
+    public String recordVitalSigns() {
+        return service.recordVitalSigns(patientId, "118/76", 68, 98.4, 99);
+    }
+
+    @Benchmark
+    public String getVitalSigns() {
+        return service.getVitalSigns(patientId);
+    }
+
+    @Benchmark
+    public String searchPatientsById() {
+        return service.searchPatients(patientId);
+    }
+
+    @Benchmark
+    public String searchPatientsByName() {
+        return service.searchPatients("Patient 12");
+    }
+
+    @Benchmark
+    public String getImmunizationRecords() {
+        return service.getImmunizationRecords(patientId);
+    }
+}
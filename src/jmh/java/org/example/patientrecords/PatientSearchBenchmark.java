@@ -0,0 +1,134 @@
+package org.example.patientrecords;
+
+import org.example.benchmark.BenchmarkJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Front-desk searches (name prefix, misspelt name, phone, last four digits, date of birth, name and street)
+ * against millions of patients while one thread keeps renaming and re-addressing patients. Sample mode, so
+ * the report carries p99 per query shape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+public class PatientSearchBenchmark {
+
+    private static final String[] FIRST = {"James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael",
+            "Linda", "Ahmed", "Mei", "Carlos", "Priya", "Olga", "Kwame", "Sofia", "Hiroshi"};
+    private static final String[] LAST = {"Smith", "Johnson", "Williams", "Brown", "Garcia", "Nguyen", "Patel",
+            "Kowalski", "Okafor", "Tanaka", "Muller", "Rossi", "Haddad", "Silva", "Cohen", "Larsen"};
+    private static final String[] STREET = {"Main St", "Oak Avenue", "Maple Drive", "Cedar Lane", "Elm Street",
+            "Park Road", "Lakeview Blvd", "Hillcrest Way"};
+
+    @Param({"1000000", "5000000"})
+    public int patients;
+
+    private BenchmarkJournal journals;
+    private PatientStore store;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        journals = BenchmarkJournal.create(BenchmarkJournal.NOOP, "patientsearch");
+        store = new PatientStore(patients, journals.journal());
+        ids = new String[patients];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < patients; i++) {
+            String id = store.create(name(random, i), 1 + random.nextInt(95), "O+", address(random)).getPatientId();
+            store.update(id, PatientField.PHONE, String.format("(555) %03d-%04d", i / 10_000 % 1000, i % 10_000));
+            store.update(id, PatientField.DATE_OF_BIRTH,
+                    String.format("%d-%02d-%02d", 1930 + random.nextInt(90), 1 + random.nextInt(12), 1 + random.nextInt(28)));
+            ids[i] = id;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        journals.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public PatientSearchIndex.Page namePrefix() {
+        return store.search("Patr Ngu", 0, 20);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public PatientSearchIndex.Page misspeltName() {
+        return store.search("Jonh Smyth", 0, 20);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public PatientSearchIndex.Page phone() {
+        return store.search("555-004-2424", 0, 20);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public PatientSearchIndex.Page lastFourDigits() {
+        return store.search("2424", 0, 20);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public PatientSearchIndex.Page dateOfBirth() {
+        return store.search("4/12/1980", 0, 20);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public PatientSearchIndex.Page nameAndStreet() {
+        return store.search("mei oak", 0, 20);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public PatientRecord edit(Writer writer) {
+        String id = ids[writer.random.nextInt(ids.length)];
+        return writer.random.nextBoolean()
+                ? store.update(id, PatientField.NAME, name(writer.random, writer.random.nextInt(1_000_000)))
+                : store.update(id, PatientField.ADDRESS, address(writer.random));
+    }
+
+    private static String name(SplittableRandom random, int i) {
+        return FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)] + " " + (char) ('A' + i % 26);
+    }
+
+    private static String address(SplittableRandom random) {
+        return (1 + random.nextInt(9999)) + " " + STREET[random.nextInt(STREET.length)];
+    }
+}
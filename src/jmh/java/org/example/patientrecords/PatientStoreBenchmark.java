@@ -0,0 +1,94 @@
+package org.example.patientrecords;
+
+import org.example.benchmark.BenchmarkJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups by patient ID from six threads while two others update fields, append notes and record visits, against
+ * millions of patients. Sample mode, so the report carries p99 for reads under write load. Search is covered by
+ * {@link PatientSearchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+public class PatientStoreBenchmark {
+
+    private static final String[] BLOOD_TYPES = {"O+", "O-", "A+", "A-", "B+", "B-", "AB+", "AB-"};
+
+    @Param({"1000000", "5000000"})
+    public int patients;
+
+    private BenchmarkJournal journals;
+    private PatientStore store;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        journals = BenchmarkJournal.create(BenchmarkJournal.NOOP, "patientstore");
+        store = new PatientStore(patients, journals.journal());
+        ids = new String[patients];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < patients; i++) {
+            ids[i] = store.create("Patient " + i, 1 + random.nextInt(95), BLOOD_TYPES[random.nextInt(8)],
+                    (1 + random.nextInt(9999)) + " Main St").getPatientId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        journals.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public PatientRecord find(Picker picker) {
+        return store.find(ids[picker.random.nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public PatientRecord update(Picker picker) {
+        String id = ids[picker.random.nextInt(ids.length)];
+        return picker.random.nextBoolean()
+                ? store.update(id, PatientField.ALLERGIES, "Penicillin")
+                : store.update(id, PatientField.PHONE, "(555) 010-" + (1000 + picker.random.nextInt(9000)));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Object noteOrVisit(Picker picker) {
+        String id = ids[picker.random.nextInt(ids.length)];
+        return picker.random.nextBoolean()
+                ? store.addNote(id, "Progress", "Blood pressure stable", "Dr. Smith")
+                : store.recordVisit(id, LocalDate.now());
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.appointments;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * One booking: a run of {@link SlotCalendar} slots held on both the doctor's and the room's calendar.
+ */
+public record Appointment(String appointmentId, String patientId, String doctorName, String appointmentType,
+                          LocalDate date, int startSlot, int slotCount, String room, AppointmentStatus status) {
+
+    public LocalTime startTime() {
+        return SlotCalendar.timeOf(startSlot);
+    }
+
+    public LocalTime endTime() {
+        return SlotCalendar.timeOf(startSlot + slotCount);
+    }
+
+    public LocalDateTime startsAt() {
+        return date.atTime(startTime());
+    }
+
+    public int durationMinutes() {
+        return slotCount * SlotCalendar.SLOT_MINUTES;
+    }
+
+    public long mask() {
+        return SlotCalendar.mask(startSlot, slotCount);
+    }
+
+    Appointment withStatus(AppointmentStatus newStatus) {
+        return new Appointment(appointmentId, patientId, doctorName, appointmentType, date, startSlot, slotCount,
+                room, newStatus);
+    }
+
+    Appointment movedTo(LocalDate newDate, int newStartSlot, String newRoom) {
+        return new Appointment(appointmentId, patientId, doctorName, appointmentType, newDate, newStartSlot,
+                slotCount, newRoom, AppointmentStatus.CONFIRMED);
+    }
+}
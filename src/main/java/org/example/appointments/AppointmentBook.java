@@ -0,0 +1,564 @@
+package org.example.appointments;
+
+import org.example.common.IdGenerator;
+import org.example.common.wal.FieldCodec;
+import org.example.common.wal.Journal;
+import org.example.common.wal.LogEntry;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Stream;
+
+import static org.example.common.wal.FieldCodec.fields;
+
+/**
+ * Appointments and the doctor and room {@link SlotCalendar}s they occupy.
+ * <p>
+ * Booking reserves the doctor's slots with one compare-and-set, then the first room that is free for
+ * the same slots; if no room is free the doctor's slots are released again and the next free run is
+ * tried. Per day the book also counts the rooms holding each slot, so slots with every room taken are
+ * skipped without looking at any room, and remembers the room that was booked last, where the next room
+ * search starts; a busy day with thousands of rooms is then filled without rescanning the full ones.
+ * Changes to one appointment are serialized on one of {@value #LOCK_STRIPES} lock stripes, so a cancel
+ * racing a reschedule can neither leak nor double-release slots, and their journal entries land in the
+ * order they were applied. Every change is journalled as the full appointment and the journal is replayed
+ * on construction.
+ * <p>
+ * Appointments that hold slots are also indexed by start time in slot-sized buckets, so the appointments
+ * of a day or an hour are found with one range lookup instead of a scan of every booking, and by patient.
+ * Sent reminders are journalled with the start time they announced, so a reminder run can be repeated
+ * without messaging anyone twice while a rescheduled appointment is reminded again.
+ * <p>
+ * The server's book, a bean of {@link AppointmentsConfiguration}, starts today and spans
+ * {@code -Dappointments.calendar.days} (default 366) days; given a {@link Clock}, a book rolls forward at
+ * midnight so it always does. Rooms come from {@code -Dappointments.rooms} (comma separated, default Room 201
+ * to Room 212).
+ */
+public class AppointmentBook {
+
+    public static final int DEFAULT_SLOT_COUNT = 2;
+
+    private static final String APPOINTMENT_STREAM = "appointment";
+    private static final String STATUS_STREAM = "appointment-status";
+    private static final String REMINDER_STREAM = "appointment-reminder";
+    private static final int LOCK_STRIPES = 64;
+
+    public enum Outcome { BOOKED, NO_SLOT, OUTSIDE_CALENDAR, NOT_FOUND, CANCELLED }
+
+    /**
+     * Result of a booking or reschedule; {@code appointment} is the new state when {@code BOOKED}, the
+     * unchanged appointment for {@code NO_SLOT}/{@code CANCELLED} on a reschedule, otherwise {@code null}.
+     */
+    public record Booking(Outcome outcome, Appointment appointment) {
+    }
+
+    private final SlotCalendar doctors;
+    private final SlotCalendar rooms;
+    private final List<String> roomNames;
+    private final AtomicIntegerArray roomsBooked;
+    private final AtomicIntegerArray roomCursor;
+    private final Map<String, Appointment> byId = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, Set<String>> byStart = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<String>> byPatient = new ConcurrentHashMap<>();
+    private final Map<String, Long> remindedStart = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Journal journal;
+    private final int days;
+    private final Clock clock;
+    private volatile long rollAtMillis = Long.MAX_VALUE;
+
+    /**
+     * A calendar fixed to {@code days} days from {@code firstDay}.
+     */
+    public AppointmentBook(LocalDate firstDay, int days, List<String> roomNames, Journal journal) {
+        this(firstDay, null, days, roomNames, journal);
+    }
+
+    /**
+     * A calendar of {@code days} days from today by {@code clock}, rolling forward as the days pass.
+     */
+    public AppointmentBook(Clock clock, int days, List<String> roomNames, Journal journal) {
+        this(LocalDate.now(clock), clock, days, roomNames, journal);
+    }
+
+    private AppointmentBook(LocalDate firstDay, Clock clock, int days, List<String> roomNames, Journal journal) {
+        this.doctors = new SlotCalendar(firstDay, days);
+        this.rooms = new SlotCalendar(firstDay, days);
+        this.roomNames = List.copyOf(roomNames);
+        this.roomsBooked = new AtomicIntegerArray(doctors.capacity() * SlotCalendar.SLOTS_PER_DAY);
+        this.roomCursor = new AtomicIntegerArray(doctors.capacity());
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.journal = journal;
+        this.days = days;
+        this.clock = clock;
+        if (clock != null) {
+            rollAtMillis = nextMidnight(firstDay);
+        }
+        journal.replay(this::recover);
+    }
+
+    public static List<String> defaultRooms() {
+        String configured = System.getProperty("appointments.rooms");
+        if (configured != null && !configured.isBlank()) {
+            return Arrays.stream(configured.split(",")).map(String::trim).filter(room -> !room.isEmpty()).toList();
+        }
+        List<String> rooms = new ArrayList<>();
+        for (int number = 201; number <= 212; number++) {
+            rooms.add("Room " + number);
+        }
+        return rooms;
+    }
+
+    public LocalDate getFirstDay() {
+        rollForward();
+        return doctors.getFirstDay();
+    }
+
+    public LocalDate getLastDay() {
+        rollForward();
+        return doctors.getLastDay();
+    }
+
+    public Appointment find(String appointmentId) {
+        return byId.get(idKey(appointmentId));
+    }
+
+    /**
+     * Books the first run of {@code slotCount} slots on {@code date} at or after {@code fromSlot} for which
+     * both the doctor and some room are free.
+     */
+    public Booking book(String patientId, String doctorName, String appointmentType, LocalDate date, int fromSlot,
+                        int slotCount) {
+        rollForward();
+        if (!doctors.covers(date)) {
+            return new Booking(Outcome.OUTSIDE_CALENDAR, null);
+        }
+        String doctor = doctorKey(doctorName);
+        int slot = fromSlot;
+        String room;
+        while (true) {
+            slot = doctors.findFree(doctor, date, slot, slotCount, roomsFull(date));
+            if (slot < 0) {
+                return new Booking(Outcome.NO_SLOT, null);
+            }
+            room = reserve(doctor, date, SlotCalendar.mask(slot, slotCount), null);
+            if (room != null) {
+                break;
+            }
+            slot++;
+        }
+        Appointment appointment = new Appointment(IdGenerator.next("APT"), patientId, displayName(doctorName),
+                appointmentType, date, slot, slotCount, room, AppointmentStatus.CONFIRMED);
+        index(appointment);
+        byId.put(appointment.appointmentId(), appointment);
+        persist(appointment);
+        return new Booking(Outcome.BOOKED, appointment);
+    }
+
+    /**
+     * Moves an appointment to the first free run on {@code date} at or after {@code fromSlot}; the slots it
+     * holds count as free, so it can move within its own time. The new slots are reserved before the old ones
+     * are released, so a failed move leaves the booking untouched.
+     */
+    public Booking reschedule(String appointmentId, LocalDate date, int fromSlot) {
+        rollForward();
+        String id = idKey(appointmentId);
+        synchronized (lock(id)) {
+            Appointment current = byId.get(id);
+            if (current == null) {
+                return new Booking(Outcome.NOT_FOUND, null);
+            }
+            if (!current.status().holdsSlot()) {
+                return new Booking(Outcome.CANCELLED, current);
+            }
+            if (!doctors.covers(date)) {
+                return new Booking(Outcome.OUTSIDE_CALENDAR, current);
+            }
+            String doctor = doctorKey(current.doctorName());
+            long own = current.date().equals(date) ? current.mask() : 0L;
+            long full = roomsFull(date) & ~own;
+            for (int slot = doctors.findFree(doctor, date, fromSlot, current.slotCount(), full, own); slot >= 0;
+                 slot = doctors.findFree(doctor, date, slot + 1, current.slotCount(), full, own)) {
+                String room = reserve(doctor, date, SlotCalendar.mask(slot, current.slotCount()),
+                        own == 0 ? null : current);
+                if (room != null) {
+                    Appointment moved = current.movedTo(date, slot, room);
+                    releaseMoved(current, moved);
+                    unindexStart(current);
+                    index(moved);
+                    byId.put(id, moved);
+                    persist(moved);
+                    return new Booking(Outcome.BOOKED, moved);
+                }
+            }
+            return new Booking(Outcome.NO_SLOT, current);
+        }
+    }
+
+    /**
+     * @return the cancelled appointment, the unchanged one if it was already cancelled, or {@code null}
+     */
+    public Appointment cancel(String appointmentId) {
+        String id = idKey(appointmentId);
+        synchronized (lock(id)) {
+            Appointment current = byId.get(id);
+            if (current == null || !current.status().holdsSlot()) {
+                return current;
+            }
+            release(current);
+            unindexStart(current);
+            Appointment cancelled = current.withStatus(AppointmentStatus.CANCELLED);
+            byId.put(id, cancelled);
+            persist(cancelled);
+            return cancelled;
+        }
+    }
+
+    /**
+     * @return the checked-in appointment, the unchanged one if it was cancelled, or {@code null}
+     */
+    public Appointment checkIn(String appointmentId) {
+        String id = idKey(appointmentId);
+        synchronized (lock(id)) {
+            Appointment current = byId.get(id);
+            if (current == null || current.status() != AppointmentStatus.CONFIRMED) {
+                return current;
+            }
+            Appointment checkedIn = current.withStatus(AppointmentStatus.CHECKED_IN);
+            byId.put(id, checkedIn);
+            persist(checkedIn);
+            return checkedIn;
+        }
+    }
+
+    /**
+     * Start slots on {@code date}, stepping by {@code slotCount}, where the doctor and at least one room are
+     * free for {@code slotCount} slots. Does not reserve anything.
+     */
+    public List<Integer> freeStarts(String doctorName, LocalDate date, int slotCount) {
+        rollForward();
+        List<Integer> starts = new ArrayList<>();
+        if (!doctors.covers(date)) {
+            return starts;
+        }
+        long busy = doctors.booked(doctorKey(doctorName), date) | roomsFull(date);
+        for (int slot = 0; slot + slotCount <= SlotCalendar.SLOTS_PER_DAY; slot += slotCount) {
+            long mask = SlotCalendar.mask(slot, slotCount);
+            if ((busy & mask) == 0 && anyRoomFree(date, mask)) {
+                starts.add(slot);
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * First time from {@code date}/{@code fromSlot} onwards, within {@code searchDays} days, at which the doctor
+     * and a room are both free, or {@code null}. A hint only: nothing is reserved.
+     */
+    public LocalDateTime nextAvailable(String doctorName, LocalDate date, int fromSlot, int slotCount, int searchDays) {
+        rollForward();
+        String doctor = doctorKey(doctorName);
+        LocalDate day = date.isBefore(getFirstDay()) ? getFirstDay() : date;
+        int from = day.equals(date) ? fromSlot : 0;
+        for (int i = 0; i < searchDays && doctors.covers(day); i++, day = day.plusDays(1), from = 0) {
+            long full = roomsFull(day);
+            for (int slot = doctors.findFree(doctor, day, from, slotCount, full); slot >= 0;
+                 slot = doctors.findFree(doctor, day, slot + 1, slotCount, full)) {
+                if (anyRoomFree(day, SlotCalendar.mask(slot, slotCount))) {
+                    return day.atTime(SlotCalendar.timeOf(slot));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Appointments still holding their slots that start in {@code [from, to)}, in start order. The stream reads
+     * the index lazily, so it can be consumed item by item however many appointments the range holds.
+     */
+    public Stream<Appointment> startingBetween(LocalDateTime from, LocalDateTime to) {
+        long fromBucket = bucket(from.toLocalDate(), SlotCalendar.slotAtOrAfter(from.toLocalTime()));
+        long toBucket = bucket(to.toLocalDate(), SlotCalendar.slotAtOrAfter(to.toLocalTime()));
+        if (fromBucket >= toBucket) {
+            return Stream.empty();
+        }
+        return byStart.subMap(fromBucket, toBucket).entrySet().stream()
+                .flatMap(bucket -> bucket.getValue().stream()
+                        .map(byId::get)
+                        .filter(appointment -> appointment != null && appointment.status().holdsSlot()
+                                && bucket(appointment) == bucket.getKey()));
+    }
+
+    /**
+     * A patient's appointments that hold slots and start at or after {@code from}, in start order.
+     */
+    public List<Appointment> upcomingFor(String patientId, LocalDateTime from) {
+        Set<String> ids = byPatient.get(idKey(patientId));
+        if (ids == null) {
+            return List.of();
+        }
+        return ids.stream()
+                .map(byId::get)
+                .filter(appointment -> appointment != null && appointment.status().holdsSlot()
+                        && !appointment.startsAt().isBefore(from))
+                .sorted(Comparator.comparing(Appointment::startsAt))
+                .toList();
+    }
+
+    /**
+     * Records that a reminder for the appointment's current start time was sent.
+     *
+     * @return {@code false} if one was already sent for that start time
+     */
+    public boolean markReminded(Appointment appointment) {
+        long start = bucket(appointment);
+        Long previous = remindedStart.put(appointment.appointmentId(), start);
+        if (previous != null && previous == start) {
+            return false;
+        }
+        journal.append(REMINDER_STREAM, appointment.appointmentId(), fields("start", String.valueOf(start)));
+        return true;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Reserves the doctor and a free room for {@code mask} on {@code date}.
+     *
+     * @param moving an appointment on the same date the slots are for, whose slots (and room, which is tried
+     *               first) already count as held; {@code null} for a new booking
+     * @return the room, or {@code null} if nothing was reserved
+     */
+    private String reserve(String doctor, LocalDate date, long mask, Appointment moving) {
+        long own = moving == null ? 0L : moving.mask();
+        if (!doctors.tryReserve(doctor, date, mask & ~own)) {
+            return null;
+        }
+        int day = dayIndex(date);
+        if (moving != null && rooms.tryReserve(moving.room(), date, mask & ~own)) {
+            countRooms(day, mask, 1);
+            return moving.room();
+        }
+        int count = roomNames.size();
+        int start = roomCursor.get(day);
+        for (int i = 0; i < count; i++) {
+            int candidate = (start + i) % count;
+            String room = roomNames.get(candidate);
+            if (rooms.tryReserve(room, date, mask)) {
+                countRooms(day, mask, 1);
+                roomCursor.set(day, candidate);
+                return room;
+            }
+        }
+        doctors.release(doctor, date, mask & ~own);
+        return null;
+    }
+
+    /**
+     * Releases the slots {@code previous} held that {@code moved}, reserved with {@link #reserve} in its place,
+     * does not hold.
+     */
+    private void releaseMoved(Appointment previous, Appointment moved) {
+        if (!previous.date().equals(moved.date())) {
+            release(previous);
+            return;
+        }
+        if (doctors.covers(previous.date())) {
+            doctors.release(doctorKey(previous.doctorName()), previous.date(), previous.mask() & ~moved.mask());
+            countRooms(dayIndex(previous.date()), previous.mask(), -1);
+            long stillHeld = previous.room().equals(moved.room()) ? moved.mask() : 0L;
+            rooms.release(previous.room(), previous.date(), previous.mask() & ~stillHeld);
+        }
+    }
+
+    private void release(Appointment appointment) {
+        if (doctors.covers(appointment.date())) {
+            doctors.release(doctorKey(appointment.doctorName()), appointment.date(), appointment.mask());
+            // Count first so the count never overstates: a slot reported full really was.
+            countRooms(dayIndex(appointment.date()), appointment.mask(), -1);
+            rooms.release(appointment.room(), appointment.date(), appointment.mask());
+        }
+    }
+
+    /**
+     * Slots of {@code date} held by every room; a hint that may briefly miss a slot that just filled up.
+     */
+    private long roomsFull(LocalDate date) {
+        int base = dayIndex(date) * SlotCalendar.SLOTS_PER_DAY;
+        int count = roomNames.size();
+        long full = 0;
+        for (int slot = 0; slot < SlotCalendar.SLOTS_PER_DAY; slot++) {
+            if (roomsBooked.get(base + slot) >= count) {
+                full |= 1L << slot;
+            }
+        }
+        return full;
+    }
+
+    private void countRooms(int day, long mask, int delta) {
+        int base = day * SlotCalendar.SLOTS_PER_DAY;
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            roomsBooked.addAndGet(base + Long.numberOfTrailingZeros(bits), delta);
+        }
+    }
+
+    private int dayIndex(LocalDate date) {
+        return doctors.dayIndex(date);
+    }
+
+    private Object lock(String appointmentId) {
+        return locks[(appointmentId.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    private void rollForward() {
+        if (clock != null && clock.millis() >= rollAtMillis) {
+            roll();
+        }
+    }
+
+    /**
+     * Moves the calendars to start today: the per-day room counts of the days that join are cleared before the
+     * calendars cover them, see {@link SlotCalendar#advanceTo}.
+     */
+    private synchronized void roll() {
+        LocalDate today = LocalDate.now(clock);
+        long from = doctors.getFirstDay().toEpochDay();
+        long to = today.toEpochDay();
+        if (to > from) {
+            long end = to + days;
+            for (long day = Math.max(from + days, end - doctors.capacity()); day < end; day++) {
+                int position = doctors.position(day);
+                for (int slot = 0; slot < SlotCalendar.SLOTS_PER_DAY; slot++) {
+                    roomsBooked.set(position * SlotCalendar.SLOTS_PER_DAY + slot, 0);
+                }
+                roomCursor.set(position, 0);
+            }
+            rooms.advanceTo(today);
+            doctors.advanceTo(today);
+        }
+        rollAtMillis = nextMidnight(today);
+    }
+
+    private long nextMidnight(LocalDate day) {
+        return day.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    private boolean anyRoomFree(LocalDate date, long mask) {
+        for (String room : roomNames) {
+            if ((rooms.booked(room, date) & mask) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void index(Appointment appointment) {
+        if (appointment.status().holdsSlot()) {
+            byStart.computeIfAbsent(bucket(appointment), start -> ConcurrentHashMap.newKeySet())
+                   .add(appointment.appointmentId());
+        }
+        byPatient.computeIfAbsent(idKey(appointment.patientId()), patient -> ConcurrentHashMap.newKeySet())
+                 .add(appointment.appointmentId());
+    }
+
+    private void unindexStart(Appointment appointment) {
+        Set<String> ids = byStart.get(bucket(appointment));
+        if (ids != null) {
+            ids.remove(appointment.appointmentId());
+        }
+    }
+
+    private static long bucket(Appointment appointment) {
+        return bucket(appointment.date(), appointment.startSlot());
+    }
+
+    private static long bucket(LocalDate date, int slot) {
+        return date.toEpochDay() * SlotCalendar.SLOTS_PER_DAY + slot;
+    }
+
+    private void persist(Appointment appointment) {
+        journal.append(APPOINTMENT_STREAM, appointment.appointmentId(), fields(
+                "patientId", appointment.patientId(),
+                "doctorName", appointment.doctorName(),
+                "appointmentType", appointment.appointmentType(),
+                "date", appointment.date().toString(),
+                "startSlot", String.valueOf(appointment.startSlot()),
+                "slotCount", String.valueOf(appointment.slotCount()),
+                "room", appointment.room(),
+                "status", appointment.status().name()));
+    }
+
+    private void recover(LogEntry entry) {
+        if (entry.isTombstone()) {
+            return;
+        }
+        Map<String, String> fields = FieldCodec.decode(entry.payload());
+        if (REMINDER_STREAM.equals(entry.stream())) {
+            remindedStart.put(entry.key(), Long.parseLong(fields.get("start")));
+            return;
+        }
+        Appointment previous = byId.get(entry.key());
+        if (APPOINTMENT_STREAM.equals(entry.stream())) {
+            if (!fields.containsKey("startSlot")) {
+                return; // written before slots were tracked
+            }
+            Appointment appointment = new Appointment(entry.key(), fields.get("patientId"), fields.get("doctorName"),
+                    fields.get("appointmentType"), LocalDate.parse(fields.get("date")),
+                    Integer.parseInt(fields.get("startSlot")), Integer.parseInt(fields.get("slotCount")),
+                    fields.get("room"), AppointmentStatus.valueOf(fields.get("status")));
+            restore(previous, appointment);
+        } else if (STATUS_STREAM.equals(entry.stream()) && previous != null && "CANCELLED".equals(fields.get("status"))) {
+            restore(previous, previous.withStatus(AppointmentStatus.CANCELLED));
+        }
+    }
+
+    private void restore(Appointment previous, Appointment appointment) {
+        if (previous != null && previous.status().holdsSlot()) {
+            release(previous);
+            unindexStart(previous);
+        }
+        if (appointment.status().holdsSlot()) {
+            doctors.force(doctorKey(appointment.doctorName()), appointment.date(), appointment.mask());
+            if (doctors.covers(appointment.date())) {
+                rooms.force(appointment.room(), appointment.date(), appointment.mask());
+                countRooms(dayIndex(appointment.date()), appointment.mask(), 1);
+            }
+        }
+        index(appointment);
+        byId.put(appointment.appointmentId(), appointment);
+    }
+
+    private static String idKey(String appointmentId) {
+        return appointmentId == null ? "" : appointmentId.trim();
+    }
+
+    static String displayName(String doctorName) {
+        String name = doctorName == null ? "" : doctorName.trim();
+        if (name.regionMatches(true, 0, "Dr.", 0, 3)) {
+            name = name.substring(3).trim();
+        } else if (name.regionMatches(true, 0, "Dr ", 0, 3)) {
+            name = name.substring(3).trim();
+        }
+        return name;
+    }
+
+    static String doctorKey(String doctorName) {
+        return displayName(doctorName).toLowerCase(Locale.ROOT);
+    }
+}
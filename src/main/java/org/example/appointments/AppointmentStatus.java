@@ -0,0 +1,11 @@
+package org.example.appointments;
+
+public enum AppointmentStatus {
+    CONFIRMED,
+    CHECKED_IN,
+    CANCELLED;
+
+    public boolean holdsSlot() {
+        return this != CANCELLED;
+    }
+}
@@ -0,0 +1,201 @@
+package org.example.appointments;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+import org.example.common.BulkPipeline;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+
+/**
+ * Bulk scheduling and reminders without one HTTP or LLM round trip per appointment. Requests are read as a
+ * stream of JSON values (newline-delimited or a JSON array) and every result is written back as one NDJSON
+ * line as soon as it is ready, so neither side holds the whole batch in memory:
+ * <ul>
+ *     <li>{@code POST /appointments/bulk/schedule} - one {@link BookingRequest} object per line</li>
+ *     <li>{@code POST /appointments/bulk/reminders} - appointment IDs, as JSON strings, {@code {"appointmentId":..}}
+ *     objects or a {@code text/plain} body with one ID per line</li>
+ *     <li>{@code POST /appointments/bulk/reminders?date=tomorrow} - every appointment on that date</li>
+ * </ul>
+ * A malformed line ends the request with a final {@link BulkResult#INVALID} line after the earlier results; any
+ * other failure, such as a broken connection while reading the request, with a final {@link BulkResult#FAILED} line.
+ */
+@Log
+@RestController
+@RequestMapping("/appointments/bulk")
+public class AppointmentsBulkController {
+
+    private static final int OUTPUT_BUFFER_BYTES = 64 * 1024;
+
+    private final AppointmentsService service;
+    private final ObjectReader bookingReader;
+    private final ObjectReader valueReader;
+    private final ObjectWriter resultWriter;
+
+    public AppointmentsBulkController(AppointmentsService service, ObjectMapper objectMapper) {
+        this.service = service;
+        this.bookingReader = objectMapper.readerFor(BookingRequest.class);
+        this.valueReader = objectMapper.readerFor(JsonNode.class);
+        this.resultWriter = objectMapper.writerFor(BulkResult.class);
+    }
+
+    @PostMapping(path = "/schedule", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void schedule(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        MappingIterator<BookingRequest> requests = bookingReader.readValues(request.getInputStream());
+        stream(response, sink -> service.scheduleAll(requests, sink));
+    }
+
+    @PostMapping(path = "/reminders", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void remind(@RequestParam(name = "date", required = false) String date, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        if (date != null) {
+            LocalDateTime day = AppointmentsService.parseDateTime(date);
+            if (day == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unreadable date " + date);
+            }
+            LocalDate reminderDay = day.toLocalDate();
+            stream(response, sink -> service.remindAllOn(reminderDay, sink));
+            return;
+        }
+        Iterator<String> appointmentIds = isPlainText(request) ? lines(request) : jsonIds(request);
+        stream(response, sink -> service.remindAll(appointmentIds, sink));
+    }
+
+    private interface Run {
+        long run(BulkPipeline.Sink<BulkResult> sink) throws IOException;
+    }
+
+    private void stream(HttpServletResponse response, Run run) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream out = new BufferedOutputStream(response.getOutputStream(), OUTPUT_BUFFER_BYTES);
+        long[] written = {0};
+        BulkPipeline.Sink<BulkResult> sink = new BulkPipeline.Sink<>() {
+            @Override
+            public void accept(BulkResult result) throws IOException {
+                out.write(resultWriter.writeValueAsBytes(result));
+                out.write('\n');
+                written[0]++;
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+        };
+        try {
+            run.run(sink);
+        } catch (RuntimeException e) {
+            // Everything before the failure has been processed and written.
+            if (isMalformed(e)) {
+                sink.accept(BulkResult.failed(written[0], BulkResult.INVALID, null, rootMessage(e)));
+            } else {
+                log.log(Level.WARNING, "Bulk request failed after " + written[0] + " results", e);
+                sink.accept(BulkResult.failed(written[0], BulkResult.FAILED, null, rootMessage(e)));
+            }
+        }
+        out.flush();
+    }
+
+    private static boolean isPlainText(HttpServletRequest request) {
+        String contentType = request.getHeader("Content-Type");
+        return contentType != null && contentType.startsWith(MediaType.TEXT_PLAIN_VALUE);
+    }
+
+    private Iterator<String> jsonIds(HttpServletRequest request) throws IOException {
+        MappingIterator<JsonNode> values = valueReader.readValues(request.getInputStream());
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return values.hasNext();
+            }
+
+            @Override
+            public String next() {
+                JsonNode value = values.next();
+                return value.isObject() ? value.path("appointmentId").asText("") : value.asText("");
+            }
+        };
+    }
+
+    private static Iterator<String> lines(HttpServletRequest request) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        return new Iterator<>() {
+            private String next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                String current = next;
+                next = advance();
+                return current;
+            }
+
+            private String advance() {
+                try {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        if (!line.isBlank()) {
+                            return line.trim();
+                        }
+                    }
+                    return null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Whether the request body could be read but not parsed, as opposed to a failure to read it or to process it.
+     */
+    private static boolean isMalformed(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JsonProcessingException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.toString();
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.appointments;
+
+import org.example.common.wal.Journals;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * The appointments server's {@link AppointmentBook}: {@code -Dappointments.calendar.days} days (default 366)
+ * from today, rolling forward at midnight, over {@link AppointmentBook#defaultRooms()}, replayed from the
+ * {@code appointments} journal.
+ */
+@Configuration
+public class AppointmentsConfiguration {
+
+    @Bean
+    public AppointmentBook appointmentBook() {
+        return new AppointmentBook(Clock.systemDefaultZone(), Integer.getInteger("appointments.calendar.days", 366),
+                AppointmentBook.defaultRooms(), Journals.open("appointments"));
+    }
+}
@@ -2,115 +2,490 @@ package org.example.appointments;
 
 import com.t4a.annotations.Action;
 import com.t4a.annotations.Agent;
+import org.example.common.BulkPipeline;
+import org.example.common.ResponseTemplate;
+import org.example.common.events.DomainEvent;
+import org.example.common.events.EventBus;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Agent(groupName = "appointmentsOperations")
 @Service
 public class AppointmentsService {
 
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter CLOCK = DateTimeFormatter.ofPattern("h:mm a", Locale.US);
+    private static final DateTimeFormatter SHORT_DATE = DateTimeFormatter.ofPattern("MMM d, uuuu", Locale.US);
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            caseInsensitive("MMMM d, uuuu"),
+            caseInsensitive("MMM d, uuuu"),
+            caseInsensitive("MMMM d uuuu"),
+            caseInsensitive("d MMMM uuuu"),
+            caseInsensitive("M/d/uuuu")
+    };
+    private static final Pattern TIME = Pattern.compile(
+            "(?:\\bat\\s+)?\\b(\\d{1,2})(?::(\\d{2}))?\\s*([ap])\\.?m\\.?|(?:\\bat\\s+)?\\b(\\d{1,2}):(\\d{2})\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final int NEXT_AVAILABLE_SEARCH_DAYS = 30;
+
+    private static final ResponseTemplate SCHEDULE_APPOINTMENT = ResponseTemplate.compile(
+            "Appointment scheduled successfully!\n" +
+            "Appointment ID: %s\n" +
+            "Patient ID: %s\n" +
+            "Doctor: Dr. %s\n" +
+            "Type: %s\n" +
+            "Date & Time: %s at %s\n" +
+            "Duration: %d minutes\n" +
+            "Location: Medical Center - %s\n" +
+            "Status: CONFIRMED\n" +
+            "Reminder: SMS will be sent 24 hours before appointment");
+
+    private static final ResponseTemplate NO_SLOT = ResponseTemplate.compile(
+            "Dr. %s has no free %d-minute slot on %s.\n" +
+            "Next available: %s");
+
+    private static final ResponseTemplate OUTSIDE_CALENDAR = ResponseTemplate.compile(
+            "Appointments can only be booked from %s to %s; %s is outside that range.");
+
+    private static final ResponseTemplate UNREADABLE_DATE = ResponseTemplate.compile(
+            "Could not read the date '%s'. Use a date such as 2026-02-10 or February 10, 2026, " +
+            "optionally followed by a time such as 2:30 PM.");
+
+    private static final ResponseTemplate GET_APPOINTMENT_DETAILS = ResponseTemplate.compile(
+            "Appointment Details for %s:\n" +
+            "=================================\n" +
+            "Patient ID: %s\n" +
+            "Doctor: Dr. %s\n" +
+            "Type: %s\n" +
+            "Date: %s at %s\n" +
+            "Duration: %d minutes\n" +
+            "Location: Medical Center - %s\n" +
+            "Status: %s");
+
+    private static final ResponseTemplate CANCEL_APPOINTMENT = ResponseTemplate.compile(
+            "Appointment %s has been CANCELLED.\n" +
+            "Reason: %s\n" +
+            "Cancellation Date: %s\n" +
+            "Cancellation Fee: Waived (>24 hours notice)\n" +
+            "Status: CANCELLED\n" +
+            "Note: You can reschedule by calling (555) 123-4567");
+
+    private static final ResponseTemplate ALREADY_CANCELLED = ResponseTemplate.compile(
+            "Appointment %s is already cancelled.");
+
+    private static final ResponseTemplate RESCHEDULE_APPOINTMENT = ResponseTemplate.compile(
+            "Appointment %s has been RESCHEDULED.\n" +
+            "Original Date: %s at %s\n" +
+            "New Date: %s at %s\n" +
+            "Location: Medical Center - %s\n" +
+            "Rescheduled On: %s\n" +
+            "Confirmation SMS sent to patient\n" +
+            "Status: CONFIRMED");
+
+    private static final ResponseTemplate GET_AVAILABLE_SLOTS = ResponseTemplate.compile(
+            "Available Slots for Dr. %s on %s:\n" +
+            "=================================");
+
+    private static final ResponseTemplate GET_UPCOMING_APPOINTMENTS = ResponseTemplate.compile(
+            "Upcoming Appointments for Patient %s:\n");
+
+    private static final ResponseTemplate NO_UPCOMING_APPOINTMENTS = ResponseTemplate.compile(
+            "No upcoming appointments for patient %s");
+
+    private static final ResponseTemplate CHECK_IN_PATIENT = ResponseTemplate.compile(
+            "Patient Check-In Successful!\n" +
+            "Appointment ID: %s\n" +
+            "Patient ID: %s\n" +
+            "Check-In Time: %s\n" +
+            "Status: CHECKED IN\n" +
+            "Estimated Wait Time: 10 minutes\n" +
+            "Please have a seat in the waiting area. You will be called shortly.");
+
+    private static final ResponseTemplate CHECK_IN_REJECTED = ResponseTemplate.compile(
+            "Appointment %s cannot be checked in: status is %s.");
+
+    private static final ResponseTemplate SEND_APPOINTMENT_REMINDER = ResponseTemplate.compile(
+            "Appointment Reminder Sent!\n" +
+            "Appointment ID: %s\n" +
+            "Reminder Type: SMS + Email\n" +
+            "Sent At: %s\n" +
+            "Message: 'Reminder: You have an appointment with Dr. %s %s at %s'\n" +
+            "Status: DELIVERED");
+
+    private static final ResponseTemplate REMINDER_ALREADY_SENT = ResponseTemplate.compile(
+            "A reminder for appointment %s on %s at %s was already sent.");
+
+    private static final ResponseTemplate REMINDER_REJECTED = ResponseTemplate.compile(
+            "Appointment %s is %s; no reminder sent.");
+
+    private static final ResponseTemplate SEND_REMINDERS_FOR_DATE = ResponseTemplate.compile(
+            "Appointment Reminders for %s:\n" +
+            "=================================\n" +
+            "Appointments: %d");
+
+    private static final ResponseTemplate NOT_FOUND = ResponseTemplate.compile(
+            "Appointment %s not found");
+
+    private final AppointmentBook book;
+    private final BulkPipeline pipeline;
+    private final EventBus events;
+
+    @Autowired
+    public AppointmentsService(AppointmentBook book) {
+        this(book, BulkPipeline.shared());
+    }
+
+    AppointmentsService(AppointmentBook book, BulkPipeline pipeline) {
+        this(book, pipeline, EventBus.shared());
+    }
+
+    AppointmentsService(AppointmentBook book, BulkPipeline pipeline, EventBus events) {
+        this.book = book;
+        this.pipeline = pipeline;
+        this.events = events;
+    }
+
     @Action(description = "Schedule a new medical appointment")
     public String scheduleAppointment(String patientId, String doctorName, String appointmentType, String preferredDate) {
-        String appointmentId = "APT-" + (System.currentTimeMillis() % 100000);
-        return String.format("Appointment scheduled successfully!\n" +
-               "Appointment ID: %s\n" +
-               "Patient ID: %s\n" +
-               "Doctor: Dr. %s\n" +
-               "Type: %s\n" +
-               "Date & Time: %s at 10:00 AM\n" +
-               "Duration: 30 minutes\n" +
-               "Location: Medical Center - Room 205\n" +
-               "Status: CONFIRMED\n" +
-               "Reminder: SMS will be sent 24 hours before appointment", 
-               appointmentId, patientId, doctorName, appointmentType, preferredDate);
+        LocalDateTime preferred = parseDateTime(preferredDate);
+        if (preferred == null) {
+            return UNREADABLE_DATE.render().arg(preferredDate).build();
+        }
+        LocalDate date = preferred.toLocalDate();
+        int fromSlot = SlotCalendar.slotAtOrAfter(preferred.toLocalTime());
+        AppointmentBook.Booking booking = book.book(patientId, doctorName, appointmentType, date, fromSlot,
+                AppointmentBook.DEFAULT_SLOT_COUNT);
+        switch (booking.outcome()) {
+            case BOOKED:
+                Appointment appointment = booking.appointment();
+                return SCHEDULE_APPOINTMENT.render().arg(appointment.appointmentId()).arg(patientId)
+                        .arg(appointment.doctorName()).arg(appointmentType).arg(appointment.date())
+                        .arg(appointment.startTime(), CLOCK).arg(appointment.durationMinutes())
+                        .arg(appointment.room()).build();
+            case OUTSIDE_CALENDAR:
+                return outsideCalendar(date);
+            default:
+                return noSlot(doctorName, date, fromSlot);
+        }
     }
 
     @Action(description = "Get appointment details")
     public String getAppointmentDetails(String appointmentId) {
-        return String.format("Appointment Details for %s:\n" +
-               "=================================\n" +
-               "Patient: John Doe (PT-12345)\n" +
-               "Doctor: Dr. Sarah Johnson\n" +
-               "Specialty: Cardiology\n" +
-               "Type: Follow-up Consultation\n" +
-               "Date: 2026-02-10 at 10:00 AM\n" +
-               "Duration: 30 minutes\n" +
-               "Location: Medical Center - Room 205\n" +
-               "Status: CONFIRMED\n" +
-               "Pre-appointment Instructions: Fasting required (8 hours)", 
-               appointmentId);
+        Appointment appointment = book.find(appointmentId);
+        if (appointment == null) {
+            return notFound(appointmentId);
+        }
+        return GET_APPOINTMENT_DETAILS.render().arg(appointment.appointmentId()).arg(appointment.patientId())
+                .arg(appointment.doctorName()).arg(appointment.appointmentType()).arg(appointment.date())
+                .arg(appointment.startTime(), CLOCK).arg(appointment.durationMinutes()).arg(appointment.room())
+                .arg(appointment.status()).build();
     }
 
     @Action(description = "Cancel an appointment")
     public String cancelAppointment(String appointmentId, String reason) {
-        return String.format("Appointment %s has been CANCELLED.\n" +
-               "Reason: %s\n" +
-               "Cancellation Date: %s\n" +
-               "Cancellation Fee: Waived (>24 hours notice)\n" +
-               "Status: CANCELLED\n" +
-               "Note: You can reschedule by calling (555) 123-4567", 
-               appointmentId, reason, java.time.LocalDateTime.now());
+        Appointment before = book.find(appointmentId);
+        if (before == null) {
+            return notFound(appointmentId);
+        }
+        if (before.status() == AppointmentStatus.CANCELLED || book.cancel(appointmentId) == null) {
+            return ALREADY_CANCELLED.render().arg(appointmentId).build();
+        }
+        return CANCEL_APPOINTMENT.render().arg(appointmentId).arg(reason).arg(LocalDateTime.now()).build();
     }
 
     @Action(description = "Reschedule an existing appointment")
     public String rescheduleAppointment(String appointmentId, String newDate) {
-        return String.format("Appointment %s has been RESCHEDULED.\n" +
-               "Original Date: 2026-02-10 at 10:00 AM\n" +
-               "New Date: %s at 2:00 PM\n" +
-               "Rescheduled On: %s\n" +
-               "Confirmation SMS sent to patient\n" +
-               "Status: CONFIRMED", 
-               appointmentId, newDate, java.time.LocalDateTime.now());
+        LocalDateTime preferred = parseDateTime(newDate);
+        if (preferred == null) {
+            return UNREADABLE_DATE.render().arg(newDate).build();
+        }
+        Appointment before = book.find(appointmentId);
+        if (before == null) {
+            return notFound(appointmentId);
+        }
+        int fromSlot = SlotCalendar.slotAtOrAfter(preferred.toLocalTime());
+        AppointmentBook.Booking booking = book.reschedule(appointmentId, preferred.toLocalDate(), fromSlot);
+        switch (booking.outcome()) {
+            case BOOKED:
+                Appointment moved = booking.appointment();
+                return RESCHEDULE_APPOINTMENT.render().arg(moved.appointmentId())
+                        .arg(before.date()).arg(before.startTime(), CLOCK)
+                        .arg(moved.date()).arg(moved.startTime(), CLOCK).arg(moved.room())
+                        .arg(LocalDateTime.now()).build();
+            case NOT_FOUND:
+                return notFound(appointmentId);
+            case CANCELLED:
+                return ALREADY_CANCELLED.render().arg(appointmentId).build();
+            case OUTSIDE_CALENDAR:
+                return outsideCalendar(preferred.toLocalDate());
+            default:
+                return noSlot(before.doctorName(), preferred.toLocalDate(), fromSlot);
+        }
     }
 
     @Action(description = "Get available appointment slots")
     public String getAvailableSlots(String doctorName, String date) {
-        return String.format("Available Slots for Dr. %s on %s:\n" +
-               "=================================\n" +
-               "Morning Slots:\n" +
-               "  9:00 AM - 9:30 AM (Available)\n" +
-               "  10:00 AM - 10:30 AM (Available)\n" +
-               "  11:00 AM - 11:30 AM (Booked)\n" +
-               "Afternoon Slots:\n" +
-               "  2:00 PM - 2:30 PM (Available)\n" +
-               "  3:00 PM - 3:30 PM (Available)\n" +
-               "  4:00 PM - 4:30 PM (Available)\n" +
-               "To book, call (555) 123-4567 or use the patient portal", 
-               doctorName, date);
+        LocalDateTime day = parseDateTime(date);
+        if (day == null) {
+            return UNREADABLE_DATE.render().arg(date).build();
+        }
+        if (day.toLocalDate().isBefore(book.getFirstDay()) || day.toLocalDate().isAfter(book.getLastDay())) {
+            return outsideCalendar(day.toLocalDate());
+        }
+        int length = AppointmentBook.DEFAULT_SLOT_COUNT;
+        List<Integer> starts = book.freeStarts(doctorName, day.toLocalDate(), length);
+        ResponseTemplate.Renderer slots = GET_AVAILABLE_SLOTS.render().arg(AppointmentBook.displayName(doctorName)).arg(day.toLocalDate());
+        for (int start : starts) {
+            slots.text("\n  ").text(CLOCK.format(SlotCalendar.timeOf(start)))
+                 .text(" - ").text(CLOCK.format(SlotCalendar.timeOf(start + length)));
+        }
+        return slots.text("\nFree Slots: ").text(starts.size())
+                    .text("\nTo book, call (555) 123-4567 or use the patient portal").build();
     }
 
     @Action(description = "Get patient upcoming appointments")
     public String getUpcomingAppointments(String patientId) {
-        return String.format("Upcoming Appointments for Patient %s:\n\n", patientId) +
-               "1. APT-12345 - Dr. Johnson (Cardiology) - Feb 10, 2026 10:00 AM\n" +
-               "2. APT-12346 - Dr. Smith (General) - Feb 15, 2026 2:00 PM\n" +
-               "3. APT-12347 - Dr. Lee (Lab Work) - Feb 20, 2026 9:00 AM\n" +
-               "Total Upcoming: 3 appointments";
+        List<Appointment> upcoming = book.upcomingFor(patientId, LocalDateTime.now());
+        if (upcoming.isEmpty()) {
+            return NO_UPCOMING_APPOINTMENTS.render().arg(patientId).build();
+        }
+        ResponseTemplate.Renderer list = GET_UPCOMING_APPOINTMENTS.render().arg(patientId);
+        int number = 0;
+        for (Appointment appointment : upcoming) {
+            list.text("\n").text(++number).text(". ").text(appointment.appointmentId())
+                .text(" - Dr. ").text(appointment.doctorName()).text(" (").text(appointment.appointmentType())
+                .text(") - ").text(SHORT_DATE.format(appointment.date())).text(" ")
+                .text(CLOCK.format(appointment.startTime()));
+        }
+        return list.text("\nTotal Upcoming: ").text(upcoming.size()).text(" appointments").build();
     }
 
     @Action(description = "Check in patient for appointment")
     public String checkInPatient(String appointmentId, String patientId) {
-        return String.format("Patient Check-In Successful!\n" +
-               "Appointment ID: %s\n" +
-               "Patient ID: %s\n" +
-               "Check-In Time: %s\n" +
-               "Status: CHECKED IN\n" +
-               "Estimated Wait Time: 10 minutes\n" +
-               "Please have a seat in the waiting area. You will be called shortly.", 
-               appointmentId, patientId,
-               LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        Appointment before = book.find(appointmentId);
+        Appointment appointment = book.checkIn(appointmentId);
+        if (appointment == null) {
+            return notFound(appointmentId);
+        }
+        if (appointment.status() != AppointmentStatus.CHECKED_IN) {
+            return CHECK_IN_REJECTED.render().arg(appointmentId).arg(appointment.status()).build();
+        }
+        if (before != null && before.status() == AppointmentStatus.CONFIRMED) {
+            events.publish(new DomainEvent.AppointmentCheckedIn(appointment.appointmentId(), appointment.patientId(),
+                    appointment.doctorName(), appointment.appointmentType(), Instant.now()));
+        }
+        return CHECK_IN_PATIENT.render().arg(appointmentId).arg(appointment.patientId())
+                .arg(LocalDateTime.now(), TIMESTAMP).build();
     }
 
     @Action(description = "Send appointment reminder")
     public String sendAppointmentReminder(String appointmentId) {
-        return String.format("Appointment Reminder Sent!\n" +
-               "Appointment ID: %s\n" +
-               "Reminder Type: SMS + Email\n" +
-               "Sent At: %s\n" +
-               "Message: 'Reminder: You have an appointment with Dr. Johnson tomorrow at 10:00 AM'\n" +
-               "Status: DELIVERED", 
-               appointmentId,
-               LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        Appointment appointment = book.find(appointmentId);
+        if (appointment == null) {
+            return notFound(appointmentId);
+        }
+        if (!appointment.status().holdsSlot()) {
+            return REMINDER_REJECTED.render().arg(appointmentId).arg(appointment.status()).build();
+        }
+        if (!book.markReminded(appointment)) {
+            return REMINDER_ALREADY_SENT.render().arg(appointmentId).arg(appointment.date())
+                    .arg(appointment.startTime(), CLOCK).build();
+        }
+        return SEND_APPOINTMENT_REMINDER.render().arg(appointmentId).arg(LocalDateTime.now(), TIMESTAMP)
+                .arg(appointment.doctorName()).arg(relativeDay(appointment.date()))
+                .arg(appointment.startTime(), CLOCK).build();
+    }
+
+    @Action(description = "Send reminders for every appointment on a date, such as tomorrow")
+    public String sendRemindersForDate(String date) {
+        LocalDateTime day = parseDateTime(date);
+        if (day == null) {
+            return UNREADABLE_DATE.render().arg(date).build();
+        }
+        Map<String, Long> outcomes = new TreeMap<>();
+        long total;
+        try {
+            total = remindAllOn(day.toLocalDate(), result -> outcomes.merge(result.outcome(), 1L, Long::sum));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        ResponseTemplate.Renderer summary = SEND_REMINDERS_FOR_DATE.render().arg(day.toLocalDate()).arg(total);
+        for (Map.Entry<String, Long> outcome : outcomes.entrySet()) {
+            summary.text("\n").text(outcome.getKey()).text(": ").text(outcome.getValue());
+        }
+        return summary.build();
+    }
+
+    /**
+     * Books every request on the bulk pipeline, writing one {@link BulkResult} per request to {@code sink}
+     * as it completes.
+     *
+     * @return the number of requests read
+     */
+    public long scheduleAll(Iterator<BookingRequest> requests, BulkPipeline.Sink<BulkResult> sink) throws IOException {
+        return pipeline.run(requests, this::schedule, AppointmentsService::bulkFailure, sink);
+    }
+
+    /**
+     * Sends a reminder for each appointment ID on the bulk pipeline; see {@link #scheduleAll}.
+     */
+    public long remindAll(Iterator<String> appointmentIds, BulkPipeline.Sink<BulkResult> sink) throws IOException {
+        return pipeline.run(appointmentIds, (index, appointmentId) -> {
+            Appointment appointment = book.find(appointmentId);
+            if (appointment == null) {
+                return BulkResult.failed(index, BulkResult.NOT_FOUND, appointmentId, null);
+            }
+            return remind(index, appointment);
+        }, AppointmentsService::bulkFailure, sink);
+    }
+
+    /**
+     * Sends a reminder for every appointment on {@code date}, read lazily from the start-time index.
+     */
+    public long remindAllOn(LocalDate date, BulkPipeline.Sink<BulkResult> sink) throws IOException {
+        return pipeline.run(book.startingBetween(date.atStartOfDay(), date.plusDays(1).atStartOfDay()).iterator(),
+                this::remind, AppointmentsService::bulkFailure, sink);
+    }
+
+    private BulkResult schedule(long index, BookingRequest request) {
+        if (request == null || isBlank(request.patientId()) || isBlank(request.doctorName())
+                || isBlank(request.preferredDate())) {
+            return BulkResult.failed(index, BulkResult.INVALID, null,
+                    "patientId, doctorName and preferredDate are required");
+        }
+        LocalDateTime preferred = parseDateTime(request.preferredDate());
+        if (preferred == null) {
+            return BulkResult.failed(index, BulkResult.UNREADABLE_DATE, null,
+                    UNREADABLE_DATE.render().arg(request.preferredDate()).build());
+        }
+        LocalDate date = preferred.toLocalDate();
+        int fromSlot = SlotCalendar.slotAtOrAfter(preferred.toLocalTime());
+        AppointmentBook.Booking booking = book.book(request.patientId(), request.doctorName(),
+                request.appointmentType(), date, fromSlot, AppointmentBook.DEFAULT_SLOT_COUNT);
+        switch (booking.outcome()) {
+            case BOOKED:
+                return BulkResult.of(index, BulkResult.BOOKED, booking.appointment(), null);
+            case OUTSIDE_CALENDAR:
+                return BulkResult.failed(index, BulkResult.OUTSIDE_CALENDAR, null, outsideCalendar(date));
+            default:
+                return BulkResult.failed(index, BulkResult.NO_SLOT, null,
+                        noSlot(request.doctorName(), date, fromSlot));
+        }
+    }
+
+    private BulkResult remind(long index, Appointment appointment) {
+        if (!appointment.status().holdsSlot()) {
+            return BulkResult.of(index, BulkResult.CANCELLED, appointment, null);
+        }
+        if (!book.markReminded(appointment)) {
+            return BulkResult.of(index, BulkResult.ALREADY_SENT, appointment, null);
+        }
+        return BulkResult.of(index, BulkResult.SENT, appointment, null);
+    }
+
+    private static BulkResult bulkFailure(long index, Object item, Throwable error) {
+        return BulkResult.failed(index, BulkResult.FAILED, item instanceof String id ? id : null, error.toString());
+    }
+
+    private static String relativeDay(LocalDate date) {
+        LocalDate today = LocalDate.now();
+        if (date.equals(today)) {
+            return "today";
+        }
+        if (date.equals(today.plusDays(1))) {
+            return "tomorrow";
+        }
+        return "on " + SHORT_DATE.format(date);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private String noSlot(String doctorName, LocalDate date, int fromSlot) {
+        LocalDateTime next = book.nextAvailable(doctorName, date, fromSlot, AppointmentBook.DEFAULT_SLOT_COUNT,
+                NEXT_AVAILABLE_SEARCH_DAYS);
+        return NO_SLOT.render().arg(AppointmentBook.displayName(doctorName))
+                .arg(AppointmentBook.DEFAULT_SLOT_COUNT * SlotCalendar.SLOT_MINUTES).arg(date)
+                .arg(next == null ? "none in the next " + NEXT_AVAILABLE_SEARCH_DAYS + " days"
+                        : next.toLocalDate() + " at " + CLOCK.format(next))
+                .build();
+    }
+
+    private String outsideCalendar(LocalDate date) {
+        return OUTSIDE_CALENDAR.render().arg(book.getFirstDay()).arg(book.getLastDay()).arg(date).build();
+    }
+
+    private static String notFound(String appointmentId) {
+        return NOT_FOUND.render().arg(appointmentId).build();
+    }
+
+    /**
+     * Reads dates such as "2026-02-10", "February 10, 2026" or "2/10/2026", optionally with a time such as
+     * "at 2:30 PM" or "14:30"; without a time the whole day is considered.
+     *
+     * @return the parsed date and time, or {@code null} if the text is not a recognizable date
+     */
+    static LocalDateTime parseDateTime(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        LocalTime time = LocalTime.MIN;
+        String date = text.trim();
+        Matcher matcher = TIME.matcher(date);
+        if (matcher.find()) {
+            int hour;
+            int minute;
+            if (matcher.group(1) != null) {
+                hour = Integer.parseInt(matcher.group(1)) % 12;
+                minute = matcher.group(2) == null ? 0 : Integer.parseInt(matcher.group(2));
+                if (Character.toLowerCase(matcher.group(3).charAt(0)) == 'p') {
+                    hour += 12;
+                }
+            } else {
+                hour = Integer.parseInt(matcher.group(4));
+                minute = Integer.parseInt(matcher.group(5));
+            }
+            if (hour > 23 || minute > 59) {
+                return null;
+            }
+            time = LocalTime.of(hour, minute);
+            date = (date.substring(0, matcher.start()) + date.substring(matcher.end())).trim();
+        }
+        date = date.replaceAll("[,\\s]+$", "").replaceFirst("(?<=\\d)T$", "").trim();
+        if (date.equalsIgnoreCase("today")) {
+            return LocalDate.now().atTime(time);
+        }
+        if (date.equalsIgnoreCase("tomorrow")) {
+            return LocalDate.now().plusDays(1).atTime(time);
+        }
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(date, format).atTime(time);
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        return null;
+    }
+
+    private static DateTimeFormatter caseInsensitive(String pattern) {
+        return new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern(pattern).toFormatter(Locale.US);
     }
 }
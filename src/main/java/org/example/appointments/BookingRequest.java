@@ -0,0 +1,8 @@
+package org.example.appointments;
+
+/**
+ * One line of a bulk scheduling request; the fields mean the same as the arguments of
+ * {@link AppointmentsService#scheduleAppointment}.
+ */
+public record BookingRequest(String patientId, String doctorName, String appointmentType, String preferredDate) {
+}
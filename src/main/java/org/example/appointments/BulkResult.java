@@ -0,0 +1,32 @@
+package org.example.appointments;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One line of a bulk response. {@code index} is the zero-based position of the request line (or of the
+ * appointment in a reminder run) it answers, since lines are written in completion order.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkResult(long index, String outcome, String appointmentId, String patientId, String doctorName,
+                         String startsAt, String room, String message) {
+
+    public static final String BOOKED = "BOOKED";
+    public static final String NO_SLOT = "NO_SLOT";
+    public static final String OUTSIDE_CALENDAR = "OUTSIDE_CALENDAR";
+    public static final String UNREADABLE_DATE = "UNREADABLE_DATE";
+    public static final String INVALID = "INVALID";
+    public static final String FAILED = "FAILED";
+    public static final String SENT = "SENT";
+    public static final String ALREADY_SENT = "ALREADY_SENT";
+    public static final String CANCELLED = "CANCELLED";
+    public static final String NOT_FOUND = "NOT_FOUND";
+
+    static BulkResult of(long index, String outcome, Appointment appointment, String message) {
+        return new BulkResult(index, outcome, appointment.appointmentId(), appointment.patientId(),
+                appointment.doctorName(), appointment.startsAt().toString(), appointment.room(), message);
+    }
+
+    static BulkResult failed(long index, String outcome, String appointmentId, String message) {
+        return new BulkResult(index, outcome, appointmentId, null, null, null, null, message);
+    }
+}
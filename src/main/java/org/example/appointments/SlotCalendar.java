@@ -0,0 +1,220 @@
+package org.example.appointments;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bitmap calendars for a set of resources (doctors or rooms), keyed by an already normalized name.
+ * <p>
+ * A day is one {@code long}: bit {@code i} is the 15-minute slot starting at 06:00 + 15 * i minutes, so
+ * the 64 bits cover 06:00-22:00. Each resource owns an {@link AtomicLongArray} with one word per day of the
+ * horizon, e.g. 366 days in under 3 KB, so thousands of doctors fit in a few MB. Reserving a run of slots
+ * is a single compare-and-set on the day word, which makes two concurrent bookings of the same slot
+ * impossible without any lock. Free-slot search is a handful of shifts and a trailing-zero count.
+ * <p>
+ * The horizon can roll forward with {@link #advanceTo}. Day words form a ring one day longer than the horizon, so
+ * the word of a day that left is cleared and reused for a new last day only a day later, when nothing still
+ * works on the old day.
+ */
+public class SlotCalendar {
+
+    public static final int SLOTS_PER_DAY = Long.SIZE;
+    public static final int SLOT_MINUTES = 15;
+    public static final LocalTime OPENING = LocalTime.of(6, 0);
+
+    private final int days;
+    private final int capacity;
+    private final Map<String, AtomicLongArray> calendars = new ConcurrentHashMap<>();
+    private volatile long firstEpochDay;
+
+    public SlotCalendar(LocalDate firstDay, int days) {
+        this.firstEpochDay = firstDay.toEpochDay();
+        this.days = days;
+        this.capacity = days + 1;
+    }
+
+    public LocalDate getFirstDay() {
+        return LocalDate.ofEpochDay(firstEpochDay);
+    }
+
+    public LocalDate getLastDay() {
+        return LocalDate.ofEpochDay(firstEpochDay + days - 1L);
+    }
+
+    public boolean covers(LocalDate day) {
+        long index = day.toEpochDay() - firstEpochDay;
+        return index >= 0 && index < days;
+    }
+
+    /**
+     * Atomically marks all slots of {@code mask} as booked, or nothing if any of them is taken or the day left
+     * the calendar meanwhile.
+     */
+    public boolean tryReserve(String resource, LocalDate day, long mask) {
+        AtomicLongArray words = calendar(resource);
+        int index = index(day);
+        long current;
+        do {
+            current = words.get(index);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(index, current, current | mask));
+        if (!covers(day)) {
+            clear(words, index, mask);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Frees the slots of {@code mask}; a day that has left the calendar is already forgotten.
+     */
+    public void release(String resource, LocalDate day, long mask) {
+        if (covers(day)) {
+            clear(calendar(resource), index(day), mask);
+        }
+    }
+
+    /**
+     * Moves the first day forward to {@code firstDay}, keeping the horizon's length: the days before it are
+     * forgotten and the days that join start free.
+     */
+    public synchronized void advanceTo(LocalDate firstDay) {
+        long to = firstDay.toEpochDay();
+        long from = firstEpochDay;
+        if (to <= from) {
+            return;
+        }
+        long end = to + days;
+        for (long day = Math.max(from + days, end - capacity); day < end; day++) {
+            int index = position(day);
+            for (AtomicLongArray words : calendars.values()) {
+                words.set(index, 0L);
+            }
+        }
+        firstEpochDay = to;
+    }
+
+    /**
+     * Number of day positions, the horizon plus one; see {@link #dayIndex}.
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Position of a day the calendar covers among {@link #capacity()} positions, for arrays kept per day
+     * alongside the calendar.
+     */
+    int dayIndex(LocalDate day) {
+        return index(day);
+    }
+
+    /**
+     * Position of an epoch day, covered or not.
+     */
+    int position(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) capacity);
+    }
+
+    private static void clear(AtomicLongArray words, int index, long mask) {
+        long current;
+        do {
+            current = words.get(index);
+        } while (!words.compareAndSet(index, current, current & ~mask));
+    }
+
+    /**
+     * Marks slots as booked unconditionally; used when replaying the journal.
+     */
+    void force(String resource, LocalDate day, long mask) {
+        if (covers(day)) {
+            AtomicLongArray words = calendar(resource);
+            int index = index(day);
+            long current;
+            do {
+                current = words.get(index);
+            } while (!words.compareAndSet(index, current, current | mask));
+        }
+    }
+
+    public long booked(String resource, LocalDate day) {
+        AtomicLongArray words = calendars.get(resource);
+        return words == null ? 0L : words.get(index(day));
+    }
+
+    /**
+     * @return the first slot at or after {@code fromSlot} that starts {@code length} free slots, or -1
+     */
+    public int findFree(String resource, LocalDate day, int fromSlot, int length) {
+        return findFree(resource, day, fromSlot, length, 0L);
+    }
+
+    /**
+     * As {@link #findFree(String, LocalDate, int, int)}, also treating the slots of {@code alsoBusy} as taken.
+     */
+    public int findFree(String resource, LocalDate day, int fromSlot, int length, long alsoBusy) {
+        return findFree(resource, day, fromSlot, length, alsoBusy, 0L);
+    }
+
+    /**
+     * As {@link #findFree(String, LocalDate, int, int, long)}, treating the slots of {@code own}, which the caller
+     * holds and is about to give up, as free.
+     */
+    public int findFree(String resource, LocalDate day, int fromSlot, int length, long alsoBusy, long own) {
+        return firstRun(~((booked(resource, day) & ~own) | alsoBusy), length, fromSlot);
+    }
+
+    static int firstRun(long free, int length, int fromSlot) {
+        if (fromSlot >= SLOTS_PER_DAY || length <= 0 || length > SLOTS_PER_DAY) {
+            return -1;
+        }
+        long starts = free;
+        for (int i = 1; i < length; i++) {
+            starts &= free >>> i;
+        }
+        // A run must end inside the day: drop starts whose tail would fall off bit 63.
+        if (length > 1) {
+            starts &= -1L >>> (length - 1);
+        }
+        starts &= -1L << Math.max(0, fromSlot);
+        return starts == 0 ? -1 : Long.numberOfTrailingZeros(starts);
+    }
+
+    public static long mask(int startSlot, int length) {
+        long run = length == SLOTS_PER_DAY ? -1L : (1L << length) - 1;
+        return run << startSlot;
+    }
+
+    public static LocalTime timeOf(int slot) {
+        return OPENING.plusMinutes((long) slot * SLOT_MINUTES);
+    }
+
+    /**
+     * @return the first slot starting at or after {@code time}: 0 before opening,
+     *         {@link #SLOTS_PER_DAY} after the last slot has started
+     */
+    public static int slotAtOrAfter(LocalTime time) {
+        int minutes = (time.toSecondOfDay() - OPENING.toSecondOfDay() + 59) / 60;
+        if (minutes <= 0) {
+            return 0;
+        }
+        return Math.min(SLOTS_PER_DAY, (minutes + SLOT_MINUTES - 1) / SLOT_MINUTES);
+    }
+
+    private AtomicLongArray calendar(String resource) {
+        return calendars.computeIfAbsent(resource, name -> new AtomicLongArray(capacity));
+    }
+
+    private int index(LocalDate day) {
+        if (!covers(day)) {
+            throw new IllegalArgumentException(day + " is outside the calendar (" + getFirstDay() + " to "
+                    + getLastDay() + ")");
+        }
+        return position(day.toEpochDay());
+    }
+}
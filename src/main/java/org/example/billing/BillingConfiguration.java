@@ -0,0 +1,16 @@
+package org.example.billing;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The billing server's {@link EligibilityCache}, see {@link EligibilityCache#configured()}.
+ */
+@Configuration
+public class BillingConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public EligibilityCache eligibilityCache() {
+        return EligibilityCache.configured();
+    }
+}
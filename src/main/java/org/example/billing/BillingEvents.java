@@ -0,0 +1,27 @@
+package org.example.billing;
+
+import org.example.common.DomainEvents;
+import org.example.common.events.DomainEvent;
+import org.example.common.events.EventBus;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Invoices visits as appointments are checked in, from the shared event bus instead of a mesh query.
+ */
+@Component
+public class BillingEvents implements AutoCloseable {
+
+    private final EventBus.Subscription visits;
+
+    public BillingEvents(BillingService billing) {
+        this.visits = DomainEvents.subscribe("billing-visits", billing::applyEvents,
+                Set.of(DomainEvent.AppointmentCheckedIn.class));
+    }
+
+    @Override
+    public void close() {
+        visits.close();
+    }
+}
@@ -0,0 +1,438 @@
+package org.example.billing;
+
+import org.example.common.wal.FieldCodec;
+import org.example.common.wal.Journal;
+import org.example.common.wal.LogEntry;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.example.common.wal.FieldCodec.fields;
+
+/**
+ * Patient ledger kept as primitive columns: for every line the patient index, the change to the patient's
+ * balance in cents, the service or payment code, the posting date as an epoch day and the line kind, plus a
+ * link to the patient's previous line. Columns are allocated in chunks of 64K lines, so the ledger grows to
+ * tens of millions of lines at about 25 bytes each without ever copying a column. Patients and codes are
+ * interned to {@code int}s; each patient's balance is kept up to date as lines are posted.
+ * <p>
+ * Posting is serialized; readers take a {@link View}, which captures the line count and the per-patient
+ * chain heads and balances under the same lock and then reads the columns without locking. Lines of one
+ * patient are posted in date order: a line dated before the patient's latest line is posted on that date.
+ * <p>
+ * Invoices and payments are journalled on the existing {@code invoice} and {@code payment} streams, and
+ * insurance payments on {@code insurance-payment}. The ledger is rebuilt from all three in one pass in log
+ * order on construction, so every line is posted on the date it was first posted on.
+ */
+public final class BillingLedger {
+
+    public enum Kind {
+        CHARGE, TAX, PATIENT_PAYMENT, INSURANCE_PAYMENT, ADJUSTMENT;
+
+        /**
+         * Charges and tax raise the balance; payments and adjustments are credits that lower it.
+         */
+        long balanceChange(long amountCents) {
+            return this == CHARGE || this == TAX ? amountCents : -amountCents;
+        }
+    }
+
+    /**
+     * Result of a payment: the paying patient and what is left on the invoice.
+     */
+    public record Payment(String patientId, long remainingCents) {
+    }
+
+    static final String INVOICE_STREAM = "invoice";
+    static final String PAYMENT_STREAM = "payment";
+    static final String INSURANCE_STREAM = "insurance-payment";
+    private static final Kind[] KINDS = Kind.values();
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Journal journal;
+    private final Map<String, Integer> patientIndex = new HashMap<>();
+    private final Map<String, Integer> codeIndex = new HashMap<>();
+    private final Map<String, Invoice> invoices = new HashMap<>();
+    private final Set<String> insuranceClaims = new HashSet<>();
+    private final Set<String> invoicedVisits = new HashSet<>();
+
+    private String[] patientIds = new String[1024];
+    private int[] lastLine = new int[1024];
+    private int[] lastDay = new int[1024];
+    private long[] balance = new long[1024];
+    private int patientCount;
+    private String[] codes = new String[256];
+    private int codeCount;
+
+    private int[][] patientColumn = new int[0][];
+    private long[][] changeColumn = new long[0][];
+    private int[][] codeColumn = new int[0][];
+    private int[][] dayColumn = new int[0][];
+    private byte[][] kindColumn = new byte[0][];
+    private int[][] previousColumn = new int[0][];
+    private int size;
+
+    private static final class Invoice {
+        final int patient;
+        final long totalCents;
+        long paidCents;
+
+        Invoice(int patient, long totalCents) {
+            this.patient = patient;
+            this.totalCents = totalCents;
+        }
+    }
+
+    public BillingLedger() {
+        this(Journal.NOOP);
+    }
+
+    public BillingLedger(Journal journal) {
+        this.journal = journal;
+        journal.replay(this::recover);
+    }
+
+    /**
+     * Posts an invoice as a charge line and, if non-zero, a tax line.
+     */
+    public void invoice(String invoiceId, String patientId, String serviceType, long amountCents, long taxCents,
+                        LocalDate date) {
+        synchronized (this) {
+            applyInvoice(invoiceId, patientId, serviceType, amountCents, taxCents, (int) date.toEpochDay());
+        }
+        journalInvoice(invoiceId, null, patientId, serviceType, amountCents, taxCents, date);
+    }
+
+    /**
+     * Invoices an appointment, unless it has been invoiced before. The appointment is journalled with the
+     * invoice, so this holds across restarts.
+     *
+     * @return {@code false} if the appointment was already invoiced
+     */
+    public boolean invoiceVisit(String invoiceId, String appointmentId, String patientId, String serviceType,
+                                long amountCents, long taxCents, LocalDate date) {
+        synchronized (this) {
+            if (!invoicedVisits.add(appointmentId)) {
+                return false;
+            }
+            applyInvoice(invoiceId, patientId, serviceType, amountCents, taxCents, (int) date.toEpochDay());
+        }
+        journalInvoice(invoiceId, appointmentId, patientId, serviceType, amountCents, taxCents, date);
+        return true;
+    }
+
+    private void journalInvoice(String invoiceId, String appointmentId, String patientId, String serviceType,
+                                long amountCents, long taxCents, LocalDate date) {
+        journal.append(INVOICE_STREAM, invoiceId, fields("patientId", patientId, "serviceType", serviceType,
+                "amount", centsToDecimal(amountCents), "tax", centsToDecimal(taxCents), "date", date.toString(),
+                "appointmentId", appointmentId));
+    }
+
+    /**
+     * Posts a patient payment against an invoice.
+     *
+     * @return the paying patient and the invoice's remaining amount, or {@code null} for an unknown invoice
+     */
+    public Payment pay(String paymentId, String invoiceId, long amountCents, String paymentMethod, LocalDate date) {
+        Payment payment;
+        synchronized (this) {
+            payment = applyPayment(invoiceId, amountCents, paymentMethod, (int) date.toEpochDay());
+        }
+        if (payment != null) {
+            journal.append(PAYMENT_STREAM, paymentId, fields("invoiceId", invoiceId, "patientId", payment.patientId(),
+                    "amount", centsToDecimal(amountCents), "paymentMethod", paymentMethod, "date", date.toString()));
+        }
+        return payment;
+    }
+
+    /**
+     * Posts what a payer approved on a claim. A claim is paid once: a second payment for it is ignored.
+     *
+     * @return {@code false} if the claim was already paid
+     */
+    public boolean payInsurance(String claimId, String patientId, long amountCents, String insuranceProvider,
+                                LocalDate date) {
+        synchronized (this) {
+            if (!applyInsurance(claimId, patientId, amountCents, insuranceProvider, (int) date.toEpochDay())) {
+                return false;
+            }
+        }
+        journal.append(INSURANCE_STREAM, claimId, fields("patientId", patientId, "amount", centsToDecimal(amountCents),
+                "insuranceProvider", insuranceProvider, "date", date.toString()));
+        return true;
+    }
+
+    public synchronized boolean isPaidByInsurance(String claimId) {
+        return insuranceClaims.contains(claimId);
+    }
+
+    /**
+     * Posts a line that is not tied to an invoice or claim, e.g. a write-off. Not journalled: callers that need
+     * it to survive a restart journal their own domain event and post it again on replay.
+     */
+    public synchronized void post(String patientId, Kind kind, long amountCents, String code, LocalDate date) {
+        append(patient(patientId), kind, kind.balanceChange(amountCents), code(code), (int) date.toEpochDay());
+    }
+
+    /**
+     * @return the patient's balance in cents, or {@code null} if the patient has no ledger lines
+     */
+    public synchronized Long balance(String patientId) {
+        Integer patient = patientIndex.get(patientId);
+        return patient == null ? null : balance[patient];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int patientCount() {
+        return patientCount;
+    }
+
+    /**
+     * A consistent view of every patient, for statement runs.
+     */
+    public synchronized View view() {
+        return new View(this, 0, patientCount);
+    }
+
+    /**
+     * A consistent view of one patient, or {@code null} if the patient has no ledger lines.
+     */
+    public synchronized View view(String patientId) {
+        Integer patient = patientIndex.get(patientId);
+        return patient == null ? null : new View(this, patient, patient + 1);
+    }
+
+    /**
+     * Read-only snapshot of the ledger. Lines posted after the view was taken are not visible; per-patient
+     * accessors take the global patient index and are valid for the patients the view was taken for.
+     */
+    public static final class View {
+        private final int size;
+        private final int firstPatient;
+        private final int endPatient;
+        private final int[] lastLine;
+        private final long[] balance;
+        private final String[] patientIds;
+        private final String[] codes;
+        private final int[][] patientColumn;
+        private final long[][] changeColumn;
+        private final int[][] codeColumn;
+        private final int[][] dayColumn;
+        private final byte[][] kindColumn;
+        private final int[][] previousColumn;
+
+        private View(BillingLedger ledger, int firstPatient, int endPatient) {
+            this.size = ledger.size;
+            this.firstPatient = firstPatient;
+            this.endPatient = endPatient;
+            this.lastLine = Arrays.copyOfRange(ledger.lastLine, firstPatient, endPatient);
+            this.balance = Arrays.copyOfRange(ledger.balance, firstPatient, endPatient);
+            this.patientIds = ledger.patientIds;
+            this.codes = ledger.codes;
+            this.patientColumn = ledger.patientColumn;
+            this.changeColumn = ledger.changeColumn;
+            this.codeColumn = ledger.codeColumn;
+            this.dayColumn = ledger.dayColumn;
+            this.kindColumn = ledger.kindColumn;
+            this.previousColumn = ledger.previousColumn;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int firstPatient() {
+            return firstPatient;
+        }
+
+        public int endPatient() {
+            return endPatient;
+        }
+
+        public String patientId(int patient) {
+            return patientIds[patient];
+        }
+
+        public long balance(int patient) {
+            return balance[patient - firstPatient];
+        }
+
+        /**
+         * The patient's latest line; follow {@link #previous(int)} for older ones. -1 if there is none.
+         */
+        public int lastLine(int patient) {
+            return lastLine[patient - firstPatient];
+        }
+
+        public int previous(int line) {
+            return previousColumn[line >>> CHUNK_BITS][line & CHUNK_MASK];
+        }
+
+        public int patient(int line) {
+            return patientColumn[line >>> CHUNK_BITS][line & CHUNK_MASK];
+        }
+
+        public long change(int line) {
+            return changeColumn[line >>> CHUNK_BITS][line & CHUNK_MASK];
+        }
+
+        public int day(int line) {
+            return dayColumn[line >>> CHUNK_BITS][line & CHUNK_MASK];
+        }
+
+        public Kind kind(int line) {
+            return KINDS[kindColumn[line >>> CHUNK_BITS][line & CHUNK_MASK]];
+        }
+
+        public String code(int line) {
+            return codes[codeColumn[line >>> CHUNK_BITS][line & CHUNK_MASK]];
+        }
+    }
+
+    private void applyInvoice(String invoiceId, String patientId, String serviceType, long amountCents, long taxCents,
+                              int day) {
+        int patient = patient(patientId);
+        append(patient, Kind.CHARGE, amountCents, code(serviceType), day);
+        if (taxCents != 0) {
+            append(patient, Kind.TAX, taxCents, code("Tax"), day);
+        }
+        invoices.put(invoiceId, new Invoice(patient, amountCents + taxCents));
+    }
+
+    private Payment applyPayment(String invoiceId, long amountCents, String paymentMethod, int day) {
+        Invoice invoice = invoices.get(invoiceId);
+        if (invoice == null) {
+            return null;
+        }
+        append(invoice.patient, Kind.PATIENT_PAYMENT, -amountCents, code(paymentMethod), day);
+        invoice.paidCents += amountCents;
+        return new Payment(patientIds[invoice.patient], Math.max(0, invoice.totalCents - invoice.paidCents));
+    }
+
+    private boolean applyInsurance(String claimId, String patientId, long amountCents, String insuranceProvider,
+                                   int day) {
+        if (!insuranceClaims.add(claimId)) {
+            return false;
+        }
+        append(patient(patientId), Kind.INSURANCE_PAYMENT, -amountCents, code(insuranceProvider), day);
+        return true;
+    }
+
+    private void append(int patient, Kind kind, long change, int code, int day) {
+        int line = size;
+        int chunk = line >>> CHUNK_BITS;
+        if (chunk == patientColumn.length) {
+            addChunk();
+        }
+        int offset = line & CHUNK_MASK;
+        int postedDay = Math.max(day, lastDay[patient]);
+        patientColumn[chunk][offset] = patient;
+        changeColumn[chunk][offset] = change;
+        codeColumn[chunk][offset] = code;
+        dayColumn[chunk][offset] = postedDay;
+        kindColumn[chunk][offset] = (byte) kind.ordinal();
+        previousColumn[chunk][offset] = lastLine[patient];
+        lastLine[patient] = line;
+        lastDay[patient] = postedDay;
+        balance[patient] += change;
+        size = line + 1;
+    }
+
+    private void addChunk() {
+        int chunks = patientColumn.length + 1;
+        patientColumn = Arrays.copyOf(patientColumn, chunks);
+        changeColumn = Arrays.copyOf(changeColumn, chunks);
+        codeColumn = Arrays.copyOf(codeColumn, chunks);
+        dayColumn = Arrays.copyOf(dayColumn, chunks);
+        kindColumn = Arrays.copyOf(kindColumn, chunks);
+        previousColumn = Arrays.copyOf(previousColumn, chunks);
+        patientColumn[chunks - 1] = new int[CHUNK_SIZE];
+        changeColumn[chunks - 1] = new long[CHUNK_SIZE];
+        codeColumn[chunks - 1] = new int[CHUNK_SIZE];
+        dayColumn[chunks - 1] = new int[CHUNK_SIZE];
+        kindColumn[chunks - 1] = new byte[CHUNK_SIZE];
+        previousColumn[chunks - 1] = new int[CHUNK_SIZE];
+    }
+
+    private int patient(String patientId) {
+        Integer existing = patientIndex.get(patientId);
+        if (existing != null) {
+            return existing;
+        }
+        int patient = patientCount++;
+        if (patient == patientIds.length) {
+            int capacity = patientIds.length * 2;
+            patientIds = Arrays.copyOf(patientIds, capacity);
+            lastLine = Arrays.copyOf(lastLine, capacity);
+            lastDay = Arrays.copyOf(lastDay, capacity);
+            balance = Arrays.copyOf(balance, capacity);
+        }
+        patientIds[patient] = patientId;
+        lastLine[patient] = -1;
+        lastDay[patient] = Integer.MIN_VALUE;
+        patientIndex.put(patientId, patient);
+        return patient;
+    }
+
+    private int code(String name) {
+        String code = name == null ? "" : name;
+        Integer existing = codeIndex.get(code);
+        if (existing != null) {
+            return existing;
+        }
+        if (codeCount == codes.length) {
+            codes = Arrays.copyOf(codes, codes.length * 2);
+        }
+        codes[codeCount] = code;
+        codeIndex.put(code, codeCount);
+        return codeCount++;
+    }
+
+    private synchronized void recover(LogEntry entry) {
+        if (entry.isTombstone()) {
+            return;
+        }
+        String stream = entry.stream();
+        if (!INVOICE_STREAM.equals(stream) && !PAYMENT_STREAM.equals(stream) && !INSURANCE_STREAM.equals(stream)) {
+            return;
+        }
+        Map<String, String> fields = FieldCodec.decode(entry.payload());
+        String date = fields.get("date");
+        // Entries written before the ledger existed carry no date; they are posted as of today.
+        int day = (int) (date == null ? LocalDate.now() : LocalDate.parse(date)).toEpochDay();
+        if (INVOICE_STREAM.equals(stream)) {
+            if (fields.containsKey("appointmentId")) {
+                invoicedVisits.add(fields.get("appointmentId"));
+            }
+            applyInvoice(entry.key(), fields.get("patientId"), fields.get("serviceType"),
+                    decimalToCents(fields.get("amount")), decimalToCents(fields.get("tax")), day);
+        } else if (PAYMENT_STREAM.equals(stream)) {
+            applyPayment(fields.get("invoiceId"), decimalToCents(fields.get("amount")), fields.get("paymentMethod"), day);
+        } else {
+            applyInsurance(entry.key(), fields.get("patientId"), decimalToCents(fields.get("amount")),
+                    fields.get("insuranceProvider"), day);
+        }
+    }
+
+    static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    static long decimalToCents(String amount) {
+        return amount == null ? 0 : toCents(Double.parseDouble(amount));
+    }
+
+    static String centsToDecimal(long cents) {
+        return (cents < 0 ? "-" : "") + Math.abs(cents) / 100 + "." + (Math.abs(cents) % 100 < 10 ? "0" : "")
+                + Math.abs(cents) % 100;
+    }
+}
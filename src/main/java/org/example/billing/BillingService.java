@@ -2,172 +2,443 @@ package org.example.billing;
 
 import com.t4a.annotations.Action;
 import com.t4a.annotations.Agent;
+import org.example.common.IdGenerator;
+import org.example.common.ResponseTemplate;
+import org.example.common.events.DomainEvent;
+import org.example.common.events.EventBus;
+import org.example.common.wal.Journal;
+import org.example.common.wal.Journals;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.example.common.wal.FieldCodec.fields;
+
 @Agent(groupName = "billingOperations")
 @Service
 public class BillingService {
 
+    private static final ResponseTemplate GENERATE_INVOICE = ResponseTemplate.compile(
+            "Invoice Generated Successfully!\n" +
+            "Invoice ID: %s\n" +
+            "Patient ID: %s\n" +
+            "=================================\n" +
+            "Service Type: %s\n" +
+            "Service Amount: $%.2f\n" +
+            "Tax (8%%): $%.2f\n" +
+            "Total Amount: $%.2f\n" +
+            "Invoice Date: %s\n" +
+            "Due Date: %s\n" +
+            "Status: PENDING PAYMENT\n" +
+            "Payment Methods: Cash, Credit Card, Insurance");
+
+    private static final ResponseTemplate PROCESS_PAYMENT = ResponseTemplate.compile(
+            "Payment Processed Successfully!\n" +
+            "Payment ID: %s\n" +
+            "Invoice ID: %s\n" +
+            "=================================\n" +
+            "Payment Amount: $%.2f\n" +
+            "Payment Method: %s\n" +
+            "Payment Date: %s\n" +
+            "Status: COMPLETED\n" +
+            "Confirmation Number: %s\n" +
+            "Receipt sent to patient's email\n" +
+            "Remaining Balance: $%.2f");
+
+    private static final ResponseTemplate INVOICE_NOT_FOUND = ResponseTemplate.compile(
+            "Invoice %s not found");
+
+    private static final ResponseTemplate SUBMIT_INSURANCE_CLAIM = ResponseTemplate.compile(
+            "Insurance Claim Submitted!\n" +
+            "Claim ID: %s\n" +
+            "Patient ID: %s\n" +
+            "=================================\n" +
+            "Insurance Provider: %s\n" +
+            "Service Code: %s\n" +
+            "Claim Amount: $%.2f\n" +
+            "Submission Date: %s\n" +
+            "Status: QUEUED\n" +
+            "The claim goes to the clearinghouse with the next %s batch; check it with getClaimStatus");
+
+    private static final ResponseTemplate CLAIMS_BUSY = ResponseTemplate.compile(
+            "Claim not submitted: the claim queue is full. Please retry shortly.");
+
+    private static final ResponseTemplate GET_CLAIM_STATUS = ResponseTemplate.compile(
+            "Insurance Claim Status\n" +
+            "Claim ID: %s\n" +
+            "=================================\n" +
+            "Patient ID: %s\n" +
+            "Insurance Provider: %s\n" +
+            "Service Code: %s\n" +
+            "Status: %s\n" +
+            "Claim Amount: %s\n" +
+            "Submission Date: %s\n" +
+            "Last Update: %s");
+
+    private static final ResponseTemplate CLAIM_NOT_FOUND = ResponseTemplate.compile(
+            "Claim %s not found");
+
+    private static final ResponseTemplate GET_ACCOUNT_BALANCE = ResponseTemplate.compile(
+            "Account Balance for Patient %s\n" +
+            "=================================\n" +
+            "Current Balance: %s\n\n" +
+            "Recent Charges:");
+
+    private static final ResponseTemplate NO_BILLING_ACCOUNT = ResponseTemplate.compile(
+            "No billing activity for patient %s");
+
+    private static final ResponseTemplate SETUP_PAYMENT_PLAN = ResponseTemplate.compile(
+            "Payment Plan Created!\n" +
+            "Plan ID: %s\n" +
+            "Patient ID: %s\n" +
+            "=================================\n" +
+            "Total Amount: $%.2f\n" +
+            "Plan Duration: %d months\n" +
+            "Monthly Payment: $%.2f\n" +
+            "First Payment Due: %s\n" +
+            "Payment Method: Auto-debit from checking account\n" +
+            "Status: ACTIVE\n" +
+            "No interest charges applied\n" +
+            "Payment reminders will be sent 5 days before each due date");
+
+    private static final ResponseTemplate UNREADABLE_PERIOD = ResponseTemplate.compile(
+            "Could not read the statement period '%s'. Use a month such as 2026-01 or January 2026, a year, " +
+            "or a range such as 2026-01-01 to 2026-03-31.");
+
+    private static final ResponseTemplate GENERATE_ALL_STATEMENTS = ResponseTemplate.compile(
+            "Statement Run Complete\n" +
+            "Statement Period: %s\n" +
+            "=================================\n" +
+            "Patients: %d\n" +
+            "Statements: %d\n" +
+            "Files: %d (%d bytes)\n" +
+            "Output: %s\n" +
+            "Elapsed: %d ms");
+
+    private static final ResponseTemplate VERIFY_INSURANCE = ResponseTemplate.compile(
+            "Insurance Verification Results\n" +
+            "Patient ID: %s\n" +
+            "=================================\n" +
+            "Insurance Provider: %s\n" +
+            "Policy Number: %s\n" +
+            "Status: ACTIVE\n" +
+            "Verification Date: %s\n\n" +
+            "Coverage Details:\n" +
+            "  Effective Date: %s\n" +
+            "  Expiration Date: %s\n" +
+            "  Deductible: %s (Met: %s)\n" +
+            "  Out-of-Pocket Max: %s (Met: %s)\n" +
+            "  Copay - Office Visit: %s\n" +
+            "  Copay - Specialist: %s\n" +
+            "  Copay - ER: %s\n" +
+            "  Coinsurance: %d%% after deductible\n\n" +
+            "Status: VERIFIED - Coverage Active");
+
+    private static final ResponseTemplate INSURANCE_INACTIVE = ResponseTemplate.compile(
+            "Insurance Verification Results\n" +
+            "Patient ID: %s\n" +
+            "=================================\n" +
+            "Insurance Provider: %s\n" +
+            "Policy Number: %s\n" +
+            "Status: INACTIVE\n" +
+            "Verification Date: %s\n\n" +
+            "The payer has no active coverage for this policy. Confirm the policy number with the patient.");
+
+    private static final ResponseTemplate ELIGIBILITY_UNAVAILABLE = ResponseTemplate.compile(
+            "Insurance could not be verified: %s did not answer (%s). Please retry shortly.");
+
+    private static final ResponseTemplate POLICY_REQUIRED = ResponseTemplate.compile(
+            "An insurance provider and policy number are required to verify coverage");
+
+    private static final DateTimeFormatter SHORT_DATE = DateTimeFormatter.ofPattern("MM/dd/yy");
+    private static final int RECENT_LINES = 5;
+    private static final long VISIT_FEE_CENTS = BillingLedger.toCents(
+            Double.parseDouble(System.getProperty("billing.visit-fee", "150.00")));
+
+    private final Journal journal;
+    private final BillingLedger ledger;
+    private final ClaimPipeline claims;
+    private final EligibilityCache eligibility;
+    private final Path statementsDirectory;
+    private final EventBus events;
+
+    @Autowired
+    public BillingService(EligibilityCache eligibility) {
+        this(Journals.open("billing"), eligibility);
+    }
+
+    BillingService(Journal journal, EligibilityCache eligibility) {
+        this(journal, new BillingLedger(journal), eligibility,
+                Paths.get(System.getProperty("healthcare.data.dir", "data"), "billing-statements"));
+    }
+
+    BillingService(Journal journal, BillingLedger ledger, EligibilityCache eligibility, Path statementsDirectory) {
+        this(journal, ledger, new ClaimPipeline(journal, ledger, Clearinghouse.configured()), eligibility,
+                statementsDirectory);
+    }
+
+    BillingService(Journal journal, BillingLedger ledger, ClaimPipeline claims, EligibilityCache eligibility,
+                   Path statementsDirectory) {
+        this(journal, ledger, claims, eligibility, statementsDirectory, EventBus.shared());
+    }
+
+    BillingService(Journal journal, BillingLedger ledger, ClaimPipeline claims, EligibilityCache eligibility,
+                   Path statementsDirectory, EventBus events) {
+        this.journal = journal;
+        this.ledger = ledger;
+        this.claims = claims;
+        this.eligibility = eligibility;
+        this.statementsDirectory = statementsDirectory;
+        this.events = events;
+    }
+
     @Action(description = "Generate invoice for medical services")
     public String generateInvoice(String patientId, String serviceType, double amount) {
-        String invoiceId = "INV-" + (System.currentTimeMillis() % 100000);
         double tax = amount * 0.08;
         double totalAmount = amount + tax;
-        
-        return String.format("Invoice Generated Successfully!\n" +
-               "Invoice ID: %s\n" +
-               "Patient ID: %s\n" +
-               "=================================\n" +
-               "Service Type: %s\n" +
-               "Service Amount: $%.2f\n" +
-               "Tax (8%%): $%.2f\n" +
-               "Total Amount: $%.2f\n" +
-               "Invoice Date: %s\n" +
-               "Due Date: %s\n" +
-               "Status: PENDING PAYMENT\n" +
-               "Payment Methods: Cash, Credit Card, Insurance", 
-               invoiceId, patientId, serviceType, amount, tax, totalAmount,
-               java.time.LocalDate.now(),
-               java.time.LocalDate.now().plusDays(30));
+        String invoiceId = invoice(patientId, serviceType, BillingLedger.toCents(amount), BillingLedger.toCents(tax));
+
+        return GENERATE_INVOICE.render().arg(invoiceId).arg(patientId).arg(serviceType).arg(amount).arg(tax)
+                .arg(totalAmount).arg(java.time.LocalDate.now()).arg(java.time.LocalDate.now().plusDays(30))
+                .build();
     }
 
     @Action(description = "Process patient payment")
     public String processPayment(String invoiceId, double amount, String paymentMethod) {
-        String paymentId = "PAY-" + (System.currentTimeMillis() % 100000);
-        return String.format("Payment Processed Successfully!\n" +
-               "Payment ID: %s\n" +
-               "Invoice ID: %s\n" +
-               "=================================\n" +
-               "Payment Amount: $%.2f\n" +
-               "Payment Method: %s\n" +
-               "Payment Date: %s\n" +
-               "Status: COMPLETED\n" +
-               "Confirmation Number: %s\n" +
-               "Receipt sent to patient's email\n" +
-               "Remaining Balance: $0.00", 
-               paymentId, invoiceId, amount, paymentMethod,
-               java.time.LocalDateTime.now(), paymentId);
+        String paymentId = IdGenerator.next("PAY");
+        BillingLedger.Payment payment = ledger.pay(paymentId, invoiceId, BillingLedger.toCents(amount), paymentMethod,
+                LocalDate.now());
+        if (payment == null) {
+            return INVOICE_NOT_FOUND.render().arg(invoiceId).build();
+        }
+        events.publish(new DomainEvent.PaymentProcessed(paymentId, invoiceId, payment.patientId(),
+                BillingLedger.toCents(amount), payment.remainingCents(), Instant.now()));
+        return PROCESS_PAYMENT.render().arg(paymentId).arg(invoiceId).arg(amount).arg(paymentMethod)
+                .arg(java.time.LocalDateTime.now()).arg(paymentId).arg(payment.remainingCents() / 100.0).build();
     }
 
     @Action(description = "Submit insurance claim")
     public String submitInsuranceClaim(String patientId, String insuranceProvider, String serviceCode, double claimAmount) {
-        String claimId = "CLM-" + (System.currentTimeMillis() % 100000);
-        return String.format("Insurance Claim Submitted!\n" +
-               "Claim ID: %s\n" +
-               "Patient ID: %s\n" +
-               "=================================\n" +
-               "Insurance Provider: %s\n" +
-               "Service Code: %s\n" +
-               "Claim Amount: $%.2f\n" +
-               "Submission Date: %s\n" +
-               "Status: SUBMITTED\n" +
-               "Expected Processing: 7-14 business days\n" +
-               "You will be notified once the claim is processed", 
-               claimId, patientId, insuranceProvider, serviceCode, claimAmount,
-               java.time.LocalDate.now());
+        String claimId = IdGenerator.next("CLM");
+        Claim claim = claims.submit(claimId, patientId, insuranceProvider, serviceCode,
+                BillingLedger.toCents(claimAmount), LocalDate.now());
+        if (claim == null) {
+            return CLAIMS_BUSY.render().build();
+        }
+        return SUBMIT_INSURANCE_CLAIM.render().arg(claimId).arg(patientId).arg(insuranceProvider)
+                .arg(serviceCode).arg(claimAmount).arg(claim.submitted()).arg(insuranceProvider).build();
     }
 
     @Action(description = "Get insurance claim status")
     public String getClaimStatus(String claimId) {
-        return String.format("Insurance Claim Status\n" +
-               "Claim ID: %s\n" +
-               "=================================\n" +
-               "Status: APPROVED\n" +
-               "Claim Amount: $1,500.00\n" +
-               "Approved Amount: $1,350.00\n" +
-               "Patient Responsibility: $150.00 (Copay)\n" +
-               "Insurance Payment: $1,350.00\n" +
-               "Submission Date: %s\n" +
-               "Approval Date: %s\n" +
-               "Payment Expected: Within 5 business days\n" +
-               "EOB (Explanation of Benefits) sent to patient", 
-               claimId,
-               java.time.LocalDate.now().minusDays(10),
-               java.time.LocalDate.now().minusDays(3));
+        Claim claim = claims.find(claimId);
+        if (claim == null) {
+            return CLAIM_NOT_FOUND.render().arg(claimId).build();
+        }
+        ResponseTemplate.Renderer status = GET_CLAIM_STATUS.render().arg(claim.claimId()).arg(claim.patientId())
+                .arg(claim.insuranceProvider()).arg(claim.serviceCode()).arg(claim.status().name())
+                .arg(StatementWriter.money(claim.amountCents())).arg(claim.submitted()).arg(claim.updated());
+        switch (claim.status()) {
+            case APPROVED -> status.text("\nApproved Amount: ").text(StatementWriter.money(claim.approvedCents()))
+                    .text("\nPatient Responsibility: ")
+                    .text(StatementWriter.money(claim.amountCents() - claim.approvedCents()))
+                    .text("\nInsurance payment posted to the patient's account");
+            case DENIED -> status.text("\nDenial Reason: ").text(claim.note());
+            case FAILED -> status.text("\nReason: ").text(claim.note()).text("\nPlease resubmit the claim");
+            case ACCEPTED -> status.text("\nAccepted by the payer, awaiting adjudication");
+            case SUBMITTED -> status.text("\nSent to the clearinghouse, awaiting the payer's response");
+            case QUEUED -> status.text("\nWaiting to be sent to the clearinghouse");
+        }
+        return status.build();
     }
 
     @Action(description = "Get patient account balance")
     public String getAccountBalance(String patientId) {
-        return String.format("Account Balance for Patient %s\n" +
-               "=================================\n" +
-               "Current Balance: $450.00\n" +
-               "Insurance Pending: $1,350.00\n" +
-               "Total Outstanding: $1,800.00\n\n" +
-               "Recent Charges:\n" +
-               "  Office Visit (02/01/26): $150.00 - PAID\n" +
-               "  Lab Work (02/05/26): $300.00 - PENDING\n" +
-               "  X-Ray (02/10/26): $450.00 - PENDING\n\n" +
-               "Payment History:\n" +
-               "  01/15/26: $150.00 (Office Visit) - PAID\n" +
-               "Last Payment: $150.00 on %s", 
-               patientId, java.time.LocalDate.now().minusDays(15));
+        BillingLedger.View view = ledger.view(patientId);
+        if (view == null) {
+            return NO_BILLING_ACCOUNT.render().arg(patientId).build();
+        }
+        int patient = view.firstPatient();
+        List<Integer> charges = new ArrayList<>(RECENT_LINES);
+        List<Integer> payments = new ArrayList<>(RECENT_LINES);
+        for (int line = view.lastLine(patient); line >= 0 && (charges.size() < RECENT_LINES
+                || payments.size() < RECENT_LINES); line = view.previous(line)) {
+            switch (view.kind(line)) {
+                case CHARGE -> {
+                    if (charges.size() < RECENT_LINES) {
+                        charges.add(line);
+                    }
+                }
+                case PATIENT_PAYMENT, INSURANCE_PAYMENT -> {
+                    if (payments.size() < RECENT_LINES) {
+                        payments.add(line);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        ResponseTemplate.Renderer balance = GET_ACCOUNT_BALANCE.render().arg(patientId)
+                .arg(StatementWriter.money(view.balance(patient)));
+        for (int line : charges) {
+            balance.text("\n  ").text(view.code(line)).text(" (").text(SHORT_DATE.format(LocalDate.ofEpochDay(view.day(line))))
+                   .text("): ").text(StatementWriter.money(view.change(line)));
+        }
+        if (charges.isEmpty()) {
+            balance.text("\n  None");
+        }
+        balance.text("\n\nPayment History:");
+        for (int line : payments) {
+            balance.text("\n  ").text(SHORT_DATE.format(LocalDate.ofEpochDay(view.day(line)))).text(": ")
+                   .text(StatementWriter.money(-view.change(line))).text(" (").text(view.code(line)).text(")");
+        }
+        if (payments.isEmpty()) {
+            return balance.text("\n  None\nLast Payment: none").build();
+        }
+        int last = payments.get(0);
+        return balance.text("\nLast Payment: ").text(StatementWriter.money(-view.change(last))).text(" on ")
+                      .text(LocalDate.ofEpochDay(view.day(last)).toString()).build();
     }
 
     @Action(description = "Set up payment plan")
     public String setupPaymentPlan(String patientId, double totalAmount, int numberOfMonths) {
-        String planId = "PLAN-" + (System.currentTimeMillis() % 100000);
+        String planId = IdGenerator.next("PLAN");
+        journal.append("payment-plan", planId, fields("patientId", patientId, "totalAmount", String.valueOf(totalAmount),
+                "numberOfMonths", String.valueOf(numberOfMonths)));
         double monthlyPayment = totalAmount / numberOfMonths;
         
-        return String.format("Payment Plan Created!\n" +
-               "Plan ID: %s\n" +
-               "Patient ID: %s\n" +
-               "=================================\n" +
-               "Total Amount: $%.2f\n" +
-               "Plan Duration: %d months\n" +
-               "Monthly Payment: $%.2f\n" +
-               "First Payment Due: %s\n" +
-               "Payment Method: Auto-debit from checking account\n" +
-               "Status: ACTIVE\n" +
-               "No interest charges applied\n" +
-               "Payment reminders will be sent 5 days before each due date", 
-               planId, patientId, totalAmount, numberOfMonths, monthlyPayment,
-               java.time.LocalDate.now().plusDays(30));
+        return SETUP_PAYMENT_PLAN.render().arg(planId).arg(patientId).arg(totalAmount).arg(numberOfMonths)
+                .arg(monthlyPayment).arg(java.time.LocalDate.now().plusDays(30)).build();
     }
 
     @Action(description = "Generate billing statement")
     public String generateStatement(String patientId, String statementPeriod) {
-        return String.format("Billing Statement\n" +
-               "Patient ID: %s\n" +
-               "Statement Period: %s\n" +
-               "=================================\n" +
-               "Generated: %s\n\n" +
-               "Previous Balance: $0.00\n" +
-               "New Charges: $900.00\n" +
-               "Insurance Payments: ($1,350.00)\n" +
-               "Patient Payments: ($150.00)\n" +
-               "Adjustments: ($50.00)\n" +
-               "Current Balance: $450.00\n\n" +
-               "Itemized Charges:\n" +
-               "  Office Visit: $150.00\n" +
-               "  Laboratory Tests: $300.00\n" +
-               "  X-Ray Imaging: $450.00\n\n" +
-               "Amount Due: $450.00\n" +
-               "Due Date: %s\n" +
-               "Pay Online: www.medicalcenter.com/pay", 
-               patientId, statementPeriod, java.time.LocalDate.now(),
-               java.time.LocalDate.now().plusDays(30));
+        StatementPeriod period = StatementPeriod.parse(statementPeriod);
+        if (period == null) {
+            return UNREADABLE_PERIOD.render().arg(statementPeriod).build();
+        }
+        StringWriter statement = new StringWriter(1024);
+        try {
+            if (!writeStatement(patientId, period, statement)) {
+                return NO_BILLING_ACCOUNT.render().arg(patientId).build();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return statement.toString();
+    }
+
+    @Action(description = "Generate billing statements for all patients for a period, such as a month")
+    public String generateAllStatements(String statementPeriod) {
+        StatementPeriod period = StatementPeriod.parse(statementPeriod);
+        if (period == null) {
+            return UNREADABLE_PERIOD.render().arg(statementPeriod).build();
+        }
+        StatementRun.Summary run;
+        try {
+            run = runStatements(period);
+        } catch (IOException e) {
+            throw new IllegalStateException("Statement run failed for " + period, e);
+        }
+        return GENERATE_ALL_STATEMENTS.render().arg(run.period()).arg(run.patients()).arg(run.statements())
+                .arg(run.files()).arg(run.bytes()).arg(run.directory()).arg(run.elapsedMillis()).build();
+    }
+
+    /**
+     * The patient's running balance in cents, or {@code null} if the ledger has no lines for them.
+     */
+    public Long balanceCents(String patientId) {
+        return ledger.balance(patientId);
+    }
+
+    /**
+     * Streams one patient's statement to {@code out}.
+     *
+     * @return {@code false}, having written nothing, if the patient has no ledger lines
+     */
+    public boolean writeStatement(String patientId, StatementPeriod period, Writer out) throws IOException {
+        BillingLedger.View view = ledger.view(patientId);
+        if (view == null) {
+            return false;
+        }
+        return new StatementWriter(period, LocalDate.now()).write(view, view.firstPatient(), out, false);
+    }
+
+    /**
+     * Writes the statements of every patient for {@code period} under
+     * {@code <healthcare.data.dir>/billing-statements/<from>_<to>}.
+     */
+    public StatementRun.Summary runStatements(StatementPeriod period) throws IOException {
+        return StatementRun.writeAll(ledger, period, LocalDate.now(),
+                statementsDirectory.resolve(period.from() + "_" + period.to()));
     }
 
     @Action(description = "Verify insurance coverage")
     public String verifyInsurance(String patientId, String insuranceProvider, String policyNumber) {
-        return String.format("Insurance Verification Results\n" +
-               "Patient ID: %s\n" +
-               "=================================\n" +
-               "Insurance Provider: %s\n" +
-               "Policy Number: %s\n" +
-               "Status: ACTIVE\n" +
-               "Verification Date: %s\n\n" +
-               "Coverage Details:\n" +
-               "  Effective Date: 2025-01-01\n" +
-               "  Expiration Date: 2026-12-31\n" +
-               "  Deductible: $1,000 (Met: $750)\n" +
-               "  Out-of-Pocket Max: $5,000 (Met: $2,100)\n" +
-               "  Copay - Office Visit: $30\n" +
-               "  Copay - Specialist: $50\n" +
-               "  Copay - ER: $250\n" +
-               "  Coinsurance: 20%% after deductible\n\n" +
-               "Status: VERIFIED - Coverage Active", 
-               patientId, insuranceProvider, policyNumber,
-               java.time.LocalDate.now());
+        if (insuranceProvider == null || insuranceProvider.isBlank() || policyNumber == null || policyNumber.isBlank()) {
+            return POLICY_REQUIRED.render().build();
+        }
+        Eligibility coverage;
+        try {
+            coverage = eligibility.lookup(insuranceProvider, policyNumber);
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return ELIGIBILITY_UNAVAILABLE.render().arg(insuranceProvider).arg(String.valueOf(cause.getMessage()))
+                    .build();
+        }
+        if (!coverage.active()) {
+            return INSURANCE_INACTIVE.render().arg(patientId).arg(insuranceProvider).arg(policyNumber)
+                    .arg(coverage.checked()).build();
+        }
+        return VERIFY_INSURANCE.render().arg(patientId).arg(insuranceProvider).arg(policyNumber)
+                .arg(coverage.checked()).arg(coverage.effective()).arg(coverage.expiration())
+                .arg(StatementWriter.money(coverage.deductibleCents()))
+                .arg(StatementWriter.money(coverage.deductibleMetCents()))
+                .arg(StatementWriter.money(coverage.outOfPocketMaxCents()))
+                .arg(StatementWriter.money(coverage.outOfPocketMetCents()))
+                .arg(StatementWriter.money(coverage.officeCopayCents()))
+                .arg(StatementWriter.money(coverage.specialistCopayCents()))
+                .arg(StatementWriter.money(coverage.emergencyCopayCents()))
+                .arg(coverage.coinsurancePercent()).build();
+    }
+
+    /**
+     * Domain events from the other agents, see {@link BillingEvents}: a check-in is invoiced once per appointment,
+     * at {@code -Dbilling.visit-fee} (default 150.00) plus tax. The ledger journals the appointment with its invoice,
+     * so a check-in redelivered after a restart is not invoiced again.
+     */
+    public void applyEvents(List<DomainEvent> batch) {
+        for (DomainEvent event : batch) {
+            if (event instanceof DomainEvent.AppointmentCheckedIn checkedIn) {
+                String invoiceId = IdGenerator.next("INV");
+                String serviceType = "Office Visit - " + checkedIn.appointmentType() + " ("
+                        + checkedIn.appointmentId() + ")";
+                long taxCents = Math.round(VISIT_FEE_CENTS * 0.08);
+                if (ledger.invoiceVisit(invoiceId, checkedIn.appointmentId(), checkedIn.patientId(), serviceType,
+                        VISIT_FEE_CENTS, taxCents, LocalDate.now())) {
+                    events.publish(new DomainEvent.InvoiceGenerated(invoiceId, checkedIn.patientId(), serviceType,
+                            VISIT_FEE_CENTS + taxCents, Instant.now()));
+                }
+            }
+        }
+    }
+
+    private String invoice(String patientId, String serviceType, long amountCents, long taxCents) {
+        String invoiceId = IdGenerator.next("INV");
+        ledger.invoice(invoiceId, patientId, serviceType, amountCents, taxCents, LocalDate.now());
+        events.publish(new DomainEvent.InvoiceGenerated(invoiceId, patientId, serviceType, amountCents + taxCents,
+                Instant.now()));
+        return invoiceId;
     }
 }
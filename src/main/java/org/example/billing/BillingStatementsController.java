@@ -0,0 +1,66 @@
+package org.example.billing;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Statements without an LLM round trip:
+ * <ul>
+ *     <li>{@code GET /billing/statements/{patientId}?period=2026-01} - one statement, streamed as plain text</li>
+ *     <li>{@code POST /billing/statements/run?period=2026-01} - every patient's statement, written to files on
+ *     the server; returns a {@link StatementRun.Summary}</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/billing/statements")
+public class BillingStatementsController {
+
+    private static final int OUTPUT_BUFFER_CHARS = 8 * 1024;
+
+    private final BillingService service;
+
+    public BillingStatementsController(BillingService service) {
+        this.service = service;
+    }
+
+    @GetMapping(path = "/{patientId}", produces = MediaType.TEXT_PLAIN_VALUE)
+    public void statement(@PathVariable("patientId") String patientId, @RequestParam("period") String period,
+                          HttpServletResponse response) throws IOException {
+        StatementPeriod statementPeriod = parse(period);
+        if (service.balanceCents(patientId) == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No billing activity for patient " + patientId);
+        }
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8");
+        Writer out = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8),
+                OUTPUT_BUFFER_CHARS);
+        service.writeStatement(patientId, statementPeriod, out);
+        out.flush();
+    }
+
+    @PostMapping(path = "/run", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StatementRun.Summary run(@RequestParam("period") String period) throws IOException {
+        return service.runStatements(parse(period));
+    }
+
+    private static StatementPeriod parse(String period) {
+        StatementPeriod statementPeriod = StatementPeriod.parse(period);
+        if (statementPeriod == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unreadable statement period " + period);
+        }
+        return statementPeriod;
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.billing;
+
+import java.time.LocalDate;
+
+/**
+ * One insurance claim as last seen by the {@link ClaimPipeline}. Immutable: every status transition
+ * replaces the claim in the index.
+ *
+ * @param approvedCents what the payer will pay; only set once the claim is {@link ClaimStatus#APPROVED}
+ * @param note          the payer's reason for a denial, or why submission failed
+ */
+public record Claim(String claimId, String patientId, String insuranceProvider, String serviceCode, long amountCents,
+                    LocalDate submitted, ClaimStatus status, long approvedCents, LocalDate updated, String note) {
+
+    static Claim queued(String claimId, String patientId, String insuranceProvider, String serviceCode,
+                        long amountCents, LocalDate submitted) {
+        return new Claim(claimId, patientId, insuranceProvider, serviceCode, amountCents, submitted,
+                ClaimStatus.QUEUED, 0, submitted, null);
+    }
+
+    Claim withStatus(ClaimStatus status, long approvedCents, LocalDate updated, String note) {
+        return new Claim(claimId, patientId, insuranceProvider, serviceCode, amountCents, submitted, status,
+                approvedCents, updated, note);
+    }
+}
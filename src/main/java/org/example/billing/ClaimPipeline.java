@@ -0,0 +1,389 @@
+package org.example.billing;
+
+import lombok.extern.java.Log;
+import org.example.common.metrics.LatencyMetric;
+import org.example.common.metrics.MetricsRegistry;
+import org.example.common.wal.FieldCodec;
+import org.example.common.wal.Journal;
+import org.example.common.wal.LogEntry;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+import static org.example.common.wal.FieldCodec.fields;
+
+/**
+ * Claim lifecycle engine. {@link #submit} puts a claim on a bounded queue and returns; a batcher thread groups
+ * queued claims by insurance provider and hands a provider's batch to a sender once it holds
+ * {@code batchSize} claims or its oldest claim has waited {@code lingerMillis}. Senders call the
+ * {@link Clearinghouse}, retrying a failed batch with backoff, and record each claim's outcome.
+ * <p>
+ * Every transition replaces the claim in a hash index, so {@link #find} is a map read that never waits for
+ * submission. Back-pressure runs the other way: at most {@code senders} batches are in flight, the batcher
+ * stops draining the queue while they are, and {@link #submit} waits up to {@code offerTimeoutMillis} for
+ * room before it gives up. Approved claims are posted to the ledger as insurance payments.
+ * <p>
+ * A claim's transitions are serialized on a lock striped by claim ID, so a decision from a batch and one from a
+ * remittance file cannot both be applied, and a claim is decided and paid once.
+ * <p>
+ * Claims are journalled on the {@code claim} stream and transitions on {@code claim-status}; on start the
+ * index is rebuilt from both and claims that were still queued or submitted are sent again. Insurance payments
+ * are journalled by the ledger itself, which replays them in order with the patient's other lines.
+ */
+@Log
+public final class ClaimPipeline implements AutoCloseable {
+
+    static final String CLAIM_STREAM = "claim";
+    static final String STATUS_STREAM = "claim-status";
+    private static final ClaimStatus[] STATUSES = ClaimStatus.values();
+    private static final long RETRY_BACKOFF_MILLIS = 100;
+    private static final int LOCK_STRIPES = 64;
+
+    public record Options(int queueCapacity, int batchSize, long lingerMillis, long offerTimeoutMillis, int senders,
+                          int maxAttempts) {
+
+        public static Options defaults() {
+            return new Options(
+                    Integer.getInteger("billing.claims.queue", 1 << 16),
+                    Integer.getInteger("billing.claims.batch.size", 500),
+                    Long.getLong("billing.claims.batch.linger-ms", 200),
+                    Long.getLong("billing.claims.offer-timeout-ms", 1000),
+                    Integer.getInteger("billing.claims.senders", 8),
+                    Integer.getInteger("billing.claims.attempts", 5));
+        }
+    }
+
+    private static final class Batch {
+        final List<Claim> claims = new ArrayList<>();
+        long firstNanos;
+    }
+
+    private final Journal journal;
+    private final BillingLedger ledger;
+    private final Clearinghouse clearinghouse;
+    private final Options options;
+    private final Map<String, Claim> claims = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final LongAdder[] statusCounts = new LongAdder[STATUSES.length];
+    private final BlockingQueue<Claim> queue;
+    private final Semaphore queueSlots;
+    private final Semaphore sendSlots;
+    private final ExecutorService senders;
+    private final Map<String, Batch> pending = new HashMap<>();
+    private final Thread batcher;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LatencyMetric enqueueWait;
+    private final Map<String, LatencyMetric> batchLatency = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    public ClaimPipeline(Journal journal, BillingLedger ledger, Clearinghouse clearinghouse) {
+        this(journal, ledger, clearinghouse, Options.defaults());
+    }
+
+    public ClaimPipeline(Journal journal, BillingLedger ledger, Clearinghouse clearinghouse, Options options) {
+        this.journal = journal;
+        this.ledger = ledger;
+        this.clearinghouse = clearinghouse;
+        this.options = options;
+        for (int i = 0; i < statusCounts.length; i++) {
+            statusCounts[i] = new LongAdder();
+        }
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.queue = new ArrayBlockingQueue<>(options.queueCapacity());
+        this.queueSlots = new Semaphore(options.queueCapacity());
+        this.sendSlots = new Semaphore(options.senders());
+        AtomicInteger counter = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(options.senders(), runnable -> {
+            Thread thread = new Thread(runnable, "claim-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        MetricsRegistry registry = MetricsRegistry.shared();
+        this.enqueueWait = registry.latency("billing_claim_enqueue",
+                "Time submitInsuranceClaim waited for room on the claim queue");
+        registry.gauge("billing_claims_queue_depth", "Claims waiting to be batched", queue::size);
+        registry.gauge("billing_claims_queue_capacity", "Size of the claim queue", options::queueCapacity);
+        registry.gauge("billing_claim_batches_in_flight", "Batches being sent to the clearinghouse",
+                () -> options.senders() - sendSlots.availablePermits());
+        registry.counter("billing_claims_rejected_total", "Claims refused because the queue stayed full",
+                rejected::sum);
+        registry.counter("billing_claim_batch_retries_total", "Clearinghouse batch attempts that were retried",
+                retries::sum);
+        for (ClaimStatus status : STATUSES) {
+            registry.gauge("billing_claims", "Claims by current status", statusCounts[status.ordinal()]::sum,
+                    "status", status.name());
+        }
+
+        journal.replay(this::recover);
+        for (Claim claim : claims.values()) {
+            if (claim.status() == ClaimStatus.QUEUED || claim.status() == ClaimStatus.SUBMITTED) {
+                // Possibly delivered before the restart; clearinghouses deduplicate on the claim ID.
+                collect(claim, System.nanoTime());
+            } else if (claim.status() == ClaimStatus.APPROVED && claim.approvedCents() > 0) {
+                // Approved before the ledger journalled insurance payments, or the process stopped in between
+                ledger.payInsurance(claim.claimId(), claim.patientId(), claim.approvedCents(),
+                        claim.insuranceProvider(), claim.updated());
+            }
+        }
+        this.batcher = new Thread(this::batchLoop, "claim-batcher");
+        this.batcher.setDaemon(true);
+        this.batcher.start();
+    }
+
+    /**
+     * Queues a new claim, waiting up to {@code offerTimeoutMillis} if the queue is full.
+     *
+     * @return the queued claim, or {@code null} if there was no room in time
+     */
+    public Claim submit(String claimId, String patientId, String insuranceProvider, String serviceCode,
+                        long amountCents, LocalDate date) {
+        long start = enqueueWait.start();
+        boolean admitted = false;
+        try {
+            admitted = queueSlots.tryAcquire(options.offerTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            enqueueWait.stop(start, false);
+        }
+        if (!admitted || !running) {
+            if (admitted) {
+                queueSlots.release();
+            }
+            rejected.increment();
+            return null;
+        }
+        Claim claim = Claim.queued(claimId, patientId, insuranceProvider, serviceCode, amountCents, date);
+        index(claim);
+        journal.append(CLAIM_STREAM, claimId, fields("patientId", patientId, "insuranceProvider", insuranceProvider,
+                "serviceCode", serviceCode, "claimAmount", BillingLedger.centsToDecimal(amountCents),
+                "date", date.toString()));
+        queue.add(claim);
+        return claim;
+    }
+
+    /**
+     * @return the claim as of its latest transition, or {@code null} if it is unknown
+     */
+    public Claim find(String claimId) {
+        return claims.get(claimId);
+    }
+
+    /**
+     * Applies a decision that arrived after the batch was answered, e.g. from a remittance file.
+     *
+     * @return {@code false} if the claim is unknown or already decided
+     */
+    public boolean record(Clearinghouse.Adjudication decision) {
+        return transition(decision.claimId(), decision.status(), decision.approvedCents(), decision.note()) != null;
+    }
+
+    public long count(ClaimStatus status) {
+        return statusCounts[status.ordinal()].sum();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        batcher.interrupt();
+        try {
+            batcher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        senders.shutdown();
+        try {
+            senders.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void batchLoop() {
+        List<Claim> drained = new ArrayList<>(options.batchSize());
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(options.lingerMillis());
+        try {
+            while (running) {
+                long wait = lingerNanos;
+                long now = System.nanoTime();
+                for (Batch batch : pending.values()) {
+                    wait = Math.min(wait, batch.firstNanos + lingerNanos - now);
+                }
+                Claim first = queue.poll(Math.max(0, wait), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    drained.add(first);
+                    queue.drainTo(drained, options.batchSize() * 4);
+                    queueSlots.release(drained.size());
+                    now = System.nanoTime();
+                    for (Claim claim : drained) {
+                        collect(claim, now);
+                    }
+                    drained.clear();
+                }
+                now = System.nanoTime();
+                for (Iterator<Map.Entry<String, Batch>> due = pending.entrySet().iterator(); due.hasNext(); ) {
+                    Map.Entry<String, Batch> entry = due.next();
+                    List<Claim> batch = entry.getValue().claims;
+                    if (batch.size() >= options.batchSize() || now - entry.getValue().firstNanos >= lingerNanos) {
+                        due.remove();
+                        for (int from = 0; from < batch.size(); from += options.batchSize()) {
+                            send(entry.getKey(), batch.subList(from, Math.min(batch.size(), from + options.batchSize())));
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closing: claims still queued or collected stay QUEUED and are sent again after a restart.
+        }
+    }
+
+    /**
+     * Adds a claim to its provider's batch. Batcher thread only, or the constructor before it starts.
+     */
+    private void collect(Claim claim, long now) {
+        Batch batch = pending.computeIfAbsent(claim.insuranceProvider(), provider -> new Batch());
+        if (batch.claims.isEmpty()) {
+            batch.firstNanos = now;
+        }
+        batch.claims.add(claim);
+    }
+
+    private void send(String provider, List<Claim> batch) throws InterruptedException {
+        sendSlots.acquire();
+        try {
+            senders.execute(() -> {
+                try {
+                    deliver(provider, batch);
+                } finally {
+                    sendSlots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            sendSlots.release();
+            throw e;
+        }
+    }
+
+    private void deliver(String provider, List<Claim> batch) {
+        List<Claim> submitted = new ArrayList<>(batch.size());
+        for (Claim claim : batch) {
+            Claim next = transition(claim.claimId(), ClaimStatus.SUBMITTED, 0, null);
+            if (next != null) {
+                submitted.add(next);
+            }
+        }
+        if (submitted.isEmpty()) {
+            return;
+        }
+        LatencyMetric latency = batchLatency.computeIfAbsent(provider, key -> MetricsRegistry.shared().latency(
+                "billing_claim_batch", "Clearinghouse round trip per claim batch", "provider", key));
+        for (int attempt = 1; ; attempt++) {
+            long start = latency.start();
+            try {
+                List<Clearinghouse.Adjudication> decisions = clearinghouse.submit(provider, submitted);
+                latency.stop(start, false);
+                for (Clearinghouse.Adjudication decision : decisions) {
+                    record(decision);
+                }
+                return;
+            } catch (Exception e) {
+                latency.stop(start, true);
+                if (attempt >= options.maxAttempts() || !running) {
+                    log.log(Level.WARNING, "Giving up on a batch of " + batch.size() + " " + provider + " claims", e);
+                    String reason = "Clearinghouse unavailable: " + e.getMessage();
+                    for (Claim claim : submitted) {
+                        record(new Clearinghouse.Adjudication(claim.claimId(), ClaimStatus.FAILED, 0, reason));
+                    }
+                    return;
+                }
+                retries.increment();
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MILLIS << Math.min(attempt - 1, 6));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves a claim that is not decided yet to {@code status}.
+     *
+     * @return the claim after the transition, or {@code null} if it is unknown or already decided
+     */
+    private Claim transition(String claimId, ClaimStatus status, long approvedCents, String note) {
+        synchronized (locks[(claimId.hashCode() & 0x7fffffff) % LOCK_STRIPES]) {
+            Claim claim = claims.get(claimId);
+            if (claim == null || claim.status().isFinal()) {
+                return null;
+            }
+            LocalDate today = LocalDate.now();
+            Claim next = claim.withStatus(status, approvedCents, today, note);
+            index(next);
+            journal.append(STATUS_STREAM, claimId, statusFields(next));
+            if (status == ClaimStatus.APPROVED && approvedCents > 0) {
+                ledger.payInsurance(claimId, claim.patientId(), approvedCents, claim.insuranceProvider(), today);
+            }
+            return next;
+        }
+    }
+
+    private void index(Claim claim) {
+        Claim previous = claims.put(claim.claimId(), claim);
+        if (previous != null) {
+            statusCounts[previous.status().ordinal()].decrement();
+        }
+        statusCounts[claim.status().ordinal()].increment();
+    }
+
+    private static Map<String, String> statusFields(Claim claim) {
+        Map<String, String> fields = fields("status", claim.status().name(),
+                "approved", BillingLedger.centsToDecimal(claim.approvedCents()), "date", claim.updated().toString());
+        if (claim.note() != null) {
+            fields.put("note", claim.note());
+        }
+        return fields;
+    }
+
+    private void recover(LogEntry entry) {
+        if (entry.isTombstone()) {
+            return;
+        }
+        if (CLAIM_STREAM.equals(entry.stream())) {
+            Map<String, String> fields = FieldCodec.decode(entry.payload());
+            String date = fields.get("date");
+            index(Claim.queued(entry.key(), fields.get("patientId"), fields.get("insuranceProvider"),
+                    fields.get("serviceCode"), BillingLedger.decimalToCents(fields.get("claimAmount")),
+                    date == null ? LocalDate.now() : LocalDate.parse(date)));
+        } else if (STATUS_STREAM.equals(entry.stream())) {
+            Claim claim = claims.get(entry.key());
+            if (claim == null) {
+                return;
+            }
+            Map<String, String> fields = FieldCodec.decode(entry.payload());
+            ClaimStatus status = ClaimStatus.valueOf(fields.get("status"));
+            long approved = BillingLedger.decimalToCents(fields.get("approved"));
+            LocalDate date = LocalDate.parse(fields.get("date"));
+            index(claim.withStatus(status, approved, date, fields.get("note")));
+        }
+    }
+}
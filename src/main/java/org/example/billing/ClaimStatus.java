@@ -0,0 +1,13 @@
+package org.example.billing;
+
+/**
+ * Lifecycle of an insurance claim. {@code QUEUED} and {@code SUBMITTED} are in progress; a claim the payer
+ * has {@code ACCEPTED} waits for its decision; the rest are final.
+ */
+public enum ClaimStatus {
+    QUEUED, SUBMITTED, ACCEPTED, APPROVED, DENIED, FAILED;
+
+    public boolean isFinal() {
+        return this == APPROVED || this == DENIED || this == FAILED;
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.billing;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+/**
+ * Sends batches of claims for one payer to a clearinghouse. The implementation is chosen with
+ * {@code -Dbilling.clearinghouse=<class name>} (a public no-arg class); the default is the
+ * {@link LocalClearinghouse} stub.
+ */
+public interface Clearinghouse {
+
+    /**
+     * The payer's answer for one claim. A claim missing from a batch's answers stays {@link ClaimStatus#SUBMITTED}.
+     *
+     * @param status {@link ClaimStatus#ACCEPTED} if the decision will come later, through
+     *               {@link ClaimPipeline#record(Adjudication)}
+     */
+    record Adjudication(String claimId, ClaimStatus status, long approvedCents, String note) {
+    }
+
+    /**
+     * Submits claims that all share {@code insuranceProvider}. Called from several sender threads at once.
+     *
+     * @throws IOException if the batch could not be delivered; it is retried as a whole
+     */
+    List<Adjudication> submit(String insuranceProvider, List<Claim> batch) throws IOException;
+
+    static Clearinghouse configured() {
+        String type = System.getProperty("billing.clearinghouse");
+        if (type == null || type.isBlank()) {
+            return new LocalClearinghouse();
+        }
+        try {
+            return Class.forName(type.trim()).asSubclass(Clearinghouse.class).getConstructor().newInstance();
+        } catch (ClassNotFoundException | ClassCastException | NoSuchMethodException | InstantiationException
+                 | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Unable to create clearinghouse " + type, e);
+        }
+    }
+}
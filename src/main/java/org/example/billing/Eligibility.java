@@ -0,0 +1,19 @@
+package org.example.billing;
+
+import java.time.LocalDate;
+
+/**
+ * A payer's answer to an eligibility check for one policy. Amounts are in cents.
+ *
+ * @param checked the day the payer was asked, which may be earlier than the day it is shown
+ */
+public record Eligibility(String insuranceProvider, String policyNumber, boolean active, LocalDate effective,
+                          LocalDate expiration, long deductibleCents, long deductibleMetCents,
+                          long outOfPocketMaxCents, long outOfPocketMetCents, long officeCopayCents,
+                          long specialistCopayCents, long emergencyCopayCents, int coinsurancePercent,
+                          LocalDate checked) {
+
+    static Eligibility notFound(String insuranceProvider, String policyNumber, LocalDate checked) {
+        return new Eligibility(insuranceProvider, policyNumber, false, null, null, 0, 0, 0, 0, 0, 0, 0, 0, checked);
+    }
+}
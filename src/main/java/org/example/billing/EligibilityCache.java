@@ -0,0 +1,71 @@
+package org.example.billing;
+
+import org.example.common.InsurancePolicyChanges;
+import org.example.common.ReadThroughCache;
+
+import java.util.Locale;
+
+/**
+ * Eligibility answers keyed on (insurance provider, policy number), read through to a {@link PayerGateway}.
+ * An answer is fresh for {@code -Dbilling.eligibility.ttl-ms} (default 15 minutes) and served stale while it
+ * is re-checked for {@code -Dbilling.eligibility.stale-ms} more (default 1 hour); at most
+ * {@code -Dbilling.eligibility.max-entries} policies (default 100,000) are kept. A {@link #configured()}
+ * cache, such as the billing server's bean, drops a policy when {@link InsurancePolicyChanges} reports that a
+ * patient's insurance changed, until it is closed.
+ */
+public final class EligibilityCache implements AutoCloseable {
+
+    private record PolicyKey(String insuranceProvider, String policyNumber) {
+
+        static PolicyKey of(String insuranceProvider, String policyNumber) {
+            return new PolicyKey(insuranceProvider.trim().toLowerCase(Locale.ROOT),
+                    policyNumber.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final ReadThroughCache<PolicyKey, Eligibility> cache;
+    private final InsurancePolicyChanges.Listener policyChanges = this::invalidate;
+
+    public EligibilityCache(PayerGateway payer, ReadThroughCache.Options options) {
+        this.cache = new ReadThroughCache<>("eligibility", options,
+                key -> payer.lookup(key.insuranceProvider(), key.policyNumber()));
+    }
+
+    /**
+     * A cache over {@link PayerGateway#configured()} with the options from the system properties, listening for
+     * policy changes.
+     */
+    public static EligibilityCache configured() {
+        EligibilityCache configured = new EligibilityCache(PayerGateway.configured(), new ReadThroughCache.Options(
+                Long.getLong("billing.eligibility.ttl-ms", 15 * 60_000L),
+                Long.getLong("billing.eligibility.stale-ms", 60 * 60_000L),
+                Integer.getInteger("billing.eligibility.max-entries", 100_000)));
+        InsurancePolicyChanges.listen(configured.policyChanges);
+        return configured;
+    }
+
+    /**
+     * @throws java.util.concurrent.CompletionException if the payer could not be asked and nothing is cached
+     */
+    public Eligibility lookup(String insuranceProvider, String policyNumber) {
+        return cache.get(PolicyKey.of(insuranceProvider, policyNumber));
+    }
+
+    public void invalidate(String insuranceProvider, String policyNumber) {
+        cache.invalidate(PolicyKey.of(insuranceProvider, policyNumber));
+    }
+
+    public long hits() {
+        return cache.hits() + cache.staleHits();
+    }
+
+    public long misses() {
+        return cache.misses();
+    }
+
+    @Override
+    public void close() {
+        InsurancePolicyChanges.unlisten(policyChanges);
+        cache.close();
+    }
+}
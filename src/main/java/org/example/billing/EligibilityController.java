@@ -0,0 +1,40 @@
+package org.example.billing;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.example.common.MeshAuth;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * {@code DELETE /billing/eligibility?provider=..&policy=..} drops a cached eligibility answer. The patient
+ * records server calls it when a patient's insurance changes and
+ * {@code -Dhealthcare.insurance.invalidate-url} points at this server. Only other servers may call it, see
+ * {@link MeshAuth}; anyone else gets {@code 403}.
+ */
+@RestController
+@RequestMapping("/billing/eligibility")
+public class EligibilityController {
+
+    private final EligibilityCache eligibility;
+
+    public EligibilityController(EligibilityCache eligibility) {
+        this.eligibility = eligibility;
+    }
+
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void invalidate(@RequestParam("provider") String provider, @RequestParam("policy") String policy,
+                           @RequestHeader(value = MeshAuth.HEADER, required = false) String token,
+                           HttpServletRequest request) {
+        if (!MeshAuth.permits(request.getRemoteAddr(), token)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not a mesh server");
+        }
+        eligibility.invalidate(provider, policy);
+    }
+}
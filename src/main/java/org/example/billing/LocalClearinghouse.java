@@ -0,0 +1,53 @@
+package org.example.billing;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for a clearinghouse. It waits {@code -Dbilling.clearinghouse.latency-ms} (default 50)
+ * per batch, like a round trip, then decides every claim at once: claims with a procedure code that is not a
+ * CPT or HCPCS code, or with no amount, are denied; the rest are approved at {@code coverage} percent.
+ */
+public class LocalClearinghouse implements Clearinghouse {
+
+    private static final Pattern PROCEDURE_CODE = Pattern.compile("\\d{4}[0-9FTU]|[A-V]\\d{4}");
+
+    private final long latencyMillis;
+    private final int coverage;
+
+    public LocalClearinghouse() {
+        this(Long.getLong("billing.clearinghouse.latency-ms", 50), 90);
+    }
+
+    public LocalClearinghouse(long latencyMillis, int coverage) {
+        this.latencyMillis = latencyMillis;
+        this.coverage = coverage;
+    }
+
+    @Override
+    public List<Adjudication> submit(String insuranceProvider, List<Claim> batch) throws IOException {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Clearinghouse call interrupted");
+            }
+        }
+        List<Adjudication> decisions = new ArrayList<>(batch.size());
+        for (Claim claim : batch) {
+            if (claim.serviceCode() == null || !PROCEDURE_CODE.matcher(claim.serviceCode()).matches()) {
+                decisions.add(new Adjudication(claim.claimId(), ClaimStatus.DENIED, 0, "Invalid procedure code"));
+            } else if (claim.amountCents() <= 0) {
+                decisions.add(new Adjudication(claim.claimId(), ClaimStatus.DENIED, 0, "No billed amount"));
+            } else {
+                decisions.add(new Adjudication(claim.claimId(), ClaimStatus.APPROVED,
+                        claim.amountCents() * coverage / 100, null));
+            }
+        }
+        return decisions;
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.billing;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Eligibility lookups at the insurance payer. The implementation is chosen with
+ * {@code -Dbilling.payer=<class name>} (a public no-arg class); the default is the {@link StubPayer}.
+ */
+public interface PayerGateway {
+
+    /**
+     * Called concurrently for different policies; never twice at once for the same policy through the
+     * {@link EligibilityCache}.
+     *
+     * @throws IOException if the payer could not be reached
+     */
+    Eligibility lookup(String insuranceProvider, String policyNumber) throws IOException;
+
+    static PayerGateway configured() {
+        String type = System.getProperty("billing.payer");
+        if (type == null || type.isBlank()) {
+            return new StubPayer();
+        }
+        try {
+            return Class.forName(type.trim()).asSubclass(PayerGateway.class).getConstructor().newInstance();
+        } catch (ClassNotFoundException | ClassCastException | NoSuchMethodException | InstantiationException
+                 | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Unable to create payer gateway " + type, e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.billing;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Inclusive date range a statement covers.
+ */
+public record StatementPeriod(LocalDate from, LocalDate to) {
+
+    private static final DateTimeFormatter[] MONTH_FORMATS = {
+            DateTimeFormatter.ofPattern("uuuu-MM"),
+            caseInsensitive("MMMM uuuu"),
+            caseInsensitive("MMM uuuu"),
+            caseInsensitive("M/uuuu")
+    };
+    private static final Pattern RANGE = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})\\s*(?:to|through|-)\\s*(\\d{4}-\\d{2}-\\d{2})",
+            Pattern.CASE_INSENSITIVE);
+
+    public StatementPeriod {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Statement period ends before it starts: " + from + " to " + to);
+        }
+    }
+
+    /**
+     * Reads a month ({@code 2026-01}, {@code January 2026}, {@code 1/2026}), a year ({@code 2026}) or a range
+     * ({@code 2026-01-01 to 2026-03-31}).
+     *
+     * @return the period, or {@code null} if the text is not one of those forms
+     */
+    public static StatementPeriod parse(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        String period = text.trim();
+        Matcher range = RANGE.matcher(period);
+        try {
+            if (range.matches()) {
+                LocalDate from = LocalDate.parse(range.group(1));
+                LocalDate to = LocalDate.parse(range.group(2));
+                return to.isBefore(from) ? null : new StatementPeriod(from, to);
+            }
+            if (period.matches("\\d{4}")) {
+                Year year = Year.parse(period);
+                return new StatementPeriod(year.atDay(1), year.atMonth(12).atEndOfMonth());
+            }
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+        for (DateTimeFormatter format : MONTH_FORMATS) {
+            try {
+                YearMonth month = YearMonth.parse(period, format);
+                return new StatementPeriod(month.atDay(1), month.atEndOfMonth());
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        return null;
+    }
+
+    public int firstDay() {
+        return (int) from.toEpochDay();
+    }
+
+    public int lastDay() {
+        return (int) to.toEpochDay();
+    }
+
+    @Override
+    public String toString() {
+        return from + " to " + to;
+    }
+
+    private static DateTimeFormatter caseInsensitive(String pattern) {
+        return new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern(pattern).toFormatter(Locale.US);
+    }
+}
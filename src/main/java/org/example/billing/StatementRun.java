@@ -0,0 +1,121 @@
+package org.example.billing;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Month-end statement run: every patient with activity in the period or a balance at its end gets a
+ * statement. Patients are split into contiguous partitions that fork-join workers render in parallel, each
+ * straight into its own {@code part-NNNNN.txt}, so no statement text is held beyond the one being written.
+ * All partitions read the same {@link BillingLedger.View}, so the run is consistent even while lines are
+ * being posted.
+ */
+public final class StatementRun {
+
+    private static final int MIN_PARTITION_PATIENTS = 4096;
+    private static final int OUTPUT_BUFFER_CHARS = 256 * 1024;
+
+    public record Summary(String period, int patients, long statements, int files, long bytes, long elapsedMillis,
+                          String directory) {
+    }
+
+    private StatementRun() {
+    }
+
+    public static Summary writeAll(BillingLedger ledger, StatementPeriod period, LocalDate generated, Path directory)
+            throws IOException {
+        long start = System.nanoTime();
+        BillingLedger.View view = ledger.view();
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> previous = Files.newDirectoryStream(directory, "part-*.txt")) {
+            for (Path file : previous) {
+                Files.delete(file);
+            }
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int patients = view.endPatient();
+        int partitionSize = Math.max(MIN_PARTITION_PATIENTS,
+                (patients + pool.getParallelism() * 4 - 1) / (pool.getParallelism() * 4));
+        int partitions = (patients + partitionSize - 1) / partitionSize;
+        long statements = 0;
+        try {
+            statements = partitions == 0 ? 0 : pool.invoke(new Partitions(view, period, generated, directory, partitionSize, 0, partitions));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        long bytes = 0;
+        for (int partition = 0; partition < partitions; partition++) {
+            bytes += Files.size(partFile(directory, partition));
+        }
+        return new Summary(period.toString(), patients, statements, partitions, bytes,
+                (System.nanoTime() - start) / 1_000_000, directory.toString());
+    }
+
+    private static Path partFile(Path directory, int partition) {
+        return directory.resolve(String.format("part-%05d.txt", partition));
+    }
+
+    private static final class Partitions extends RecursiveTask<Long> {
+        private final BillingLedger.View view;
+        private final StatementPeriod period;
+        private final LocalDate generated;
+        private final Path directory;
+        private final int partitionSize;
+        private final int first;
+        private final int end;
+
+        Partitions(BillingLedger.View view, StatementPeriod period, LocalDate generated, Path directory,
+                   int partitionSize, int first, int end) {
+            this.view = view;
+            this.period = period;
+            this.generated = generated;
+            this.directory = directory;
+            this.partitionSize = partitionSize;
+            this.first = first;
+            this.end = end;
+        }
+
+        @Override
+        protected Long compute() {
+            if (end - first > 1) {
+                int middle = (first + end) >>> 1;
+                Partitions left = new Partitions(view, period, generated, directory, partitionSize, first, middle);
+                left.fork();
+                long right = new Partitions(view, period, generated, directory, partitionSize, middle, end).compute();
+                return left.join() + right;
+            }
+            try {
+                return writePartition(first);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private long writePartition(int partition) throws IOException {
+            int firstPatient = partition * partitionSize;
+            int endPatient = Math.min(view.endPatient(), firstPatient + partitionSize);
+            StatementWriter statements = new StatementWriter(period, generated);
+            long written = 0;
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    Files.newOutputStream(partFile(directory, partition)), StandardCharsets.UTF_8), OUTPUT_BUFFER_CHARS)) {
+                for (int patient = firstPatient; patient < endPatient; patient++) {
+                    if (statements.write(view, patient, out, true)) {
+                        out.write("\n\n");
+                        written++;
+                    }
+                }
+            }
+            return written;
+        }
+    }
+}
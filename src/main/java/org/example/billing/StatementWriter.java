@@ -0,0 +1,202 @@
+package org.example.billing;
+
+import org.example.common.ResponseTemplate;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Renders billing statements from a {@link BillingLedger.View}. A statement walks the patient's lines back
+ * from the newest one and stops at the first line before the period, so its cost depends on the lines in
+ * and after the period, not on the patient's whole history; the opening balance comes from the running
+ * balance minus what was posted since the period started.
+ * <p>
+ * Each statement is built in a reusable buffer and copied to the {@link Writer} as characters, so a run
+ * over millions of statements allocates no per-statement strings. One instance per thread.
+ */
+final class StatementWriter {
+
+    private static final ResponseTemplate HEADER = ResponseTemplate.compile(
+            "Billing Statement\n" +
+            "Patient ID: %s\n" +
+            "Statement Period: %s\n" +
+            "=================================\n" +
+            "Generated: %s\n\n");
+
+    private static final int MAX_CACHED_DAYS = 3660;
+
+    private final StatementPeriod period;
+    private final String periodLabel;
+    private final String generated;
+    private final String dueDate;
+    private final String[] dayLabels;
+    private final StringBuilder buffer = new StringBuilder(2048);
+    private char[] chars = new char[2048];
+    private int[] charges = new int[64];
+
+    StatementWriter(StatementPeriod period, LocalDate generated) {
+        this.period = period;
+        this.periodLabel = period.toString();
+        this.generated = generated.toString();
+        this.dueDate = generated.plusDays(30).toString();
+        int days = period.lastDay() - period.firstDay() + 1;
+        this.dayLabels = new String[Math.min(days, MAX_CACHED_DAYS)];
+    }
+
+    /**
+     * Writes the statement of {@code patient}, which must be covered by {@code view}.
+     *
+     * @param skipInactive write nothing for a patient with no lines in the period and nothing owed at its end
+     * @return whether a statement was written
+     */
+    boolean write(BillingLedger.View view, int patient, Writer out, boolean skipInactive) throws IOException {
+        int from = period.firstDay();
+        int to = period.lastDay();
+        int chargeCount = 0;
+        boolean active = false;
+        long after = 0;
+        long newCharges = 0;
+        long tax = 0;
+        long insurancePayments = 0;
+        long patientPayments = 0;
+        long adjustments = 0;
+        for (int line = view.lastLine(patient); line >= 0; line = view.previous(line)) {
+            int day = view.day(line);
+            if (day < from) {
+                break;
+            }
+            long change = view.change(line);
+            if (day > to) {
+                after += change;
+                continue;
+            }
+            active = true;
+            switch (view.kind(line)) {
+                case CHARGE -> {
+                    newCharges += change;
+                    if (chargeCount == charges.length) {
+                        charges = Arrays.copyOf(charges, chargeCount * 2);
+                    }
+                    charges[chargeCount++] = line;
+                }
+                case TAX -> {
+                    newCharges += change;
+                    tax += change;
+                }
+                case INSURANCE_PAYMENT -> insurancePayments -= change;
+                case PATIENT_PAYMENT -> patientPayments -= change;
+                case ADJUSTMENT -> adjustments -= change;
+            }
+        }
+        long closing = view.balance(patient) - after;
+        if (skipInactive && !active && closing == 0) {
+            return false;
+        }
+        long opening = closing - (newCharges - insurancePayments - patientPayments - adjustments);
+
+        StringBuilder text = buffer;
+        text.setLength(0);
+        HEADER.renderTo(text).arg(view.patientId(patient)).arg(periodLabel).arg(generated).build();
+        text.append("Previous Balance: ");
+        appendMoney(text, opening);
+        text.append("\nNew Charges: ");
+        appendMoney(text, newCharges);
+        text.append("\nInsurance Payments: ");
+        appendCredit(text, insurancePayments);
+        text.append("\nPatient Payments: ");
+        appendCredit(text, patientPayments);
+        text.append("\nAdjustments: ");
+        appendCredit(text, adjustments);
+        text.append("\nCurrent Balance: ");
+        appendMoney(text, closing);
+        text.append("\n\nItemized Charges:");
+        for (int i = chargeCount - 1; i >= 0; i--) {
+            int line = charges[i];
+            text.append("\n  ").append(dayLabel(view.day(line))).append(' ').append(view.code(line)).append(": ");
+            appendMoney(text, view.change(line));
+        }
+        if (tax != 0) {
+            text.append("\n  Tax: ");
+            appendMoney(text, tax);
+        }
+        if (chargeCount == 0 && tax == 0) {
+            text.append("\n  None");
+        }
+        text.append("\n\nAmount Due: ");
+        appendMoney(text, Math.max(0, closing));
+        text.append("\nDue Date: ").append(dueDate).append("\nPay Online: www.medicalcenter.com/pay");
+
+        int length = text.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        text.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+        return true;
+    }
+
+    private String dayLabel(int day) {
+        int index = day - period.firstDay();
+        if (index >= dayLabels.length) {
+            return LocalDate.ofEpochDay(day).toString();
+        }
+        String label = dayLabels[index];
+        if (label == null) {
+            label = LocalDate.ofEpochDay(day).toString();
+            dayLabels[index] = label;
+        }
+        return label;
+    }
+
+    static String money(long cents) {
+        StringBuilder text = new StringBuilder(16);
+        appendMoney(text, cents);
+        return text.toString();
+    }
+
+    /**
+     * {@code $1,234.56}, or {@code -$1,234.56} for a credit balance.
+     */
+    static void appendMoney(StringBuilder out, long cents) {
+        if (cents < 0) {
+            out.append('-');
+        }
+        long amount = Math.abs(cents);
+        out.append('$');
+        appendGrouped(out, amount / 100);
+        long fraction = amount % 100;
+        out.append('.');
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    /**
+     * Credits are shown in parentheses: {@code ($150.00)}.
+     */
+    static void appendCredit(StringBuilder out, long cents) {
+        out.append('(');
+        appendMoney(out, cents);
+        out.append(')');
+    }
+
+    private static void appendGrouped(StringBuilder out, long value) {
+        if (value < 1000) {
+            out.append(value);
+            return;
+        }
+        appendGrouped(out, value / 1000);
+        long group = value % 1000;
+        out.append(',');
+        if (group < 100) {
+            out.append('0');
+        }
+        if (group < 10) {
+            out.append('0');
+        }
+        out.append(group);
+    }
+}
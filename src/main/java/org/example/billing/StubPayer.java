@@ -0,0 +1,61 @@
+package org.example.billing;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for a payer's eligibility service. Each lookup waits
+ * {@code -Dbilling.payer.latency-ms} (default 200), like a real payer round trip, then answers from the
+ * policy number alone: a policy number needs at least four letters or digits including a digit, and the
+ * plan's figures are derived from its hash so the same policy always gets the same answer.
+ */
+public class StubPayer implements PayerGateway {
+
+    private static final Pattern POLICY = Pattern.compile("(?=.*\\d)[A-Za-z0-9-]{4,}");
+    private static final long[] DEDUCTIBLES = {50_000, 100_000, 200_000, 300_000};
+
+    private final long latencyMillis;
+    private final LongAdder lookups = new LongAdder();
+
+    public StubPayer() {
+        this(Long.getLong("billing.payer.latency-ms", 200));
+    }
+
+    public StubPayer(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public Eligibility lookup(String insuranceProvider, String policyNumber) throws IOException {
+        lookups.increment();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Payer lookup interrupted");
+            }
+        }
+        LocalDate today = LocalDate.now();
+        if (policyNumber == null || !POLICY.matcher(policyNumber.trim()).matches()) {
+            return Eligibility.notFound(insuranceProvider, policyNumber, today);
+        }
+        int hash = (insuranceProvider + '|' + policyNumber.trim()).hashCode() & 0x7fffffff;
+        long deductible = DEDUCTIBLES[hash % DEDUCTIBLES.length];
+        long outOfPocketMax = deductible * 5;
+        return new Eligibility(insuranceProvider, policyNumber, true, LocalDate.of(today.getYear(), 1, 1),
+                LocalDate.of(today.getYear(), 12, 31), deductible, deductible * (hash % 100) / 100,
+                outOfPocketMax, outOfPocketMax * (hash % 50) / 100, 2_000 + 500 * (hash % 4),
+                4_000 + 1_000 * (hash % 3), 15_000 + 5_000 * (hash % 3), 10 + 10 * (hash % 3), today);
+    }
+
+    /**
+     * Lookups answered so far, for comparing against cache misses.
+     */
+    public long lookups() {
+        return lookups.sum();
+    }
+}
@@ -0,0 +1,169 @@
+package org.example.common;
+
+import com.t4a.annotations.Action;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Dispatch table over the {@code @Action} methods of one agent, built once from annotations.
+ * <p>
+ * Each action is bound to its target as a spread {@link MethodHandle} with precomputed argument
+ * converters, so a call is a map lookup, a few parses and an {@code invokeExact} - no reflection
+ * and no LLM. Arguments can be positional or named; names require classes compiled with
+ * {@code -parameters}, which the Spring Boot parent enables.
+ */
+public final class ActionDispatcher {
+
+    public record ActionInfo(String name, String description, List<String> parameterNames,
+                             List<Class<?>> parameterTypes) {
+    }
+
+    private record Entry(ActionInfo info, MethodHandle handle, Function<Object, Object>[] converters) {
+    }
+
+    private final String agentName;
+    private final Map<String, Entry> actions;
+
+    private ActionDispatcher(String agentName, Map<String, Entry> actions) {
+        this.agentName = agentName;
+        this.actions = actions;
+    }
+
+    public static ActionDispatcher of(Object target) {
+        return of(target, target.getClass());
+    }
+
+    /**
+     * @param type the class declaring the actions; pass the user class when {@code target} is a proxy
+     */
+    public static ActionDispatcher of(Object target, Class<?> type) {
+        Map<String, Entry> actions = new LinkedHashMap<>();
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        for (Method method : type.getMethods()) {
+            Action action = method.getAnnotation(Action.class);
+            if (action == null || actions.containsKey(method.getName())) {
+                continue;
+            }
+            Parameter[] parameters = method.getParameters();
+            List<String> names = new ArrayList<>(parameters.length);
+            List<Class<?>> types = new ArrayList<>(parameters.length);
+            @SuppressWarnings("unchecked")
+            Function<Object, Object>[] converters = new Function[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                names.add(parameters[i].getName());
+                types.add(parameters[i].getType());
+                converters[i] = converterFor(parameters[i].getType());
+            }
+            try {
+                MethodHandle handle = lookup.unreflect(method)
+                        .bindTo(target)
+                        .asSpreader(Object[].class, parameters.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+                actions.put(method.getName(), new Entry(
+                        new ActionInfo(method.getName(), action.description(), List.copyOf(names), List.copyOf(types)),
+                        handle, converters));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Action " + method + " is not accessible", e);
+            }
+        }
+        return new ActionDispatcher(type.getSimpleName(), Collections.unmodifiableMap(actions));
+    }
+
+    public String getAgentName() {
+        return agentName;
+    }
+
+    public boolean supports(String action) {
+        return actions.containsKey(action);
+    }
+
+    public Collection<ActionInfo> actions() {
+        return Collections.unmodifiableCollection(actions.values().stream().map(Entry::info).toList());
+    }
+
+    public String invoke(String action, List<?> arguments) {
+        Entry entry = entry(action);
+        if (arguments.size() != entry.converters().length) {
+            throw new IllegalArgumentException(action + " expects " + entry.info().parameterNames()
+                    + " but got " + arguments.size() + " argument(s)");
+        }
+        Object[] converted = new Object[arguments.size()];
+        for (int i = 0; i < converted.length; i++) {
+            converted[i] = convert(entry, i, arguments.get(i));
+        }
+        return call(entry, converted);
+    }
+
+    public String invoke(String action, Map<String, ?> namedArguments) {
+        Entry entry = entry(action);
+        List<String> names = entry.info().parameterNames();
+        Object[] converted = new Object[names.size()];
+        for (int i = 0; i < converted.length; i++) {
+            if (!namedArguments.containsKey(names.get(i))) {
+                throw new IllegalArgumentException(action + " is missing argument '" + names.get(i) + "'");
+            }
+            converted[i] = convert(entry, i, namedArguments.get(names.get(i)));
+        }
+        return call(entry, converted);
+    }
+
+    private Entry entry(String action) {
+        Entry entry = actions.get(action);
+        if (entry == null) {
+            throw new NoSuchElementException(agentName + " has no action '" + action + "'");
+        }
+        return entry;
+    }
+
+    private static Object convert(Entry entry, int index, Object value) {
+        try {
+            return entry.converters()[index].apply(value);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid value '" + value + "' for " + entry.info().name() + "("
+                    + entry.info().parameterNames().get(index) + ")", e);
+        }
+    }
+
+    private static String call(Entry entry, Object[] arguments) {
+        try {
+            Object result = entry.handle().invokeExact(arguments);
+            return result == null ? null : result.toString();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Action " + entry.info().name() + " failed", e);
+        }
+    }
+
+    private static Function<Object, Object> converterFor(Class<?> type) {
+        if (type == String.class) {
+            return value -> value == null ? null : value.toString();
+        }
+        if (type == int.class || type == Integer.class) {
+            return value -> value instanceof Number number ? number.intValue() : Integer.parseInt(value.toString().trim());
+        }
+        if (type == long.class || type == Long.class) {
+            return value -> value instanceof Number number ? number.longValue() : Long.parseLong(value.toString().trim());
+        }
+        if (type == double.class || type == Double.class) {
+            return value -> value instanceof Number number ? number.doubleValue()
+                    : Double.parseDouble(value.toString().trim().replace("$", "").replace(",", ""));
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return value -> value instanceof Boolean flag ? flag : Boolean.parseBoolean(value.toString().trim());
+        }
+        throw new IllegalArgumentException("Unsupported action parameter type " + type.getName());
+    }
+}
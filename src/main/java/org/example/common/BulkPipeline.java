@@ -0,0 +1,208 @@
+package org.example.common;
+
+import lombok.extern.java.Log;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Runs a bulk request item by item on a shared worker pool and hands each result to a sink as soon as
+ * it is ready, in completion order.
+ * <p>
+ * The calling thread both pulls items from the source and writes results to the sink, and it never has
+ * more than {@code maxInFlight} items outstanding. A slow sink (a client reading a streamed response
+ * slowly) therefore stops the source from being read, and a bulk request of any size holds at most
+ * {@code maxInFlight} items and results in memory. Workers are sized with {@code -Dhealthcare.bulk.workers}
+ * (default: available processors) and the in-flight window with {@code -Dhealthcare.bulk.in-flight}
+ * (default 1024).
+ * <p>
+ * Every submitted item yields exactly one completion, whatever the task throws, so the calling thread is never
+ * left waiting for a result that will not come. When a source or sink failure abandons the request, results
+ * still in flight are waited for at most {@code -Dhealthcare.bulk.drain-timeout-ms} (default 30 seconds).
+ */
+@Log
+public final class BulkPipeline implements AutoCloseable {
+
+    private static final BulkPipeline SHARED = new BulkPipeline("bulk",
+            Integer.getInteger("healthcare.bulk.workers", Runtime.getRuntime().availableProcessors()),
+            Integer.getInteger("healthcare.bulk.in-flight", 1024));
+    private static final long DRAIN_TIMEOUT_MILLIS = Long.getLong("healthcare.bulk.drain-timeout-ms", 30_000L);
+
+    /**
+     * Work for one item; {@code index} is the item's zero-based position in the source.
+     */
+    @FunctionalInterface
+    public interface Task<I, O> {
+        O apply(long index, I item);
+    }
+
+    /**
+     * Turns a task failure into a result so one bad item does not abort the whole request. If this throws too,
+     * or returns {@code null}, the request is abandoned: see {@link #run}.
+     */
+    @FunctionalInterface
+    public interface Failure<I, O> {
+        O apply(long index, I item, Throwable error);
+    }
+
+    /**
+     * What a worker hands back for one item: its result, or why there is none.
+     */
+    private record Completed<O>(long index, O result, Throwable error) {
+    }
+
+    public interface Sink<O> {
+        void accept(O result) throws IOException;
+
+        /**
+         * Called before the pipeline blocks waiting for a result, so buffered output reaches the client.
+         */
+        default void flush() throws IOException {
+        }
+    }
+
+    private final ExecutorService workers;
+    private final int maxInFlight;
+
+    public BulkPipeline(String name, int workers, int maxInFlight) {
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, name + "-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    public static BulkPipeline shared() {
+        return SHARED;
+    }
+
+    /**
+     * Processes every item of {@code source}. Returns once all submitted items have completed. If the source
+     * fails (e.g. a malformed line) the results still in flight are written before its exception propagates;
+     * if the sink fails (e.g. the client went away) they are dropped and the rest of the source is not read.
+     * An item for which neither the task nor {@code failure} produced a result is handled like a source failure,
+     * with an {@link IllegalStateException} caused by what was thrown.
+     *
+     * @return the number of items processed
+     */
+    public <I, O> long run(Iterator<? extends I> source, Task<I, O> task, Failure<I, O> failure, Sink<O> sink)
+            throws IOException {
+        BlockingQueue<Completed<O>> completed = new LinkedBlockingQueue<>();
+        long submitted = 0;
+        int inFlight = 0;
+        boolean sinkFailed = false;
+        try {
+            while (source.hasNext()) {
+                I item = source.next();
+                while (inFlight >= maxInFlight) {
+                    Completed<O> next = awaitNext(completed, sink);
+                    inFlight--;
+                    sink.accept(resultOf(next));
+                }
+                long index = submitted++;
+                workers.execute(() -> completed.add(call(task, failure, index, item)));
+                inFlight++;
+                for (Completed<O> next = completed.poll(); next != null; next = completed.poll()) {
+                    inFlight--;
+                    sink.accept(resultOf(next));
+                }
+            }
+            while (inFlight > 0) {
+                Completed<O> next = awaitNext(completed, sink);
+                inFlight--;
+                sink.accept(resultOf(next));
+            }
+            sink.flush();
+            return submitted;
+        } catch (IOException e) {
+            sinkFailed = true;
+            throw e;
+        } finally {
+            if (inFlight > 0) {
+                // Source or sink failed: let outstanding items finish so none is left half-applied.
+                drain(completed, inFlight, sinkFailed ? null : sink);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private static <O> O resultOf(Completed<O> completed) {
+        if (completed.error() != null) {
+            throw new IllegalStateException("Bulk item " + completed.index() + " has no result", completed.error());
+        }
+        return completed.result();
+    }
+
+    private static <O> Completed<O> awaitNext(BlockingQueue<Completed<O>> completed, Sink<O> sink)
+            throws IOException {
+        Completed<O> next = completed.poll();
+        if (next != null) {
+            return next;
+        }
+        sink.flush();
+        try {
+            return completed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for bulk results", e);
+        }
+    }
+
+    private static <O> void drain(BlockingQueue<Completed<O>> completed, int inFlight, Sink<O> sink) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MILLIS);
+        for (int remaining = inFlight; remaining > 0; remaining--) {
+            Completed<O> next;
+            try {
+                next = completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (next == null) {
+                log.warning(remaining + " bulk items still running after " + DRAIN_TIMEOUT_MILLIS
+                        + " ms, not waiting for them");
+                return;
+            }
+            if (next.error() != null) {
+                log.log(Level.WARNING, "Bulk item " + next.index() + " has no result", next.error());
+            } else if (sink != null) {
+                try {
+                    sink.accept(next.result());
+                } catch (IOException e) {
+                    sink = null;
+                }
+            }
+        }
+    }
+
+    private static <I, O> Completed<O> call(Task<I, O> task, Failure<I, O> failure, long index, I item) {
+        O result;
+        try {
+            result = task.apply(index, item);
+        } catch (Throwable e) {
+            try {
+                result = failure.apply(index, item, e);
+            } catch (Throwable failed) {
+                failed.addSuppressed(e);
+                return new Completed<>(index, null, failed);
+            }
+        }
+        if (result == null) {
+            return new Completed<>(index, null, new NullPointerException("No result for bulk item " + index));
+        }
+        return new Completed<>(index, result, null);
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.common;
+
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The point in time by which a caller needs its answer, carried along with the work instead of a timeout per hop.
+ * <p>
+ * A deadline is attached to the current thread with {@link #attach()}; code that hands work to another thread
+ * attaches the same deadline there. HTTP calls between mesh client and agents send what is left of it in the
+ * {@value #HEADER} header (milliseconds), and the agent server attaches it to the request thread again, so every
+ * hop sees one shrinking budget rather than a fresh timeout.
+ */
+public final class Deadline {
+
+    public static final String HEADER = "X-Mesh-Deadline-Ms";
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * @return the deadline attached to this thread, or {@code null}
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return the earlier of the two; either may be {@code null}
+     */
+    public static Deadline earliest(Deadline a, Deadline b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.expiresAtNanos - b.expiresAtNanos <= 0 ? a : b;
+    }
+
+    /**
+     * @return the deadline sent in a {@value #HEADER} header, or {@code null} for a missing or malformed value
+     */
+    public static Deadline fromHeader(String millis) {
+        if (millis == null || millis.isBlank()) {
+            return null;
+        }
+        try {
+            return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Long.parseLong(millis.trim())));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sets the request timeout to {@code timeout} or what is left of the current deadline, whichever is shorter,
+     * and sends the deadline along.
+     */
+    public static HttpRequest.Builder applyTo(HttpRequest.Builder request, Duration timeout) {
+        Deadline deadline = current();
+        if (deadline == null) {
+            return request.timeout(timeout);
+        }
+        long remaining = Math.max(1, deadline.remainingMillis());
+        return request.timeout(Duration.ofMillis(Math.min(timeout.toMillis(), remaining)))
+                .header(HEADER, Long.toString(remaining));
+    }
+
+    public long remainingNanos() {
+        return expiresAtNanos - System.nanoTime();
+    }
+
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+    }
+
+    public boolean expired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * Makes this the current deadline until the returned scope is closed, which restores the previous one.
+     */
+    public Scope attach() {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.common;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.example.common.metrics.MetricsRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Refuses to start an {@code @Action} once the request's {@link Deadline} has passed. The
+ * {@link LoadSheddingFilter} checks the deadline on arrival, but a JSON-RPC request first has the server's LLM
+ * map its plain-English arguments onto the action, which can use up what was left; running the action after that
+ * would only do work nobody waits for. Counted as {@code agent_shed_total{reason="deadline-in-processing"}}.
+ */
+@Aspect
+public class DeadlineAspect {
+
+    private final LongAdder expired = new LongAdder();
+
+    public DeadlineAspect(MetricsRegistry registry, String serverName) {
+        registry.counter("agent_shed_total", "Action requests turned away without running", expired::sum,
+                "server", serverName, "reason", "deadline-in-processing");
+    }
+
+    @Around("@annotation(com.t4a.annotations.Action)")
+    public Object check(ProceedingJoinPoint call) throws Throwable {
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.expired()) {
+            expired.increment();
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+                    "Deadline passed before " + call.getSignature().getName() + " ran");
+        }
+        return call.proceed();
+    }
+}
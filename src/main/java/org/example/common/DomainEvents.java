@@ -0,0 +1,36 @@
+package org.example.common;
+
+import org.example.common.events.DomainEvent;
+import org.example.common.events.EventBus;
+import org.example.common.metrics.MetricsRegistry;
+
+import java.util.Set;
+
+/**
+ * Subscribes an agent to the shared {@link EventBus} and exports the subscription on the agent's {@code /metrics}:
+ * {@code events_subscription_lag}, {@code events_delivered_total} and {@code events_subscriber_errors_total} per
+ * subscription, and {@code events_published_total} / {@code events_dropped_total} for the bus.
+ */
+public final class DomainEvents {
+
+    private DomainEvents() {
+    }
+
+    public static EventBus.Subscription subscribe(String name, EventBus.Subscriber subscriber,
+                                                  Set<Class<? extends DomainEvent>> types) {
+        EventBus bus = EventBus.shared();
+        EventBus.Subscription subscription = bus.subscribe(name, subscriber, types);
+        MetricsRegistry registry = MetricsRegistry.shared();
+        registry.counter("events_published_total", "Domain events published on this JVM's event bus",
+                bus::publishedCount);
+        registry.counter("events_dropped_total", "Domain events dropped because the event ring stayed full",
+                bus::droppedCount);
+        registry.gauge("events_subscription_lag", "Events published but not yet taken by the subscription",
+                subscription::lag, "subscription", name);
+        registry.counter("events_delivered_total", "Events handed to the subscriber", subscription::delivered,
+                "subscription", name);
+        registry.counter("events_subscriber_errors_total", "Event batches the subscriber failed on",
+                subscription::errors, "subscription", name);
+        return subscription;
+    }
+}
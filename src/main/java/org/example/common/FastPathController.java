@@ -0,0 +1,132 @@
+package org.example.common;
+
+import com.t4a.annotations.Agent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Structured entry point next to the JSON-RPC endpoint: {@code POST /actions/{action}} with a JSON
+ * array of positional arguments or an object of named arguments invokes the action directly,
+ * without LLM tool selection or parameter extraction. {@code GET /actions} lists what is available.
+ * <p>
+ * {@code POST /actions} takes a JSON-RPC 2.0 batch of such calls, one per element with the action as
+ * {@code method} and its arguments as {@code params}, and answers with one response per call, in order. The
+ * calls run one after another on the request thread; a failing call fails only its own response. This is what
+ * the mesh client's {@code PooledAgentClient} sends when several small calls to one agent arrive together.
+ * Add it to a server with {@code @Import(FastPathController.class)}.
+ */
+@RestController
+@RequestMapping("/actions")
+public class FastPathController {
+
+    private static final int MAX_BATCH = Integer.getInteger("healthcare.actions.batch.max", 256);
+    private static final int METHOD_NOT_FOUND = -32601;
+    private static final int INVALID_PARAMS = -32602;
+    private static final int INTERNAL_ERROR = -32603;
+
+    private final List<ActionDispatcher> dispatchers = new ArrayList<>();
+
+    public FastPathController(ApplicationContext applicationContext) {
+        for (Object agent : applicationContext.getBeansWithAnnotation(Agent.class).values()) {
+            dispatchers.add(ActionDispatcher.of(agent, ClassUtils.getUserClass(agent)));
+        }
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<ActionDispatcher.ActionInfo> listActions() {
+        List<ActionDispatcher.ActionInfo> actions = new ArrayList<>();
+        for (ActionDispatcher dispatcher : dispatchers) {
+            actions.addAll(dispatcher.actions());
+        }
+        return actions;
+    }
+
+    @PostMapping(path = "/{action}", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String invoke(@PathVariable("action") String action, @RequestBody(required = false) Object arguments) {
+        ActionDispatcher dispatcher = dispatcherFor(action);
+        if (dispatcher == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown action " + action);
+        }
+        try {
+            return invoke(dispatcher, action, arguments);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<Map<String, Object>> invokeBatch(@RequestBody List<Map<String, Object>> calls) {
+        if (calls.isEmpty() || calls.size() > MAX_BATCH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch holds 1 to " + MAX_BATCH + " calls, not " + calls.size());
+        }
+        List<Map<String, Object>> responses = new ArrayList<>(calls.size());
+        for (Map<String, Object> call : calls) {
+            Map<String, Object> response = new LinkedHashMap<>(4);
+            response.put("jsonrpc", "2.0");
+            response.put("id", call.get("id"));
+            Object method = call.get("method");
+            String action = method instanceof String name ? name : null;
+            ActionDispatcher dispatcher = action == null ? null : dispatcherFor(action);
+            if (dispatcher == null) {
+                response.put("error", error(METHOD_NOT_FOUND, "Unknown action " + method));
+            } else {
+                try {
+                    response.put("result", invoke(dispatcher, action, call.get("params")));
+                } catch (IllegalArgumentException e) {
+                    response.put("error", error(INVALID_PARAMS, e.getMessage()));
+                } catch (RuntimeException e) {
+                    response.put("error", error(INTERNAL_ERROR, action + " failed: " + e));
+                }
+            }
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    private static String invoke(ActionDispatcher dispatcher, String action, Object arguments) {
+        if (arguments == null) {
+            return dispatcher.invoke(action, List.of());
+        }
+        if (arguments instanceof Map<?, ?> named) {
+            @SuppressWarnings("unchecked")
+            Map<String, ?> namedArguments = (Map<String, ?>) named;
+            return dispatcher.invoke(action, namedArguments);
+        }
+        if (arguments instanceof Collection<?> positional) {
+            return dispatcher.invoke(action, new ArrayList<>(positional));
+        }
+        return dispatcher.invoke(action, List.of(arguments));
+    }
+
+    private static Map<String, Object> error(int code, String message) {
+        Map<String, Object> error = new LinkedHashMap<>(2);
+        error.put("code", code);
+        error.put("message", message);
+        return error;
+    }
+
+    private ActionDispatcher dispatcherFor(String action) {
+        for (ActionDispatcher dispatcher : dispatchers) {
+            if (dispatcher.supports(action)) {
+                return dispatcher;
+            }
+        }
+        return null;
+    }
+}
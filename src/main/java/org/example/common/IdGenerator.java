@@ -0,0 +1,157 @@
+package org.example.common;
+
+import lombok.extern.java.Log;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free, time-ordered ID allocator shared by all healthcare domain services.
+ * <p>
+ * Each ID packs 41 bits of milliseconds since 2024-01-01, a 10 bit node id and a
+ * 12 bit sequence. The last issued (millis, sequence) pair lives in a single CAS word,
+ * so IDs are unique and strictly increasing within a JVM even when the clock stalls
+ * or steps backwards.
+ * <p>
+ * More than 4096 IDs in a millisecond borrow the next millisecond rather than wait, but never more than
+ * {@code -Dmesh.id.max-lead-ms} (default 100) ahead of the clock: past that, callers wait for the clock to catch
+ * up, which after the clock steps backwards takes as long as the step. A new generator starts just past that
+ * lead, beyond anything an earlier JVM with the same node id can have issued, so a restart does not reissue IDs
+ * as long as the clock has not stepped backwards across it. The lead wears off within that time once allocation
+ * falls back under 4096 IDs/ms.
+ * <p>
+ * Distinct node ids keep server JVMs (and replicas) apart; set {@code -Dmesh.node.id} or {@code MESH_NODE_ID}
+ * explicitly when running more than one JVM. Without either, the node id is a hash of host and pid, which two JVMs
+ * share with a probability that grows quickly with their number (about 1 in 20 for ten JVMs); that is logged as a
+ * warning, and {@link ReplicaRegistration} refuses to register a replica that has no configured node id.
+ */
+@Log
+public final class IdGenerator {
+
+    static final long EPOCH_MILLIS = 1704067200000L;
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int ENCODED_LENGTH = 13;
+    private static final long MAX_LEAD_MILLIS = Long.getLong("mesh.id.max-lead-ms", 100);
+
+    private static final boolean NODE_ID_CONFIGURED = configuredNodeId() != null;
+    private static final IdGenerator DEFAULT = new IdGenerator(resolveNodeId());
+
+    private final long nodeBits;
+    private final long maxLeadTicks;
+    private final AtomicLong lastTick;
+
+    public IdGenerator(long nodeId) {
+        this(nodeId, MAX_LEAD_MILLIS);
+    }
+
+    IdGenerator(long nodeId, long maxLeadMillis) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+        this.maxLeadTicks = maxLeadMillis << SEQUENCE_BITS;
+        // Start past the last sequence of the furthest millisecond an earlier generator on this node can have
+        // borrowed, so even one restarted within the same millisecond issues only later IDs
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        this.lastTick = new AtomicLong(now + maxLeadTicks + SEQUENCE_MASK);
+    }
+
+    public static IdGenerator getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Allocates an ID from the JVM-wide generator and renders it as {@code PREFIX-XXXXXXXXXXXXX}.
+     */
+    public static String next(String prefix) {
+        return DEFAULT.nextId(prefix);
+    }
+
+    public long nextLong() {
+        long tick;
+        for (;;) {
+            long previous = lastTick.get();
+            long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+            // Same (or earlier) millisecond: bump the sequence; an overflow carries into
+            // the time bits, which borrows the next millisecond instead of blocking.
+            tick = now > previous ? now : previous + 1;
+            if (tick > now + maxLeadTicks + SEQUENCE_MASK) {
+                // Borrowed as far ahead as allowed: wait for the clock
+                LockSupport.parkNanos(100_000);
+                continue;
+            }
+            if (lastTick.compareAndSet(previous, tick)) {
+                break;
+            }
+        }
+        long millis = tick >>> SEQUENCE_BITS;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (tick & SEQUENCE_MASK);
+    }
+
+    public String nextId(String prefix) {
+        return format(prefix, nextLong());
+    }
+
+    public long getNodeId() {
+        return nodeBits >>> SEQUENCE_BITS;
+    }
+
+    /**
+     * @return whether the default generator's node id was set with {@code mesh.node.id} or {@code MESH_NODE_ID}
+     * rather than derived from host and pid
+     */
+    public static boolean isNodeIdConfigured() {
+        return NODE_ID_CONFIGURED;
+    }
+
+    /**
+     * The node id {@link #nextLong()} stamped into an ID, i.e. which JVM allocated it.
+     */
+    public static long nodeOf(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    /**
+     * Fixed-width base-36 rendering so that string order matches allocation order.
+     */
+    public static String format(String prefix, long id) {
+        char[] buf = new char[prefix.length() + 1 + ENCODED_LENGTH];
+        prefix.getChars(0, prefix.length(), buf, 0);
+        buf[prefix.length()] = '-';
+        long value = id;
+        for (int i = buf.length - 1; i > prefix.length(); i--) {
+            buf[i] = Character.toUpperCase(Character.forDigit((int) (value % 36), 36));
+            value /= 36;
+        }
+        return new String(buf);
+    }
+
+    public static long parse(String formattedId) {
+        int dash = formattedId.lastIndexOf('-');
+        return Long.parseLong(formattedId.substring(dash + 1).toLowerCase(Locale.ROOT), 36);
+    }
+
+    static long resolveNodeId() {
+        String configured = configuredNodeId();
+        if (configured != null) {
+            return Long.parseLong(configured);
+        }
+        // Fall back to host + pid so that servers started without configuration usually differ.
+        String runtimeName = ManagementFactory.getRuntimeMXBean().getName();
+        long nodeId = (runtimeName.hashCode() & 0x7fffffff) % (MAX_NODE_ID + 1);
+        log.warning("Neither -Dmesh.node.id nor MESH_NODE_ID is set; using node id " + nodeId + " derived from "
+                + runtimeName + ". Another JVM can derive the same node id and then allocate the same IDs: give "
+                + "every JVM that allocates IDs its own node id between 0 and " + MAX_NODE_ID + ".");
+        return nodeId;
+    }
+
+    private static String configuredNodeId() {
+        String configured = System.getProperty("mesh.node.id", System.getenv("MESH_NODE_ID"));
+        return configured == null || configured.isBlank() ? null : configured.trim();
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.common;
+
+import com.t4a.annotations.Agent;
+import com.t4a.processor.AIProcessingException;
+import com.t4a.processor.AIProcessor;
+import com.t4a.processor.spring.SpringAnthropicProcessor;
+import com.t4a.processor.spring.SpringGeminiProcessor;
+import com.t4a.processor.spring.SpringOpenAIProcessor;
+import org.example.mesh.LocalAgent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+
+/**
+ * The {@link LocalAgent} side of a co-located agent, created by {@code CoLocatedMesh} inside the agent's class
+ * loader. Structured calls go to the same {@link ActionDispatcher}s as {@link FastPathController}. Free-text calls
+ * go to the agent's own tools4ai processor, the Spring-aware one for its {@code agent.provider}, created on first
+ * use: it chooses the action and reads its arguments as the agent's JSON-RPC endpoint does, and invokes the Spring
+ * bean. The processor always runs with the agent's class loader as the thread's context class loader, so tools4ai
+ * reads the agent's configuration and scans the agent's actions whichever thread calls.
+ */
+public class InProcessAgent implements LocalAgent {
+
+    private static final String TOOLS4AI_PROPERTIES = "tools4ai.properties";
+
+    private final ApplicationContext applicationContext;
+    private final List<ActionDispatcher> dispatchers = new ArrayList<>();
+    private volatile AIProcessor processor;
+
+    public InProcessAgent(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+        for (Object agent : applicationContext.getBeansWithAnnotation(Agent.class).values()) {
+            dispatchers.add(ActionDispatcher.of(agent, ClassUtils.getUserClass(agent)));
+        }
+    }
+
+    @Override
+    public List<String> actions() {
+        List<String> names = new ArrayList<>();
+        for (ActionDispatcher dispatcher : dispatchers) {
+            for (ActionDispatcher.ActionInfo action : dispatcher.actions()) {
+                names.add(action.name());
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public String invoke(String action, List<?> arguments) {
+        return dispatcherFor(action).invoke(action, arguments);
+    }
+
+    @Override
+    public String invoke(String action, Map<String, ?> namedArguments) {
+        return dispatcherFor(action).invoke(action, namedArguments);
+    }
+
+    @Override
+    public String callTool(String action, String plainEnglishArguments) {
+        dispatcherFor(action);
+        return process(action + " " + plainEnglishArguments);
+    }
+
+    @Override
+    public String query(String query) {
+        return process(query);
+    }
+
+    private ActionDispatcher dispatcherFor(String action) {
+        for (ActionDispatcher dispatcher : dispatchers) {
+            if (dispatcher.supports(action)) {
+                return dispatcher;
+            }
+        }
+        throw new NoSuchElementException("Unknown action " + action);
+    }
+
+    private String process(String prompt) {
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(InProcessAgent.class.getClassLoader());
+        try {
+            Object result = processor().processSingleAction(prompt);
+            return result == null ? null : result.toString();
+        } catch (AIProcessingException e) {
+            throw new IllegalStateException("Agent processor failed on '" + prompt + "'", e);
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    private AIProcessor processor() {
+        AIProcessor current = processor;
+        if (current == null) {
+            synchronized (this) {
+                current = processor;
+                if (current == null) {
+                    current = switch (provider()) {
+                        case "gemini" -> new SpringGeminiProcessor(applicationContext);
+                        case "anthropic" -> new SpringAnthropicProcessor(applicationContext);
+                        default -> new SpringOpenAIProcessor(applicationContext);
+                    };
+                    processor = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * {@code agent.provider} from the agent's {@code tools4ai.properties}, which its class loader resolves to the
+     * agent's own file.
+     */
+    private static String provider() {
+        Properties properties = new Properties();
+        try (InputStream in = InProcessAgent.class.getClassLoader().getResourceAsStream(TOOLS4AI_PROPERTIES)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + TOOLS4AI_PROPERTIES, e);
+        }
+        return properties.getProperty("agent.provider", "openai").trim().toLowerCase(Locale.ROOT);
+    }
+}
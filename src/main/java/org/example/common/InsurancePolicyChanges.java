@@ -0,0 +1,74 @@
+package org.example.common;
+
+import lombok.extern.java.Log;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+
+/**
+ * Notice that a patient's insurance provider or policy number changed, so anything cached for the old or new
+ * policy (eligibility answers) is dropped. Listeners in the same JVM are called directly. When the billing
+ * server runs in another process, set {@code -Dhealthcare.insurance.invalidate-url} to its base URL (e.g.
+ * {@code http://localhost:8874/}) and changes are also sent there, fire-and-forget, with the {@link MeshAuth}
+ * token.
+ */
+@Log
+public final class InsurancePolicyChanges {
+
+    @FunctionalInterface
+    public interface Listener {
+        void policyChanged(String insuranceProvider, String policyNumber);
+    }
+
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final String REMOTE_URL = System.getProperty("healthcare.insurance.invalidate-url");
+    private static final HttpClient HTTP = REMOTE_URL == null ? null
+            : HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    private InsurancePolicyChanges() {
+    }
+
+    public static void listen(Listener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void unlisten(Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Announces a change; blank providers or policies are ignored.
+     */
+    public static void changed(String insuranceProvider, String policyNumber) {
+        if (insuranceProvider == null || insuranceProvider.isBlank() || policyNumber == null || policyNumber.isBlank()) {
+            return;
+        }
+        for (Listener listener : LISTENERS) {
+            listener.policyChanged(insuranceProvider, policyNumber);
+        }
+        if (HTTP != null) {
+            URI uri = URI.create(REMOTE_URL + (REMOTE_URL.endsWith("/") ? "" : "/") + "billing/eligibility?provider="
+                    + URLEncoder.encode(insuranceProvider, StandardCharsets.UTF_8) + "&policy="
+                    + URLEncoder.encode(policyNumber, StandardCharsets.UTF_8));
+            HttpRequest request = MeshAuth.applyTo(HttpRequest.newBuilder(uri)).timeout(Duration.ofSeconds(5))
+                    .DELETE().build();
+            HTTP.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null) {
+                            log.log(Level.WARNING, "Unable to invalidate " + insuranceProvider + " policy at " + uri, error);
+                        } else if (response.statusCode() == 403) {
+                            log.warning("Invalidating at " + uri + " was refused: set the same -Dmesh.auth.token on "
+                                    + "both servers");
+                        }
+                    });
+        }
+    }
+}
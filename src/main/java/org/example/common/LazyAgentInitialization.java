@@ -0,0 +1,93 @@
+package org.example.common;
+
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.type.MethodMetadata;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Marks the beans of the agent framework lazy, so the JSON-RPC endpoint, the LLM client behind it and the
+ * action scan it triggers are created by the first free-text query instead of at startup. Controllers are
+ * still mapped at startup; Spring MVC resolves a lazy controller when a request first reaches it. The
+ * {@code /actions} fast path and the structured endpoints never need those beans.
+ * <p>
+ * The packages are set with {@code -Dhealthcare.startup.lazy-packages} (comma-separated prefixes); an empty
+ * value initializes everything eagerly again. Add it to a server with
+ * {@code @Import(LazyAgentInitialization.class)}.
+ * <p>
+ * Spring AOT runs bean factory post-processors at build time and bakes what they set into the generated bean
+ * definitions. This one stands aside while AOT processing runs ({@code spring.aot.processing}), so the generated
+ * definitions leave laziness open and the setting is still read from the system property when the server
+ * starts, with or without {@code -Dspring.aot.enabled}.
+ */
+@Log
+public class LazyAgentInitialization implements BeanFactoryPostProcessor {
+
+    private static final String DEFAULT_PACKAGES = "io.github.vishalmysore.,com.t4a.,org.springdoc.";
+
+    private final List<String> packages;
+    private final boolean aotProcessing;
+
+    public LazyAgentInitialization() {
+        this(Arrays.stream(System.getProperty("healthcare.startup.lazy-packages", DEFAULT_PACKAGES).split(","))
+                   .map(String::trim)
+                   .filter(prefix -> !prefix.isEmpty())
+                   .toList(), Boolean.getBoolean("spring.aot.processing"));
+    }
+
+    LazyAgentInitialization(List<String> packages, boolean aotProcessing) {
+        this.packages = packages;
+        this.aotProcessing = aotProcessing;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        if (aotProcessing) {
+            log.fine("Leaving lazy initialization to startup: processing ahead of time");
+            return;
+        }
+        int deferred = 0;
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (definition.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE
+                    || !(definition instanceof AbstractBeanDefinition bean) || bean.getLazyInit() != null) {
+                continue;
+            }
+            String type = declaringClass(definition);
+            if (type != null && packages.stream().anyMatch(type::startsWith)) {
+                bean.setLazyInit(true);
+                deferred++;
+            }
+        }
+        int count = deferred;
+        log.fine(() -> "Initializing " + count + " beans under " + packages + " on first use");
+    }
+
+    /**
+     * The bean's class, or for a {@code @Bean} method the configuration class declaring it. Definitions
+     * generated ahead of time carry the resolved factory method instead of its metadata.
+     */
+    private static String declaringClass(BeanDefinition definition) {
+        if (definition instanceof AnnotatedBeanDefinition annotated) {
+            MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+            if (factoryMethod != null) {
+                return factoryMethod.getDeclaringClassName();
+            }
+        }
+        if (definition instanceof RootBeanDefinition root) {
+            Method factoryMethod = root.getResolvedFactoryMethod();
+            if (factoryMethod != null) {
+                return factoryMethod.getDeclaringClass().getName();
+            }
+        }
+        return definition.getBeanClassName();
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.common;
+
+import org.example.common.metrics.MetricsRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Overload protection for an agent server: the {@link LoadSheddingFilter} that turns action requests away when
+ * the server is saturated or the caller's deadline has passed, and the {@link DeadlineAspect} that keeps an
+ * admitted request from starting its action after that. Add it with {@code @Import(LoadSheddingConfiguration.class)}
+ * next to {@code MetricsConfiguration}, which provides the registry.
+ */
+@Configuration
+public class LoadSheddingConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<LoadSheddingFilter> loadSheddingFilter(
+            MetricsRegistry registry, @Value("${spring.application.name}") String applicationName) {
+        FilterRegistrationBean<LoadSheddingFilter> registration =
+                new FilterRegistrationBean<>(new LoadSheddingFilter(registry, applicationName));
+        registration.addUrlPatterns("/*");
+        // Ahead of the timing filter, so shed requests cost nothing and do not count as served
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public DeadlineAspect deadlineAspect(MetricsRegistry registry,
+                                         @Value("${spring.application.name}") String applicationName) {
+        return new DeadlineAspect(registry, applicationName);
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.common;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.common.metrics.MetricsRegistry;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns work away instead of queueing it once the server is saturated. Action requests (the JSON-RPC
+ * {@code POST /} and {@code POST /actions/...}) beyond {@code -Dhealthcare.shed.max-in-flight} (default 128, below
+ * Tomcat's 200 worker threads so a rejection never waits for a thread) are answered {@code 503} with
+ * {@code Retry-After}, and a request whose {@link Deadline} has already passed is answered {@code 504} without
+ * running. Admitted requests carry their deadline on the request thread. {@code /metrics} and {@code GET}s are
+ * never shed.
+ */
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder overloaded = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    public LoadSheddingFilter(MetricsRegistry registry, String serverName) {
+        this(Integer.getInteger("healthcare.shed.max-in-flight", 128), registry, serverName);
+    }
+
+    public LoadSheddingFilter(int maxInFlight, MetricsRegistry registry, String serverName) {
+        this.maxInFlight = maxInFlight;
+        registry.gauge("agent_in_flight_requests", "Action requests being served", inFlight::get,
+                "server", serverName);
+        registry.counter("agent_shed_total", "Action requests turned away without running", overloaded::sum,
+                "server", serverName, "reason", "overload");
+        registry.counter("agent_shed_total", "Action requests turned away without running", expired::sum,
+                "server", serverName, "reason", "deadline");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return !"POST".equals(request.getMethod()) || !("/".equals(path) || path.startsWith("/actions"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Deadline deadline = Deadline.fromHeader(request.getHeader(Deadline.HEADER));
+        if (deadline != null && deadline.expired()) {
+            expired.increment();
+            reject(response, HttpServletResponse.SC_GATEWAY_TIMEOUT, "Deadline passed before the request ran");
+            return;
+        }
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            overloaded.increment();
+            response.setHeader("Retry-After", "1");
+            reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "Server busy: more than " + maxInFlight + " requests in flight");
+            return;
+        }
+        try (Deadline.Scope ignored = deadline != null ? deadline.attach() : () -> { }) {
+            chain.doFilter(request, response);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(message);
+    }
+}
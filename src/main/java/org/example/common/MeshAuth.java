@@ -0,0 +1,64 @@
+package org.example.common;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Who may call the endpoints that servers expose only to each other, such as cache invalidation and the event
+ * relay. With {@code -Dmesh.auth.token} (or {@code MESH_AUTH_TOKEN}) set, a caller has to present the same token,
+ * over HTTP in the {@value #HEADER} header; without it, only callers on this host are let in, which covers the
+ * default of every server on one machine.
+ */
+public final class MeshAuth {
+
+    public static final String HEADER = "X-Mesh-Token";
+
+    private static final byte[] TOKEN = configuredToken();
+
+    private MeshAuth() {
+    }
+
+    /**
+     * @param remote    the caller's address
+     * @param presented the token the caller sent, or {@code null}
+     */
+    public static boolean permits(InetAddress remote, String presented) {
+        if (TOKEN == null) {
+            return remote != null && remote.isLoopbackAddress();
+        }
+        return presented != null && MessageDigest.isEqual(TOKEN, presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Like {@link #permits(InetAddress, String)} for a textual IP address, as servlet requests report it.
+     */
+    public static boolean permits(String remoteAddress, String presented) {
+        try {
+            return permits(remoteAddress == null ? null : InetAddress.getByName(remoteAddress), presented);
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the configured token, or {@code null} if there is none
+     */
+    public static String token() {
+        return TOKEN == null ? null : new String(TOKEN, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Adds the {@value #HEADER} header when a token is configured.
+     */
+    public static HttpRequest.Builder applyTo(HttpRequest.Builder request) {
+        return TOKEN == null ? request : request.header(HEADER, token());
+    }
+
+    private static byte[] configuredToken() {
+        String token = System.getProperty("mesh.auth.token", System.getenv("MESH_AUTH_TOKEN"));
+        return token == null || token.isBlank() ? null : token.trim().getBytes(StandardCharsets.UTF_8);
+    }
+}
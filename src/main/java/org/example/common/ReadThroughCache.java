@@ -0,0 +1,286 @@
+package org.example.common;
+
+import lombok.extern.java.Log;
+import org.example.common.metrics.LatencyMetric;
+import org.example.common.metrics.MetricsRegistry;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Read-through cache for slow lookups. A value is fresh for {@code ttlMillis}; for a further
+ * {@code staleMillis} it is still returned at once while one background load replaces it
+ * (stale-while-revalidate); after that the caller waits for a new load. Concurrent callers of a key that
+ * needs loading share one load, so a burst on a cold key makes one backend call.
+ * <p>
+ * At most {@code maxEntries} keys are kept, evicted in CLOCK order: the oldest entry goes unless it was read
+ * since the eviction hand last passed it, and a new entry counts as read. Entries that are invalidated, or whose
+ * first load failed, leave the CLOCK queue when the hand reaches them, or in a sweep once there are more of them
+ * than live entries, so the queue stays within about twice the live size. Counts of fresh, stale and missed reads,
+ * loads and evictions are exported as {@code cache_*} metrics labelled with the cache name.
+ */
+@Log
+public final class ReadThroughCache<K, V> implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface Loader<K, V> {
+        V load(K key) throws Exception;
+    }
+
+    public record Options(long ttlMillis, long staleMillis, int maxEntries) {
+    }
+
+    private record Loaded<V>(V value, long loadedNanos) {
+    }
+
+    private static final class Entry<K, V> {
+        final K key;
+        volatile Loaded<V> loaded;
+        volatile boolean referenced;
+        volatile boolean removed;
+        CompletableFuture<V> loading;
+
+        Entry(K key) {
+            this.key = key;
+        }
+    }
+
+    private final Loader<K, V> loader;
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final int maxEntries;
+    private final Map<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry<K, V>> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger removedInClock = new AtomicInteger();
+    private final ExecutorService refresher;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LatencyMetric loads;
+
+    public ReadThroughCache(String name, Options options, Loader<K, V> loader) {
+        this.loader = loader;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(options.ttlMillis());
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(options.staleMillis());
+        this.maxEntries = Math.max(1, options.maxEntries());
+        this.refresher = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, name + "-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        MetricsRegistry registry = MetricsRegistry.shared();
+        this.loads = registry.latency("cache_load", "Backend loads made by read-through caches", "cache", name);
+        String help = "Reads of read-through caches by outcome";
+        registry.counter("cache_requests_total", help, hits::sum, "cache", name, "result", "hit");
+        registry.counter("cache_requests_total", help, staleHits::sum, "cache", name, "result", "stale");
+        registry.counter("cache_requests_total", help, misses::sum, "cache", name, "result", "miss");
+        registry.counter("cache_evictions_total", "Entries evicted to stay within the size bound", evictions::sum,
+                "cache", name);
+        registry.gauge("cache_entries", "Entries held by read-through caches", size::get, "cache", name);
+    }
+
+    /**
+     * Returns the cached value, loading it first if there is none or it is too old.
+     *
+     * @throws CompletionException wrapping the loader's exception if a load the caller waited for failed, or a
+     *                             {@link TimeoutException} if the current {@link Deadline} passed first
+     */
+    public V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            entry = entries.computeIfAbsent(key, this::newEntry);
+            if (size.get() > maxEntries) {
+                evict();
+            }
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        Loaded<V> loaded = entry.loaded;
+        if (loaded != null) {
+            long age = System.nanoTime() - loaded.loadedNanos();
+            if (age < ttlNanos) {
+                hits.increment();
+                return loaded.value();
+            }
+            if (age < ttlNanos + staleNanos) {
+                staleHits.increment();
+                load(entry, true);
+                return loaded.value();
+            }
+        }
+        misses.increment();
+        CompletableFuture<V> load = load(entry, false);
+        try {
+            return await(load);
+        } catch (CompletionException e) {
+            if (load.isCompletedExceptionally() && entry.loaded == null) {
+                remove(key, entry);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for a load, for no longer than the current {@link Deadline} allows. A load the caller gave up on still
+     * completes and fills the cache for the next caller.
+     */
+    private static <V> V await(CompletableFuture<V> load) {
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            return load.join();
+        }
+        try {
+            return load.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new CompletionException(new TimeoutException("Deadline passed while loading"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    public void invalidate(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry != null) {
+            remove(key, entry);
+        }
+    }
+
+    public void invalidateAll() {
+        for (K key : entries.keySet()) {
+            invalidate(key);
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long staleHits() {
+        return staleHits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    private Entry<K, V> newEntry(K key) {
+        Entry<K, V> entry = new Entry<>(key);
+        // Marked before it is published, so the eviction its own insert triggers cannot take it
+        entry.referenced = true;
+        if (removedInClock.get() > Math.max(16, size.get())) {
+            sweep();
+        }
+        clock.add(entry);
+        size.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Removes an entry that is still in the CLOCK queue; its slot there is dropped later.
+     */
+    private void remove(K key, Entry<K, V> entry) {
+        if (entries.remove(key, entry)) {
+            entry.removed = true;
+            size.decrementAndGet();
+            removedInClock.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drops the CLOCK slots of removed entries. The count is reset first, so removals racing with the sweep are
+     * at worst swept again next time.
+     */
+    private void sweep() {
+        removedInClock.set(0);
+        clock.removeIf(entry -> entry.removed);
+    }
+
+    /**
+     * Starts a load unless one is already running for the entry, and returns the running one. A waiting
+     * caller runs the load itself; a stale read hands it to the refresh pool.
+     */
+    private CompletableFuture<V> load(Entry<K, V> entry, boolean background) {
+        CompletableFuture<V> loading;
+        synchronized (entry) {
+            if (entry.loading != null) {
+                return entry.loading;
+            }
+            loading = new CompletableFuture<>();
+            entry.loading = loading;
+        }
+        if (background) {
+            refresher.execute(() -> runLoad(entry, loading));
+        } else {
+            runLoad(entry, loading);
+        }
+        return loading;
+    }
+
+    private void runLoad(Entry<K, V> entry, CompletableFuture<V> loading) {
+        long start = loads.start();
+        try {
+            V value = loader.load(entry.key);
+            loads.stop(start, false);
+            entry.loaded = new Loaded<>(value, System.nanoTime());
+            loading.complete(value);
+        } catch (Exception e) {
+            loads.stop(start, true);
+            if (entry.loaded != null) {
+                log.log(Level.FINE, "Refresh failed, keeping the stale value for " + entry.key, e);
+            }
+            loading.completeExceptionally(e);
+        } finally {
+            synchronized (entry) {
+                entry.loading = null;
+            }
+        }
+    }
+
+    private void evict() {
+        while (size.get() > maxEntries) {
+            Entry<K, V> candidate = clock.poll();
+            if (candidate == null) {
+                return;
+            }
+            if (candidate.removed) {
+                removedInClock.updateAndGet(count -> Math.max(0, count - 1));
+                continue;
+            }
+            if (candidate.referenced) {
+                candidate.referenced = false;
+                clock.add(candidate);
+            } else if (entries.remove(candidate.key, candidate)) {
+                candidate.removed = true;
+                size.decrementAndGet();
+                evictions.increment();
+            }
+        }
+    }
+}
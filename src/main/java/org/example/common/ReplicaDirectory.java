@@ -0,0 +1,107 @@
+package org.example.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A directory shared by agent replicas and mesh clients on one host (or a shared mount) in which every running
+ * replica keeps one small file, {@code <domain>@<host>_<port>.replica}, naming its domain, base URL and the node id
+ * its {@link IdGenerator} stamps into every ID it allocates. The file's
+ * modification time is the replica's heartbeat: a replica whose file has not been touched for the TTL is treated
+ * as gone, so a killed process drops out without anyone cleaning up after it.
+ */
+public final class ReplicaDirectory {
+
+    private static final String SUFFIX = ".replica";
+
+    /**
+     * @param node the replica's {@code mesh.node.id}, or -1 if it did not say
+     */
+    public record Entry(String domain, String url, long node, Instant heartbeat) {
+    }
+
+    private ReplicaDirectory() {
+    }
+
+    /**
+     * Registers a replica, replacing the file atomically so readers never see half of it.
+     *
+     * @return the replica's file, to {@link #heartbeat} and delete
+     */
+    public static Path register(Path directory, String domain, String host, int port, long node)
+            throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(domain + "@" + host + "_" + port + SUFFIX);
+        Properties properties = new Properties();
+        properties.setProperty("domain", domain);
+        properties.setProperty("url", "http://" + host + ":" + port + "/");
+        properties.setProperty("node", Long.toString(node));
+        properties.setProperty("pid", Long.toString(ProcessHandle.current().pid()));
+        Path temporary = Files.createTempFile(directory, domain, ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            properties.store(out, null);
+        }
+        return Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return {@code false} if the file is gone and the replica has to register again
+     */
+    public static boolean heartbeat(Path file) throws IOException {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the replicas whose heartbeat is younger than {@code ttl}
+     */
+    public static List<Entry> read(Path directory, Duration ttl) {
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return entries;
+        }
+        Instant cutoff = Instant.now().minus(ttl);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    Instant heartbeat = Files.getLastModifiedTime(file).toInstant();
+                    if (heartbeat.isBefore(cutoff)) {
+                        continue;
+                    }
+                    Properties properties = new Properties();
+                    try (InputStream in = Files.newInputStream(file)) {
+                        properties.load(in);
+                    }
+                    String domain = properties.getProperty("domain");
+                    String url = properties.getProperty("url");
+                    if (domain != null && url != null) {
+                        entries.add(new Entry(domain, url, Long.parseLong(properties.getProperty("node", "-1")),
+                                heartbeat));
+                    }
+                } catch (NoSuchFileException e) {
+                    // Deregistered while we were listing
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read replica directory " + directory, e);
+        }
+        return entries;
+    }
+}
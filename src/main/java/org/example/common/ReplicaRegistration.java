@@ -0,0 +1,78 @@
+package org.example.common;
+
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Announces this server as a replica of its domain in the {@link ReplicaDirectory} given by
+ * {@code -Dmesh.registry.dir}, once its port is known, and heartbeats every {@code -Dmesh.registry.heartbeat-ms}
+ * (default 1000). The URL is built from {@code -Dmesh.registry.host} (default {@code localhost}) and the actual
+ * port, so replicas can be started with {@code -Dserver.port=0}. The entry also carries this JVM's
+ * {@code mesh.node.id}, which is how mesh clients find the replica that created, and holds, a given ID, so a
+ * server without a configured node id fails to start rather than register. Without {@code mesh.registry.dir} it
+ * does nothing. Add it to a server with {@code @Import(ReplicaRegistration.class)};
+ * the domain comes from {@code mesh.registry.domain} in the server's properties.
+ */
+@Log
+public class ReplicaRegistration implements ApplicationListener<WebServerInitializedEvent>, AutoCloseable {
+
+    private final String domain;
+    private final String directory = System.getProperty("mesh.registry.dir");
+    private final String host = System.getProperty("mesh.registry.host", "localhost");
+    private final long heartbeatMillis = Long.getLong("mesh.registry.heartbeat-ms", 1000);
+    private ScheduledExecutorService heartbeats;
+    private volatile Path file;
+
+    public ReplicaRegistration(@Value("${mesh.registry.domain}") String domain) {
+        this.domain = domain;
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(WebServerInitializedEvent event) {
+        if (directory == null || heartbeats != null) {
+            return;
+        }
+        if (!IdGenerator.isNodeIdConfigured()) {
+            throw new IllegalStateException("A " + domain + " replica needs its own -Dmesh.node.id (or MESH_NODE_ID) "
+                    + "to register in " + directory + ": IDs from replicas sharing a node id collide");
+        }
+        int port = event.getWebServer().getPort();
+        Path replicas = Path.of(directory);
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-heartbeat-" + domain);
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleWithFixedDelay(() -> {
+            try {
+                if (file == null || !ReplicaDirectory.heartbeat(file)) {
+                    file = ReplicaDirectory.register(replicas, domain, host, port,
+                            IdGenerator.getDefault().getNodeId());
+                    log.info("Registered " + domain + " replica " + file);
+                }
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Replica heartbeat to " + replicas + " failed", e);
+            }
+        }, 0, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (heartbeats != null) {
+            heartbeats.shutdownNow();
+        }
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package org.example.common;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Precompiled replacement for the {@code String.format} response texts of the agent actions.
+ * <p>
+ * The pattern uses the same {@code %s}, {@code %d}, {@code %.Nf} and {@code %%} syntax and renders
+ * the same characters, but it is parsed once, numbers are written without boxing, and output goes
+ * into a per-thread reusable buffer (or any {@link Appendable}, such as a response writer).
+ * Decimals always use {@code '.'} regardless of the default locale.
+ * <pre>
+ * private static final ResponseTemplate PAYMENT = ResponseTemplate.compile("Paid $%.2f for %s");
+ * return PAYMENT.render().arg(amount).arg(invoiceId).build();
+ * </pre>
+ * Finish with {@link Renderer#build()}. A render that is abandoned half way, e.g. because computing an argument
+ * threw, leaves nothing behind, and a template rendered while another is being rendered on the same thread (say,
+ * to produce one of its arguments) gets a renderer of its own.
+ */
+public final class ResponseTemplate {
+
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<Renderer> RENDERERS = ThreadLocal.withInitial(Renderer::new);
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private enum Kind { STRING, INTEGER, FIXED }
+
+    private final String[] literals;
+    private final Kind[] kinds;
+    private final int[] precisions;
+    private final int sizeHint;
+
+    private ResponseTemplate(String[] literals, Kind[] kinds, int[] precisions, int sizeHint) {
+        this.literals = literals;
+        this.kinds = kinds;
+        this.precisions = precisions;
+        this.sizeHint = sizeHint;
+    }
+
+    public static ResponseTemplate compile(String pattern) {
+        List<String> literals = new ArrayList<>();
+        List<Kind> kinds = new ArrayList<>();
+        List<Integer> precisions = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+            if (i + 1 >= pattern.length()) {
+                throw new IllegalArgumentException("Dangling '%' in template: " + pattern);
+            }
+            char next = pattern.charAt(++i);
+            if (next == '%') {
+                literal.append('%');
+                continue;
+            }
+            if (next == 'n') {
+                literal.append(System.lineSeparator());
+                continue;
+            }
+            literals.add(literal.toString());
+            literal.setLength(0);
+            if (next == 's') {
+                kinds.add(Kind.STRING);
+                precisions.add(0);
+            } else if (next == 'd') {
+                kinds.add(Kind.INTEGER);
+                precisions.add(0);
+            } else if (next == '.' && i + 2 < pattern.length() && Character.isDigit(pattern.charAt(i + 1))
+                    && pattern.charAt(i + 2) == 'f') {
+                kinds.add(Kind.FIXED);
+                precisions.add(pattern.charAt(i + 1) - '0');
+                i += 2;
+            } else {
+                throw new IllegalArgumentException("Unsupported conversion '%" + next + "' in template: " + pattern);
+            }
+        }
+        literals.add(literal.toString());
+        int literalLength = literals.stream().mapToInt(String::length).sum();
+        return new ResponseTemplate(literals.toArray(new String[0]), kinds.toArray(new Kind[0]),
+                precisions.stream().mapToInt(Integer::intValue).toArray(), literalLength + kinds.size() * 16);
+    }
+
+    /**
+     * Starts rendering into this thread's reusable buffer.
+     */
+    public Renderer render() {
+        Renderer renderer = idleRenderer();
+        renderer.start(this, null);
+        return renderer;
+    }
+
+    /**
+     * Starts rendering straight into {@code out}; {@link Renderer#build()} then returns {@code null}.
+     */
+    public Renderer renderTo(Appendable out) {
+        Renderer renderer = idleRenderer();
+        renderer.start(this, out);
+        return renderer;
+    }
+
+    /**
+     * This thread's renderer, or a new one that takes its place if it is still busy with a render that was
+     * abandoned or is still going on further up the stack; that render keeps the renderer it holds.
+     */
+    private static Renderer idleRenderer() {
+        Renderer renderer = RENDERERS.get();
+        if (renderer.template != null) {
+            renderer = new Renderer();
+            RENDERERS.set(renderer);
+        }
+        return renderer;
+    }
+
+    public static final class Renderer {
+        private final StringBuilder buffer = new StringBuilder(1024);
+        private StringBuilder retained = buffer;
+        private ResponseTemplate template;
+        private Appendable out;
+        private int next;
+
+        private Renderer() {
+        }
+
+        private void start(ResponseTemplate template, Appendable target) {
+            this.template = template;
+            this.next = 0;
+            if (target == null) {
+                retained.setLength(0);
+                retained.ensureCapacity(template.sizeHint);
+                this.out = retained;
+            } else {
+                this.out = target;
+            }
+            write(template.literals[0]);
+        }
+
+        public Renderer arg(String value) {
+            kind(Kind.STRING);
+            return advance(value == null ? "null" : value);
+        }
+
+        public Renderer arg(Object value) {
+            kind(Kind.STRING);
+            return advance(String.valueOf(value));
+        }
+
+        /**
+         * Formats a date or time with a shared, immutable formatter instead of its {@code toString()}.
+         */
+        public Renderer arg(TemporalAccessor value, DateTimeFormatter formatter) {
+            kind(Kind.STRING);
+            try {
+                formatter.formatTo(value, out);
+            } catch (RuntimeException e) {
+                template = null;
+                throw e;
+            }
+            return advance(null);
+        }
+
+        public Renderer arg(long value) {
+            Kind kind = kind(null);
+            if (kind == Kind.FIXED) {
+                return arg((double) value);
+            }
+            if (out instanceof StringBuilder builder) {
+                builder.append(value);
+                return advance(null);
+            }
+            return advance(Long.toString(value));
+        }
+
+        public Renderer arg(double value) {
+            Kind kind = kind(null);
+            if (kind == Kind.INTEGER) {
+                template = null;
+                throw new IllegalArgumentException("%d cannot format a double");
+            }
+            if (kind == Kind.STRING) {
+                return advance(Double.toString(value));
+            }
+            appendFixed(value, template.precisions[next]);
+            return advance(null);
+        }
+
+        /**
+         * Appends free text after the template, e.g. a variable-length list that follows a fixed header.
+         */
+        public Renderer text(CharSequence text) {
+            if (template == null) {
+                throw new IllegalStateException("No template is being rendered");
+            }
+            if (next < template.kinds.length) {
+                int missing = template.kinds.length - next;
+                template = null;
+                throw new IllegalStateException("Template still expects " + missing + " argument(s)");
+            }
+            write(text);
+            return this;
+        }
+
+        public Renderer text(long value) {
+            return text(Long.toString(value));
+        }
+
+        public String build() {
+            if (next < template.kinds.length) {
+                int missing = template.kinds.length - next;
+                template = null;
+                throw new IllegalStateException("Template still expects " + missing + " argument(s)");
+            }
+            template = null;
+            if (out != retained) {
+                out = null;
+                return null;
+            }
+            out = null;
+            String result = retained.toString();
+            if (retained.capacity() > MAX_RETAINED_CAPACITY) {
+                retained = new StringBuilder(1024);
+            }
+            return result;
+        }
+
+        private Kind kind(Kind required) {
+            if (template == null) {
+                throw new IllegalStateException("No template is being rendered");
+            }
+            if (next >= template.kinds.length) {
+                template = null;
+                throw new IllegalStateException("Too many arguments for template");
+            }
+            Kind kind = template.kinds[next];
+            if (required != null && kind != required) {
+                template = null;
+                throw new IllegalArgumentException("Argument " + (next + 1) + " must be formatted as " + kind);
+            }
+            return kind;
+        }
+
+        private Renderer advance(CharSequence value) {
+            if (value != null) {
+                write(value);
+            }
+            next++;
+            write(template.literals[next]);
+            return this;
+        }
+
+        private void write(CharSequence text) {
+            try {
+                out.append(text);
+            } catch (IOException e) {
+                template = null;
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Same digits as {@code %.Nf}: HALF_UP rounding of the shortest decimal representation.
+         * Values that are close to a rounding tie, or too large for a long, take the exact path.
+         */
+        private void appendFixed(double value, int precision) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                write(Double.isNaN(value) ? "NaN" : (value > 0 ? "Infinity" : "-Infinity"));
+                return;
+            }
+            double scaled = precision < POWERS_OF_TEN.length ? Math.abs(value) * POWERS_OF_TEN[precision] : Double.MAX_VALUE;
+            double fraction = scaled - Math.floor(scaled);
+            if (scaled >= 1e9 || Math.abs(fraction - 0.5) < 1e-6) {
+                write(new BigDecimal(Double.toString(value)).setScale(precision, RoundingMode.HALF_UP).toPlainString());
+                return;
+            }
+            long units = Math.round(scaled);
+            long whole = units / POWERS_OF_TEN[precision];
+            long decimals = units % POWERS_OF_TEN[precision];
+            StringBuilder digits = out instanceof StringBuilder builder ? builder : new StringBuilder(24);
+            if (value < 0 || (value == 0 && 1 / value < 0)) {
+                digits.append('-');
+            }
+            digits.append(whole);
+            if (precision > 0) {
+                digits.append('.');
+                for (long p = POWERS_OF_TEN[precision - 1]; p > 1 && decimals < p; p /= 10) {
+                    digits.append('0');
+                }
+                digits.append(decimals);
+            }
+            if (digits != out) {
+                write(digits);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.common.events;
+
+import org.example.common.wal.FieldCodec;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Something that happened in one domain that the others may want to act on, published on the {@link EventBus}.
+ * Events are immutable and carry only JDK types, so they can cross agent class loaders and, as flat string
+ * fields, the {@link EventRelay} socket.
+ */
+public sealed interface DomainEvent {
+
+    String patientId();
+
+    Instant occurredAt();
+
+    /**
+     * The event as flat string fields, read back by {@link #decode}.
+     */
+    Map<String, String> fields();
+
+    default String type() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * @return the event, or {@code null} for a type this build does not know
+     */
+    static DomainEvent decode(String type, Map<String, String> fields) {
+        Instant at = Instant.parse(fields.get("at"));
+        switch (type) {
+            case "AppointmentCheckedIn":
+                return new AppointmentCheckedIn(fields.get("appointmentId"), fields.get("patientId"),
+                        fields.get("doctorName"), fields.get("appointmentType"), at);
+            case "LabResultReady":
+                return new LabResultReady(fields.get("labOrderId"), fields.get("patientId"), fields.get("testType"),
+                        Integer.parseInt(fields.get("outOfRange")), at);
+            case "DiagnosticReportCreated":
+                return new DiagnosticReportCreated(fields.get("reportId"), fields.get("patientId"),
+                        fields.get("reportType"), at);
+            case "InvoiceGenerated":
+                return new InvoiceGenerated(fields.get("invoiceId"), fields.get("patientId"),
+                        fields.get("serviceType"), Long.parseLong(fields.get("totalCents")), at);
+            case "PaymentProcessed":
+                return new PaymentProcessed(fields.get("paymentId"), fields.get("invoiceId"), fields.get("patientId"),
+                        Long.parseLong(fields.get("amountCents")), Long.parseLong(fields.get("remainingCents")), at);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * A confirmed appointment was checked in, once per appointment.
+     */
+    record AppointmentCheckedIn(String appointmentId, String patientId, String doctorName, String appointmentType,
+                                Instant occurredAt) implements DomainEvent {
+
+        @Override
+        public Map<String, String> fields() {
+            return FieldCodec.fields("appointmentId", appointmentId, "patientId", patientId, "doctorName", doctorName,
+                    "appointmentType", appointmentType, "at", occurredAt.toString());
+        }
+    }
+
+    /**
+     * Every analyte of a lab order has a result.
+     *
+     * @param outOfRange results outside their reference range
+     */
+    record LabResultReady(String labOrderId, String patientId, String testType, int outOfRange,
+                          Instant occurredAt) implements DomainEvent {
+
+        @Override
+        public Map<String, String> fields() {
+            return FieldCodec.fields("labOrderId", labOrderId, "patientId", patientId, "testType", testType,
+                    "outOfRange", String.valueOf(outOfRange), "at", occurredAt.toString());
+        }
+    }
+
+    record DiagnosticReportCreated(String reportId, String patientId, String reportType,
+                                   Instant occurredAt) implements DomainEvent {
+
+        @Override
+        public Map<String, String> fields() {
+            return FieldCodec.fields("reportId", reportId, "patientId", patientId, "reportType", reportType,
+                    "at", occurredAt.toString());
+        }
+    }
+
+    /**
+     * @param totalCents amount plus tax
+     */
+    record InvoiceGenerated(String invoiceId, String patientId, String serviceType, long totalCents,
+                            Instant occurredAt) implements DomainEvent {
+
+        @Override
+        public Map<String, String> fields() {
+            return FieldCodec.fields("invoiceId", invoiceId, "patientId", patientId, "serviceType", serviceType,
+                    "totalCents", String.valueOf(totalCents), "at", occurredAt.toString());
+        }
+    }
+
+    /**
+     * @param remainingCents what is still owed on the invoice
+     */
+    record PaymentProcessed(String paymentId, String invoiceId, String patientId, long amountCents,
+                            long remainingCents, Instant occurredAt) implements DomainEvent {
+
+        @Override
+        public Map<String, String> fields() {
+            return FieldCodec.fields("paymentId", paymentId, "invoiceId", invoiceId, "patientId", patientId,
+                    "amountCents", String.valueOf(amountCents), "remainingCents", String.valueOf(remainingCents),
+                    "at", occurredAt.toString());
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package org.example.common.events;
+
+import lombok.extern.java.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+/**
+ * Publishes {@link DomainEvent}s to subscriptions in the same JVM, and through the {@link EventRelay} to other
+ * processes on the host.
+ * <p>
+ * Events go into a ring buffer. A publisher claims the next sequence with one compare-and-set, fills the slot and
+ * marks it published; nothing locks. Every subscription has its own thread that takes everything published since
+ * its last turn, up to {@code maxBatch} events, and hands it over in one call, so a burst costs a few calls and a
+ * slow subscriber holds up no other. Once every subscription has read past a slot, the first thread to notice
+ * clears it, so the ring does not keep consumed events reachable, and the slot can be reused; when the ring is
+ * full a publisher waits up to {@code publishTimeoutMillis} for the slowest subscription and then drops the event
+ * and counts it, so the action that published it never fails. Idle subscription threads spin briefly, then park
+ * until a publisher wakes them.
+ * <p>
+ * Events are delivered in sequence order, at most once and only to subscriptions that existed when they were
+ * published; they are not journalled. Subscribers must therefore treat events as notices, and be idempotent where
+ * an event could be published twice.
+ */
+@Log
+public final class EventBus implements AutoCloseable {
+
+    private static final int SPINS = 100;
+    private static final int YIELDS = 10;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final EventBus SHARED = createShared();
+
+    public record Options(int capacity, int maxBatch, long publishTimeoutMillis) {
+
+        public Options {
+            if (Integer.bitCount(capacity) != 1) {
+                throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+            }
+        }
+
+        public static Options defaults() {
+            return new Options(
+                    Integer.getInteger("healthcare.events.ring", 1 << 16),
+                    Integer.getInteger("healthcare.events.batch", 256),
+                    Long.getLong("healthcare.events.publish-timeout-ms", 100));
+        }
+    }
+
+    @FunctionalInterface
+    public interface Subscriber {
+
+        /**
+         * Called on the subscription's own thread with one or more events, oldest first. The list is the
+         * subscriber's to keep.
+         */
+        void onEvents(List<DomainEvent> events);
+    }
+
+    private static final class Slot {
+        DomainEvent event;
+        boolean relayed;
+    }
+
+    private final Options options;
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final AtomicLong reclaimed = new AtomicLong(-1);
+    private final AtomicBoolean reclaiming = new AtomicBoolean();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final AtomicInteger threads = new AtomicInteger();
+    private volatile long gatingCache = -1;
+    private volatile boolean closed;
+
+    public EventBus(Options options) {
+        this.options = options;
+        this.slots = new Slot[options.capacity()];
+        this.mask = options.capacity() - 1;
+        this.published = new AtomicLongArray(options.capacity());
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * The bus of this JVM, shared by every co-located agent and linked to other processes when
+     * {@link EventRelay} is configured.
+     */
+    public static EventBus shared() {
+        return SHARED;
+    }
+
+    private static EventBus createShared() {
+        EventBus bus = new EventBus(Options.defaults());
+        EventRelay.startConfigured(bus);
+        return bus;
+    }
+
+    /**
+     * @return {@code false} if the event was dropped because the ring stayed full or the bus is closed
+     */
+    public boolean publish(DomainEvent event) {
+        return publish(event, false);
+    }
+
+    /**
+     * @param relayed whether the event came from another process, so it is not relayed again
+     */
+    boolean publish(DomainEvent event, boolean relayed) {
+        Objects.requireNonNull(event, "event");
+        long deadline = 0;
+        long next;
+        while (true) {
+            if (closed) {
+                droppedCount.increment();
+                return false;
+            }
+            long current = cursor.get();
+            next = current + 1;
+            long wrapPoint = next - slots.length;
+            if (wrapPoint > gatingCache) {
+                long gating = reclaim(current);
+                gatingCache = gating;
+                if (wrapPoint > gating) {
+                    long now = System.nanoTime();
+                    if (deadline == 0) {
+                        deadline = now + TimeUnit.MILLISECONDS.toNanos(options.publishTimeoutMillis());
+                    } else if (now - deadline >= 0) {
+                        droppedCount.increment();
+                        log.fine(() -> "Event ring full, dropped " + event.type());
+                        return false;
+                    }
+                    LockSupport.parkNanos(FULL_BACKOFF_NANOS);
+                    continue;
+                }
+            }
+            if (cursor.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        int index = (int) next & mask;
+        Slot slot = slots[index];
+        slot.event = event;
+        slot.relayed = relayed;
+        published.set(index, next);
+        publishedCount.increment();
+        for (Subscription subscription : subscriptions) {
+            subscription.wake();
+        }
+        return true;
+    }
+
+    /**
+     * Starts a subscription to events of the given types (all types if none are given), including events
+     * relayed from other processes.
+     */
+    public Subscription subscribe(String name, Subscriber subscriber, Set<Class<? extends DomainEvent>> types) {
+        return subscribe(name, subscriber, types, true);
+    }
+
+    Subscription subscribe(String name, Subscriber subscriber, Set<Class<? extends DomainEvent>> types,
+                           boolean includeRelayed) {
+        if (closed) {
+            throw new IllegalStateException("Event bus is closed");
+        }
+        Subscription subscription = new Subscription(name, subscriber, Set.copyOf(types), includeRelayed,
+                cursor.get());
+        subscriptions.add(subscription);
+        gatingCache = -1;
+        subscription.thread.start();
+        return subscription;
+    }
+
+    public long publishedCount() {
+        return publishedCount.sum();
+    }
+
+    /**
+     * Events not published because the ring stayed full.
+     */
+    public long droppedCount() {
+        return droppedCount.sum();
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * Clears the slots every subscription has read past. Publishers only reuse a slot once it has been cleared, and
+     * one thread clears at a time, so a clear never races with the next event written to the slot.
+     *
+     * @return the last sequence cleared
+     */
+    private long reclaim(long current) {
+        if (!reclaiming.compareAndSet(false, true)) {
+            return reclaimed.get();
+        }
+        try {
+            long slowest = current;
+            for (Subscription subscription : subscriptions) {
+                slowest = Math.min(slowest, subscription.sequence.get());
+            }
+            long from = reclaimed.get();
+            for (long sequence = from + 1; sequence <= slowest; sequence++) {
+                slots[(int) sequence & mask].event = null;
+            }
+            if (slowest > from) {
+                reclaimed.set(slowest);
+            }
+            return Math.max(from, slowest);
+        } finally {
+            reclaiming.set(false);
+        }
+    }
+
+    /**
+     * One subscriber and its thread. Closing it stops the thread after the batch in hand.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final String name;
+        private final Subscriber subscriber;
+        private final Set<Class<? extends DomainEvent>> types;
+        private final boolean includeRelayed;
+        private final AtomicLong sequence;
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final Thread thread;
+        private volatile boolean sleeping;
+        private volatile boolean running = true;
+
+        private Subscription(String name, Subscriber subscriber, Set<Class<? extends DomainEvent>> types,
+                             boolean includeRelayed, long from) {
+            this.name = name;
+            this.subscriber = subscriber;
+            this.types = types;
+            this.includeRelayed = includeRelayed;
+            this.sequence = new AtomicLong(from);
+            this.thread = new Thread(this::run, "events-" + name + "-" + threads.incrementAndGet());
+            this.thread.setDaemon(true);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Events published that this subscription has not taken yet.
+         */
+        public long lag() {
+            return Math.max(0, cursor.get() - sequence.get());
+        }
+
+        public long delivered() {
+            return delivered.sum();
+        }
+
+        /**
+         * Batches whose subscriber threw.
+         */
+        public long errors() {
+            return errors.sum();
+        }
+
+        @Override
+        public void close() {
+            running = false;
+            subscriptions.remove(this);
+            LockSupport.unpark(thread);
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join(TimeUnit.SECONDS.toMillis(5));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void wake() {
+            if (sleeping) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private void run() {
+            long next = sequence.get() + 1;
+            int idle = 0;
+            List<DomainEvent> batch = new ArrayList<>();
+            while (running) {
+                long last = next - 1;
+                while (last + 1 - next < options.maxBatch()) {
+                    int index = (int) (last + 1) & mask;
+                    if (published.get(index) != last + 1) {
+                        break;
+                    }
+                    Slot slot = slots[index];
+                    DomainEvent event = slot.event;
+                    // Null only for a subscription started while the slot was cleared, which has nothing to take
+                    if (event != null && accepts(slot, event)) {
+                        batch.add(event);
+                    }
+                    last++;
+                }
+                if (last < next) {
+                    idle = idle(next, idle);
+                    continue;
+                }
+                idle = 0;
+                sequence.set(last);
+                next = last + 1;
+                reclaim(cursor.get());
+                if (!batch.isEmpty()) {
+                    deliver(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+        }
+
+        private boolean accepts(Slot slot, DomainEvent event) {
+            return (includeRelayed || !slot.relayed) && (types.isEmpty() || types.contains(event.getClass()));
+        }
+
+        private void deliver(List<DomainEvent> batch) {
+            try {
+                subscriber.onEvents(batch);
+                delivered.add(batch.size());
+            } catch (RuntimeException e) {
+                errors.increment();
+                log.log(Level.WARNING, "Event subscription " + name + " failed on a batch of " + batch.size(), e);
+            }
+        }
+
+        private int idle(long next, int idle) {
+            if (idle < SPINS) {
+                Thread.onSpinWait();
+            } else if (idle < SPINS + YIELDS) {
+                Thread.yield();
+            } else {
+                sleeping = true;
+                if (published.get((int) next & mask) != next && running) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                sleeping = false;
+            }
+            return idle + 1;
+        }
+    }
+}
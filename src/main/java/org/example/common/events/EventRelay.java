@@ -0,0 +1,225 @@
+package org.example.common.events;
+
+import lombok.extern.java.Log;
+import org.example.common.MeshAuth;
+import org.example.common.wal.FieldCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Links the {@link EventBus} of agents that run as separate processes on one host. With
+ * {@code -Dhealthcare.events.listen-port} a process accepts events on that loopback port and publishes them on its
+ * own bus; with {@code -Dhealthcare.events.forward-to=localhost:9871,localhost:9874} it sends every event published
+ * locally to those ports. Events that arrived over the relay are never sent on again.
+ * <p>
+ * Each forward target has one connection, written by one subscription. It opens with the {@link MeshAuth} token
+ * (empty if none is configured), which the listener checks before reading anything else, then carries batches: a
+ * count, then per event its type and its {@link FieldCodec} fields. An event's fields may take at most
+ * {@code -Dhealthcare.events.relay.max-event-bytes} (default 64 KiB); the sender skips a larger event and the
+ * listener drops a connection announcing one. A target that cannot be reached misses the events published while
+ * it is down; the connection is retried at most once a second.
+ */
+@Log
+final class EventRelay {
+
+    private static final long RECONNECT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 2000;
+    private static final int MAX_EVENT_BYTES = Integer.getInteger("healthcare.events.relay.max-event-bytes", 64 << 10);
+
+    private EventRelay() {
+    }
+
+    static void startConfigured(EventBus bus) {
+        Integer listenPort = Integer.getInteger("healthcare.events.listen-port");
+        if (listenPort != null) {
+            listen(bus, listenPort);
+        }
+        String forwardTo = System.getProperty("healthcare.events.forward-to", "").trim();
+        if (!forwardTo.isEmpty()) {
+            List<Target> targets = new ArrayList<>();
+            for (String address : forwardTo.split(",")) {
+                targets.add(new Target(address.trim()));
+            }
+            bus.subscribe("relay", events -> {
+                for (Target target : targets) {
+                    target.send(events);
+                }
+            }, Set.of(), false);
+        }
+    }
+
+    /**
+     * Accepts relay connections on a loopback port, one reader thread per connection.
+     */
+    static ServerSocket listen(EventBus bus, int port) {
+        ServerSocket server;
+        try {
+            server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Unable to accept relayed events on port " + port, e);
+            return null;
+        }
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    Thread reader = new Thread(() -> read(bus, socket), "events-relay-in-" + socket.getPort());
+                    reader.setDaemon(true);
+                    reader.start();
+                } catch (IOException e) {
+                    if (!server.isClosed()) {
+                        log.log(Level.WARNING, "Relay accept failed", e);
+                    }
+                }
+            }
+        }, "events-relay-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Accepting relayed events on port " + server.getLocalPort());
+        return server;
+    }
+
+    private static void read(EventBus bus, Socket socket) {
+        try (socket; DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+            String token = in.readUTF();
+            if (!MeshAuth.permits(socket.getInetAddress(), token.isEmpty() ? null : token)) {
+                log.warning("Refused relay connection from " + socket.getRemoteSocketAddress()
+                        + ": missing or wrong " + MeshAuth.HEADER);
+                return;
+            }
+            socket.setSoTimeout(0);
+            while (true) {
+                int count = in.readInt();
+                if (count < 0) {
+                    throw new IOException("Negative event count " + count);
+                }
+                for (int i = 0; i < count; i++) {
+                    String type = in.readUTF();
+                    int length = in.readInt();
+                    if (length < 0 || length > MAX_EVENT_BYTES) {
+                        throw new IOException("Event " + type + " of " + length + " bytes exceeds "
+                                + MAX_EVENT_BYTES);
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    DomainEvent event = DomainEvent.decode(type, FieldCodec.decode(payload));
+                    if (event != null) {
+                        bus.publish(event, true);
+                    }
+                }
+            }
+        } catch (EOFException e) {
+            log.fine(() -> "Relay connection from port " + socket.getPort() + " closed");
+        } catch (SocketTimeoutException e) {
+            log.warning("Relay connection from port " + socket.getPort() + " sent no token in time");
+        } catch (IOException | RuntimeException e) {
+            log.log(Level.WARNING, "Dropping relay connection from port " + socket.getPort(), e);
+        }
+    }
+
+    /**
+     * One forward address, used only from the relay subscription's thread.
+     */
+    static final class Target {
+
+        private final String address;
+        private final String host;
+        private final int port;
+        private Socket socket;
+        private DataOutputStream out;
+        private long retryAt;
+
+        Target(String address) {
+            int colon = address.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Expected host:port in healthcare.events.forward-to: " + address);
+            }
+            this.address = address;
+            this.host = address.substring(0, colon);
+            this.port = Integer.parseInt(address.substring(colon + 1));
+        }
+
+        void send(List<DomainEvent> events) {
+            if (out == null && !connect()) {
+                return;
+            }
+            try {
+                List<DomainEvent> sent = new ArrayList<>(events.size());
+                List<byte[]> payloads = new ArrayList<>(events.size());
+                for (DomainEvent event : events) {
+                    byte[] payload = FieldCodec.encode(event.fields());
+                    if (payload.length > MAX_EVENT_BYTES) {
+                        log.warning("Not relaying " + event.type() + " of " + payload.length + " bytes to " + address);
+                        continue;
+                    }
+                    sent.add(event);
+                    payloads.add(payload);
+                }
+                out.writeInt(sent.size());
+                for (int i = 0; i < sent.size(); i++) {
+                    out.writeUTF(sent.get(i).type());
+                    out.writeInt(payloads.get(i).length);
+                    out.write(payloads.get(i));
+                }
+                out.flush();
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Lost " + events.size() + " events relayed to " + address, e);
+                disconnect();
+            }
+        }
+
+        private boolean connect() {
+            long now = System.nanoTime();
+            if (retryAt != 0 && now - retryAt < 0) {
+                return false;
+            }
+            try {
+                Socket connected = new Socket();
+                connected.setTcpNoDelay(true);
+                connected.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+                DataOutputStream opened = new DataOutputStream(
+                        new BufferedOutputStream(connected.getOutputStream(), 1 << 16));
+                String token = MeshAuth.token();
+                opened.writeUTF(token == null ? "" : token);
+                socket = connected;
+                out = opened;
+                retryAt = 0;
+                return true;
+            } catch (IOException e) {
+                if (retryAt == 0) {
+                    log.warning("Unable to relay events to " + address + ": " + e);
+                }
+                retryAt = now + RECONNECT_NANOS;
+                return false;
+            }
+        }
+
+        private void disconnect() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // already broken
+            }
+            socket = null;
+            out = null;
+            retryAt = System.nanoTime() + RECONNECT_NANOS;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.common.metrics;
+
+import com.t4a.annotations.Agent;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every {@code @Action} invocation on a Spring-managed agent, whether it arrives through
+ * JSON-RPC or the fast path, and reports the execution time to {@link RequestTimingFilter} so the
+ * LLM share of a request can be derived.
+ */
+@Aspect
+public class ActionMetricsAspect {
+
+    private final MetricsRegistry registry;
+    private final Map<Method, LatencyMetric> metrics = new ConcurrentHashMap<>();
+
+    public ActionMetricsAspect(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("@annotation(com.t4a.annotations.Action)")
+    public Object time(ProceedingJoinPoint call) throws Throwable {
+        Method method = ((MethodSignature) call.getSignature()).getMethod();
+        LatencyMetric metric = metrics.computeIfAbsent(method, key -> register(key, call.getTarget()));
+        long start = metric.start();
+        boolean failed = true;
+        try {
+            Object result = call.proceed();
+            failed = false;
+            return result;
+        } finally {
+            RequestTimingFilter.addExecutionTime(metric.stop(start, failed));
+        }
+    }
+
+    private LatencyMetric register(Method method, Object target) {
+        Class<?> type = ClassUtils.getUserClass(target);
+        Agent agent = type.getAnnotation(Agent.class);
+        String agentName = agent != null ? agent.groupName() : type.getSimpleName();
+        return registry.latency("agent_action", "Latency of @Action invocations",
+                "agent", agentName, "action", method.getName());
+    }
+}
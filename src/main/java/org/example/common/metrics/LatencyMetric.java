@@ -0,0 +1,115 @@
+package org.example.common.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram, call and error counters and an in-flight gauge for one labelled operation.
+ * <p>
+ * The recording side is wait-free: an HdrHistogram {@link Recorder} plus {@link LongAdder}s, so it can
+ * stay on in production. Percentiles cover a sliding window ({@code -Dhealthcare.metrics.window.seconds},
+ * default 60) made of six buckets; values recorded since the previous scrape are attributed to the bucket
+ * that is current at scrape time. Counts and sums are cumulative.
+ */
+public final class LatencyMetric {
+
+    private static final int BUCKETS = 6;
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(Long.getLong("healthcare.metrics.window.seconds", 60));
+    private static final long BUCKET_NANOS = Math.max(1, WINDOW_NANOS / BUCKETS);
+
+    private final String labels;
+    private final Recorder recorder = new Recorder(2);
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+
+    private final Histogram[] buckets = new Histogram[BUCKETS];
+    private final long[] bucketEpochs = new long[BUCKETS];
+    private final Histogram window = new Histogram(2);
+    private Histogram interval;
+
+    LatencyMetric(String labels) {
+        this.labels = labels;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new Histogram(2);
+        }
+    }
+
+    /**
+     * Marks a call as in flight; pass the returned timestamp to {@link #stop(long, boolean)}.
+     */
+    public long start() {
+        inFlight.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * @return the elapsed nanoseconds that were recorded
+     */
+    public long stop(long startNanos, boolean failed) {
+        long elapsed = System.nanoTime() - startNanos;
+        inFlight.decrement();
+        record(elapsed);
+        if (failed) {
+            errors.increment();
+        }
+        return elapsed;
+    }
+
+    /**
+     * Records a duration that was measured elsewhere, without touching the in-flight gauge.
+     */
+    public void record(long nanos) {
+        recorder.recordValue(Math.max(0, nanos));
+        calls.increment();
+        totalNanos.add(nanos);
+    }
+
+    String labels() {
+        return labels;
+    }
+
+    long calls() {
+        return calls.sum();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    long inFlight() {
+        return inFlight.sum();
+    }
+
+    /**
+     * Drains the recorder and returns the merged histogram of the current window. Reader side only.
+     */
+    synchronized Histogram snapshot() {
+        long epoch = System.nanoTime() / BUCKET_NANOS;
+        int current = (int) Math.floorMod(epoch, (long) BUCKETS);
+        interval = recorder.getIntervalHistogram(interval);
+        window.reset();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (epoch - bucketEpochs[i] >= BUCKETS) {
+                buckets[i].reset();
+            }
+        }
+        if (bucketEpochs[current] != epoch) {
+            buckets[current].reset();
+            bucketEpochs[current] = epoch;
+        }
+        buckets[current].add(interval);
+        for (Histogram bucket : buckets) {
+            window.add(bucket);
+        }
+        return window;
+    }
+}
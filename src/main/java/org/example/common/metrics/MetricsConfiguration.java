@@ -0,0 +1,35 @@
+package org.example.common.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Action latency, request split and the {@code /metrics} endpoint for an agent server.
+ * Add it with {@code @Import(MetricsConfiguration.class)}.
+ */
+@Configuration
+@Import(MetricsController.class)
+public class MetricsConfiguration {
+
+    @Bean
+    public MetricsRegistry metricsRegistry() {
+        return MetricsRegistry.shared();
+    }
+
+    @Bean
+    public ActionMetricsAspect actionMetricsAspect(MetricsRegistry registry) {
+        return new ActionMetricsAspect(registry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestTimingFilter> requestTimingFilter(
+            MetricsRegistry registry, @Value("${spring.application.name}") String applicationName) {
+        FilterRegistrationBean<RequestTimingFilter> registration =
+                new FilterRegistrationBean<>(new RequestTimingFilter(registry, applicationName));
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.common.metrics;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Prometheus scrape endpoint on the server port.
+ */
+@RestController
+public class MetricsController {
+
+    private final MetricsRegistry registry;
+
+    public MetricsController(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @GetMapping(path = "/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String metrics() {
+        StringBuilder out = new StringBuilder(4096);
+        registry.writePrometheus(out);
+        return out.toString();
+    }
+}
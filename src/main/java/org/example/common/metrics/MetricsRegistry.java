@@ -0,0 +1,165 @@
+package org.example.common.metrics;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Named families of {@link LatencyMetric}s, exported in the Prometheus text format.
+ * <p>
+ * A family {@code agent_action} is written as a summary {@code agent_action_seconds} (p50, p99, p999,
+ * count, sum), a counter {@code agent_action_errors_total} and a gauge {@code agent_action_in_flight}.
+ * Look metrics up once and keep the reference; the lookup itself is a map read.
+ * <p>
+ * Plain gauges and counters are registered as suppliers that are read at scrape time, so the code that
+ * owns the value (a queue, a counter it already keeps) does no extra work per update.
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry SHARED = new MetricsRegistry();
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private record Family(String help, Map<String, LatencyMetric> metrics) {
+    }
+
+    private record Sampled(String help, String type, Map<String, LongSupplier> values) {
+    }
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+    private final Map<String, Sampled> sampled = new ConcurrentSkipListMap<>();
+
+    public static MetricsRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param labelPairs alternating label names and values, e.g. {@code "agent", "billing", "action", "x"}
+     */
+    public LatencyMetric latency(String name, String help, String... labelPairs) {
+        Family family = families.computeIfAbsent(name, key -> new Family(help, new ConcurrentSkipListMap<>()));
+        return family.metrics().computeIfAbsent(labels(labelPairs), LatencyMetric::new);
+    }
+
+    /**
+     * Registers a value that can go up and down, such as a queue depth. Registering the same name and labels
+     * again replaces the supplier.
+     */
+    public void gauge(String name, String help, LongSupplier value, String... labelPairs) {
+        register(name, help, "gauge", value, labelPairs);
+    }
+
+    /**
+     * Registers a cumulative count; {@code name} should end in {@code _total}.
+     */
+    public void counter(String name, String help, LongSupplier value, String... labelPairs) {
+        register(name, help, "counter", value, labelPairs);
+    }
+
+    /**
+     * Drops a gauge or counter, e.g. when the thing it measured is gone.
+     */
+    public void remove(String name, String... labelPairs) {
+        Sampled family = sampled.get(name);
+        if (family != null) {
+            family.values().remove(labels(labelPairs));
+        }
+    }
+
+    private void register(String name, String help, String type, LongSupplier value, String... labelPairs) {
+        Sampled family = sampled.computeIfAbsent(name, key -> new Sampled(help, type, new ConcurrentSkipListMap<>()));
+        family.values().put(labels(labelPairs), value);
+    }
+
+    public void writePrometheus(Appendable out) {
+        try {
+            for (Map.Entry<String, Family> entry : families.entrySet()) {
+                write(entry.getKey(), entry.getValue(), out);
+            }
+            for (Map.Entry<String, Sampled> entry : sampled.entrySet()) {
+                Sampled family = entry.getValue();
+                out.append("# HELP ").append(entry.getKey()).append(' ').append(family.help()).append('\n');
+                out.append("# TYPE ").append(entry.getKey()).append(' ').append(family.type()).append('\n');
+                for (Map.Entry<String, LongSupplier> value : family.values().entrySet()) {
+                    sample(out, entry.getKey(), value.getKey(), null, value.getValue().getAsLong());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write metrics", e);
+        }
+    }
+
+    private static void write(String name, Family family, Appendable out) throws IOException {
+        String seconds = name + "_seconds";
+        out.append("# HELP ").append(seconds).append(' ').append(family.help()).append('\n');
+        out.append("# TYPE ").append(seconds).append(" summary\n");
+        for (LatencyMetric metric : family.metrics().values()) {
+            Histogram window = metric.snapshot();
+            for (double quantile : QUANTILES) {
+                sample(out, seconds, metric.labels(), "quantile=\"" + quantile + "\"",
+                        window.getValueAtPercentile(quantile * 100) / NANOS_PER_SECOND);
+            }
+            sample(out, seconds + "_count", metric.labels(), null, metric.calls());
+            sample(out, seconds + "_sum", metric.labels(), null, metric.totalNanos() / NANOS_PER_SECOND);
+        }
+        out.append("# TYPE ").append(name).append("_errors_total counter\n");
+        for (LatencyMetric metric : family.metrics().values()) {
+            sample(out, name + "_errors_total", metric.labels(), null, metric.errors());
+        }
+        out.append("# TYPE ").append(name).append("_in_flight gauge\n");
+        for (LatencyMetric metric : family.metrics().values()) {
+            sample(out, name + "_in_flight", metric.labels(), null, metric.inFlight());
+        }
+    }
+
+    private static void sample(Appendable out, String name, String labels, String extra, double value)
+            throws IOException {
+        out.append(name);
+        if (!labels.isEmpty() || extra != null) {
+            out.append('{').append(labels);
+            if (extra != null) {
+                out.append(labels.isEmpty() ? "" : ",").append(extra);
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append(Long.toString((long) value));
+        } else {
+            out.append(Double.toString(value));
+        }
+        out.append('\n');
+    }
+
+    private static String labels(String... labelPairs) {
+        if (labelPairs.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name/value pairs");
+        }
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < labelPairs.length; i += 2) {
+            if (i > 0) {
+                labels.append(',');
+            }
+            labels.append(labelPairs[i]).append("=\"");
+            escape(labelPairs[i + 1], labels);
+            labels.append('"');
+        }
+        return labels.toString();
+    }
+
+    private static void escape(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '"' -> out.append("\\\"");
+                case '\n' -> out.append("\\n");
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.common.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Splits each JSON-RPC request ({@code POST /}) into time spent executing actions and everything else,
+ * which for these servers is the LLM choosing the tool and extracting its arguments.
+ */
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    private static final ThreadLocal<long[]> EXECUTION_NANOS = new ThreadLocal<>();
+
+    private final LatencyMetric llm;
+    private final LatencyMetric execution;
+    private final LatencyMetric total;
+
+    public RequestTimingFilter(MetricsRegistry registry, String serverName) {
+        String help = "JSON-RPC request time split into LLM processing and action execution";
+        this.llm = registry.latency("agent_request", help, "server", serverName, "phase", "llm");
+        this.execution = registry.latency("agent_request", help, "server", serverName, "phase", "execution");
+        this.total = registry.latency("agent_request", help, "server", serverName, "phase", "total");
+    }
+
+    static void addExecutionTime(long nanos) {
+        long[] accumulator = EXECUTION_NANOS.get();
+        if (accumulator != null) {
+            accumulator[0] += nanos;
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !"/".equals(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long[] accumulator = new long[1];
+        EXECUTION_NANOS.set(accumulator);
+        long start = total.start();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            long elapsed = total.stop(start, failed);
+            EXECUTION_NANOS.remove();
+            execution.record(accumulator[0]);
+            llm.record(elapsed - accumulator[0]);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.common.wal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of flat string maps, used as the payload of journal entries.
+ * Null values are skipped.
+ * <p>
+ * Layout: {@code short 0xFFFF, int count}, then per field {@code int length, UTF-8 name, int length, UTF-8 value}.
+ * Payloads written before values could exceed 64 KB start with an unsigned {@code short count} followed by
+ * {@link DataOutputStream#writeUTF} strings, and are still decoded.
+ */
+public final class FieldCodec {
+
+    private static final int LENGTH_PREFIXED = 0xFFFF;
+
+    private FieldCodec() {
+    }
+
+    /**
+     * Builds a field map from alternating names and values; null values are allowed and dropped on encode.
+     */
+    public static Map<String, String> fields(String... namesAndValues) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            fields.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return fields;
+    }
+
+    public static byte[] encode(Map<String, String> fields) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + fields.size() * 24);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            int count = 0;
+            for (String value : fields.values()) {
+                if (value != null) {
+                    count++;
+                }
+            }
+            out.writeShort(LENGTH_PREFIXED);
+            out.writeInt(count);
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                if (field.getValue() != null) {
+                    writeString(out, field.getKey());
+                    writeString(out, field.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Map<String, String> decode(byte[] payload) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            int count = in.readUnsignedShort();
+            if (count == LENGTH_PREFIXED) {
+                count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    fields.put(readString(in), readString(in));
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    fields.put(in.readUTF(), in.readUTF());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return fields;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Field length " + length + " exceeds the payload");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.common.wal;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of keyed state changes. Appends are asynchronous: the returned future
+ * completes once the entry is on disk, so request threads never wait for an fsync.
+ */
+public interface Journal extends AutoCloseable {
+
+    Journal NOOP = new Journal() {
+        @Override
+        public CompletableFuture<Void> append(LogEntry entry) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void replay(Consumer<LogEntry> consumer) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    CompletableFuture<Void> append(LogEntry entry);
+
+    /**
+     * Feeds every live entry (latest snapshot first, then newer segments) to the consumer in log order.
+     */
+    void replay(Consumer<LogEntry> consumer);
+
+    default CompletableFuture<Void> append(String stream, String key, Map<String, String> fields) {
+        return append(new LogEntry(stream, key, FieldCodec.encode(fields)));
+    }
+
+    default CompletableFuture<Void> delete(String stream, String key) {
+        return append(new LogEntry(stream, key, null));
+    }
+
+    @Override
+    void close();
+}
@@ -0,0 +1,33 @@
+package org.example.common.wal;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opens one {@link SegmentLog} per domain under {@code -Dhealthcare.data.dir} (default {@code data}).
+ * Persistence can be switched off with {@code -Dhealthcare.persistence.enabled=false}, in which case
+ * every domain gets {@link Journal#NOOP}. Journals are flushed and closed on JVM shutdown.
+ */
+public final class Journals {
+
+    private static final Map<String, Journal> OPEN = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> OPEN.values().forEach(Journal::close), "wal-shutdown"));
+    }
+
+    private Journals() {
+    }
+
+    public static Journal open(String domain) {
+        if (!Boolean.parseBoolean(System.getProperty("healthcare.persistence.enabled", "true"))) {
+            return Journal.NOOP;
+        }
+        return OPEN.computeIfAbsent(domain, name -> {
+            Path directory = Paths.get(System.getProperty("healthcare.data.dir", "data"), name);
+            return SegmentLog.open(directory, SegmentLog.Options.defaults());
+        });
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.common.wal;
+
+/**
+ * One keyed mutation in a {@link Journal}. A {@code null} payload is a tombstone that removes the key.
+ */
+public record LogEntry(String stream, String key, byte[] payload) {
+
+    public boolean isTombstone() {
+        return payload == null;
+    }
+}
@@ -0,0 +1,480 @@
+package org.example.common.wal;
+
+import lombok.extern.java.Log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Segmented append-only {@link Journal} on local disk.
+ * <p>
+ * Appends are queued and written by a single writer thread that drains whatever has accumulated,
+ * writes it with one {@link FileChannel#write} per buffer and issues one {@code force} for the whole
+ * batch (group commit). Segments roll at a fixed size; once enough sealed segments pile up they are
+ * compacted into a snapshot holding only the latest value per key, and the covered segments are
+ * deleted. Recovery maps the snapshot and the remaining segments read-only, a window of at most
+ * {@code healthcare.wal.replay.window.bytes} at a time so that files past 2 GB replay too, and replays them in
+ * order, stopping at the first torn or corrupt record of a segment.
+ * <p>
+ * Record layout: {@code int bodyLength, int crc32c(body), body}, where body is
+ * {@code short streamLength, stream, short keyLength, key, int payloadLength (-1 = tombstone), payload}.
+ */
+@Log
+public class SegmentLog implements Journal {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int HEADER_BYTES = 8;
+    private static final long REPLAY_WINDOW_BYTES = Long.getLong("healthcare.wal.replay.window.bytes", 256L << 20);
+
+    private final Path directory;
+    private final Options options;
+    private final BlockingQueue<PendingAppend> queue;
+    private final Thread writer;
+    private final ExecutorService compactor;
+    private final Object fileLock = new Object();
+    private final Object compactionLock = new Object();
+    private final ByteBuffer writeBuffer;
+
+    private FileChannel active;
+    private volatile long activeSegment;
+    private volatile boolean running = true;
+
+    public record Options(long segmentBytes, int maxBatch, int queueCapacity, int compactAfterSegments, boolean fsync) {
+
+        public static Options defaults() {
+            return new Options(
+                    Long.getLong("healthcare.wal.segment.bytes", 64L << 20),
+                    Integer.getInteger("healthcare.wal.batch", 4096),
+                    Integer.getInteger("healthcare.wal.queue", 1 << 16),
+                    Integer.getInteger("healthcare.wal.compact.segments", 4),
+                    Boolean.parseBoolean(System.getProperty("healthcare.wal.fsync", "true")));
+        }
+    }
+
+    record PendingAppend(LogEntry entry, CompletableFuture<Void> done) {
+    }
+
+    public static SegmentLog open(Path directory, Options options) {
+        try {
+            return new SegmentLog(directory, options);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open journal in " + directory, e);
+        }
+    }
+
+    private SegmentLog(Path directory, Options options) throws IOException {
+        this.directory = directory;
+        this.options = options;
+        this.queue = new ArrayBlockingQueue<>(options.queueCapacity());
+        this.writeBuffer = ByteBuffer.allocateDirect(1 << 20);
+        Files.createDirectories(directory);
+        cleanUpInterruptedCompaction();
+        long last = segments().isEmpty() ? snapshotNumber() : segments().lastKey() + 1;
+        openSegment(Math.max(last, 1));
+        this.compactor = Executors.newSingleThreadExecutor(r -> daemon(r, "wal-compactor-" + directory.getFileName()));
+        this.writer = daemon(this::writeLoop, "wal-writer-" + directory.getFileName());
+        this.writer.start();
+    }
+
+    @Override
+    public CompletableFuture<Void> append(LogEntry entry) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Journal is closed: " + directory));
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        try {
+            queue.put(new PendingAppend(entry, done));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done.completeExceptionally(e);
+        }
+        return done;
+    }
+
+    @Override
+    public void replay(Consumer<LogEntry> consumer) {
+        synchronized (compactionLock) {
+            long snapshot = snapshotNumber();
+            if (snapshot > 0) {
+                readFile(snapshotPath(snapshot), consumer);
+            }
+            for (Map.Entry<Long, Path> segment : segments().entrySet()) {
+                if (segment.getKey() >= snapshot && segment.getKey() != activeSegment) {
+                    readFile(segment.getValue(), consumer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Folds the current snapshot and every sealed segment into a new snapshot and deletes what it covers.
+     * Sealed segments are immutable, so this runs without holding up the writer.
+     */
+    public void compact() {
+        synchronized (compactionLock) {
+            long upTo = activeSegment;
+            long previousSnapshot = snapshotNumber();
+            if (upTo <= previousSnapshot) {
+                return;
+            }
+            Map<String, LogEntry> live = new LinkedHashMap<>();
+            Consumer<LogEntry> fold = entry -> {
+                String id = entry.stream() + '\0' + entry.key();
+                if (entry.isTombstone()) {
+                    live.remove(id);
+                } else {
+                    live.put(id, entry);
+                }
+            };
+            if (previousSnapshot > 0) {
+                readFile(snapshotPath(previousSnapshot), fold);
+            }
+            Map<Long, Path> covered = segments().headMap(upTo);
+            covered.values().forEach(segment -> readFile(segment, fold));
+            try {
+                Path temporary = directory.resolve(SNAPSHOT_PREFIX + "tmp");
+                try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+                    for (LogEntry entry : live.values()) {
+                        buffer = encodeInto(buffer, entry, out);
+                    }
+                    drain(buffer, out);
+                    out.force(true);
+                }
+                Files.move(temporary, snapshotPath(upTo), StandardCopyOption.ATOMIC_MOVE);
+                if (previousSnapshot > 0) {
+                    Files.deleteIfExists(snapshotPath(previousSnapshot));
+                }
+                for (Path segment : covered.values()) {
+                    Files.deleteIfExists(segment);
+                }
+                log.info("Compacted " + covered.size() + " segments into " + live.size() + " live entries in " + directory);
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Compaction failed in " + directory, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        compactor.shutdown();
+        synchronized (fileLock) {
+            try {
+                active.force(true);
+                active.close();
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Unable to close journal segment in " + directory, e);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> batch = new ArrayList<>(options.maxBatch());
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingAppend first = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, options.maxBatch() - 1);
+                writeBatch(batch);
+                for (PendingAppend pending : batch) {
+                    pending.done().complete(null);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.log(Level.SEVERE, "Journal write failed in " + directory, e);
+                for (PendingAppend pending : batch) {
+                    pending.done().completeExceptionally(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes the batch to the active segment. If any of it cannot be written, whatever of it reached the segment
+     * is truncated away and the write buffer is cleared, so later batches are not appended after a torn record
+     * (replay stops there) or after records whose appends failed.
+     */
+    void writeBatch(List<PendingAppend> batch) throws IOException {
+        synchronized (fileLock) {
+            if (!active.isOpen()) {
+                // A roll or a discard closed the segment but could not open the next one
+                openSegment(activeSegment + 1);
+            }
+            long start = active.size();
+            try {
+                ByteBuffer buffer = writeBuffer;
+                for (PendingAppend pending : batch) {
+                    buffer = encodeInto(buffer, pending.entry(), active);
+                }
+                drain(buffer, active);
+                if (options.fsync()) {
+                    active.force(false);
+                }
+            } catch (IOException | RuntimeException e) {
+                try {
+                    discard(start);
+                } catch (RuntimeException failed) {
+                    e.addSuppressed(failed);
+                }
+                throw e;
+            }
+            if (active.size() >= options.segmentBytes()) {
+                active.force(true);
+                active.close();
+                openSegment(activeSegment + 1);
+                if (segments().headMap(activeSegment).size() >= options.compactAfterSegments()) {
+                    compactor.execute(this::compact);
+                }
+            }
+        }
+    }
+
+    private void discard(long start) {
+        writeBuffer.clear();
+        try {
+            active.truncate(start);
+            return;
+        } catch (IOException | RuntimeException e) {
+            log.log(Level.SEVERE, "Unable to truncate " + segmentPath(activeSegment) + " after a failed write, "
+                    + "rolling to a new segment", e);
+        }
+        try {
+            active.close();
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Unable to close " + segmentPath(activeSegment), e);
+        }
+        try {
+            openSegment(activeSegment + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to roll journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Encodes the entry into the buffer, flushing the buffer to the channel first when it is full.
+     * Entries larger than the buffer are written through a one-off buffer.
+     */
+    private static ByteBuffer encodeInto(ByteBuffer buffer, LogEntry entry, FileChannel out) throws IOException {
+        byte[] stream = entry.stream().getBytes(StandardCharsets.UTF_8);
+        byte[] key = entry.key().getBytes(StandardCharsets.UTF_8);
+        byte[] payload = entry.payload();
+        int bodyLength = 2 + stream.length + 2 + key.length + 4 + (payload == null ? 0 : payload.length);
+        int recordLength = HEADER_BYTES + bodyLength;
+        ByteBuffer target = buffer;
+        if (recordLength > buffer.remaining()) {
+            drain(buffer, out);
+            if (recordLength > buffer.capacity()) {
+                target = ByteBuffer.allocate(recordLength);
+            }
+        }
+        int start = target.position();
+        target.putInt(bodyLength).putInt(0);
+        target.putShort((short) stream.length).put(stream);
+        target.putShort((short) key.length).put(key);
+        if (payload == null) {
+            target.putInt(-1);
+        } else {
+            target.putInt(payload.length).put(payload);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(target.duplicate().position(start + HEADER_BYTES).limit(target.position()));
+        target.putInt(start + 4, (int) crc.getValue());
+        if (target != buffer) {
+            drain(target, out);
+        }
+        return buffer;
+    }
+
+    private static long drain(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += out.write(buffer);
+        }
+        buffer.clear();
+        return written;
+    }
+
+    /**
+     * Replays one file through windows mapped at record boundaries. A window is remapped from the first record
+     * that does not fit in it, and is made larger only for a record bigger than a window.
+     */
+    private void readFile(Path file, Consumer<LogEntry> consumer) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowStart = 0;
+            while (windowStart + HEADER_BYTES <= size) {
+                long windowEnd = Math.min(size, windowStart + Math.max(REPLAY_WINDOW_BYTES, HEADER_BYTES));
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                        windowEnd - windowStart);
+                int next = readWindow(file, windowStart, mapped, windowEnd == size, consumer);
+                if (next < 0) {
+                    return;
+                }
+                if (next == 0) {
+                    // The record at the window start is larger than the window: map all of it
+                    long recordEnd = windowStart + HEADER_BYTES + mapped.getInt(0);
+                    if (recordEnd > size || recordEnd - windowStart > Integer.MAX_VALUE) {
+                        return;
+                    }
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, recordEnd - windowStart);
+                    next = readWindow(file, windowStart, mapped, recordEnd == size, consumer);
+                    if (next <= 0) {
+                        return;
+                    }
+                }
+                windowStart += next;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to replay " + file, e);
+        }
+    }
+
+    /**
+     * @param last whether the window ends at the end of the file, so a record running past it is torn
+     * @return where the first record not replayed starts, relative to the window, or -1 if the file ends here
+     */
+    private static int readWindow(Path file, long windowStart, MappedByteBuffer mapped, boolean last,
+                                  Consumer<LogEntry> consumer) {
+        while (mapped.remaining() >= HEADER_BYTES) {
+            int start = mapped.position();
+            int bodyLength = mapped.getInt();
+            int expectedCrc = mapped.getInt();
+            if (bodyLength <= 0) {
+                return -1;
+            }
+            if (bodyLength > mapped.remaining()) {
+                return last ? -1 : start;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(mapped.duplicate().limit(mapped.position() + bodyLength));
+            if ((int) crc.getValue() != expectedCrc) {
+                log.warning("Corrupt journal record at offset " + (windowStart + start) + " in " + file
+                        + ", stopping replay of segment");
+                return -1;
+            }
+            String stream = readString(mapped, Short.toUnsignedInt(mapped.getShort()));
+            String key = readString(mapped, Short.toUnsignedInt(mapped.getShort()));
+            int payloadLength = mapped.getInt();
+            byte[] payload = null;
+            if (payloadLength >= 0) {
+                payload = new byte[payloadLength];
+                mapped.get(payload);
+            }
+            consumer.accept(new LogEntry(stream, key, payload));
+        }
+        return last ? -1 : mapped.position();
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void openSegment(long number) throws IOException {
+        active = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeSegment = number;
+    }
+
+    private void cleanUpInterruptedCompaction() throws IOException {
+        Files.deleteIfExists(directory.resolve(SNAPSHOT_PREFIX + "tmp"));
+        long snapshot = snapshotNumber();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                long number = fileNumber(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+                if (number > 0 && number < snapshot) {
+                    Files.delete(file);
+                }
+            }
+        }
+        for (Map.Entry<Long, Path> segment : segments().headMap(snapshot).entrySet()) {
+            Files.delete(segment.getValue());
+        }
+    }
+
+    private TreeMap<Long, Path> segments() {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                long number = fileNumber(file, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+                if (number > 0) {
+                    segments.put(number, file);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return segments;
+    }
+
+    private long snapshotNumber() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> fileNumber(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)).max().orElse(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long fileNumber(Path file, String prefix, String suffix) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+            return 0;
+        }
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private Path snapshotPath(long number) {
+        return directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, number, SNAPSHOT_SUFFIX));
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
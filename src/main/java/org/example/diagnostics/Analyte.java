@@ -0,0 +1,87 @@
+package org.example.diagnostics;
+
+import java.util.Locale;
+
+/**
+ * Lab analytes and vital signs with their adult reference ranges. Lookup is tolerant of case, spaces and
+ * punctuation since analyte names come from free text.
+ */
+public enum Analyte {
+    WHITE_BLOOD_CELLS("White Blood Cells", "K/uL", 4.5, 11.0, "wbc", "whitebloodcells", "whitecount"),
+    RED_BLOOD_CELLS("Red Blood Cells", "M/uL", 4.5, 5.5, "rbc", "redbloodcells"),
+    HEMOGLOBIN("Hemoglobin", "g/dL", 13.5, 17.5, "hemoglobin", "haemoglobin", "hgb", "hb"),
+    PLATELETS("Platelets", "K/uL", 150, 400, "platelets", "plt"),
+    HEMATOCRIT("Hematocrit", "%", 38, 50, "hematocrit", "hct"),
+    GLUCOSE("Blood Glucose", "mg/dL", 70, 99, "glucose", "bloodglucose", "bloodsugar", "fastingglucose"),
+    HBA1C("HbA1c", "%", 4.0, 5.6, "hba1c", "a1c", "hemoglobina1c"),
+    TOTAL_CHOLESTEROL("Total Cholesterol", "mg/dL", 0, 200, "cholesterol", "totalcholesterol"),
+    LDL("LDL Cholesterol", "mg/dL", 0, 100, "ldl", "ldlcholesterol"),
+    HDL("HDL Cholesterol", "mg/dL", 40, 100, "hdl", "hdlcholesterol"),
+    TRIGLYCERIDES("Triglycerides", "mg/dL", 0, 150, "triglycerides", "tg"),
+    SODIUM("Sodium", "mmol/L", 135, 145, "sodium", "na"),
+    POTASSIUM("Potassium", "mmol/L", 3.5, 5.0, "potassium", "k"),
+    CREATININE("Creatinine", "mg/dL", 0.7, 1.3, "creatinine", "creat"),
+    HEART_RATE("Heart Rate", "bpm", 60, 100, "heartrate", "pulse", "hr"),
+    SYSTOLIC_BP("Systolic Blood Pressure", "mmHg", 90, 120, "systolic", "systolicbp", "systolicbloodpressure", "sbp"),
+    DIASTOLIC_BP("Diastolic Blood Pressure", "mmHg", 60, 80, "diastolic", "diastolicbp", "diastolicbloodpressure", "dbp"),
+    TEMPERATURE("Temperature", "F", 97.0, 99.5, "temperature", "temp", "bodytemperature"),
+    OXYGEN_SATURATION("Oxygen Saturation", "%", 95, 100, "oxygensaturation", "spo2", "o2sat", "oxygen");
+
+    private final String label;
+    private final String unit;
+    private final double low;
+    private final double high;
+    private final String[] aliases;
+
+    Analyte(String label, String unit, double low, double high, String... aliases) {
+        this.label = label;
+        this.unit = unit;
+        this.low = low;
+        this.high = high;
+        this.aliases = aliases;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public String unit() {
+        return unit;
+    }
+
+    /**
+     * Lowest value in the reference range.
+     */
+    public double low() {
+        return low;
+    }
+
+    /**
+     * Highest value in the reference range.
+     */
+    public double high() {
+        return high;
+    }
+
+    public static Analyte fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        String normalized = normalize(name);
+        for (Analyte analyte : values()) {
+            if (analyte.name().replace("_", "").equalsIgnoreCase(normalized)) {
+                return analyte;
+            }
+            for (String alias : analyte.aliases) {
+                if (alias.equals(normalized)) {
+                    return analyte;
+                }
+            }
+        }
+        return null;
+    }
+
+    static String normalize(String name) {
+        return name.replaceAll("[\\s_\\-()/.]", "").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.diagnostics;
+
+/**
+ * A lab or imaging order as seen by dispatch. Immutable; each transition produces a new instance.
+ *
+ * @param description   test or scan type, as ordered
+ * @param followUpOf    the order this one repeats, or {@code null}
+ * @param dueEpochMilli when the order may be performed, 0 for as soon as possible
+ * @param queuedNanos   {@link System#nanoTime()} when it entered its queue, for queue-wait metrics
+ * @param failures      how often a station has failed on the order
+ */
+public record DiagnosticOrder(String orderId, String patientId, Modality modality, Priority priority,
+                              String description, String followUpOf, long dueEpochMilli, OrderStatus status,
+                              long queuedNanos, int failures) {
+
+    DiagnosticOrder withStatus(OrderStatus status) {
+        return new DiagnosticOrder(orderId, patientId, modality, priority, description, followUpOf, dueEpochMilli,
+                status, queuedNanos, failures);
+    }
+
+    DiagnosticOrder queued(long nanos) {
+        return new DiagnosticOrder(orderId, patientId, modality, priority, description, followUpOf, dueEpochMilli,
+                OrderStatus.QUEUED, nanos, failures);
+    }
+
+    DiagnosticOrder failed(OrderStatus status) {
+        return new DiagnosticOrder(orderId, patientId, modality, priority, description, followUpOf, dueEpochMilli,
+                status, queuedNanos, failures + 1);
+    }
+}
@@ -2,12 +2,20 @@ package org.example.diagnostics;
 
 import io.github.vishalmysore.tools4ai.EnableAgent;
 import lombok.extern.java.Log;
+import org.example.common.FastPathController;
+import org.example.common.LazyAgentInitialization;
+import org.example.common.LoadSheddingConfiguration;
+import org.example.common.ReplicaRegistration;
+import org.example.common.metrics.MetricsConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.PropertySource;
 
 @SpringBootApplication
 @EnableAgent
+@Import({FastPathController.class, MetricsConfiguration.class, LoadSheddingConfiguration.class,
+        LazyAgentInitialization.class, ReplicaRegistration.class})
 @PropertySource("classpath:application-diagnostics.properties")
 @Log
 public class DiagnosticsServer {
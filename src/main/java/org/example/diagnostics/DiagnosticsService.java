@@ -2,145 +2,576 @@ package org.example.diagnostics;
 
 import com.t4a.annotations.Action;
 import com.t4a.annotations.Agent;
+import org.example.common.IdGenerator;
+import org.example.common.ResponseTemplate;
+import org.example.common.events.DomainEvent;
+import org.example.common.events.EventBus;
+import org.example.common.wal.FieldCodec;
+import org.example.common.wal.Journal;
+import org.example.common.wal.Journals;
+import org.example.common.wal.LogEntry;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.example.common.wal.FieldCodec.fields;
+
 @Agent(groupName = "diagnosticsOperations")
 @Service
 public class DiagnosticsService {
 
+    private static final ResponseTemplate ORDER_LAB_TESTS = ResponseTemplate.compile(
+            "Laboratory test ordered successfully!\n" +
+            "Lab Order ID: %s\n" +
+            "Patient ID: %s\n" +
+            "Test Type: %s\n" +
+            "Urgency: %s\n" +
+            "Priority: %s\n" +
+            "Ordered By: Dr. Smith\n" +
+            "Status: %s\n" +
+            "Orders Ahead: %d\n" +
+            "Expected Results: %s\n" +
+            "Lab Location: Medical Center - Lab Wing, Floor 2");
+
+    private static final ResponseTemplate GET_LAB_RESULTS = ResponseTemplate.compile(
+            "Laboratory Test Results\n" +
+            "Lab Order ID: %s\n" +
+            "=================================\n" +
+            "Patient ID: %s\n" +
+            "Test: %s\n" +
+            "Priority: %s\n" +
+            "Analyzer Status: %s\n" +
+            "Status: %s\n" +
+            "Result Date: %s\n\n" +
+            "Results:\n");
+
+    private static final ResponseTemplate LAB_ORDER_NOT_FOUND = ResponseTemplate.compile(
+            "No laboratory order found with ID %s");
+
+    private static final ResponseTemplate RECORD_LAB_RESULT = ResponseTemplate.compile(
+            "Lab result recorded\n" +
+            "Lab Order ID: %s\n" +
+            "Patient ID: %s\n" +
+            "Result:\n");
+
+    private static final ResponseTemplate UNKNOWN_ANALYTE = ResponseTemplate.compile(
+            "Unknown analyte '%s'. Use a lab test or vital sign such as Hemoglobin, LDL or Heart Rate");
+
+    private static final ResponseTemplate INVALID_VALUE = ResponseTemplate.compile(
+            "%s is not a valid %s result");
+
+    private static final ResponseTemplate ORDER_IMAGING_SCAN = ResponseTemplate.compile(
+            "Medical imaging scan ordered!\n" +
+            "Imaging Order ID: %s\n" +
+            "Patient ID: %s\n" +
+            "Scan Type: %s\n" +
+            "Body Part: %s\n" +
+            "Clinical Indication: %s\n" +
+            "Modality: %s\n" +
+            "Priority: %s\n" +
+            "Status: %s\n" +
+            "Orders Ahead: %d\n" +
+            "Expected Results: %s\n" +
+            "Location: Radiology Department - Room 105\n" +
+            "Preparation Instructions: No food 4 hours before scan");
+
+    private static final ResponseTemplate GET_IMAGING_RESULTS = ResponseTemplate.compile(
+            "Medical Imaging Results\n" +
+            "Imaging Order ID: %s\n" +
+            "=================================\n" +
+            "Scan Type: %s\n" +
+            "Scan Date: %s\n" +
+            "Status: COMPLETED\n\n" +
+            "FINDINGS:\n" +
+            "Lungs: Clear, no infiltrates or effusions\n" +
+            "Heart: Normal size and contour\n" +
+            "Mediastinum: Normal width\n" +
+            "Bones: No acute fractures identified\n\n" +
+            "IMPRESSION:\n" +
+            "Normal chest radiograph. No acute cardiopulmonary disease.\n\n" +
+            "Radiologist: Dr. Michael Chen, MD\n" +
+            "Report Finalized: %s");
+
+    private static final ResponseTemplate IMAGING_PENDING = ResponseTemplate.compile(
+            "Medical Imaging Results\n" +
+            "Imaging Order ID: %s\n" +
+            "=================================\n" +
+            "Scan Type: %s\n" +
+            "Priority: %s\n" +
+            "Status: %s\n" +
+            "Results will be available once the scan has been acquired and read");
+
+    private static final ResponseTemplate IMAGING_ORDER_NOT_FOUND = ResponseTemplate.compile(
+            "No imaging order found with ID %s");
+
+    private static final ResponseTemplate ANALYZE_DIAGNOSTIC_TRENDS = ResponseTemplate.compile(
+            "Diagnostic Trend Analysis for Patient %s\n" +
+            "=================================\n" +
+            "Analysis Type: %s\n" +
+            "Period: Last 12 months (%s to %s)\n" +
+            "Next Review: %s\n\n" +
+            "Trend Summary:\n");
+
+    private static final ResponseTemplate CREATE_DIAGNOSTIC_REPORT = ResponseTemplate.compile(
+            "Diagnostic Report Generated\n" +
+            "Patient ID: %s\n" +
+            "Report Type: %s\n" +
+            "=================================\n" +
+            "Report ID: %s\n" +
+            "Generated: %s\n\n" +
+            "CLINICAL SUMMARY:\n" +
+            "Chief Complaint: Annual physical examination\n" +
+            "Diagnosis: Patient in good general health\n\n" +
+            "DIAGNOSTIC FINDINGS:\n" +
+            "- Laboratory: All values within normal limits\n" +
+            "- Imaging: No abnormalities detected\n" +
+            "- Physical Exam: Unremarkable\n\n" +
+            "RECOMMENDATIONS:\n" +
+            "- Continue healthy lifestyle\n" +
+            "- Follow-up in 12 months\n" +
+            "- Maintain current medications\n\n" +
+            "Prepared By: Dr. Sarah Johnson, MD\n" +
+            "Report Status: FINALIZED");
+
+    private static final ResponseTemplate SCHEDULE_FOLLOW_UP_TESTS = ResponseTemplate.compile(
+            "Follow-up Diagnostic Tests Scheduled\n" +
+            "Patient ID: %s\n" +
+            "Previous Test ID: %s\n" +
+            "=================================\n" +
+            "Follow-up Test ID: %s\n" +
+            "Scheduled Date: %s at 9:00 AM\n" +
+            "Test Type: Repeat %s\n" +
+            "Reason: Monitor previous abnormal findings\n" +
+            "Location: %s\n" +
+            "Status: SCHEDULED\n" +
+            "Preparation: Fasting required (12 hours)");
+
+    static final String ORDER_STREAM = "lab-order";
+    static final String VALUE_STREAM = "lab-value";
+    static final String IMAGING_STREAM = "imaging-order";
+    static final String STUDY_STREAM = "imaging-study";
+    private static final String DEFAULT_FOLLOW_UP = "Complete Metabolic Panel";
+    private static final LocalTime FOLLOW_UP_TIME = LocalTime.of(9, 0);
+    private static final int TREND_MONTHS = 12;
+    private static final long TREND_WINDOW_SECONDS = TimeUnit.DAYS.toSeconds(30);
+    private static final LabSeriesStore.Series NO_READINGS = new LabSeriesStore.Series();
+
+    private final Journal journal;
+    private final LabSeriesStore series;
+    private final OrderDispatcher dispatcher;
+    private final ImagingBlobStore imagingBlobs;
+    private final EventBus events;
+    private final Map<String, String> studies = new ConcurrentHashMap<>();
+    private final Map<String, LabOrder> labOrders = new ConcurrentHashMap<>();
+
+    public DiagnosticsService() {
+        this(Journals.open("diagnostics"));
+    }
+
+    DiagnosticsService(Journal journal) {
+        this(journal, new LabSeriesStore(
+                Paths.get(System.getProperty("healthcare.data.dir", "data"), "diagnostics-series"),
+                Integer.getInteger("diagnostics.series.heap-chunks", 2048),
+                TimeUnit.DAYS.toSeconds(Long.getLong("diagnostics.series.retention-days", 0))));
+    }
+
+    DiagnosticsService(Journal journal, LabSeriesStore series) {
+        this(journal, series, new OrderDispatcher(journal));
+    }
+
+    DiagnosticsService(Journal journal, LabSeriesStore series, OrderDispatcher dispatcher) {
+        this(journal, series, dispatcher,
+                new ImagingBlobStore(Paths.get(System.getProperty("healthcare.data.dir", "data"), "imaging-blobs")));
+    }
+
+    DiagnosticsService(Journal journal, LabSeriesStore series, OrderDispatcher dispatcher,
+                       ImagingBlobStore imagingBlobs) {
+        this(journal, series, dispatcher, imagingBlobs, EventBus.shared());
+    }
+
+    DiagnosticsService(Journal journal, LabSeriesStore series, OrderDispatcher dispatcher,
+                       ImagingBlobStore imagingBlobs, EventBus events) {
+        this.journal = journal;
+        this.series = series;
+        this.dispatcher = dispatcher;
+        this.imagingBlobs = imagingBlobs;
+        this.events = events;
+        journal.replay(this::recover);
+    }
+
     @Action(description = "Order laboratory tests for a patient")
     public String orderLabTests(String patientId, String testType, String urgency) {
-        String labOrderId = "LAB-" + (System.currentTimeMillis() % 100000);
-        return String.format("Laboratory test ordered successfully!\n" +
-               "Lab Order ID: %s\n" +
-               "Patient ID: %s\n" +
-               "Test Type: %s\n" +
-               "Urgency: %s\n" +
-               "Ordered By: Dr. Smith\n" +
-               "Status: PENDING\n" +
-               "Expected Results: %s\n" +
-               "Lab Location: Medical Center - Lab Wing, Floor 2", 
-               labOrderId, patientId, testType, urgency,
-               urgency.equalsIgnoreCase("URGENT") ? "24 hours" : "3-5 business days");
+        String labOrderId = IdGenerator.next("LAB");
+        LocalDateTime now = LocalDateTime.now();
+        labOrders.put(labOrderId, new LabOrder(labOrderId, patientId, testType, urgency, now));
+        journal.append(ORDER_STREAM, labOrderId, fields("patientId", patientId, "testType", testType,
+                "urgency", urgency, "ordered", now.toString()));
+        Priority priority = Priority.fromUrgency(urgency);
+        int ahead = dispatcher.ahead(Modality.LAB, priority);
+        DiagnosticOrder order = dispatcher.submit(labOrderId, patientId, Modality.LAB, priority, testType, null, 0);
+        return ORDER_LAB_TESTS.render().arg(labOrderId).arg(patientId).arg(testType).arg(urgency).arg(priority)
+                .arg(order.status()).arg(ahead).arg(priority.turnaround()).build();
+    }
+
+    @Action(description = "Record a laboratory result or vital sign value for a lab order")
+    public String recordLabResult(String labOrderId, String analyteName, double value) {
+        LabOrder order = labOrders.get(labOrderId);
+        if (order == null) {
+            return LAB_ORDER_NOT_FOUND.render().arg(labOrderId).build();
+        }
+        Analyte analyte = Analyte.fromName(analyteName);
+        if (analyte == null) {
+            return UNKNOWN_ANALYTE.render().arg(analyteName).build();
+        }
+        if (!Double.isFinite(value)) {
+            return INVALID_VALUE.render().arg(value).arg(analyte.label()).build();
+        }
+        boolean wasCompleted = order.status().equals("COMPLETED");
+        long second = record(order.patientId, analyte, Instant.now().getEpochSecond(), value, labOrderId);
+        order.record(analyte, value, LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault()));
+        if (!wasCompleted && order.status().equals("COMPLETED")) {
+            events.publish(new DomainEvent.LabResultReady(labOrderId, order.patientId, order.testType,
+                    outOfRange(order), Instant.ofEpochSecond(second)));
+        }
+        StringBuilder result = new StringBuilder(128);
+        resultLine(result, analyte, value);
+        return RECORD_LAB_RESULT.render().arg(labOrderId).arg(order.patientId)
+                .text(result).text("Status: ").text(order.status()).build();
     }
 
     @Action(description = "Get laboratory test results")
     public String getLabResults(String labOrderId) {
-        return String.format("Laboratory Test Results\n" +
-               "Lab Order ID: %s\n" +
-               "=================================\n" +
-               "Test: Complete Blood Count (CBC)\n" +
-               "Status: COMPLETED\n" +
-               "Result Date: %s\n\n" +
-               "Results:\n" +
-               "  White Blood Cells: 7.5 K/uL (Normal: 4.5-11.0)\n" +
-               "  Red Blood Cells: 4.8 M/uL (Normal: 4.5-5.5)\n" +
-               "  Hemoglobin: 14.5 g/dL (Normal: 13.5-17.5)\n" +
-               "  Platelets: 250 K/uL (Normal: 150-400)\n" +
-               "  Hematocrit: 42%% (Normal: 38-50%%)\n\n" +
-               "Overall: NORMAL RANGE\n" +
-               "Reviewed By: Dr. Sarah Johnson\n" +
-               "Notes: All values within normal limits", 
-               labOrderId, java.time.LocalDate.now());
+        LabOrder order = labOrders.get(labOrderId);
+        if (order == null) {
+            return LAB_ORDER_NOT_FOUND.render().arg(labOrderId).build();
+        }
+        StringBuilder results = new StringBuilder(512);
+        int outOfRange = 0;
+        for (Analyte analyte : order.analytes) {
+            Double value = order.result(analyte);
+            if (value == null) {
+                results.append("  ").append(analyte.label()).append(": pending (Normal: ").append(number(analyte.low()))
+                        .append('-').append(number(analyte.high())).append(")\n");
+            } else {
+                outOfRange += resultLine(results, analyte, value) ? 0 : 1;
+            }
+        }
+        for (Map.Entry<Analyte, Double> extra : order.results().entrySet()) {
+            if (!order.analytes.contains(extra.getKey())) {
+                outOfRange += resultLine(results, extra.getKey(), extra.getValue()) ? 0 : 1;
+            }
+        }
+        if (results.length() == 0) {
+            results.append("  No results recorded yet\n");
+        }
+        String status = order.status();
+        results.append("\nOverall: ");
+        if (outOfRange > 0) {
+            results.append("ABNORMAL - ").append(outOfRange).append(" value(s) outside the reference range");
+        } else if (status.equals("COMPLETED")) {
+            results.append("NORMAL RANGE");
+        } else {
+            results.append("Awaiting results");
+        }
+        LabPanel panel = LabPanel.fromName(order.testType);
+        LocalDateTime resulted = order.resulted();
+        DiagnosticOrder dispatched = dispatcher.find(labOrderId);
+        return GET_LAB_RESULTS.render().arg(labOrderId).arg(order.patientId)
+                .arg(panel == null ? order.testType : panel.label())
+                .arg(dispatched == null ? Priority.fromUrgency(order.urgency) : dispatched.priority())
+                .arg(dispatched == null ? "UNKNOWN" : dispatched.status().name()).arg(status)
+                .arg(resulted == null ? "pending" : resulted.toLocalDate().toString()).text(results).build();
     }
 
     @Action(description = "Order medical imaging scan")
     public String orderImagingScan(String patientId, String scanType, String bodyPart, String indication) {
-        String imagingOrderId = "IMG-" + (System.currentTimeMillis() % 100000);
-        return String.format("Medical imaging scan ordered!\n" +
-               "Imaging Order ID: %s\n" +
-               "Patient ID: %s\n" +
-               "Scan Type: %s\n" +
-               "Body Part: %s\n" +
-               "Clinical Indication: %s\n" +
-               "Status: SCHEDULED\n" +
-               "Scheduled Date: %s at 2:00 PM\n" +
-               "Location: Radiology Department - Room 105\n" +
-               "Preparation Instructions: No food 4 hours before scan", 
-               imagingOrderId, patientId, scanType, bodyPart, indication,
-               java.time.LocalDate.now().plusDays(2));
+        String imagingOrderId = IdGenerator.next("IMG");
+        journal.append(IMAGING_STREAM, imagingOrderId, fields("patientId", patientId, "scanType", scanType,
+                "bodyPart", bodyPart, "indication", indication));
+        Modality modality = Modality.fromScanType(scanType);
+        Priority priority = Priority.fromIndication(indication);
+        int ahead = dispatcher.ahead(modality, priority);
+        DiagnosticOrder order = dispatcher.submit(imagingOrderId, patientId, modality, priority,
+                scanType + " - " + bodyPart, null, 0);
+        return ORDER_IMAGING_SCAN.render().arg(imagingOrderId).arg(patientId).arg(scanType).arg(bodyPart)
+                .arg(indication).arg(modality).arg(priority).arg(order.status()).arg(ahead)
+                .arg(priority.turnaround()).build();
     }
 
     @Action(description = "Get imaging scan results")
     public String getImagingResults(String imagingOrderId) {
-        return String.format("Medical Imaging Results\n" +
-               "Imaging Order ID: %s\n" +
-               "=================================\n" +
-               "Scan Type: Chest X-Ray\n" +
-               "Scan Date: %s\n" +
-               "Status: COMPLETED\n\n" +
-               "FINDINGS:\n" +
-               "Lungs: Clear, no infiltrates or effusions\n" +
-               "Heart: Normal size and contour\n" +
-               "Mediastinum: Normal width\n" +
-               "Bones: No acute fractures identified\n\n" +
-               "IMPRESSION:\n" +
-               "Normal chest radiograph. No acute cardiopulmonary disease.\n\n" +
-               "Radiologist: Dr. Michael Chen, MD\n" +
-               "Report Finalized: %s", 
-               imagingOrderId, java.time.LocalDate.now(),
-               java.time.LocalDateTime.now());
+        DiagnosticOrder order = dispatcher.find(imagingOrderId);
+        if (order == null || order.modality() == Modality.LAB) {
+            return IMAGING_ORDER_NOT_FOUND.render().arg(imagingOrderId).build();
+        }
+        ResponseTemplate.Renderer results = order.status() != OrderStatus.COMPLETED
+                ? IMAGING_PENDING.render().arg(imagingOrderId).arg(order.description()).arg(order.priority())
+                        .arg(order.status())
+                : GET_IMAGING_RESULTS.render().arg(imagingOrderId).arg(order.description())
+                        .arg(java.time.LocalDate.now()).arg(java.time.LocalDateTime.now());
+        String digest = studies.get(imagingOrderId);
+        if (digest != null) {
+            results.text("\nStudy: ").text(digest).text("\nDownload: /diagnostics/imaging/").text(imagingOrderId)
+                    .text("/study");
+        }
+        return results.build();
     }
 
     @Action(description = "Analyze diagnostic trends")
     public String analyzeDiagnosticTrends(String patientId, String diagnosticType) {
-        return String.format("Diagnostic Trend Analysis for Patient %s\n" +
-               "=================================\n" +
-               "Analysis Type: %s\n" +
-               "Period: Last 12 months\n\n" +
-               "Trend Summary:\n" +
-               "  Blood Glucose: Stable (95-110 mg/dL)\n" +
-               "  Blood Pressure: Improving (now 120/80, was 140/90)\n" +
-               "  Cholesterol: Decreased (now 180, was 220)\n" +
-               "  HbA1c: Stable at 5.8%% (Normal)\n\n" +
-               "Key Observations:\n" +
-               "- Medication adherence showing positive results\n" +
-               "- Lifestyle modifications effective\n" +
-               "- Continue current treatment plan\n\n" +
-               "Next Review: %s", 
-               patientId, diagnosticType,
-               java.time.LocalDate.now().plusMonths(3));
+        long to = Instant.now().getEpochSecond();
+        LocalDate today = LocalDate.now();
+        long from = to - TimeUnit.DAYS.toSeconds(ChronoUnit.DAYS.between(today.minusMonths(TREND_MONTHS), today));
+        List<Analyte> analytes = LabPanel.analytesOf(diagnosticType);
+        StringBuilder summary = new StringBuilder(512);
+        StringBuilder observations = new StringBuilder(256);
+        boolean anyReadings = false;
+        for (Analyte analyte : analytes.isEmpty() ? List.of(Analyte.values()) : analytes) {
+            TrendAnalysis.Trend trend = trend(patientId, analyte, from, to, TREND_WINDOW_SECONDS);
+            if (trend.count() == 0) {
+                if (!analytes.isEmpty()) {
+                    summary.append("  ").append(analyte.label()).append(": no readings in the period\n");
+                }
+                continue;
+            }
+            anyReadings = true;
+            summarize(trend, summary, observations);
+        }
+        if (summary.length() == 0) {
+            summary.append("  No readings recorded in the period\n");
+        }
+        if (observations.length() == 0) {
+            observations.append(anyReadings ? "- All readings within reference ranges\n"
+                    : "- Record lab results to build a trend\n");
+        }
+        return ANALYZE_DIAGNOSTIC_TRENDS.render().arg(patientId).arg(diagnosticType)
+                .arg(today.minusMonths(TREND_MONTHS)).arg(today).arg(today.plusMonths(3))
+                .text(summary).text("\nKey Observations:\n").text(observations).build();
     }
 
     @Action(description = "Create diagnostic report")
     public String createDiagnosticReport(String patientId, String diagnosisType) {
-        return String.format("Diagnostic Report Generated\n" +
-               "Patient ID: %s\n" +
-               "Report Type: %s\n" +
-               "=================================\n" +
-               "Report ID: DIAG-RPT-%d\n" +
-               "Generated: %s\n\n" +
-               "CLINICAL SUMMARY:\n" +
-               "Chief Complaint: Annual physical examination\n" +
-               "Diagnosis: Patient in good general health\n\n" +
-               "DIAGNOSTIC FINDINGS:\n" +
-               "- Laboratory: All values within normal limits\n" +
-               "- Imaging: No abnormalities detected\n" +
-               "- Physical Exam: Unremarkable\n\n" +
-               "RECOMMENDATIONS:\n" +
-               "- Continue healthy lifestyle\n" +
-               "- Follow-up in 12 months\n" +
-               "- Maintain current medications\n\n" +
-               "Prepared By: Dr. Sarah Johnson, MD\n" +
-               "Report Status: FINALIZED", 
-               patientId, diagnosisType, System.currentTimeMillis() % 100000,
-               java.time.LocalDateTime.now());
+        String reportId = IdGenerator.next("DIAG-RPT");
+        Instant now = Instant.now();
+        events.publish(new DomainEvent.DiagnosticReportCreated(reportId, patientId, diagnosisType, now));
+        return CREATE_DIAGNOSTIC_REPORT.render().arg(patientId).arg(diagnosisType)
+                .arg(reportId).arg(LocalDateTime.ofInstant(now, ZoneId.systemDefault())).build();
     }
 
     @Action(description = "Schedule follow-up diagnostic tests")
     public String scheduleFollowUpTests(String patientId, String previousTestId) {
-        return String.format("Follow-up Diagnostic Tests Scheduled\n" +
-               "Patient ID: %s\n" +
-               "Previous Test ID: %s\n" +
-               "=================================\n" +
-               "Follow-up Test ID: LAB-%d\n" +
-               "Scheduled Date: %s at 9:00 AM\n" +
-               "Test Type: Repeat Complete Metabolic Panel\n" +
-               "Reason: Monitor previous abnormal findings\n" +
-               "Location: Medical Center - Lab Wing\n" +
-               "Status: SCHEDULED\n" +
-               "Preparation: Fasting required (12 hours)", 
-               patientId, previousTestId, System.currentTimeMillis() % 100000,
-               java.time.LocalDate.now().plusWeeks(2));
+        DiagnosticOrder previous = dispatcher.find(previousTestId);
+        Modality modality = previous == null ? Modality.LAB : previous.modality();
+        String description = previous == null ? DEFAULT_FOLLOW_UP : previous.description();
+        LocalDate date = LocalDate.now().plusWeeks(2);
+        long due = date.atTime(FOLLOW_UP_TIME).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String followUpId;
+        if (modality == Modality.LAB) {
+            followUpId = IdGenerator.next("LAB");
+            LocalDateTime now = LocalDateTime.now();
+            labOrders.put(followUpId, new LabOrder(followUpId, patientId, description, Priority.ROUTINE.name(), now));
+            journal.append(ORDER_STREAM, followUpId, fields("patientId", patientId, "testType", description,
+                    "urgency", Priority.ROUTINE.name(), "ordered", now.toString(), "followUpOf", previousTestId));
+        } else {
+            followUpId = IdGenerator.next("IMG");
+            journal.append(IMAGING_STREAM, followUpId, fields("patientId", patientId, "scanType", description,
+                    "indication", "Follow-up of " + previousTestId, "followUpOf", previousTestId));
+        }
+        dispatcher.submit(followUpId, patientId, modality, Priority.ROUTINE, description, previousTestId, due);
+        return SCHEDULE_FOLLOW_UP_TESTS.render().arg(patientId).arg(previousTestId).arg(followUpId).arg(date)
+                .arg(description).arg(modality == Modality.LAB ? "Medical Center - Lab Wing"
+                        : "Radiology Department - " + modality.label()).build();
+    }
+
+    /**
+     * Stores the study data of an imaging order, e.g. as pushed by the modality or PACS, replacing any
+     * earlier study of the order.
+     *
+     * @return the stored blob, or {@code null} if there is no such imaging order
+     */
+    public ImagingBlobStore.Blob attachStudy(String imagingOrderId, ReadableByteChannel in) throws IOException {
+        DiagnosticOrder order = dispatcher.find(imagingOrderId);
+        if (order == null || order.modality() == Modality.LAB) {
+            return null;
+        }
+        ImagingBlobStore.Blob blob = imagingBlobs.put(in);
+        studies.put(imagingOrderId, blob.digest());
+        journal.append(STUDY_STREAM, imagingOrderId,
+                fields("digest", blob.digest(), "size", Long.toString(blob.size())));
+        return blob;
+    }
+
+    /**
+     * @return the study data of an imaging order, or {@code null} if none was stored
+     */
+    public ImagingBlobStore.Blob study(String imagingOrderId) throws IOException {
+        String digest = studies.get(imagingOrderId);
+        return digest == null ? null : imagingBlobs.find(digest);
+    }
+
+    public ImagingBlobStore imagingBlobs() {
+        return imagingBlobs;
+    }
+
+    /**
+     * Adds one reading to the patient's series, e.g. from a device feed.
+     *
+     * @return {@code false} if it is older than the latest reading of the series
+     */
+    public boolean ingest(String patientId, Analyte analyte, long epochSecond, double value) {
+        int index = series.append(patientId, analyte, epochSecond, value);
+        if (index < 0) {
+            return false;
+        }
+        journal.append(VALUE_STREAM, valueKey(patientId, analyte, epochSecond, index),
+                fields("value", Double.toString(value)));
+        return true;
+    }
+
+    /**
+     * Trend of the readings taken in {@code [fromSecond, toSecond]}, with moving averages over consecutive
+     * {@code windowSeconds} windows ending at {@code toSecond}.
+     */
+    public TrendAnalysis.Trend trend(String patientId, Analyte analyte, long fromSecond, long toSecond,
+                                     long windowSeconds) {
+        LabSeriesStore.Series readings = series.series(patientId, analyte);
+        return TrendAnalysis.analyze(readings == null ? NO_READINGS : readings, analyte, fromSecond, toSecond,
+                windowSeconds);
+    }
+
+    /**
+     * Appends a result to the series, moving it up to the series' latest second if the clock went back.
+     *
+     * @return the second it was recorded at
+     */
+    private long record(String patientId, Analyte analyte, long epochSecond, double value, String labOrderId) {
+        long second = epochSecond;
+        int index;
+        while ((index = series.append(patientId, analyte, second, value)) < 0) {
+            second = series.series(patientId, analyte).lastSecond();
+        }
+        journal.append(VALUE_STREAM, valueKey(patientId, analyte, second, index),
+                fields("value", Double.toString(value), "orderId", labOrderId));
+        return second;
+    }
+
+    /**
+     * {@code patientId/ANALYTE/epochSecond}, with {@code .n} appended for the n-th further point of the same
+     * second.
+     */
+    private static String valueKey(String patientId, Analyte analyte, long epochSecond, int index) {
+        String key = patientId + '/' + analyte.name() + '/' + epochSecond;
+        return index == 0 ? key : key + '.' + index;
+    }
+
+    private void recover(LogEntry entry) {
+        if (entry.isTombstone()) {
+            return;
+        }
+        if (ORDER_STREAM.equals(entry.stream())) {
+            Map<String, String> fields = FieldCodec.decode(entry.payload());
+            String ordered = fields.get("ordered");
+            labOrders.put(entry.key(), new LabOrder(entry.key(), fields.get("patientId"), fields.get("testType"),
+                    fields.get("urgency"), ordered == null ? LocalDateTime.now() : LocalDateTime.parse(ordered)));
+        } else if (STUDY_STREAM.equals(entry.stream())) {
+            studies.put(entry.key(), FieldCodec.decode(entry.payload()).get("digest"));
+        } else if (VALUE_STREAM.equals(entry.stream())) {
+            String key = entry.key();
+            int secondAt = key.lastIndexOf('/');
+            int analyteAt = key.lastIndexOf('/', secondAt - 1);
+            Analyte analyte = Analyte.valueOf(key.substring(analyteAt + 1, secondAt));
+            int indexAt = key.indexOf('.', secondAt);
+            long second = Long.parseLong(key.substring(secondAt + 1, indexAt < 0 ? key.length() : indexAt));
+            Map<String, String> fields = FieldCodec.decode(entry.payload());
+            double value = Double.parseDouble(fields.get("value"));
+            series.append(key.substring(0, analyteAt), analyte, second, value);
+            LabOrder order = fields.containsKey("orderId") ? labOrders.get(fields.get("orderId")) : null;
+            if (order != null) {
+                order.record(analyte, value, LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault()));
+            }
+        }
+    }
+
+    private static void summarize(TrendAnalysis.Trend trend, StringBuilder summary, StringBuilder observations) {
+        Analyte analyte = trend.analyte();
+        summary.append("  ").append(analyte.label()).append(": ").append(trend.direction());
+        double[] windows = trend.windowAverages();
+        double earliest = Double.NaN;
+        for (int window = windows.length - 1; window >= 0 && Double.isNaN(earliest); window--) {
+            earliest = windows[window];
+        }
+        if (!Double.isNaN(windows[0]) && !Double.isNaN(earliest) && earliest != windows[0]) {
+            summary.append(" (30-day average now ").append(number(windows[0])).append(", was ")
+                    .append(number(earliest)).append(' ').append(analyte.unit()).append(')');
+        } else {
+            summary.append(" (average ").append(number(trend.mean())).append(' ').append(analyte.unit()).append(')');
+        }
+        summary.append(", latest ").append(number(trend.latest())).append(' ').append(analyte.unit())
+                .append(", range ").append(number(trend.min())).append('-').append(number(trend.max()))
+                .append(", ").append(trend.count()).append(trend.count() == 1 ? " reading\n" : " readings\n");
+
+        int outside = trend.belowRange() + trend.aboveRange();
+        if (outside > 0) {
+            observations.append("- ").append(analyte.label()).append(": ").append(outside).append(" of ")
+                    .append(trend.count()).append(" readings outside ").append(number(analyte.low())).append('-')
+                    .append(number(analyte.high())).append(' ').append(analyte.unit()).append(" (")
+                    .append(trend.belowRange()).append(" low, ").append(trend.aboveRange()).append(" high");
+            if (trend.longestOutOfRange() > 1) {
+                observations.append(", up to ").append(trend.longestOutOfRange()).append(" in a row");
+            }
+            observations.append(")\n");
+        }
+        if (trend.latest() < analyte.low() || trend.latest() > analyte.high()) {
+            observations.append("- Latest ").append(analyte.label()).append(" is ")
+                    .append(trend.latest() < analyte.low() ? "below" : "above").append(" the reference range\n");
+        }
+    }
+
+    /**
+     * Appends "  Hemoglobin: 14.5 g/dL (Normal: 13.5-17.5)" and a LOW/HIGH flag.
+     *
+     * @return whether the value is within the reference range
+     */
+    private static boolean resultLine(StringBuilder out, Analyte analyte, double value) {
+        out.append("  ").append(analyte.label()).append(": ").append(number(value)).append(' ')
+                .append(analyte.unit()).append(" (Normal: ").append(number(analyte.low())).append('-')
+                .append(number(analyte.high())).append(')');
+        boolean normal = value >= analyte.low() && value <= analyte.high();
+        if (!normal) {
+            out.append(value < analyte.low() ? " LOW" : " HIGH");
+        }
+        out.append('\n');
+        return normal;
+    }
+
+    private static int outOfRange(LabOrder order) {
+        int outOfRange = 0;
+        for (Map.Entry<Analyte, Double> result : order.results().entrySet()) {
+            Analyte analyte = result.getKey();
+            double value = result.getValue();
+            outOfRange += value >= analyte.low() && value <= analyte.high() ? 0 : 1;
+        }
+        return outOfRange;
+    }
+
+    private static String number(double value) {
+        if (Double.isNaN(value)) {
+            return "-";
+        }
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
     }
 }
@@ -0,0 +1,267 @@
+package org.example.diagnostics;
+
+import lombok.extern.java.Log;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.zip.CRC32C;
+
+/**
+ * Content-addressed store for imaging studies. A blob is named by the SHA-256 of its bytes and kept as one
+ * file under {@code <directory>/<first two hex digits>/}, next to a {@code .crc} file holding the CRC32C of
+ * every {@code chunkBytes} chunk, so a client can check each piece of a resumed or ranged download on its own.
+ * Storing the same study twice keeps one copy.
+ * <p>
+ * Bytes move between channels through one direct buffer per upload and {@link FileChannel#transferTo} on the
+ * way out; a study never becomes a heap array or {@code String}, however large it is.
+ */
+@Log
+public final class ImagingBlobStore {
+
+    private static final String TEMPORARY_SUFFIX = ".upload";
+    private static final String CHECKSUM_SUFFIX = ".crc";
+    private static final int IO_BUFFER_BYTES = 1 << 20;
+    private static final HexFormat HEX = HexFormat.of();
+
+    /**
+     * @param checksums CRC32C of each {@code chunkBytes} chunk; the last one may be shorter
+     */
+    public record Blob(String digest, long size, int chunkBytes, int[] checksums, Path path) {
+
+        public int chunks() {
+            return checksums.length;
+        }
+    }
+
+    private final Path directory;
+    private final int chunkBytes;
+    private final Map<String, Blob> blobs = new ConcurrentHashMap<>();
+
+    public ImagingBlobStore(Path directory) {
+        this(directory, Integer.getInteger("diagnostics.blobs.chunk-bytes", 4 << 20));
+    }
+
+    public ImagingBlobStore(Path directory, int chunkBytes) {
+        this.directory = directory;
+        this.chunkBytes = chunkBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create blob directory " + directory, e);
+        }
+    }
+
+    /**
+     * Reads {@code in} to its end and stores it.
+     *
+     * @return the stored blob, which may have been there already
+     */
+    public Blob put(ReadableByteChannel in) throws IOException {
+        MessageDigest sha256 = sha256();
+        CRC32C crc = new CRC32C();
+        int[] checksums = new int[16];
+        int chunks = 0;
+        long chunkFill = 0;
+        long size = 0;
+        Path temporary = Files.createTempFile(directory, "blob-", TEMPORARY_SUFFIX);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_BYTES);
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (in.read(buffer) >= 0) {
+                    buffer.flip();
+                    int end = buffer.limit();
+                    while (buffer.position() < end) {
+                        int take = (int) Math.min(end - buffer.position(), chunkBytes - chunkFill);
+                        buffer.limit(buffer.position() + take);
+                        crc.update(buffer.duplicate());
+                        sha256.update(buffer.duplicate());
+                        buffer.position(buffer.limit());
+                        chunkFill += take;
+                        if (chunkFill == chunkBytes) {
+                            checksums = append(checksums, chunks++, (int) crc.getValue());
+                            crc.reset();
+                            chunkFill = 0;
+                        }
+                    }
+                    buffer.position(0).limit(end);
+                    size += end;
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                if (chunkFill > 0) {
+                    checksums = append(checksums, chunks++, (int) crc.getValue());
+                }
+                out.force(true);
+            }
+            String digest = HEX.formatHex(sha256.digest());
+            Blob blob = new Blob(digest, size, chunkBytes, Arrays.copyOf(checksums, chunks), dataPath(digest));
+            Blob existing = find(digest);
+            if (existing != null) {
+                return existing;
+            }
+            Files.createDirectories(blob.path().getParent());
+            writeChecksums(blob);
+            move(temporary, blob.path());
+            blobs.put(digest, blob);
+            return blob;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * @return the blob, or {@code null} if none has this digest
+     */
+    public Blob find(String digest) throws IOException {
+        if (digest == null || digest.length() != 64 || !digest.chars().allMatch(HexFormat::isHexDigit)) {
+            return null;
+        }
+        String key = digest.toLowerCase(Locale.ROOT);
+        Blob blob = blobs.get(key);
+        if (blob != null) {
+            return blob;
+        }
+        Path data = dataPath(key);
+        Path sums = checksumPath(key);
+        if (!Files.exists(data) || !Files.exists(sums)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(sums))) {
+            long size = in.readLong();
+            int blobChunkBytes = in.readInt();
+            int[] checksums = new int[in.readInt()];
+            for (int i = 0; i < checksums.length; i++) {
+                checksums[i] = in.readInt();
+            }
+            blob = new Blob(key, size, blobChunkBytes, checksums, data);
+        }
+        blobs.put(key, blob);
+        return blob;
+    }
+
+    /**
+     * Copies {@code count} bytes from {@code position} to {@code target}, letting the OS move them directly
+     * when the target is a socket or file.
+     */
+    public void transferTo(Blob blob, long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel in = FileChannel.open(blob.path(), StandardOpenOption.READ)) {
+            long sent = 0;
+            while (sent < count) {
+                long moved = in.transferTo(position + sent, count - sent, target);
+                if (moved <= 0) {
+                    if (position + sent >= in.size()) {
+                        throw new IOException("Blob " + blob.digest() + " is shorter than recorded");
+                    }
+                    continue;
+                }
+                sent += moved;
+            }
+        }
+    }
+
+    /**
+     * Recomputes the chunk checksums of a stored blob.
+     *
+     * @return the index of the first chunk that no longer matches, or -1 if all do
+     */
+    public int verify(Blob blob) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_BYTES);
+        CRC32C crc = new CRC32C();
+        try (FileChannel in = FileChannel.open(blob.path(), StandardOpenOption.READ)) {
+            for (int chunk = 0; chunk < blob.chunks(); chunk++) {
+                long start = (long) chunk * blob.chunkBytes();
+                long end = Math.min(blob.size(), start + blob.chunkBytes());
+                crc.reset();
+                for (long position = start; position < end; ) {
+                    buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                    int read = in.read(buffer, position);
+                    if (read < 0) {
+                        return chunk;
+                    }
+                    buffer.flip();
+                    crc.update(buffer);
+                    position += read;
+                }
+                if ((int) crc.getValue() != blob.checksums()[chunk]) {
+                    return chunk;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private Path dataPath(String digest) {
+        return directory.resolve(digest.substring(0, 2)).resolve(digest);
+    }
+
+    private Path checksumPath(String digest) {
+        return directory.resolve(digest.substring(0, 2)).resolve(digest + CHECKSUM_SUFFIX);
+    }
+
+    /**
+     * Written before the data is moved into place, so a blob whose data file exists always has its checksums.
+     */
+    private void writeChecksums(Blob blob) throws IOException {
+        Path temporary = Files.createTempFile(blob.path().getParent(), "crc-", TEMPORARY_SUFFIX);
+        try {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))) {
+                out.writeLong(blob.size());
+                out.writeInt(blob.chunkBytes());
+                out.writeInt(blob.chunks());
+                for (int checksum : blob.checksums()) {
+                    out.writeInt(checksum);
+                }
+            }
+            move(temporary, checksumPath(blob.digest()));
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Stored concurrently by another upload of the same bytes.
+        } catch (AtomicMoveNotSupportedException e) {
+            log.log(Level.FINE, "Atomic move not supported, copying " + to, e);
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static int[] append(int[] values, int index, int value) {
+        int[] target = index == values.length ? Arrays.copyOf(values, index * 2) : values;
+        target[index] = value;
+        return target;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
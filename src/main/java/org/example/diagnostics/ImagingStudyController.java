@@ -0,0 +1,195 @@
+package org.example.diagnostics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Imaging study data, streamed from the {@link ImagingBlobStore} without passing through the heap:
+ * <ul>
+ *     <li>{@code PUT /diagnostics/imaging/{orderId}/study} - raw study body (e.g. DICOM); returns a {@link Study}</li>
+ *     <li>{@code GET /diagnostics/imaging/{orderId}/study} - the study of an imaging order</li>
+ *     <li>{@code GET /diagnostics/blobs/{digest}} - any stored study by its SHA-256, cacheable forever</li>
+ *     <li>{@code GET /diagnostics/blobs/{digest}/checksums} - the CRC32C of each chunk, as {@link Checksums}</li>
+ * </ul>
+ * Downloads honour a single {@code Range: bytes=} range, so an interrupted transfer resumes where it stopped
+ * and each received chunk can be checked against its checksum. When Tomcat supports sendfile the kernel sends
+ * the file; otherwise {@link java.nio.channels.FileChannel#transferTo} copies it into the response.
+ */
+@RestController
+@RequestMapping("/diagnostics")
+public class ImagingStudyController {
+
+    private static final String STUDY_TYPE = "application/dicom";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final HexFormat HEX = HexFormat.of();
+
+    public record Study(String orderId, String digest, long size, int chunkBytes, int chunks, String url) {
+    }
+
+    /**
+     * @param checksums one per {@code chunkBytes} chunk, as eight hex digits
+     */
+    public record Checksums(String digest, long size, int chunkBytes, String algorithm, List<String> checksums) {
+    }
+
+    /**
+     * An inclusive byte range; {@link #UNSATISFIABLE} when none of the requested bytes exist.
+     */
+    record ByteRange(long start, long end) {
+
+        static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+        long length() {
+            return end - start + 1;
+        }
+    }
+
+    private final DiagnosticsService service;
+
+    public ImagingStudyController(DiagnosticsService service) {
+        this.service = service;
+    }
+
+    @PutMapping(path = "/imaging/{orderId}/study", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Study upload(@PathVariable("orderId") String orderId, HttpServletRequest request) throws IOException {
+        ImagingBlobStore.Blob blob = service.attachStudy(orderId, Channels.newChannel(request.getInputStream()));
+        if (blob == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown imaging order " + orderId);
+        }
+        return new Study(orderId, blob.digest(), blob.size(), blob.chunkBytes(), blob.chunks(),
+                "/diagnostics/blobs/" + blob.digest());
+    }
+
+    @GetMapping("/imaging/{orderId}/study")
+    public void study(@PathVariable("orderId") String orderId, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        ImagingBlobStore.Blob blob = service.study(orderId);
+        if (blob == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No study for imaging order " + orderId);
+        }
+        send(blob, request, response);
+    }
+
+    @GetMapping("/blobs/{digest}")
+    public void blob(@PathVariable("digest") String digest, HttpServletRequest request,
+                     HttpServletResponse response) throws IOException {
+        ImagingBlobStore.Blob blob = find(digest);
+        response.setHeader("Cache-Control", "public, max-age=31536000, immutable");
+        send(blob, request, response);
+    }
+
+    @GetMapping(path = "/blobs/{digest}/checksums", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Checksums checksums(@PathVariable("digest") String digest) throws IOException {
+        ImagingBlobStore.Blob blob = find(digest);
+        List<String> checksums = new ArrayList<>(blob.chunks());
+        for (int checksum : blob.checksums()) {
+            checksums.add(HEX.toHexDigits(checksum));
+        }
+        return new Checksums(blob.digest(), blob.size(), blob.chunkBytes(), "CRC32C", checksums);
+    }
+
+    private ImagingBlobStore.Blob find(String digest) throws IOException {
+        ImagingBlobStore.Blob blob = service.imagingBlobs().find(digest);
+        if (blob == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown blob " + digest);
+        }
+        return blob;
+    }
+
+    private void send(ImagingBlobStore.Blob blob, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String etag = '"' + blob.digest() + '"';
+        response.setHeader("ETag", etag);
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("Repr-Digest", "sha-256=:"
+                + Base64.getEncoder().encodeToString(HEX.parseHex(blob.digest())) + ":");
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        ByteRange range = new ByteRange(0, blob.size() - 1);
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null || ifRange.equals(etag)) {
+            ByteRange requested = parseRange(request.getHeader("Range"), blob.size());
+            if (requested == ByteRange.UNSATISFIABLE) {
+                response.setHeader("Content-Range", "bytes */" + blob.size());
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (requested != null) {
+                range = requested;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range",
+                        "bytes " + range.start() + "-" + range.end() + "/" + blob.size());
+            }
+        }
+        response.setContentType(STUDY_TYPE);
+        response.setContentLengthLong(range.length());
+        if (range.length() <= 0 || "HEAD".equals(request.getMethod())) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, blob.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, range.start());
+            request.setAttribute(SENDFILE_END, range.end() + 1);
+            return;
+        }
+        service.imagingBlobs().transferTo(blob, range.start(), range.length(),
+                Channels.newChannel(response.getOutputStream()));
+    }
+
+    /**
+     * Reads a single-range {@code bytes=} header: {@code a-b}, {@code a-} or the suffix {@code -n}.
+     *
+     * @return the range clamped to the blob, {@code null} to send the whole blob (no header, several ranges or
+     * an unreadable one), or {@link ByteRange#UNSATISFIABLE}
+     */
+    static ByteRange parseRange(String header, long size) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0 || size == 0) {
+                    return ByteRange.UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, size - suffix), size - 1);
+            }
+            long start = Long.parseLong(spec.substring(0, dash));
+            long end = dash == spec.length() - 1 ? size - 1 : Long.parseLong(spec.substring(dash + 1));
+            if (start >= size) {
+                return ByteRange.UNSATISFIABLE;
+            }
+            if (end < start) {
+                return null;
+            }
+            return new ByteRange(start, Math.min(end, size - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
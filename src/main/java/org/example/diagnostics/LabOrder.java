@@ -0,0 +1,66 @@
+package org.example.diagnostics;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A laboratory order and the results recorded against it so far. The values themselves also go into the
+ * patient's series in {@link LabSeriesStore}; the order keeps the latest value per analyte for its report.
+ */
+final class LabOrder {
+
+    final String orderId;
+    final String patientId;
+    final String testType;
+    final List<Analyte> analytes;
+    final String urgency;
+    final LocalDateTime ordered;
+    private final Map<Analyte, Double> results = new ConcurrentHashMap<>();
+    private volatile LocalDateTime resulted;
+
+    LabOrder(String orderId, String patientId, String testType, String urgency, LocalDateTime ordered) {
+        this.orderId = orderId;
+        this.patientId = patientId;
+        this.testType = testType;
+        this.analytes = LabPanel.analytesOf(testType);
+        this.urgency = urgency;
+        this.ordered = ordered;
+    }
+
+    void record(Analyte analyte, double value, LocalDateTime at) {
+        results.put(analyte, value);
+        resulted = at;
+    }
+
+    /**
+     * @return the latest value recorded for the analyte, or {@code null}
+     */
+    Double result(Analyte analyte) {
+        return results.get(analyte);
+    }
+
+    Map<Analyte, Double> results() {
+        return results;
+    }
+
+    /**
+     * When the latest result was recorded, or {@code null} if none was.
+     */
+    LocalDateTime resulted() {
+        return resulted;
+    }
+
+    String status() {
+        if (results.isEmpty()) {
+            return "PENDING";
+        }
+        for (Analyte analyte : analytes) {
+            if (!results.containsKey(analyte)) {
+                return "PARTIAL";
+            }
+        }
+        return "COMPLETED";
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.diagnostics;
+
+import java.util.List;
+
+/**
+ * Test types that can be ordered and the analytes each one reports. A test type that names a single
+ * analyte ("Hemoglobin", "Heart Rate") is a panel of that analyte alone.
+ */
+public enum LabPanel {
+    COMPLETE_BLOOD_COUNT("Complete Blood Count (CBC)", List.of(Analyte.WHITE_BLOOD_CELLS, Analyte.RED_BLOOD_CELLS,
+            Analyte.HEMOGLOBIN, Analyte.PLATELETS, Analyte.HEMATOCRIT), "cbc", "completebloodcount", "bloodcount"),
+    LIPID_PANEL("Lipid Panel", List.of(Analyte.TOTAL_CHOLESTEROL, Analyte.LDL, Analyte.HDL, Analyte.TRIGLYCERIDES),
+            "lipid", "lipids", "lipidpanel", "lipidprofile", "cholesterolpanel"),
+    METABOLIC_PANEL("Basic Metabolic Panel", List.of(Analyte.GLUCOSE, Analyte.SODIUM, Analyte.POTASSIUM,
+            Analyte.CREATININE), "bmp", "metabolic", "metabolicpanel", "basicmetabolicpanel",
+            "cmp", "completemetabolicpanel"),
+    DIABETES("Diabetes Monitoring", List.of(Analyte.GLUCOSE, Analyte.HBA1C), "diabetes", "diabetic",
+            "diabetesmonitoring", "glycemic"),
+    VITALS("Vital Signs", List.of(Analyte.HEART_RATE, Analyte.SYSTOLIC_BP, Analyte.DIASTOLIC_BP,
+            Analyte.TEMPERATURE, Analyte.OXYGEN_SATURATION), "vitals", "vitalsigns", "bloodpressure", "bp",
+            "cardiovascular"),
+    GENERAL("General Health", List.of(Analyte.GLUCOSE, Analyte.HBA1C, Analyte.TOTAL_CHOLESTEROL, Analyte.LDL,
+            Analyte.SYSTOLIC_BP, Analyte.DIASTOLIC_BP, Analyte.HEMOGLOBIN), "general", "all", "overall",
+            "generalhealth", "annual", "annualphysical", "checkup");
+
+    private final String label;
+    private final List<Analyte> analytes;
+    private final String[] aliases;
+
+    LabPanel(String label, List<Analyte> analytes, String... aliases) {
+        this.label = label;
+        this.analytes = analytes;
+        this.aliases = aliases;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public List<Analyte> analytes() {
+        return analytes;
+    }
+
+    /**
+     * The panel a free-text test type names, or {@code null} if it names none.
+     */
+    public static LabPanel fromName(String testType) {
+        if (testType == null) {
+            return null;
+        }
+        String normalized = Analyte.normalize(testType);
+        for (LabPanel panel : values()) {
+            for (String alias : panel.aliases) {
+                if (alias.equals(normalized) || normalized.startsWith(alias + "panel") || normalized.equals(alias + "test")
+                        || normalized.equals(alias + "tests")) {
+                    return panel;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The analytes a free-text test type refers to, or an empty list if it is not recognized.
+     */
+    public static List<Analyte> analytesOf(String testType) {
+        LabPanel panel = fromName(testType);
+        if (panel != null) {
+            return panel.analytes;
+        }
+        Analyte analyte = Analyte.fromName(testType);
+        return analyte == null ? List.of() : List.of(analyte);
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.diagnostics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lab and vital-sign series without an LLM round trip:
+ * <ul>
+ *     <li>{@code POST /diagnostics/series/{patientId}/{analyte}} - plain-text body of {@code timestamp,value}
+ *     lines in time order, the timestamp in epoch seconds or ISO-8601; returns an {@link Ingest}</li>
+ *     <li>{@code GET /diagnostics/series/{patientId}/{analyte}/trend?from=&to=&windowDays=} - a
+ *     {@link TrendAnalysis.Trend}; {@code to} defaults to now and {@code from} to ten years before it</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/diagnostics/series")
+public class LabSeriesController {
+
+    private static final long DEFAULT_SPAN_SECONDS = TimeUnit.DAYS.toSeconds(3653);
+
+    /**
+     * @param refused lines that were unreadable or older than the latest reading of the series
+     */
+    public record Ingest(long accepted, long refused) {
+    }
+
+    private final DiagnosticsService service;
+
+    public LabSeriesController(DiagnosticsService service) {
+        this.service = service;
+    }
+
+    @PostMapping(path = "/{patientId}/{analyte}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Ingest ingest(@PathVariable("patientId") String patientId, @PathVariable("analyte") String analyte,
+                         HttpServletRequest request) throws IOException {
+        Analyte target = analyte(analyte);
+        long accepted = 0;
+        long refused = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(),
+                StandardCharsets.UTF_8));
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (ingestLine(patientId, target, line)) {
+                accepted++;
+            } else {
+                refused++;
+            }
+        }
+        return new Ingest(accepted, refused);
+    }
+
+    @GetMapping(path = "/{patientId}/{analyte}/trend", produces = MediaType.APPLICATION_JSON_VALUE)
+    public TrendAnalysis.Trend trend(@PathVariable("patientId") String patientId,
+                                     @PathVariable("analyte") String analyte,
+                                     @RequestParam(name = "from", required = false) String from,
+                                     @RequestParam(name = "to", required = false) String to,
+                                     @RequestParam(name = "windowDays", defaultValue = "30") int windowDays) {
+        Analyte target = analyte(analyte);
+        try {
+            long toSecond = to == null ? Instant.now().getEpochSecond() : parseTime(to);
+            long fromSecond = from == null ? toSecond - DEFAULT_SPAN_SECONDS : parseTime(from);
+            return service.trend(patientId, target, fromSecond, toSecond,
+                    TimeUnit.DAYS.toSeconds(Math.max(1, windowDays)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unreadable time " + e.getMessage());
+        }
+    }
+
+    private static Analyte analyte(String name) {
+        Analyte analyte = Analyte.fromName(name);
+        if (analyte == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown analyte " + name);
+        }
+        return analyte;
+    }
+
+    private boolean ingestLine(String patientId, Analyte analyte, String line) {
+        int comma = line.indexOf(',');
+        if (comma <= 0) {
+            return false;
+        }
+        try {
+            long second = parseTime(line.substring(0, comma).trim());
+            double value = Double.parseDouble(line.substring(comma + 1).trim());
+            return service.ingest(patientId, analyte, second, value);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Epoch seconds, an ISO-8601 date-time with an offset, or one without in the server's zone.
+     */
+    static long parseTime(String text) {
+        if (!text.isEmpty() && text.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(text);
+        }
+        try {
+            return OffsetDateTime.parse(text).toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.parse(text).atZone(ZoneId.systemDefault()).toEpochSecond();
+        }
+    }
+}
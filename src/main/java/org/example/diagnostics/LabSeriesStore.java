@@ -0,0 +1,419 @@
+package org.example.diagnostics;
+
+import lombok.extern.java.Log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Lab values and vitals as one time series per patient and analyte. A series is a list of append-only chunks
+ * of up to {@value #CHUNK_POINTS} points; a chunk keeps the epoch second of its first point, the gaps between
+ * consecutive points as {@code int} seconds and the values in a {@code double[]}, about 12 bytes a point.
+ * <p>
+ * Points of a series are appended in time order; a point older than the series' latest is refused, while
+ * several points may share a second and are numbered within it (see {@link #append}). Once more than
+ * {@code heapChunks} full chunks are held, the oldest full chunks are copied to memory-mapped spill files and
+ * their arrays released, so years of hourly readings for many patients stay off the heap while the OS page
+ * cache keeps the ones still read.
+ * <p>
+ * With a retention, a series drops its chunks that end more than the retention before its newest point each
+ * time it starts a new chunk. A spill file is deleted as soon as none of its chunks is held any more, and the
+ * rest are scratch space, deleted on start and close; the series themselves are rebuilt from the journal.
+ */
+@Log
+public final class LabSeriesStore implements AutoCloseable {
+
+    static final int CHUNK_POINTS = 4096;
+    private static final double DAYS_PER_SECOND = 1.0 / 86_400;
+    private static final String SPILL_PREFIX = "series-";
+    private static final long SPILL_FILE_BYTES = 256L << 20;
+
+    private record SeriesKey(String patientId, Analyte analyte) {
+    }
+
+    private final Map<SeriesKey, Series> series = new ConcurrentHashMap<>();
+    private final Queue<Chunk> fullOnHeap = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger fullOnHeapCount = new AtomicInteger();
+    private final LongAdder points = new LongAdder();
+    private final int heapChunks;
+    private final long retentionSeconds;
+    private final Spill spill;
+
+    /**
+     * @param spillDirectory where cold chunks are mapped, or {@code null} to keep every chunk on the heap
+     */
+    public LabSeriesStore(Path spillDirectory, int heapChunks) {
+        this(spillDirectory, heapChunks, 0);
+    }
+
+    /**
+     * @param retentionSeconds how far behind its newest point a series keeps its chunks, 0 to keep them all
+     */
+    public LabSeriesStore(Path spillDirectory, int heapChunks, long retentionSeconds) {
+        this.heapChunks = Math.max(1, heapChunks);
+        this.retentionSeconds = Math.max(0, retentionSeconds);
+        this.spill = spillDirectory == null ? null : new Spill(spillDirectory);
+    }
+
+    /**
+     * @return how many points of the series were already at {@code epochSecond}, so that callers can key
+     * points of the same second apart; -1 if the point is older than the latest point of its series or the
+     * value is not a finite number
+     */
+    public int append(String patientId, Analyte analyte, long epochSecond, double value) {
+        if (!Double.isFinite(value)) {
+            return -1;
+        }
+        Series target = series.computeIfAbsent(new SeriesKey(patientId, analyte), key -> new Series());
+        Chunk full;
+        int index;
+        List<Chunk> expired = List.of();
+        synchronized (target) {
+            if (epochSecond < target.lastSecond) {
+                return -1;
+            }
+            index = epochSecond == target.lastSecond ? target.lastSecondPoints : 0;
+            full = target.append(epochSecond, value);
+            if (full != null && retentionSeconds > 0) {
+                expired = target.expire(epochSecond - retentionSeconds);
+            }
+        }
+        points.increment();
+        for (Chunk chunk : expired) {
+            points.add(-chunk.count());
+            chunk.drop(spill);
+        }
+        if (full != null && spill != null) {
+            fullOnHeap.add(full);
+            if (fullOnHeapCount.incrementAndGet() > heapChunks) {
+                spillColdest();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the series, or {@code null} if nothing was recorded for the patient and analyte
+     */
+    public Series series(String patientId, Analyte analyte) {
+        return series.get(new SeriesKey(patientId, analyte));
+    }
+
+    public long points() {
+        return points.sum();
+    }
+
+    @Override
+    public void close() {
+        if (spill != null) {
+            spill.close();
+        }
+    }
+
+    private void spillColdest() {
+        while (fullOnHeapCount.get() > heapChunks) {
+            Chunk coldest = fullOnHeap.poll();
+            if (coldest == null) {
+                return;
+            }
+            fullOnHeapCount.decrementAndGet();
+            try {
+                // A chunk dropped by retention in the meantime is not spilled.
+                coldest.spillTo(spill);
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Unable to spill a series chunk; keeping it on the heap", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * One patient's readings of one analyte. Reads see every point appended before they start and need no
+     * lock; appends are serialized by the store.
+     */
+    public static final class Series {
+        private volatile Chunk[] chunks = new Chunk[0];
+        private volatile long lastSecond = Long.MIN_VALUE;
+        private volatile int size;
+        private int lastSecondPoints;
+
+        /**
+         * @return the chunk this append filled up, if any
+         */
+        private Chunk append(long epochSecond, double value) {
+            Chunk[] current = chunks;
+            Chunk active = current.length == 0 ? null : current[current.length - 1];
+            Chunk full = null;
+            if (active == null || active.count == CHUNK_POINTS || epochSecond - active.lastSecond > Integer.MAX_VALUE) {
+                Chunk next = new Chunk(epochSecond);
+                Chunk[] grown = Arrays.copyOf(current, current.length + 1);
+                grown[current.length] = next;
+                chunks = grown;
+                full = active != null && active.count == CHUNK_POINTS ? active : null;
+                active = next;
+            }
+            active.add(epochSecond, value);
+            lastSecondPoints = epochSecond == lastSecond ? lastSecondPoints + 1 : 1;
+            lastSecond = epochSecond;
+            size++;
+            return full;
+        }
+
+        /**
+         * Removes the leading chunks whose points all precede {@code beforeSecond}, never the one still growing.
+         *
+         * @return the chunks removed
+         */
+        private List<Chunk> expire(long beforeSecond) {
+            Chunk[] current = chunks;
+            int drop = 0;
+            while (drop < current.length - 1 && current[drop].lastSecond() < beforeSecond) {
+                drop++;
+            }
+            if (drop == 0) {
+                return List.of();
+            }
+            List<Chunk> expired = List.of(Arrays.copyOf(current, drop));
+            int removed = 0;
+            for (Chunk chunk : expired) {
+                removed += chunk.count();
+            }
+            chunks = Arrays.copyOfRange(current, drop, current.length);
+            size -= removed;
+            return expired;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Epoch second of the latest point, or {@link Long#MIN_VALUE} for an empty series.
+         */
+        public long lastSecond() {
+            return lastSecond;
+        }
+
+        /**
+         * The chunks as of now, oldest first; the last one may still be growing.
+         */
+        List<Chunk> chunks() {
+            return List.of(chunks);
+        }
+    }
+
+    /**
+     * Up to {@value #CHUNK_POINTS} consecutive points of a series, on the heap or, once cold, in a spill file
+     * as {@code count} gap {@code int}s followed by {@code count} value {@code double}s.
+     */
+    static final class Chunk {
+        final long firstSecond;
+        private volatile int count;
+        private volatile long lastSecond;
+        private volatile int[] gaps = new int[64];
+        private volatile double[] values = new double[64];
+        private volatile ByteBuffer mapped;
+        private Spilled spilledTo;
+        private boolean dropped;
+
+        Chunk(long firstSecond) {
+            this.firstSecond = firstSecond;
+            this.lastSecond = firstSecond;
+        }
+
+        private void add(long epochSecond, double value) {
+            int index = count;
+            if (index == values.length) {
+                int capacity = Math.min(CHUNK_POINTS, index * 2);
+                gaps = Arrays.copyOf(gaps, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            gaps[index] = (int) (epochSecond - lastSecond);
+            values[index] = value;
+            lastSecond = epochSecond;
+            count = index + 1;
+        }
+
+        int count() {
+            return count;
+        }
+
+        long lastSecond() {
+            return lastSecond;
+        }
+
+        /**
+         * Decodes the first {@code n} timestamps into {@code days}, as days since {@code originSecond}.
+         */
+        void days(int n, long originSecond, double[] days) {
+            int[] heapGaps = gaps;
+            long second = firstSecond;
+            if (heapGaps != null) {
+                for (int i = 0; i < n; i++) {
+                    second += heapGaps[i];
+                    days[i] = (second - originSecond) * DAYS_PER_SECOND;
+                }
+            } else {
+                ByteBuffer cold = mapped;
+                for (int i = 0; i < n; i++) {
+                    second += cold.getInt(i * Integer.BYTES);
+                    days[i] = (second - originSecond) * DAYS_PER_SECOND;
+                }
+            }
+        }
+
+        /**
+         * The first {@code n} values: the chunk's own array while it is on the heap, otherwise a copy into
+         * {@code scratch}.
+         */
+        double[] values(int n, double[] scratch) {
+            double[] heapValues = values;
+            if (heapValues != null) {
+                return heapValues;
+            }
+            mapped.slice(n * Integer.BYTES, n * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer()
+                  .get(scratch, 0, n);
+            return scratch;
+        }
+
+        private synchronized void spillTo(Spill spill) throws IOException {
+            if (dropped) {
+                return;
+            }
+            int n = count;
+            spilledTo = spill.allocate(n * (Integer.BYTES + Double.BYTES));
+            ByteBuffer region = spilledTo.region;
+            for (int i = 0; i < n; i++) {
+                region.putInt(i * Integer.BYTES, gaps[i]);
+            }
+            region.slice(n * Integer.BYTES, n * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer()
+                  .put(values, 0, n);
+            // Readers that find an array released are guaranteed to see the mapping.
+            mapped = region.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+            values = null;
+            gaps = null;
+        }
+
+        /**
+         * Gives up the chunk's spill space once the series no longer holds it. Readers that still have the chunk
+         * keep reading its mapping.
+         */
+        private synchronized void drop(Spill spill) {
+            dropped = true;
+            if (spilledTo != null) {
+                spill.release(spilledTo.file, count * (Integer.BYTES + Double.BYTES));
+                spilledTo = null;
+            }
+        }
+    }
+
+    /**
+     * Where a chunk was spilled.
+     */
+    private record Spilled(SpillFile file, ByteBuffer region) {
+    }
+
+    /**
+     * Append-only spill files mapped in {@value #SPILL_FILE_BYTES}-byte pieces. Each file counts the bytes of the
+     * chunks it holds, and is deleted once that drops to zero and nothing more will be written to it.
+     */
+    private static final class Spill {
+        private final Path directory;
+        private final List<SpillFile> files = new ArrayList<>();
+        private int created;
+        private SpillFile current;
+
+        Spill(Path directory) {
+            this.directory = directory;
+            try {
+                Files.createDirectories(directory);
+                try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, SPILL_PREFIX + "*")) {
+                    for (Path file : stale) {
+                        Files.delete(file);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to prepare series spill directory " + directory, e);
+            }
+        }
+
+        synchronized Spilled allocate(int bytes) throws IOException {
+            if (current == null || current.buffer.capacity() - current.position < bytes) {
+                Path path = directory.resolve(String.format("%s%05d.dat", SPILL_PREFIX, created++));
+                MappedByteBuffer buffer;
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SPILL_FILE_BYTES);
+                }
+                buffer.order(ByteOrder.nativeOrder());
+                SpillFile previous = current;
+                current = new SpillFile(path, buffer);
+                files.add(current);
+                if (previous != null && previous.live == 0) {
+                    delete(previous);
+                }
+            }
+            ByteBuffer region = current.buffer.slice(current.position, bytes).order(ByteOrder.nativeOrder());
+            current.position += (bytes + 7) & ~7;
+            current.live += bytes;
+            return new Spilled(current, region);
+        }
+
+        synchronized void release(SpillFile file, int bytes) {
+            file.live -= bytes;
+            if (file.live == 0 && file != current && files.contains(file)) {
+                delete(file);
+            }
+        }
+
+        synchronized void close() {
+            for (SpillFile file : List.copyOf(files)) {
+                delete(file);
+            }
+            current = null;
+        }
+
+        private void delete(SpillFile file) {
+            files.remove(file);
+            try {
+                // Mappings stay valid until collected; the space is returned once they are.
+                Files.deleteIfExists(file.path);
+            } catch (IOException e) {
+                log.log(Level.FINE, "Unable to delete spill file " + file.path, e);
+            }
+        }
+    }
+
+    /**
+     * One spill file, guarded by its {@link Spill}.
+     */
+    private static final class SpillFile {
+        final Path path;
+        final MappedByteBuffer buffer;
+        int position;
+        long live;
+
+        SpillFile(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.diagnostics;
+
+import java.util.Locale;
+
+/**
+ * Equipment an order is performed on. Each modality has its own queue and pool of stations, sized with
+ * {@code -Ddiagnostics.modality.<name>.stations}; the local stand-ins take
+ * {@code -Ddiagnostics.modality.<name>.service-ms} per order.
+ */
+public enum Modality {
+    LAB("Lab Analyzers", 8, 50),
+    XRAY("X-Ray", 2, 100),
+    ULTRASOUND("Ultrasound", 2, 200),
+    CT("CT", 2, 300),
+    MRI("MRI", 1, 600);
+
+    private final String label;
+    private final int defaultStations;
+    private final long defaultServiceMillis;
+
+    Modality(String label, int defaultStations, long defaultServiceMillis) {
+        this.label = label;
+        this.defaultStations = defaultStations;
+        this.defaultServiceMillis = defaultServiceMillis;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    private String property(String suffix) {
+        return "diagnostics.modality." + name().toLowerCase(Locale.ROOT) + "." + suffix;
+    }
+
+    public int stations() {
+        return Math.max(1, Integer.getInteger(property("stations"), defaultStations));
+    }
+
+    public long serviceMillis() {
+        return Long.getLong(property("service-ms"), defaultServiceMillis);
+    }
+
+    /**
+     * The modality a free-text scan type is performed on; unrecognized scan types go to {@link #XRAY}.
+     */
+    public static Modality fromScanType(String scanType) {
+        String normalized = scanType == null ? "" : Analyte.normalize(scanType);
+        if (normalized.contains("mri") || normalized.contains("magneticresonance")) {
+            return MRI;
+        }
+        if (normalized.startsWith("ct") || normalized.contains("ctscan") || normalized.contains("computedtomography")
+                || normalized.contains("catscan")) {
+            return CT;
+        }
+        if (normalized.contains("ultrasound") || normalized.contains("sonogra") || normalized.contains("echo")) {
+            return ULTRASOUND;
+        }
+        return XRAY;
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.diagnostics;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * One analyzer or scanner of a {@link Modality}. {@link OrderDispatcher} runs
+ * {@link Modality#stations()} of them per modality, each performing one order at a time. The implementation is
+ * chosen with {@code -Ddiagnostics.station=<class name>} (a public class with a {@code (Modality)}
+ * constructor); the default is the {@link SimulatedStation} stand-in.
+ */
+public interface ModalityStation {
+
+    /**
+     * Performs the order; returns once the specimen is analyzed or the scan is acquired.
+     *
+     * @throws Exception if the order could not be performed; it is queued again
+     */
+    void perform(DiagnosticOrder order) throws Exception;
+
+    static ModalityStation configured(Modality modality) {
+        String type = System.getProperty("diagnostics.station");
+        if (type == null || type.isBlank()) {
+            return new SimulatedStation(modality.serviceMillis());
+        }
+        try {
+            return Class.forName(type.trim()).asSubclass(ModalityStation.class).getConstructor(Modality.class)
+                    .newInstance(modality);
+        } catch (ClassNotFoundException | ClassCastException | NoSuchMethodException | InstantiationException
+                 | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Unable to create " + modality + " station " + type, e);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package org.example.diagnostics;
+
+import lombok.extern.java.Log;
+import org.example.common.metrics.LatencyMetric;
+import org.example.common.metrics.MetricsRegistry;
+import org.example.common.wal.FieldCodec;
+import org.example.common.wal.Journal;
+import org.example.common.wal.LogEntry;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+import static org.example.common.wal.FieldCodec.fields;
+
+/**
+ * Sends lab and imaging orders to the stations of their {@link Modality}. Each modality has a
+ * {@link PriorityOrderQueue} and {@link Modality#stations()} station threads taking from it, so a flood of
+ * routine MRI orders neither delays STAT MRIs nor touches the lab analyzers. Orders with a due time (follow-up
+ * tests) wait on a scheduler until then.
+ * <p>
+ * An order its station fails on is tried again after a backoff that doubles with each failure, starting at
+ * {@link Options#retryBackoffMillis()}; after {@link Options#maxAttempts()} failures it is {@link OrderStatus#FAILED}
+ * and counted in {@code diagnostics_orders_failed_total{modality}}.
+ * <p>
+ * The time each order spent queued is recorded as {@code diagnostics_order_queue_wait{modality,priority}}.
+ * Every transition is journalled on the {@code order-dispatch} stream with the whole order, so the latest entry
+ * per order is its state; on start, orders that were not completed are queued or scheduled again.
+ */
+@Log
+public final class OrderDispatcher implements AutoCloseable {
+
+    static final String STREAM = "order-dispatch";
+    private static final Modality[] MODALITIES = Modality.values();
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private static final long MAX_RETRY_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * @param agingMillis        how much longer than the oldest urgent order a routine order must have waited to
+     *                           be served first
+     * @param maxAttempts        how often a station may fail on an order before it is given up on
+     * @param retryBackoffMillis how long after its first failure an order is queued again
+     */
+    public record Options(long agingMillis, int maxAttempts, long retryBackoffMillis) {
+
+        public static Options defaults() {
+            return new Options(Long.getLong("diagnostics.dispatch.aging-ms", 120_000),
+                    Integer.getInteger("diagnostics.dispatch.max-attempts", 3),
+                    Long.getLong("diagnostics.dispatch.retry-backoff-ms", 1000));
+        }
+    }
+
+    private final Journal journal;
+    private final Options options;
+    private final Map<String, DiagnosticOrder> orders = new ConcurrentHashMap<>();
+    private final Map<Modality, PriorityOrderQueue> queues = new EnumMap<>(Modality.class);
+    private final LatencyMetric[][] queueWait = new LatencyMetric[MODALITIES.length][PRIORITIES.length];
+    private final AtomicInteger[] busy = new AtomicInteger[MODALITIES.length];
+    private final LongAdder[] failed = new LongAdder[MODALITIES.length];
+    private final List<ExecutorService> stations = new ArrayList<>();
+    private final ScheduledExecutorService scheduler;
+    private final List<Consumer<DiagnosticOrder>> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+
+    public OrderDispatcher(Journal journal) {
+        this(journal, Options.defaults(), ModalityStation::configured);
+    }
+
+    public OrderDispatcher(Journal journal, Options options, Function<Modality, ModalityStation> stationFactory) {
+        this.journal = journal;
+        this.options = options;
+        MetricsRegistry registry = MetricsRegistry.shared();
+        for (Modality modality : MODALITIES) {
+            PriorityOrderQueue queue = new PriorityOrderQueue(TimeUnit.MILLISECONDS.toNanos(options.agingMillis()));
+            queues.put(modality, queue);
+            String name = modality.name();
+            for (Priority priority : PRIORITIES) {
+                queueWait[modality.ordinal()][priority.ordinal()] = registry.latency("diagnostics_order_queue_wait",
+                        "Time orders waited for a station", "modality", name, "priority", priority.name());
+                registry.gauge("diagnostics_orders_queued", "Orders waiting for a station",
+                        () -> queue.size(priority), "modality", name, "priority", priority.name());
+            }
+            registry.counter("diagnostics_orders_aged_total", "Routine orders served ahead of waiting urgent ones",
+                    queue::aged, "modality", name);
+            AtomicInteger inUse = new AtomicInteger();
+            busy[modality.ordinal()] = inUse;
+            registry.gauge("diagnostics_stations_busy", "Stations performing an order", inUse::get, "modality", name);
+            LongAdder gaveUp = new LongAdder();
+            failed[modality.ordinal()] = gaveUp;
+            registry.counter("diagnostics_orders_failed_total", "Orders given up on after repeated station failures",
+                    gaveUp::sum, "modality", name);
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        journal.replay(this::recover);
+        for (DiagnosticOrder order : orders.values()) {
+            if (!order.status().isFinal()) {
+                // An order that was in progress at the restart is performed again.
+                dispatch(order);
+            }
+        }
+        for (Modality modality : MODALITIES) {
+            int count = modality.stations();
+            String prefix = modality.name().toLowerCase(Locale.ROOT) + "-station-";
+            AtomicInteger counter = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(count, runnable -> {
+                Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < count; i++) {
+                ModalityStation station = stationFactory.apply(modality);
+                pool.execute(() -> runStation(modality, station));
+            }
+            stations.add(pool);
+        }
+    }
+
+    /**
+     * Queues a new order, or schedules it if it is due later.
+     *
+     * @param dueEpochMilli when it may be performed, 0 for now
+     */
+    public DiagnosticOrder submit(String orderId, String patientId, Modality modality, Priority priority,
+                                  String description, String followUpOf, long dueEpochMilli) {
+        DiagnosticOrder order = new DiagnosticOrder(orderId, patientId, modality, priority, description, followUpOf,
+                dueEpochMilli, OrderStatus.SCHEDULED, 0, 0);
+        return dispatch(order);
+    }
+
+    /**
+     * @return the order as of its latest transition, or {@code null} if it is unknown
+     */
+    public DiagnosticOrder find(String orderId) {
+        return orders.get(orderId);
+    }
+
+    /**
+     * Orders waiting for the modality that a new order of this priority would follow.
+     */
+    public int ahead(Modality modality, Priority priority) {
+        return queues.get(modality).ahead(priority);
+    }
+
+    /**
+     * Registers a callback for every transition. It runs on the thread making the transition, usually a
+     * station, and must not block.
+     */
+    public void addListener(Consumer<DiagnosticOrder> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        scheduler.shutdownNow();
+        for (ExecutorService pool : stations) {
+            pool.shutdownNow();
+        }
+    }
+
+    private DiagnosticOrder dispatch(DiagnosticOrder order) {
+        long delay = order.dueEpochMilli() - System.currentTimeMillis();
+        if (delay > 0) {
+            DiagnosticOrder scheduled = transition(order, OrderStatus.SCHEDULED);
+            scheduler.schedule(() -> enqueue(scheduled.orderId()), delay, TimeUnit.MILLISECONDS);
+            return scheduled;
+        }
+        DiagnosticOrder queued = publish(order.queued(System.nanoTime()));
+        queues.get(order.modality()).put(queued);
+        return queued;
+    }
+
+    private void enqueue(String orderId) {
+        DiagnosticOrder order = orders.get(orderId);
+        if (order != null && order.status() == OrderStatus.SCHEDULED) {
+            queues.get(order.modality()).put(publish(order.queued(System.nanoTime())));
+        }
+    }
+
+    private void runStation(Modality modality, ModalityStation station) {
+        PriorityOrderQueue queue = queues.get(modality);
+        AtomicInteger inUse = busy[modality.ordinal()];
+        while (running) {
+            DiagnosticOrder order;
+            try {
+                order = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            queueWait[modality.ordinal()][order.priority().ordinal()].record(System.nanoTime() - order.queuedNanos());
+            DiagnosticOrder started = transition(order, OrderStatus.IN_PROGRESS);
+            inUse.incrementAndGet();
+            try {
+                station.perform(started);
+                transition(started, OrderStatus.COMPLETED);
+            } catch (InterruptedException e) {
+                // Closing: the order stays IN_PROGRESS and is performed again after a restart.
+                return;
+            } catch (Exception e) {
+                retry(started, e);
+            } finally {
+                inUse.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Schedules the order again after a station failed on it, or gives up on it.
+     */
+    private void retry(DiagnosticOrder order, Exception failure) {
+        if (order.failures() + 1 >= options.maxAttempts()) {
+            log.log(Level.WARNING, "Station failed on order " + order.orderId() + " " + (order.failures() + 1)
+                    + " times; giving up on it", failure);
+            publish(order.failed(OrderStatus.FAILED));
+            failed[order.modality().ordinal()].increment();
+            return;
+        }
+        long backoff = Math.min(options.retryBackoffMillis() << Math.min(order.failures(), 20),
+                MAX_RETRY_BACKOFF_MILLIS);
+        log.log(Level.WARNING, "Station failed on order " + order.orderId() + "; queueing it again in " + backoff
+                + " ms", failure);
+        DiagnosticOrder scheduled = publish(order.failed(OrderStatus.SCHEDULED));
+        try {
+            scheduler.schedule(() -> enqueue(scheduled.orderId()), backoff, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closing: the order stays SCHEDULED and is queued again after a restart.
+        }
+    }
+
+    private DiagnosticOrder transition(DiagnosticOrder order, OrderStatus status) {
+        return publish(order.withStatus(status));
+    }
+
+    /**
+     * Indexes, journals and announces the order's new state.
+     */
+    private DiagnosticOrder publish(DiagnosticOrder next) {
+        index(next);
+        journal.append(STREAM, next.orderId(), orderFields(next));
+        for (Consumer<DiagnosticOrder> listener : listeners) {
+            try {
+                listener.accept(next);
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Order listener failed", e);
+            }
+        }
+        return next;
+    }
+
+    private void index(DiagnosticOrder order) {
+        orders.put(order.orderId(), order);
+    }
+
+    private static Map<String, String> orderFields(DiagnosticOrder order) {
+        Map<String, String> fields = fields("patientId", order.patientId(), "modality", order.modality().name(),
+                "priority", order.priority().name(), "description", order.description(),
+                "due", Long.toString(order.dueEpochMilli()), "status", order.status().name(),
+                "failures", Integer.toString(order.failures()));
+        if (order.followUpOf() != null) {
+            fields.put("followUpOf", order.followUpOf());
+        }
+        return fields;
+    }
+
+    private void recover(LogEntry entry) {
+        if (entry.isTombstone() || !STREAM.equals(entry.stream())) {
+            return;
+        }
+        Map<String, String> fields = FieldCodec.decode(entry.payload());
+        index(new DiagnosticOrder(entry.key(), fields.get("patientId"), Modality.valueOf(fields.get("modality")),
+                Priority.valueOf(fields.get("priority")), fields.get("description"), fields.get("followUpOf"),
+                Long.parseLong(fields.get("due")), OrderStatus.valueOf(fields.get("status")), 0,
+                Integer.parseInt(fields.getOrDefault("failures", "0"))));
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.diagnostics;
+
+/**
+ * Where a diagnostic order is in dispatch.
+ */
+public enum OrderStatus {
+    /**
+     * Waiting for its due time, e.g. a follow-up test.
+     */
+    SCHEDULED,
+    QUEUED,
+    IN_PROGRESS,
+    COMPLETED,
+    /**
+     * Given up on after its station failed {@code diagnostics.dispatch.max-attempts} times.
+     */
+    FAILED;
+
+    /**
+     * @return whether dispatch is done with the order
+     */
+    public boolean isFinal() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.diagnostics;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Dispatch priority of a diagnostic order, highest first.
+ */
+public enum Priority {
+    STAT("1 hour"),
+    URGENT("24 hours"),
+    ROUTINE("3-5 business days");
+
+    private static final Pattern STAT_INDICATION = Pattern.compile("\\bstat\\b|emergenc|trauma|stroke");
+    private static final Pattern URGENT_INDICATION = Pattern.compile("urgent|acute");
+
+    private final String turnaround;
+
+    Priority(String turnaround) {
+        this.turnaround = turnaround;
+    }
+
+    /**
+     * Expected time to results, as told to the ordering clinician.
+     */
+    public String turnaround() {
+        return turnaround;
+    }
+
+    /**
+     * Reads an urgency as given with a lab order: "STAT", "emergency" or "ASAP" are {@link #STAT}, "urgent"
+     * or "high" are {@link #URGENT}, anything else is {@link #ROUTINE}.
+     */
+    public static Priority fromUrgency(String urgency) {
+        if (urgency == null) {
+            return ROUTINE;
+        }
+        return switch (urgency.trim().toLowerCase(Locale.ROOT)) {
+            case "stat", "emergency", "emergent", "asap", "immediate", "critical" -> STAT;
+            case "urgent", "high", "priority" -> URGENT;
+            default -> ROUTINE;
+        };
+    }
+
+    /**
+     * Infers the priority of an imaging order from its clinical indication, which is all an imaging order
+     * carries: "stat", trauma and stroke workups are {@link #STAT}, "urgent" or "acute" ones {@link #URGENT}.
+     */
+    public static Priority fromIndication(String indication) {
+        if (indication == null) {
+            return ROUTINE;
+        }
+        String text = indication.toLowerCase(Locale.ROOT);
+        if (STAT_INDICATION.matcher(text).find()) {
+            return STAT;
+        }
+        return URGENT_INDICATION.matcher(text).find() ? URGENT : ROUTINE;
+    }
+}
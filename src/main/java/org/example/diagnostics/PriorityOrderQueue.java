@@ -0,0 +1,94 @@
+package org.example.diagnostics;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Orders waiting for one modality, one FIFO level per {@link Priority}. {@link #take} always serves STAT
+ * first. Between URGENT and ROUTINE it ages: a routine order goes ahead of the oldest urgent one once it has
+ * waited {@code agingNanos} longer, so a steady stream of urgent orders cannot starve routine ones, while
+ * STAT orders never wait behind either.
+ * <p>
+ * Lock-free: a producer adds to its level and then releases a permit, so a consumer holding a permit is
+ * guaranteed an order and only has to poll the level it picked, retrying if another consumer got there first.
+ */
+final class PriorityOrderQueue {
+
+    private static final int STAT = Priority.STAT.ordinal();
+    private static final int URGENT = Priority.URGENT.ordinal();
+    private static final int ROUTINE = Priority.ROUTINE.ordinal();
+
+    private static final class Level {
+        final Queue<DiagnosticOrder> orders = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+    }
+
+    private final Level[] levels = new Level[Priority.values().length];
+    private final Semaphore available = new Semaphore(0);
+    private final long agingNanos;
+    private final LongAdder aged = new LongAdder();
+
+    PriorityOrderQueue(long agingNanos) {
+        this.agingNanos = agingNanos;
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = new Level();
+        }
+    }
+
+    void put(DiagnosticOrder order) {
+        Level level = levels[order.priority().ordinal()];
+        level.size.incrementAndGet();
+        level.orders.add(order);
+        available.release();
+    }
+
+    DiagnosticOrder take() throws InterruptedException {
+        available.acquire();
+        for (; ; ) {
+            DiagnosticOrder order = levels[STAT].orders.poll();
+            if (order == null) {
+                DiagnosticOrder urgent = levels[URGENT].orders.peek();
+                DiagnosticOrder routine = levels[ROUTINE].orders.peek();
+                if (urgent == null && routine == null) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                boolean routineFirst = urgent == null
+                        || routine != null && routine.queuedNanos() - urgent.queuedNanos() + agingNanos <= 0;
+                order = levels[routineFirst ? ROUTINE : URGENT].orders.poll();
+                if (order != null && routineFirst && urgent != null) {
+                    aged.increment();
+                }
+            }
+            if (order != null) {
+                levels[order.priority().ordinal()].size.decrementAndGet();
+                return order;
+            }
+        }
+    }
+
+    int size(Priority priority) {
+        return levels[priority.ordinal()].size.get();
+    }
+
+    /**
+     * Orders that would be served before a new order of this priority, not counting aging.
+     */
+    int ahead(Priority priority) {
+        int ahead = 0;
+        for (int i = 0; i <= priority.ordinal(); i++) {
+            ahead += levels[i].size.get();
+        }
+        return ahead;
+    }
+
+    /**
+     * Routine orders served ahead of a waiting urgent one.
+     */
+    long aged() {
+        return aged.sum();
+    }
+}
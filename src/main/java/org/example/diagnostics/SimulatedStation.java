@@ -0,0 +1,20 @@
+package org.example.diagnostics;
+
+/**
+ * In-process stand-in for an analyzer or scanner: every order takes {@code serviceMillis}.
+ */
+public class SimulatedStation implements ModalityStation {
+
+    private final long serviceMillis;
+
+    public SimulatedStation(long serviceMillis) {
+        this.serviceMillis = serviceMillis;
+    }
+
+    @Override
+    public void perform(DiagnosticOrder order) throws InterruptedException {
+        if (serviceMillis > 0) {
+            Thread.sleep(serviceMillis);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.healthcareclient;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * How many calls to one agent may be in flight at once, adjusted from the latency and failures the calls see
+ * rather than configured up front. A caller that cannot get a slot is turned away at once instead of queueing
+ * behind a slow agent.
+ * <ul>
+ *     <li>{@link Aimd} grows the limit by one after a success while the limit is actually being used and cuts it
+ *     by a tenth after a failure or timeout</li>
+ *     <li>{@link Gradient} compares a short-term average round trip with a long-term one: as queueing pushes the
+ *     short-term average up, the limit shrinks in proportion, and it grows by about its square root while latency
+ *     stays flat</li>
+ * </ul>
+ */
+abstract class AdaptiveLimit {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    protected final int minLimit;
+    protected final int maxLimit;
+    protected volatile double limit;
+
+    AdaptiveLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * @param kind {@code gradient} or {@code aimd}
+     */
+    static AdaptiveLimit of(String kind, int initialLimit, int minLimit, int maxLimit) {
+        return switch (kind) {
+            case "aimd" -> new Aimd(initialLimit, minLimit, maxLimit);
+            case "gradient" -> new Gradient(initialLimit, minLimit, maxLimit);
+            default -> throw new IllegalArgumentException("Unknown concurrency limit " + kind);
+        };
+    }
+
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Gives a slot back and adjusts the limit from how the call went.
+     *
+     * @param dropped the call failed or timed out
+     */
+    void release(long rttNanos, boolean dropped) {
+        int before = inFlight.getAndDecrement();
+        synchronized (this) {
+            limit = Math.max(minLimit, Math.min(maxLimit, next(limit, rttNanos, before, dropped)));
+        }
+    }
+
+    /**
+     * Gives a slot back without a sample, e.g. for a hedge that lost.
+     */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    protected abstract double next(double limit, long rttNanos, int inFlight, boolean dropped);
+
+    static final class Aimd extends AdaptiveLimit {
+
+        Aimd(int initialLimit, int minLimit, int maxLimit) {
+            super(initialLimit, minLimit, maxLimit);
+        }
+
+        @Override
+        protected double next(double limit, long rttNanos, int inFlight, boolean dropped) {
+            if (dropped) {
+                return limit * 0.9;
+            }
+            return inFlight * 2 >= limit ? limit + 1 : limit;
+        }
+    }
+
+    static final class Gradient extends AdaptiveLimit {
+
+        private static final double SHORT_WEIGHT = 2.0 / (10 + 1);
+        private static final double LONG_WEIGHT = 2.0 / (600 + 1);
+        private static final double SMOOTHING = 0.2;
+
+        private double shortRtt;
+        private double longRtt;
+
+        Gradient(int initialLimit, int minLimit, int maxLimit) {
+            super(initialLimit, minLimit, maxLimit);
+        }
+
+        @Override
+        protected double next(double limit, long rttNanos, int inFlight, boolean dropped) {
+            if (longRtt == 0) {
+                shortRtt = rttNanos;
+                longRtt = rttNanos;
+                return limit;
+            }
+            shortRtt += (rttNanos - shortRtt) * SHORT_WEIGHT;
+            longRtt += (rttNanos - longRtt) * LONG_WEIGHT;
+            // After a sustained slowdown the long-term average catches up faster, so the limit can recover
+            if (longRtt / shortRtt > 2) {
+                longRtt *= 0.95;
+            }
+            if (!dropped && inFlight * 2 < limit) {
+                return limit;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, longRtt / shortRtt));
+            double next = limit * gradient + Math.sqrt(limit);
+            if (dropped) {
+                next = Math.min(next, limit * 0.9);
+            }
+            return limit * (1 - SMOOTHING) + next * SMOOTHING;
+        }
+    }
+}
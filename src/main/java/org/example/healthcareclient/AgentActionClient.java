@@ -0,0 +1,10 @@
+package org.example.healthcareclient;
+
+/**
+ * Calls an agent's {@code @Action} with its arguments already typed, so no LLM maps text onto them.
+ */
+@FunctionalInterface
+public interface AgentActionClient {
+
+    String invoke(AgentDomain domain, String action, Object... arguments);
+}
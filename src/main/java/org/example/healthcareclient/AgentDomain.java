@@ -0,0 +1,75 @@
+package org.example.healthcareclient;
+
+import org.example.appointments.AppointmentsService;
+import org.example.billing.BillingService;
+import org.example.diagnostics.DiagnosticsService;
+import org.example.patientrecords.PatientRecordsService;
+
+import java.util.List;
+
+/**
+ * The four healthcare agents in the mesh and where to reach them.
+ * Override a URL with {@code -Dmesh.agent.<name>.url}, e.g. {@code -Dmesh.agent.billing.url=http://host:8874/}.
+ */
+public enum AgentDomain {
+    PATIENT_RECORDS("patientrecords", "patientRecordsOperations", "http://localhost:8871/", PatientRecordsService.class,
+            "PT", "NOTE"),
+    APPOINTMENTS("appointments", "appointmentsOperations", "http://localhost:8872/", AppointmentsService.class,
+            "APT"),
+    DIAGNOSTICS("diagnostics", "diagnosticsOperations", "http://localhost:8873/", DiagnosticsService.class,
+            "LAB", "IMG", "DIAG-RPT"),
+    BILLING("billing", "billingOperations", "http://localhost:8874/", BillingService.class,
+            "INV", "PAY", "CLM", "PLAN");
+
+    private final String key;
+    private final String groupName;
+    private final String defaultUrl;
+    private final Class<?> serviceClass;
+    private final List<String> idPrefixes;
+
+    AgentDomain(String key, String groupName, String defaultUrl, Class<?> serviceClass, String... idPrefixes) {
+        this.key = key;
+        this.groupName = groupName;
+        this.defaultUrl = defaultUrl;
+        this.serviceClass = serviceClass;
+        this.idPrefixes = List.of(idPrefixes);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * The {@code @Agent} group name of the service behind this domain.
+     */
+    public String getGroupName() {
+        return groupName;
+    }
+
+    /**
+     * The {@code @Agent} class serving this domain; its {@code @Action} methods are the domain's operations.
+     */
+    public Class<?> getServiceClass() {
+        return serviceClass;
+    }
+
+    /**
+     * The prefixes of the IDs this domain's agent allocates, e.g. {@code PT} for {@code PT-0QZ3X1A2B3C4D}.
+     */
+    public List<String> getIdPrefixes() {
+        return idPrefixes;
+    }
+
+    public static AgentDomain fromGroupName(String groupName) {
+        for (AgentDomain domain : values()) {
+            if (domain.groupName.equalsIgnoreCase(groupName)) {
+                return domain;
+            }
+        }
+        return null;
+    }
+
+    public String getUrl() {
+        return System.getProperty("mesh.agent." + key + ".url", defaultUrl);
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.healthcareclient;
+
+/**
+ * Calls a named tool on one agent, with its arguments in plain English for the agent to map onto the action's
+ * parameters.
+ */
+@FunctionalInterface
+public interface AgentToolClient {
+
+    String callTool(AgentDomain domain, String toolName, String plainEnglishArguments);
+}
@@ -0,0 +1,10 @@
+package org.example.healthcareclient;
+
+/**
+ * Sends a natural-language query to one agent of the mesh and returns its text answer.
+ */
+@FunctionalInterface
+public interface AgentTransport {
+
+    String send(AgentDomain domain, String query);
+}
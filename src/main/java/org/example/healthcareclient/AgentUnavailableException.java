@@ -0,0 +1,36 @@
+package org.example.healthcareclient;
+
+/**
+ * A call the {@link ResilientTransport} refused or gave up on without an answer from the agent, or that no
+ * registered replica of the agent could answer.
+ */
+public class AgentUnavailableException extends IllegalStateException {
+
+    public enum Reason {
+        /** the agent failed too often recently and is left alone for a while */
+        CIRCUIT_OPEN,
+        /** as many calls as the agent's current concurrency limit are already waiting on it */
+        LIMIT_REACHED,
+        /** the caller's deadline passed */
+        DEADLINE_EXCEEDED,
+        /** the call names something held by a replica of the agent that is not registered */
+        REPLICA_UNAVAILABLE
+    }
+
+    private final AgentDomain domain;
+    private final Reason reason;
+
+    public AgentUnavailableException(AgentDomain domain, Reason reason, String message) {
+        super(domain + " unavailable (" + reason + "): " + message);
+        this.domain = domain;
+        this.reason = reason;
+    }
+
+    public AgentDomain getDomain() {
+        return domain;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
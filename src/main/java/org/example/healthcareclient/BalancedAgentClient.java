@@ -0,0 +1,193 @@
+package org.example.healthcareclient;
+
+import io.github.vishalmysore.mesh.AgentCatalog;
+import org.example.common.IdGenerator;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Spreads calls over the replicas of each agent known to a {@link ReplicaRegistry}. Replicas do not share state, so
+ * a call that names something one replica holds has to go to that replica:
+ * <ul>
+ *     <li>an ID the domain's agent allocated ({@code APT-...} for appointments, see
+ *     {@link AgentDomain#getIdPrefixes()}) goes to the replica whose {@code mesh.node.id} is stamped into it,
+ *     which is the one that created it. If that replica is not registered the call fails with
+ *     {@link AgentUnavailableException.Reason#REPLICA_UNAVAILABLE} instead of asking a replica that cannot know.</li>
+ *     <li>otherwise a patient id ({@code PT-...}) goes to the patient's owner on the pool's hash ring, so all of a
+ *     patient's appointments, orders and invoices are created on, and read from, one replica of each agent.</li>
+ *     <li>anything else, including creating a patient, goes to the better of two random replicas by latency and
+ *     calls in flight. The new patient's id then names the replica it was created on.</li>
+ * </ul>
+ * Only calls that any replica can answer have somewhere else to send a hedged duplicate; see
+ * {@link TargetedToolClient}. Free-text queries go through an {@link AgentCatalog} holding just the chosen replica.
+ * <p>
+ * Without affinity every call is balanced by latency alone, which is only correct while the replicas' state is
+ * shared or read-only (as in {@code ReplicaScalingBenchmark}).
+ */
+public class BalancedAgentClient implements TargetedToolClient, AgentTransport, AgentActionClient {
+
+    private static final Pattern GENERATED_ID = Pattern.compile("\\b([A-Z]+(?:-[A-Z]+)*)-([0-9A-Z]{13})\\b");
+    private static final Pattern PATIENT_ID = Pattern.compile("\\bPT-[0-9A-Z]+\\b");
+
+    private final ReplicaRegistry registry;
+    private final JsonRpcAgentClient tools;
+    private final FastPathClient fastPath;
+    private final Function<String, AgentCatalog> catalogFactory;
+    private final Map<String, AgentCatalog> catalogs = new ConcurrentHashMap<>();
+    private final boolean affinity;
+
+    public BalancedAgentClient(ReplicaRegistry registry) {
+        this(registry, new JsonRpcAgentClient(), new FastPathClient(), url -> {
+            AgentCatalog catalog = new AgentCatalog();
+            catalog.addAgent(url);
+            return catalog;
+        }, true);
+    }
+
+    /**
+     * @param catalogFactory the catalog free-text queries to one replica URL go through
+     * @param affinity       send calls naming an ID or patient to the replica holding it
+     */
+    public BalancedAgentClient(ReplicaRegistry registry, JsonRpcAgentClient tools, FastPathClient fastPath,
+                               Function<String, AgentCatalog> catalogFactory, boolean affinity) {
+        this.registry = registry;
+        this.tools = tools;
+        this.fastPath = fastPath;
+        this.catalogFactory = catalogFactory;
+        this.affinity = affinity;
+    }
+
+    @Override
+    public TargetedCall target(AgentDomain domain, String toolName, String plainEnglishArguments) {
+        return new ToolCall(toolName, plainEnglishArguments, route(domain, plainEnglishArguments),
+                registry.pool(domain));
+    }
+
+    @Override
+    public String send(AgentDomain domain, String query) {
+        Target target = route(domain, query);
+        return measured(target.replica(),
+                () -> catalog(target.replica().url()).processQuery(query).getTextResult());
+    }
+
+    /**
+     * A structured call on one replica, like {@link FastPathClient#invoke}.
+     */
+    @Override
+    public String invoke(AgentDomain domain, String action, Object... arguments) {
+        StringBuilder text = new StringBuilder();
+        for (Object argument : arguments) {
+            if (argument instanceof String value) {
+                text.append(value).append(' ');
+            }
+        }
+        Target target = route(domain, text.toString());
+        return measured(target.replica(), () -> fastPath.invokeAt(target.replica().url(), action, arguments));
+    }
+
+    /**
+     * @param replica the replica to send to
+     * @param pinned  whether only that replica can answer
+     */
+    private record Target(Replica replica, boolean pinned) {
+    }
+
+    private Target route(AgentDomain domain, String text) {
+        ReplicaPool pool = registry.pool(domain);
+        if (!affinity || pool.replicas().size() == 1 || text == null) {
+            return new Target(pool.pick(null), false);
+        }
+        Matcher ids = GENERATED_ID.matcher(text);
+        while (ids.find()) {
+            if (domain.getIdPrefixes().contains(ids.group(1))) {
+                long id;
+                try {
+                    id = IdGenerator.parse(ids.group());
+                } catch (NumberFormatException e) {
+                    // Looks like an ID but is past the range of any we allocate, so no replica holds it
+                    continue;
+                }
+                long node = IdGenerator.nodeOf(id);
+                Replica home = pool.home(node);
+                if (home == null) {
+                    throw new AgentUnavailableException(domain, AgentUnavailableException.Reason.REPLICA_UNAVAILABLE,
+                            ids.group() + " is held by mesh.node.id " + node + ", which is not registered");
+                }
+                return new Target(home, true);
+            }
+        }
+        Matcher patient = PATIENT_ID.matcher(text);
+        if (patient.find()) {
+            return new Target(pool.owner(patient.group()), true);
+        }
+        return new Target(pool.pick(null), false);
+    }
+
+    private AgentCatalog catalog(String url) {
+        AgentCatalog catalog = catalogs.get(url);
+        if (catalog == null) {
+            // Created outside the map, since adding an agent fetches its card over HTTP; catalogs of replicas that
+            // have left are dropped at the same time
+            AgentCatalog created = catalogFactory.apply(url);
+            Set<String> live = new HashSet<>();
+            for (AgentDomain domain : AgentDomain.values()) {
+                live.addAll(registry.urls(domain));
+            }
+            catalogs.keySet().retainAll(live);
+            catalog = catalogs.putIfAbsent(url, created);
+            if (catalog == null) {
+                catalog = created;
+            }
+        }
+        return catalog;
+    }
+
+    private static String measured(Replica replica, Supplier<String> call) {
+        long start = replica.start();
+        boolean failed = true;
+        try {
+            String answer = call.get();
+            failed = false;
+            return answer;
+        } finally {
+            replica.finish(start, failed);
+        }
+    }
+
+    private final class ToolCall implements TargetedCall {
+
+        private final String toolName;
+        private final String plainEnglishArguments;
+        private final Target target;
+        private final ReplicaPool pool;
+
+        ToolCall(String toolName, String plainEnglishArguments, Target target, ReplicaPool pool) {
+            this.toolName = toolName;
+            this.plainEnglishArguments = plainEnglishArguments;
+            this.target = target;
+            this.pool = pool;
+        }
+
+        @Override
+        public String call() {
+            return measured(target.replica(),
+                    () -> tools.callToolAt(target.replica().url(), toolName, plainEnglishArguments));
+        }
+
+        @Override
+        public TargetedCall elsewhere() {
+            if (target.pinned() || pool.replicas().size() == 1) {
+                return null;
+            }
+            return new ToolCall(toolName, plainEnglishArguments, new Target(pool.pick(target.replica()), false),
+                    pool);
+        }
+    }
+}
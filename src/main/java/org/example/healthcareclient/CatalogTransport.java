@@ -0,0 +1,42 @@
+package org.example.healthcareclient;
+
+import io.github.vishalmysore.mesh.AgentCatalog;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * {@link AgentTransport} that goes through {@link AgentCatalog#processQuery}, with one catalog per domain holding
+ * only that domain's agent. The catalog still picks the action, but never another agent, so the branches of a
+ * per-agent fan-out each reach the agent they were sent to.
+ */
+public class CatalogTransport implements AgentTransport {
+
+    private final Map<AgentDomain, AgentCatalog> catalogs = new EnumMap<>(AgentDomain.class);
+
+    /**
+     * Catalogs for the agents at {@link AgentDomain#getUrl()}.
+     */
+    public CatalogTransport() {
+        this(domain -> {
+            AgentCatalog catalog = new AgentCatalog();
+            catalog.addAgent(domain.getUrl());
+            return catalog;
+        });
+    }
+
+    /**
+     * @param catalogFactory the catalog queries for one domain go through, asked once per domain up front
+     */
+    public CatalogTransport(Function<AgentDomain, AgentCatalog> catalogFactory) {
+        for (AgentDomain domain : AgentDomain.values()) {
+            catalogs.put(domain, catalogFactory.apply(domain));
+        }
+    }
+
+    @Override
+    public String send(AgentDomain domain, String query) {
+        return catalogs.get(domain).processQuery(query).getTextResult();
+    }
+}
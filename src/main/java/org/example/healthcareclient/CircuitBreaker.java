@@ -0,0 +1,111 @@
+package org.example.healthcareclient;
+
+/**
+ * Stops calling an agent that keeps failing. The outcomes of the last {@code window} calls are kept; once at least
+ * half of the window is filled and the share of failures reaches {@code failurePercent}, the breaker opens and every
+ * call is refused for {@code openMillis}. After that a few probe calls are let through: if they all succeed the
+ * breaker closes, the first failure opens it again.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean[] outcomes;
+    private final int failurePercent;
+    private final long openNanos;
+    private final int probes;
+
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openUntil;
+    private int probesLeft;
+    private int probesSucceeded;
+    private long opened;
+
+    CircuitBreaker(int window, int failurePercent, long openMillis, int probes) {
+        this.outcomes = new boolean[window];
+        this.failurePercent = failurePercent;
+        this.openNanos = openMillis * 1_000_000L;
+        this.probes = probes;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openUntil < 0) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesLeft = probes;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesLeft == 0) {
+                return false;
+            }
+            probesLeft--;
+        }
+        return true;
+    }
+
+    /**
+     * Hands back a permit from {@link #tryAcquire()} for a call that never ran.
+     */
+    synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            probesLeft++;
+        }
+    }
+
+    synchronized void record(boolean success) {
+        if (state == State.HALF_OPEN) {
+            if (!success) {
+                open();
+            } else if (++probesSucceeded == probes) {
+                state = State.CLOSED;
+                recorded = 0;
+                next = 0;
+                failures = 0;
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        if (recorded == outcomes.length) {
+            if (!outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = success;
+        next = (next + 1) % outcomes.length;
+        if (!success) {
+            failures++;
+            if (recorded * 2 >= outcomes.length && failures * 100 >= failurePercent * recorded) {
+                open();
+            }
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    /**
+     * @return how often the breaker has opened
+     */
+    synchronized long opened() {
+        return opened;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.nanoTime() + openNanos;
+        opened++;
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.healthcareclient;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.common.Deadline;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Typed calls for callers that already know the operation they want, e.g.
+ * {@code fastPath.invoke(AgentDomain.BILLING, "getClaimStatus", claimId)}. The request goes to the
+ * agent's {@code /actions/{action}} endpoint and never touches an LLM.
+ */
+public class FastPathClient implements AgentActionClient {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+
+    public FastPathClient() {
+        this(HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build(), Duration.ofSeconds(30));
+    }
+
+    public FastPathClient(HttpClient httpClient, Duration requestTimeout) {
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public String invoke(AgentDomain domain, String action, Object... arguments) {
+        return invokeAt(domain.getUrl(), action, arguments);
+    }
+
+    /**
+     * Calls the action on the agent at {@code agentUrl}, e.g. one replica of a domain.
+     */
+    public String invokeAt(String agentUrl, String action, Object... arguments) {
+        URI uri = URI.create(agentUrl + "actions/" + action);
+        HttpRequest request = Deadline.applyTo(HttpRequest.newBuilder(uri), requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(arguments)))
+                .build();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() / 100 != 2) {
+                throw new IllegalStateException(uri + " answered HTTP " + response.statusCode()
+                        + ": " + response.body());
+            }
+            return response.body();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fast-path call " + uri + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling " + uri, e);
+        }
+    }
+
+    public String invoke(Route route, Object... arguments) {
+        return invoke(route.domain(), route.action(), arguments);
+    }
+
+    private static String toJson(Object[] arguments) {
+        try {
+            return MAPPER.writeValueAsString(Arrays.asList(arguments));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Arguments are not serializable: " + Arrays.toString(arguments), e);
+        }
+    }
+}
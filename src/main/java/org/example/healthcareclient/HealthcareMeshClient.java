@@ -1,8 +1,15 @@
 package org.example.healthcareclient;
 
-import io.github.vishalmysore.mesh.AgentCatalog;
-import io.github.vishalmysore.mesh.AgenticMesh;
 import lombok.extern.java.Log;
+import org.example.common.metrics.MetricsRegistry;
+import org.example.mesh.CoLocatedMesh;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * Healthcare Mesh Client demonstrating integration of multiple healthcare domain agents
@@ -11,63 +18,124 @@ import lombok.extern.java.Log;
 public class HealthcareMeshClient {
     public static void main(String[] args) {
         log.info("Initializing Healthcare Agentic Mesh...");
-        
-        AgentCatalog agentCatalog = new AgentCatalog();
-        
-        // Add all healthcare domain agents to the mesh
-        agentCatalog.addAgent("http://localhost:8871/"); // Patient Records Server
-        agentCatalog.addAgent("http://localhost:8872/"); // Appointments Server
-        agentCatalog.addAgent("http://localhost:8873/"); // Diagnostics Server
-        agentCatalog.addAgent("http://localhost:8874/"); // Billing Server
-        
+
+        // -Dmesh.colocated=true starts the four agents in this JVM and calls them in-process
+        CoLocatedMesh coLocated = Boolean.getBoolean("mesh.colocated") ? CoLocatedMesh.start() : null;
+        AgentTransport direct;
+        AgentToolClient tools;
+        AgentActionClient actions;
+        PooledAgentClient pooled = null;
+        ResilientTransport resilient = null;
+        ReplicaRegistry replicas = null;
+        if (coLocated != null) {
+            InProcessTransport inProcess = new InProcessTransport(coLocated);
+            direct = inProcess;
+            tools = inProcess;
+            actions = inProcess;
+        } else {
+            String registryDir = System.getProperty("mesh.registry.dir");
+            if (registryDir != null) {
+                // -Dmesh.registry.dir balances every call over the replicas registered there, sending calls that
+                // name a patient or an ID to the replica holding it
+                replicas = new ReplicaRegistry(Path.of(registryDir));
+                BalancedAgentClient balanced = new BalancedAgentClient(replicas);
+                resilient = new ResilientTransport(balanced, balanced);
+            } else {
+                // Free-text queries go to each domain's agent through a catalog holding just that agent (8871-8874).
+                // Tool calls share one HTTP/2 connection per agent; AgentCatalog keeps its own HTTP client
+                pooled = new PooledAgentClient();
+                // Per-agent concurrency limits, circuit breakers, deadlines and hedged reads over the network
+                resilient = new ResilientTransport(new CatalogTransport(), pooled);
+            }
+            direct = resilient;
+            tools = resilient;
+            actions = resilient;
+        }
+
         log.info("Healthcare Mesh initialized with 4 specialized agents");
+
+        // Known query shapes skip LLM tool selection, and go as typed calls when their parameters fill the action's;
+        // unknown ones are resolved once and cached
+        MetricsRegistry metrics = MetricsRegistry.shared();
+        AgentTransport catalog = new MeteredTransport(direct, coLocated != null ? "in-process" : "catalog", metrics);
+        SemanticRouter router = new SemanticRouter(
+            new RoutingCache(Integer.getInteger("mesh.routing.cache.size", 10_000)),
+            new LlmRouteResolver(new Tools4aiLlmClient()),
+            tools,
+            actions,
+            catalog);
+        AgentTransport routed = new MeteredTransport(router, "routed", metrics);
         
+        String visitDate = LocalDate.now().plusDays(7).format(DateTimeFormatter.ofPattern("MMMM d, yyyy", Locale.US));
+
         // Example: Complex healthcare workflow
         System.out.println("\n=== Healthcare Mesh Demo ===\n");
         
         // 1. Get patient information
-        String patientInfo = agentCatalog.processQuery("Get medical history for patient ID PT-12345")
-            .getTextResult();
+        String patientInfo = catalog.send(AgentDomain.PATIENT_RECORDS, "Get medical history for patient ID PT-12345");
         System.out.println("Patient Information:\n" + patientInfo);
         
         // 2. Schedule appointment
-        String appointmentResult = agentCatalog.processQuery(
-            "Schedule appointment for patient PT-12345 with Dr. Johnson for cardiology consultation on February 10, 2026")
-            .getTextResult();
+        String appointmentResult = catalog.send(AgentDomain.APPOINTMENTS,
+            "Schedule appointment for patient PT-12345 with Dr. Johnson for cardiology consultation on " + visitDate);
         System.out.println("\nAppointment Scheduling:\n" + appointmentResult);
         
         // 3. Order diagnostic tests
-        String diagnosticResult = agentCatalog.processQuery(
-            "Order complete blood count lab test for patient PT-12345, mark as urgent")
-            .getTextResult();
+        String diagnosticResult = catalog.send(AgentDomain.DIAGNOSTICS,
+            "Order complete blood count lab test for patient PT-12345, mark as urgent");
         System.out.println("\nDiagnostic Order:\n" + diagnosticResult);
         
         // 4. Generate invoice
-        String billingResult = agentCatalog.processQuery(
-            "Generate invoice for patient PT-12345 for office visit consultation, amount $150")
-            .getTextResult();
+        String billingResult = catalog.send(AgentDomain.BILLING,
+            "Generate invoice for patient PT-12345 for office visit consultation, amount $150");
         System.out.println("\nBilling Invoice:\n" + billingResult);
         
-        // Complex cross-domain query
-        String complexQuery = agentCatalog.processQuery(
-            "For patient PT-12345, get their medical history, check upcoming appointments, " +
-            "review recent lab results, and show current account balance")
-            .getTextResult();
-        System.out.println("\nComplex Query Result:\n" + complexQuery);
+        // Complex cross-domain query, fanned out to all four agents at once
+        try (ScatterGatherExecutor scatterGather = new ScatterGatherExecutor(routed)) {
+            ScatterGatherResult complexQuery = scatterGather.gather(
+                SubQuery.patientOverview("PT-12345"), Duration.ofSeconds(60));
+            System.out.println("\nComplex Query Result (" + complexQuery.elapsedMillis() + " ms):\n"
+                + complexQuery.getTextResult());
+        }
         
         log.info("Healthcare Mesh demo with AgentCatalog completed");
 
-        // Create AgenticMesh for pipeline processing
-        AgenticMesh agenticMesh = new AgenticMesh(agentCatalog);
-        
-        System.out.println("\n=== AgenticMesh Pipeline Demo ===\n");
+        // Dependency-aware workflow: independent lookups run together, the invoice waits for the booking
+        Workflow visitWorkflow = Workflow.builder("cardiology-visit")
+            .node("history", AgentDomain.PATIENT_RECORDS, "Get medical history for patient ID PT-12345")
+            .node("labs", AgentDomain.DIAGNOSTICS, "Analyze recent lab result trends for patient PT-12345")
+            .node("balance", AgentDomain.BILLING, "Get account balance for patient PT-12345")
+            .node("appointment", AgentDomain.APPOINTMENTS,
+                "Schedule appointment for patient PT-12345 with Dr. Johnson for cardiology consultation on " + visitDate)
+            .node("invoice", AgentDomain.BILLING, List.of("appointment"), upstream ->
+                "Generate invoice for patient PT-12345 for the cardiology consultation below, amount $150\n"
+                    + upstream.get("appointment"))
+            .build();
+
+        System.out.println("\n=== Workflow DAG Demo ===\n");
+
+        try (WorkflowEngine workflowEngine = new WorkflowEngine(routed)) {
+            WorkflowResult workflowResult = workflowEngine.run(visitWorkflow, Duration.ofMinutes(2),
+                node -> System.out.println("[" + node.nodeId() + " " + node.status() + "]\n" + node.text() + "\n"));
+            System.out.println(workflowResult.summary());
+        }
 
-        String pipelineResult = agenticMesh.pipeLineMesh(
-            "For patient PT-12345, get their medical history, check upcoming appointments, " +
-            "review recent lab results, and show current account balance")
-            .getTextResult();
-        System.out.println("\nPipeline Result:\n" + pipelineResult);
+        System.out.println("Routing cache: " + router.stats());
+        System.out.println("\n=== Client Metrics ===\n");
+        metrics.writePrometheus(System.out);
 
-        log.info("Healthcare Mesh demo with AgenticMesh completed");
+        log.info("Healthcare Mesh workflow demo completed");
+        if (resilient != null) {
+            resilient.close();
+        }
+        if (pooled != null) {
+            pooled.close();
+        }
+        if (replicas != null) {
+            replicas.close();
+        }
+        if (coLocated != null) {
+            coLocated.close();
+        }
     }
 }
@@ -0,0 +1,34 @@
+package org.example.healthcareclient;
+
+import org.example.mesh.CoLocatedMesh;
+
+import java.util.Arrays;
+
+/**
+ * {@link AgentTransport} and {@link AgentToolClient} for agents running in the same JVM as the client, in a
+ * {@link CoLocatedMesh}: queries and tool calls are method calls on the agent, with no HTTP or JSON in between.
+ * {@link #invoke} is the in-process counterpart of {@link FastPathClient#invoke}.
+ */
+public class InProcessTransport implements AgentTransport, AgentToolClient, AgentActionClient {
+
+    private final CoLocatedMesh mesh;
+
+    public InProcessTransport(CoLocatedMesh mesh) {
+        this.mesh = mesh;
+    }
+
+    @Override
+    public String send(AgentDomain domain, String query) {
+        return mesh.agent(domain).query(query);
+    }
+
+    @Override
+    public String callTool(AgentDomain domain, String toolName, String plainEnglishArguments) {
+        return mesh.agent(domain).callTool(toolName, plainEnglishArguments);
+    }
+
+    @Override
+    public String invoke(AgentDomain domain, String action, Object... arguments) {
+        return mesh.agent(domain).invoke(action, Arrays.asList(arguments));
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.healthcareclient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.example.common.Deadline;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Calls a named tool on one agent directly with a JSON-RPC {@code tools/call}, bypassing the
+ * catalog's agent selection. Arguments travel as plain English and are mapped onto the
+ * action's parameters by the agent.
+ */
+public class JsonRpcAgentClient implements AgentToolClient {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final AtomicLong requestIds = new AtomicLong();
+
+    public JsonRpcAgentClient() {
+        this(HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build(), Duration.ofSeconds(120));
+    }
+
+    public JsonRpcAgentClient(HttpClient httpClient, Duration requestTimeout) {
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public String callTool(AgentDomain domain, String toolName, String plainEnglishArguments) {
+        return callToolAt(domain.getUrl(), toolName, plainEnglishArguments);
+    }
+
+    /**
+     * Calls the tool on the agent at {@code agentUrl}, e.g. one replica of a domain.
+     */
+    public String callToolAt(String agentUrl, String toolName, String plainEnglishArguments) {
+        ObjectNode request = MAPPER.createObjectNode();
+        request.put("jsonrpc", "2.0");
+        request.put("method", "tools/call");
+        request.put("id", requestIds.incrementAndGet());
+        ObjectNode params = request.putObject("params");
+        params.put("name", toolName);
+        params.putObject("arguments").put("provideAllValuesInPlainEnglish", plainEnglishArguments);
+        return post(agentUrl, request);
+    }
+
+    String post(String agentUrl, JsonNode request) {
+        try {
+            HttpRequest httpRequest = Deadline.applyTo(HttpRequest.newBuilder(URI.create(agentUrl)), requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(request)))
+                    .build();
+            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() / 100 != 2) {
+                throw new IllegalStateException(agentUrl + " answered HTTP " + response.statusCode());
+            }
+            return textOf(MAPPER.readTree(response.body()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Call to " + agentUrl + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling " + agentUrl, e);
+        }
+    }
+
+    static String textOf(JsonNode response) {
+        JsonNode error = response.get("error");
+        if (error != null && !error.isNull()) {
+            throw new IllegalStateException("Agent error: " + error.path("message").asText(error.toString()));
+        }
+        JsonNode result = response.path("result");
+        JsonNode content = result.path("content");
+        if (content.isArray()) {
+            StringBuilder text = new StringBuilder();
+            for (JsonNode part : content) {
+                if (part.has("text")) {
+                    text.append(part.get("text").asText());
+                }
+            }
+            return text.toString();
+        }
+        return result.isTextual() ? result.asText() : result.toString();
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.healthcareclient;
+
+/**
+ * Minimal prompt-in, text-out view of the configured LLM, so routing can be exercised against a stub.
+ */
+@FunctionalInterface
+public interface LlmClient {
+
+    String complete(String prompt);
+}
@@ -0,0 +1,66 @@
+package org.example.healthcareclient;
+
+import com.t4a.annotations.Action;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Asks the LLM to pick one {@code @Action} out of the catalogue of all four agents.
+ * This is the slow path behind {@link RoutingCache}.
+ */
+public class LlmRouteResolver {
+
+    private static final Pattern ANSWER = Pattern.compile("(\\w+)\\.(\\w+)");
+
+    private final LlmClient llm;
+    private final String catalogue;
+    private final Map<String, Class<?>[]> knownRoutes = new HashMap<>();
+
+    public LlmRouteResolver(LlmClient llm) {
+        this.llm = llm;
+        StringBuilder catalogue = new StringBuilder();
+        for (AgentDomain domain : AgentDomain.values()) {
+            for (Method method : domain.getServiceClass().getMethods()) {
+                Action action = method.getAnnotation(Action.class);
+                if (action != null) {
+                    catalogue.append("- ").append(domain.getGroupName()).append('.').append(method.getName())
+                             .append(": ").append(action.description()).append('\n');
+                    knownRoutes.put(domain.getGroupName() + '.' + method.getName(), method.getParameterTypes());
+                }
+            }
+        }
+        this.catalogue = catalogue.toString();
+    }
+
+    /**
+     * @return the chosen route, or {@code null} if the LLM did not name a known action
+     */
+    public Route resolve(String query) {
+        String answer = llm.complete("Choose the single healthcare agent action that answers the query. "
+                + "Reply with exactly one line in the form group.action and nothing else.\n"
+                + "Actions:\n" + catalogue
+                + "Query: " + query);
+        if (answer == null) {
+            return null;
+        }
+        Matcher matcher = ANSWER.matcher(answer);
+        while (matcher.find()) {
+            if (knownRoutes.containsKey(matcher.group())) {
+                return new Route(AgentDomain.fromGroupName(matcher.group(1)), matcher.group(2));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the parameter types of the route's action, or {@code null} if it is not in the catalogue
+     */
+    public Class<?>[] parameterTypes(Route route) {
+        Class<?>[] types = knownRoutes.get(route.domain().getGroupName() + '.' + route.action());
+        return types == null ? null : types.clone();
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.healthcareclient;
+
+import org.example.common.metrics.LatencyMetric;
+import org.example.common.metrics.MetricsRegistry;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Records latency, errors and in-flight calls per agent for every query sent through the wrapped
+ * transport, as the {@code mesh_query} family labelled with the transport name.
+ */
+public class MeteredTransport implements AgentTransport {
+
+    private final AgentTransport delegate;
+    private final Map<AgentDomain, LatencyMetric> metrics = new EnumMap<>(AgentDomain.class);
+
+    public MeteredTransport(AgentTransport delegate, String transportName, MetricsRegistry registry) {
+        this.delegate = delegate;
+        for (AgentDomain domain : AgentDomain.values()) {
+            metrics.put(domain, registry.latency("mesh_query", "Latency of queries sent from the mesh client",
+                    "agent", domain.getKey(), "transport", transportName));
+        }
+    }
+
+    @Override
+    public String send(AgentDomain domain, String query) {
+        LatencyMetric metric = metrics.get(domain);
+        long start = metric.start();
+        boolean failed = true;
+        try {
+            String answer = delegate.send(domain, query);
+            failed = false;
+            return answer;
+        } finally {
+            metric.stop(start, failed);
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package org.example.healthcareclient;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.java.Log;
+import org.example.common.Deadline;
+import org.example.common.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Mesh calls to the agents over long-lived connections, for many concurrent callers.
+ * <p>
+ * Every agent has its own {@link HttpClient} (its own connection pool and I/O threads) that prefers HTTP/2; the
+ * first request to an agent is a bodiless {@code GET /actions} so the connection is upgraded to h2c, and later
+ * calls are multiplexed over it. Agents that only speak HTTP/1.1 get keep-alive connections instead.
+ * <p>
+ * Two things cut the number of requests:
+ * <ul>
+ *     <li>single flight - identical read calls (an action or tool whose name starts with one of
+ *     {@code -Dmesh.transport.coalesce-prefixes}, default {@code get,search,verify,analyze}, with the same
+ *     arguments) that are in flight at the same time share one request and its answer</li>
+ *     <li>micro-batching - structured calls to one agent that arrive within {@code -Dmesh.transport.batch.linger-us}
+ *     (default 200) of each other are sent as one JSON-RPC batch to {@code POST /actions}, at most
+ *     {@code -Dmesh.transport.batch.max} (default 32) calls per batch; a call that arrives alone goes to
+ *     {@code /actions/{action}} as usual</li>
+ * </ul>
+ * Tool calls with plain-English arguments need the agent's LLM, so they are coalesced but never batched.
+ * Requests, batches and coalesced calls are exported as {@code mesh_transport_*} metrics.
+ */
+@Log
+public class PooledAgentClient implements AgentToolClient, AgentActionClient, AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public record Options(int maxBatch, long lingerMicros, int ioThreadsPerAgent, Duration connectTimeout,
+                          Duration requestTimeout, List<String> coalescePrefixes) {
+
+        public static Options defaults() {
+            return new Options(
+                    Integer.getInteger("mesh.transport.batch.max", 32),
+                    Long.getLong("mesh.transport.batch.linger-us", 200),
+                    Integer.getInteger("mesh.transport.io-threads", 4),
+                    Duration.ofSeconds(5),
+                    Duration.ofSeconds(Long.getLong("mesh.transport.timeout-seconds", 120)),
+                    Arrays.stream(System.getProperty("mesh.transport.coalesce-prefixes", "get,search,verify,analyze")
+                                    .split(","))
+                            .map(String::trim)
+                            .filter(prefix -> !prefix.isEmpty())
+                            .toList());
+        }
+    }
+
+    private record CallKey(AgentDomain domain, String name, Object arguments) {
+    }
+
+    private record Pending(String action, List<Object> arguments, Deadline deadline,
+                           CompletableFuture<String> answer) {
+    }
+
+    private final Options options;
+    private final Map<AgentDomain, Agent> agents = new EnumMap<>(AgentDomain.class);
+    private final Map<CallKey, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final AtomicLong requestIds = new AtomicLong();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedCalls = new LongAdder();
+
+    public PooledAgentClient() {
+        this(Options.defaults(), MetricsRegistry.shared());
+    }
+
+    public PooledAgentClient(Options options, MetricsRegistry registry) {
+        this.options = options;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mesh-batch-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (AgentDomain domain : AgentDomain.values()) {
+            Agent agent = new Agent(domain);
+            agents.put(domain, agent);
+            registry.counter("mesh_transport_requests_total", "HTTP requests sent to the agent",
+                    agent.requests::sum, "agent", domain.getKey());
+        }
+        registry.counter("mesh_transport_coalesced_total", "Calls answered by an identical call already in flight",
+                coalesced::sum);
+        registry.counter("mesh_transport_batches_total", "JSON-RPC batches sent", batches::sum);
+        registry.counter("mesh_transport_batched_calls_total", "Calls sent inside a JSON-RPC batch",
+                batchedCalls::sum);
+    }
+
+    /**
+     * Calls an action with positional arguments, like {@link FastPathClient#invoke}.
+     */
+    @Override
+    public String invoke(AgentDomain domain, String action, Object... arguments) {
+        return join(invokeAsync(domain, action, arguments), domain + "." + action);
+    }
+
+    public String invoke(Route route, Object... arguments) {
+        return invoke(route.domain(), route.action(), arguments);
+    }
+
+    public CompletableFuture<String> invokeAsync(AgentDomain domain, String action, Object... arguments) {
+        List<Object> list = Arrays.asList(arguments.clone());
+        Pending call = new Pending(action, list, Deadline.current(), new CompletableFuture<>());
+        return singleFlight(new CallKey(domain, action, list), () -> agents.get(domain).enqueue(call));
+    }
+
+    @Override
+    public String callTool(AgentDomain domain, String toolName, String plainEnglishArguments) {
+        return join(callToolAsync(domain, toolName, plainEnglishArguments), domain + "." + toolName);
+    }
+
+    public CompletableFuture<String> callToolAsync(AgentDomain domain, String toolName, String plainEnglishArguments) {
+        return singleFlight(new CallKey(domain, toolName, plainEnglishArguments),
+                () -> agents.get(domain).callTool(toolName, plainEnglishArguments));
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        for (Agent agent : agents.values()) {
+            agent.executor.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<String> singleFlight(CallKey key, Supplier<CompletableFuture<String>> call) {
+        if (!coalesces(key.name())) {
+            return call.get();
+        }
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            return running;
+        }
+        call.get().whenComplete((answer, error) -> {
+            inFlight.remove(key, mine);
+            if (error != null) {
+                mine.completeExceptionally(error);
+            } else {
+                mine.complete(answer);
+            }
+        });
+        return mine;
+    }
+
+    private boolean coalesces(String name) {
+        for (String prefix : options.coalescePrefixes()) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String join(CompletableFuture<String> answer, String call) {
+        try {
+            return answer.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof IOException io) {
+                throw new UncheckedIOException("Call " + call + " failed", io);
+            }
+            throw new IllegalStateException("Call " + call + " failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling " + call, e);
+        }
+    }
+
+    /**
+     * One agent's HTTP client and the batch being collected for it.
+     */
+    private final class Agent {
+
+        private final AgentDomain domain;
+        private final ExecutorService executor;
+        private final HttpClient http;
+        private final LongAdder requests = new LongAdder();
+        private volatile CompletableFuture<?> connected;
+        private List<Pending> open = new ArrayList<>();
+        private boolean flushScheduled;
+
+        Agent(AgentDomain domain) {
+            this.domain = domain;
+            AtomicInteger threads = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(options.ioThreadsPerAgent(), runnable -> {
+                Thread thread = new Thread(runnable, "mesh-" + domain.getKey() + "-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(options.connectTimeout())
+                    .executor(executor)
+                    .build();
+        }
+
+        CompletableFuture<String> enqueue(Pending call) {
+            if (options.lingerMicros() <= 0 || options.maxBatch() <= 1) {
+                send(List.of(call));
+                return call.answer();
+            }
+            List<Pending> full = null;
+            synchronized (this) {
+                open.add(call);
+                if (open.size() >= options.maxBatch()) {
+                    full = open;
+                    open = new ArrayList<>();
+                } else if (!flushScheduled) {
+                    flushScheduled = true;
+                    flusher.schedule(this::flush, options.lingerMicros(), TimeUnit.MICROSECONDS);
+                }
+            }
+            if (full != null) {
+                send(full);
+            }
+            return call.answer();
+        }
+
+        private void flush() {
+            List<Pending> batch;
+            synchronized (this) {
+                batch = open;
+                open = new ArrayList<>();
+                flushScheduled = false;
+            }
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+        }
+
+        private void send(List<Pending> calls) {
+            if (calls.size() == 1) {
+                Pending call = calls.get(0);
+                post(URI.create(domain.getUrl() + "actions/" + call.action()), json(call.arguments()), call.deadline())
+                        .whenComplete((response, error) -> {
+                            if (error != null) {
+                                call.answer().completeExceptionally(error);
+                            } else if (response.statusCode() / 100 != 2) {
+                                call.answer().completeExceptionally(new IllegalStateException(domain + "."
+                                        + call.action() + " answered HTTP " + response.statusCode() + ": "
+                                        + response.body()));
+                            } else {
+                                call.answer().complete(response.body());
+                            }
+                        });
+                return;
+            }
+            ArrayNode batch = MAPPER.createArrayNode();
+            // The batch is worth running until the last of its callers gives up
+            Deadline latest = calls.get(0).deadline();
+            for (int i = 0; i < calls.size(); i++) {
+                Deadline deadline = calls.get(i).deadline();
+                latest = latest == null || deadline == null ? null
+                        : deadline.remainingNanos() > latest.remainingNanos() ? deadline : latest;
+                ObjectNode request = batch.addObject();
+                request.put("jsonrpc", "2.0");
+                request.put("id", i);
+                request.put("method", calls.get(i).action());
+                request.set("params", MAPPER.valueToTree(calls.get(i).arguments()));
+            }
+            batches.increment();
+            batchedCalls.add(calls.size());
+            post(URI.create(domain.getUrl() + "actions"), batch.toString(), latest)
+                    .whenComplete((response, error) -> complete(calls, response, error));
+        }
+
+        private void complete(List<Pending> calls, HttpResponse<String> response, Throwable error) {
+            if (error == null && response.statusCode() / 100 != 2) {
+                error = new IllegalStateException(domain + " answered HTTP " + response.statusCode()
+                        + " to a batch of " + calls.size() + ": " + response.body());
+            }
+            if (error == null) {
+                try {
+                    for (JsonNode answer : MAPPER.readTree(response.body())) {
+                        int id = answer.path("id").asInt(-1);
+                        if (id < 0 || id >= calls.size()) {
+                            continue;
+                        }
+                        Pending call = calls.get(id);
+                        JsonNode failure = answer.get("error");
+                        if (failure != null && !failure.isNull()) {
+                            call.answer().completeExceptionally(new IllegalStateException(domain + "."
+                                    + call.action() + " failed: " + failure.path("message").asText()));
+                        } else {
+                            call.answer().complete(answer.path("result").asText());
+                        }
+                    }
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            for (Pending call : calls) {
+                if (error != null) {
+                    call.answer().completeExceptionally(error);
+                } else if (!call.answer().isDone()) {
+                    call.answer().completeExceptionally(new IllegalStateException(domain + " sent no answer for "
+                            + call.action()));
+                }
+            }
+        }
+
+        CompletableFuture<String> callTool(String toolName, String plainEnglishArguments) {
+            ObjectNode request = MAPPER.createObjectNode();
+            request.put("jsonrpc", "2.0");
+            request.put("method", "tools/call");
+            request.put("id", requestIds.incrementAndGet());
+            ObjectNode params = request.putObject("params");
+            params.put("name", toolName);
+            params.putObject("arguments").put("provideAllValuesInPlainEnglish", plainEnglishArguments);
+            return post(URI.create(domain.getUrl()), request.toString(), Deadline.current()).thenApply(response -> {
+                if (response.statusCode() / 100 != 2) {
+                    throw new IllegalStateException(domain + " answered HTTP " + response.statusCode());
+                }
+                try {
+                    return JsonRpcAgentClient.textOf(MAPPER.readTree(response.body()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unreadable answer from " + domain, e);
+                }
+            });
+        }
+
+        private CompletableFuture<HttpResponse<String>> post(URI uri, String body, Deadline deadline) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri);
+            if (deadline != null) {
+                try (Deadline.Scope ignored = deadline.attach()) {
+                    Deadline.applyTo(builder, options.requestTimeout());
+                }
+            } else {
+                builder.timeout(options.requestTimeout());
+            }
+            HttpRequest request = builder
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            return connect().thenCompose(ignored -> {
+                requests.increment();
+                return http.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+            });
+        }
+
+        /**
+         * The h2c upgrade rides on a bodiless request, so the first call waits for {@code GET /actions}; if that
+         * fails the calls go ahead and the next call tries again.
+         */
+        private CompletableFuture<?> connect() {
+            CompletableFuture<?> current = connected;
+            if (current != null) {
+                return current;
+            }
+            synchronized (this) {
+                if (connected == null) {
+                    requests.increment();
+                    CompletableFuture<?> attempt = http.sendAsync(
+                                    HttpRequest.newBuilder(URI.create(domain.getUrl() + "actions"))
+                                            .timeout(options.connectTimeout()).GET().build(),
+                                    HttpResponse.BodyHandlers.discarding())
+                            .handle((response, error) -> {
+                                if (error != null) {
+                                    log.log(Level.FINE, "Unable to open a connection to " + domain, error);
+                                    connected = null;
+                                } else {
+                                    log.fine(() -> domain + " connected over " + response.version());
+                                }
+                                return null;
+                            });
+                    connected = attempt;
+                }
+                return connected;
+            }
+        }
+    }
+
+    private static String json(List<Object> arguments) {
+        try {
+            return MAPPER.writeValueAsString(arguments);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Arguments are not serializable: " + arguments, e);
+        }
+    }
+}
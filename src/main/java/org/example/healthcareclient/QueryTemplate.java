@@ -0,0 +1,112 @@
+package org.example.healthcareclient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A natural-language query with its variable parts pulled out. "Get medical history for patient ID
+ * PT-12345" and "get medical history for patient id PT-99" both normalize to
+ * {@code get medical history for patient id {id}}, so they share one routing decision, and the parts pulled
+ * out ({@code PT-12345}) can be passed to the routed action as its arguments: see {@link #arguments}.
+ */
+public record QueryTemplate(String key, List<String> parameters) {
+
+    private static final Pattern PARAMETER = Pattern.compile(
+            "(?<id>(?-i:\\b[A-Z]{2,4}(?:-[A-Z]{2,4})?-[0-9A-Z]+\\b))"
+            + "|(?<amount>\\$\\s?[0-9][0-9,]*(?:\\.[0-9]+)?)"
+            + "|(?<date>\\b\\d{4}-\\d{2}-\\d{2}\\b"
+            + "|\\b(?:jan|feb|mar|apr|may|jun|jul|aug|sep|oct|nov|dec)[a-z]*\\.?\\s+\\d{1,2}(?:st|nd|rd|th)?,?\\s+\\d{4}\\b)"
+            + "|(?<number>\\b\\d+(?:\\.\\d+)?\\b)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final String[] GROUPS = {"id", "amount", "date", "number"};
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{(id|amount|date|number)}");
+
+    public static QueryTemplate of(String query) {
+        Matcher matcher = PARAMETER.matcher(query.trim());
+        StringBuilder key = new StringBuilder(query.length());
+        List<String> parameters = new ArrayList<>(4);
+        while (matcher.find()) {
+            for (String group : GROUPS) {
+                if (matcher.group(group) != null) {
+                    parameters.add(matcher.group(group));
+                    matcher.appendReplacement(key, "{" + group + "}");
+                    break;
+                }
+            }
+        }
+        matcher.appendTail(key);
+        String normalized = WHITESPACE.matcher(key).replaceAll(" ").toLowerCase(Locale.ROOT);
+        while (!normalized.isEmpty() && ".?!".indexOf(normalized.charAt(normalized.length() - 1)) >= 0) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return new QueryTemplate(normalized, Collections.unmodifiableList(parameters));
+    }
+
+    /**
+     * Binds the parameters, in order, to an action taking {@code parameterTypes}: an ID or a date to a
+     * {@code String}, a number to an {@code int} or {@code long}, a number or an amount to a {@code double}.
+     *
+     * @return the arguments, or {@code null} if the parameters do not fill the action's parameters one to one,
+     * or could fill them in more than one order (two {@code String} parameters, say), so the query has to go to
+     * the agent as text
+     */
+    public Object[] arguments(Class<?>[] parameterTypes) {
+        if (parameterTypes == null || parameterTypes.length != parameters.size()) {
+            return null;
+        }
+        if (Arrays.stream(parameterTypes).map(QueryTemplate::boxed).distinct().count() != parameterTypes.length) {
+            return null;
+        }
+        Matcher kinds = PLACEHOLDER.matcher(key);
+        Object[] arguments = new Object[parameterTypes.length];
+        for (int i = 0; i < arguments.length; i++) {
+            if (!kinds.find()) {
+                return null;
+            }
+            arguments[i] = convert(kinds.group(1), parameters.get(i), boxed(parameterTypes[i]));
+            if (arguments[i] == null) {
+                return null;
+            }
+        }
+        return arguments;
+    }
+
+    private static Object convert(String kind, String value, Class<?> type) {
+        try {
+            if (type == String.class) {
+                return kind.equals("id") || kind.equals("date") ? value : null;
+            }
+            if (type == Integer.class && kind.equals("number")) {
+                return Integer.valueOf(value);
+            }
+            if (type == Long.class && kind.equals("number")) {
+                return Long.valueOf(value);
+            }
+            if (type == Double.class && (kind.equals("number") || kind.equals("amount"))) {
+                return Double.valueOf(value.replaceAll("[$,\\s]", ""));
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return null;
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == double.class) {
+            return Double.class;
+        }
+        return type;
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.healthcareclient;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One running instance of an agent, with what the balancer knows about it: calls in flight from this client and an
+ * exponentially weighted moving average of its latency. A failure counts as a call four times slower than the
+ * average, so a replica that errors out loses traffic the same way a slow one does. While a replica gets no calls
+ * its average decays back towards the starting value, so a replica that was avoided is eventually tried again.
+ */
+final class Replica {
+
+    private static final double WEIGHT = 0.2;
+    private static final long INITIAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final double MAX_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final String url;
+    private final long node;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double ewmaNanos = INITIAL_NANOS;
+    private volatile long updatedAt = System.nanoTime();
+
+    /**
+     * @param node the replica's {@code mesh.node.id}, or -1 if unknown
+     */
+    Replica(String url, long node) {
+        this.url = url;
+        this.node = node;
+    }
+
+    String url() {
+        return url;
+    }
+
+    long node() {
+        return node;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    long ewmaNanos() {
+        return (long) decayed(System.nanoTime());
+    }
+
+    /**
+     * Lower is better: latency scaled by the queue this client already has on the replica.
+     */
+    double score() {
+        return decayed(System.nanoTime()) * (inFlight.get() + 1);
+    }
+
+    long start() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    void finish(long startNanos, boolean failed) {
+        inFlight.decrementAndGet();
+        long now = System.nanoTime();
+        double average = decayed(now);
+        double sample = failed ? average * 4 : now - startNanos;
+        // Racing updates may lose a sample; the average does not need to be exact
+        ewmaNanos = Math.min(MAX_NANOS, average + (sample - average) * WEIGHT);
+        updatedAt = now;
+    }
+
+    private double decayed(long now) {
+        double average = ewmaNanos;
+        long idle = now - updatedAt;
+        if (idle <= 0 || average <= INITIAL_NANOS) {
+            return average;
+        }
+        return INITIAL_NANOS + (average - INITIAL_NANOS) * Math.exp(-idle / DECAY_NANOS);
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
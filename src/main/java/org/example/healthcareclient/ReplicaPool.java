@@ -0,0 +1,115 @@
+package org.example.healthcareclient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The replicas of one agent at one moment, and how a call picks among them. Immutable: the registry swaps in a new
+ * pool when replicas come or go, keeping the {@link Replica} objects (and their latency history) that stay.
+ * <ul>
+ *     <li>{@link #home}: the replica with a given node id, which is the one that allocated, and alone holds, every
+ *     ID stamped with that node.</li>
+ *     <li>{@link #owner}: the replica owning a key on a consistent-hash ring, for keys no replica allocated (a
+ *     patient id on an agent other than patient records). Ownership is strict, so every call with the key lands
+ *     where the key's data was written; only about 1/N of the keys move when a replica joins or leaves.</li>
+ *     <li>{@link #pick}: power of two choices for calls that any replica can answer. Two replicas drawn at random,
+ *     the one with the lower {@link Replica#score()} wins; nearly as good as always asking the least loaded
+ *     replica, without every client herding onto the same one.</li>
+ * </ul>
+ */
+final class ReplicaPool {
+
+    private static final int VIRTUAL_NODES = 128;
+
+    private final List<Replica> replicas;
+    private final Map<Long, Replica> byNode = new HashMap<>();
+    private final long[] ringHashes;
+    private final Replica[] ringOwners;
+
+    ReplicaPool(List<Replica> replicas) {
+        this.replicas = List.copyOf(replicas);
+        for (Replica replica : replicas) {
+            if (replica.node() >= 0) {
+                byNode.putIfAbsent(replica.node(), replica);
+            }
+        }
+        int points = replicas.size() * VIRTUAL_NODES;
+        long[][] ring = new long[points][2];
+        for (int r = 0; r < replicas.size(); r++) {
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                ring[r * VIRTUAL_NODES + v][0] = hash(replicas.get(r).url() + "#" + v);
+                ring[r * VIRTUAL_NODES + v][1] = r;
+            }
+        }
+        Arrays.sort(ring, (a, b) -> Long.compare(a[0], b[0]));
+        this.ringHashes = new long[points];
+        this.ringOwners = new Replica[points];
+        for (int i = 0; i < points; i++) {
+            ringHashes[i] = ring[i][0];
+            ringOwners[i] = replicas.get((int) ring[i][1]);
+        }
+    }
+
+    List<Replica> replicas() {
+        return replicas;
+    }
+
+    /**
+     * @param exclude a replica not to pick unless it is the only one, or {@code null}
+     */
+    Replica pick(Replica exclude) {
+        int size = replicas.size();
+        if (size == 1) {
+            return replicas.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Replica first = replicas.get(random.nextInt(size));
+        Replica second = replicas.get(random.nextInt(size - 1));
+        if (second == first) {
+            second = replicas.get(size - 1);
+        }
+        if (first == exclude) {
+            return second;
+        }
+        if (second == exclude) {
+            return first;
+        }
+        return second.score() < first.score() ? second : first;
+    }
+
+    /**
+     * @return the replica registered with {@code node}, or {@code null} if none is
+     */
+    Replica home(long node) {
+        return byNode.get(node);
+    }
+
+    Replica owner(String key) {
+        int index = Arrays.binarySearch(ringHashes, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return ringOwners[index % ringOwners.length];
+    }
+
+    /**
+     * FNV-1a over UTF-8 with a final avalanche, so neighbouring ids land far apart on the ring.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,200 @@
+package org.example.healthcareclient;
+
+import lombok.extern.java.Log;
+import org.example.common.ReplicaDirectory;
+import org.example.common.metrics.MetricsRegistry;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * The replicas of every agent as announced in a {@link ReplicaDirectory}, re-read every
+ * {@code -Dmesh.registry.heartbeat-ms} (default 1000). A replica is dropped once its heartbeat is three intervals
+ * old. A domain with no registered replica falls back to its single {@link AgentDomain#getUrl()}, so a mesh with
+ * some agents replicated and others not needs no extra configuration.
+ * <p>
+ * Affinity is strict: a call naming a patient always goes to the patient's owner, however busy, so that it finds
+ * what earlier calls wrote there; see {@link ReplicaPool}.
+ */
+@Log
+public class ReplicaRegistry implements AutoCloseable {
+
+    private final Path directory;
+    private final Duration ttl;
+    private final MetricsRegistry metrics;
+    private final Map<AgentDomain, ReplicaPool> pools = new EnumMap<>(AgentDomain.class);
+    private final ScheduledExecutorService refresher;
+
+    public ReplicaRegistry(Path directory) {
+        this(directory, Duration.ofMillis(Long.getLong("mesh.registry.heartbeat-ms", 1000)),
+                MetricsRegistry.shared());
+    }
+
+    public ReplicaRegistry(Path directory, Duration heartbeat, MetricsRegistry metrics) {
+        this.directory = directory;
+        this.ttl = heartbeat.multipliedBy(3);
+        this.metrics = metrics;
+        for (AgentDomain domain : AgentDomain.values()) {
+            pools.put(domain, new ReplicaPool(List.of(new Replica(domain.getUrl(), -1))));
+            metrics.gauge("mesh_replicas", "Replicas of the agent the mesh client balances over",
+                    () -> pool(domain).replicas().size(), "agent", domain.getKey());
+        }
+        refresh();
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mesh-replica-registry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, heartbeat.toMillis(), heartbeat.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the base URLs of the domain's replicas, sorted
+     */
+    public List<String> urls(AgentDomain domain) {
+        return pool(domain).replicas().stream().map(Replica::url).toList();
+    }
+
+    ReplicaPool pool(AgentDomain domain) {
+        synchronized (pools) {
+            return pools.get(domain);
+        }
+    }
+
+    /**
+     * Waits until at least {@code count} replicas of the domain are registered.
+     *
+     * @return whether they were before the timeout
+     */
+    public boolean awaitReplicas(AgentDomain domain, int count, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (registered(domain) < count) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(100);
+            refresh();
+        }
+        return true;
+    }
+
+    /**
+     * Re-reads the directory now instead of at the next interval.
+     */
+    public synchronized void refresh() {
+        Map<AgentDomain, List<ReplicaDirectory.Entry>> entries = new EnumMap<>(AgentDomain.class);
+        for (ReplicaDirectory.Entry entry : ReplicaDirectory.read(directory, ttl)) {
+            AgentDomain domain = byKey(entry.domain());
+            if (domain != null) {
+                entries.computeIfAbsent(domain, key -> new ArrayList<>()).add(entry);
+            }
+        }
+        for (AgentDomain domain : AgentDomain.values()) {
+            List<ReplicaDirectory.Entry> current = entries.getOrDefault(domain,
+                    List.of(new ReplicaDirectory.Entry(domain.getKey(), domain.getUrl(), -1, null)));
+            ReplicaPool pool = pool(domain);
+            Map<String, Replica> known = new HashMap<>();
+            for (Replica replica : pool.replicas()) {
+                known.put(replica.url(), replica);
+            }
+            if (unchanged(known, current)) {
+                continue;
+            }
+            List<Replica> replicas = new ArrayList<>(current.size());
+            Map<Long, String> nodes = new HashMap<>();
+            for (ReplicaDirectory.Entry entry : current.stream()
+                    .sorted(Comparator.comparing(ReplicaDirectory.Entry::url)).toList()) {
+                Replica replica = known.remove(entry.url());
+                if (replica == null || replica.node() != entry.node()) {
+                    if (replica != null) {
+                        unregister(domain, replica);
+                    }
+                    replica = new Replica(entry.url(), entry.node());
+                    register(domain, replica);
+                }
+                replicas.add(replica);
+                String other = entry.node() >= 0 ? nodes.putIfAbsent(entry.node(), entry.url()) : null;
+                if (other != null) {
+                    log.warning(domain + " replicas " + other + " and " + entry.url() + " share mesh.node.id "
+                            + entry.node() + "; IDs they allocate collide and calls naming them go to " + other);
+                }
+            }
+            for (Replica gone : known.values()) {
+                unregister(domain, gone);
+            }
+            synchronized (pools) {
+                pools.put(domain, new ReplicaPool(replicas));
+            }
+            log.info(domain + " replicas: " + replicas);
+        }
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    private static boolean unchanged(Map<String, Replica> known, List<ReplicaDirectory.Entry> current) {
+        if (known.size() != current.size()) {
+            return false;
+        }
+        for (ReplicaDirectory.Entry entry : current) {
+            Replica replica = known.get(entry.url());
+            if (replica == null || replica.node() != entry.node()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void register(AgentDomain domain, Replica replica) {
+        metrics.gauge("mesh_replica_in_flight", "Calls in flight to the replica", replica::inFlight,
+                "agent", domain.getKey(), "replica", replica.url());
+        metrics.gauge("mesh_replica_latency_ewma_micros", "Moving average latency of the replica",
+                () -> TimeUnit.NANOSECONDS.toMicros(replica.ewmaNanos()), "agent", domain.getKey(),
+                "replica", replica.url());
+    }
+
+    private void unregister(AgentDomain domain, Replica replica) {
+        metrics.remove("mesh_replica_in_flight", "agent", domain.getKey(), "replica", replica.url());
+        metrics.remove("mesh_replica_latency_ewma_micros", "agent", domain.getKey(), "replica", replica.url());
+    }
+
+    private int registered(AgentDomain domain) {
+        int count = 0;
+        for (ReplicaDirectory.Entry entry : ReplicaDirectory.read(directory, ttl)) {
+            if (domain.getKey().equals(entry.domain())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Unable to refresh replicas from " + directory, e);
+        }
+    }
+
+    private static AgentDomain byKey(String key) {
+        for (AgentDomain domain : AgentDomain.values()) {
+            if (domain.getKey().equals(key)) {
+                return domain;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,459 @@
+package org.example.healthcareclient;
+
+import org.example.common.Deadline;
+import org.example.common.metrics.MetricsRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Keeps one slow or failing agent from taking the rest of the mesh client down with it. Every call to an agent,
+ * through the wrapped transport or tool client, passes three guards kept per agent:
+ * <ul>
+ *     <li>an {@link AdaptiveLimit} on calls in flight ({@code -Dmesh.resilience.limit=gradient|aimd}); when it is
+ *     reached the call fails at once with {@link AgentUnavailableException.Reason#LIMIT_REACHED} instead of
+ *     parking another thread on the slow agent</li>
+ *     <li>a {@link CircuitBreaker} that refuses calls for a while after too many failures</li>
+ *     <li>a {@link Deadline}: the caller's, or {@code -Dmesh.resilience.timeout-ms} from now; the call is abandoned
+ *     (its thread interrupted) when it passes, and the HTTP clients send what is left of it to the agent</li>
+ * </ul>
+ * Tool calls whose name starts with one of {@code -Dmesh.resilience.hedge-prefixes} (default
+ * {@code get,search,verify,analyze}, reads that are safe to repeat) are hedged: if no answer has come after the
+ * agent's recent p95 latency, the same call goes to the hedge target as well and the first answer wins. If the
+ * first attempt fails before then, the duplicate goes at once instead. Hedges are capped at
+ * {@code -Dmesh.resilience.hedge.max-percent} of the agent's calls over the last ten seconds so they cannot double
+ * the load on an agent that is slow across the board. Only calls with a distinct hedge target are hedged: another
+ * replica (see {@link TargetedToolClient}) or an explicit hedge client. Free-text queries are never hedged, since
+ * they may book or bill something.
+ */
+public class ResilientTransport implements AgentTransport, AgentToolClient, AgentActionClient, AutoCloseable {
+
+    public record Options(String limit, int initialLimit, int maxLimit, int breakerWindow, int breakerFailurePercent,
+                          long breakerOpenMillis, int breakerProbes, Duration timeout, List<String> hedgePrefixes,
+                          int hedgeMaxPercent, int hedgeMinSamples) {
+
+        public static Options defaults() {
+            return new Options(
+                    System.getProperty("mesh.resilience.limit", "gradient"),
+                    Integer.getInteger("mesh.resilience.limit.initial", 20),
+                    Integer.getInteger("mesh.resilience.limit.max", 200),
+                    Integer.getInteger("mesh.resilience.breaker.window", 20),
+                    Integer.getInteger("mesh.resilience.breaker.failure-percent", 50),
+                    Long.getLong("mesh.resilience.breaker.open-ms", 5000),
+                    Integer.getInteger("mesh.resilience.breaker.probes", 3),
+                    Duration.ofMillis(Long.getLong("mesh.resilience.timeout-ms", 120_000)),
+                    Arrays.stream(System.getProperty("mesh.resilience.hedge-prefixes", "get,search,verify,analyze")
+                                    .split(","))
+                            .map(String::trim)
+                            .filter(prefix -> !prefix.isEmpty())
+                            .toList(),
+                    Integer.getInteger("mesh.resilience.hedge.max-percent", 10),
+                    Integer.getInteger("mesh.resilience.hedge.min-samples", 100));
+        }
+    }
+
+    private final AgentTransport transport;
+    private final AgentToolClient tools;
+    private final AgentToolClient hedgeTools;
+    private final Options options;
+    private final Map<AgentDomain, Guard> guards = new EnumMap<>(AgentDomain.class);
+    private final ExecutorService executor;
+
+    /**
+     * Hedges only the calls of a {@link TargetedToolClient} that have somewhere else to go. A duplicate sent back
+     * through the same client would reach the same agent, or join the first call in a coalescing client, and
+     * cost a permit without cutting any latency.
+     */
+    public ResilientTransport(AgentTransport transport, AgentToolClient tools) {
+        this(transport, tools, null, Options.defaults(), MetricsRegistry.shared());
+    }
+
+    /**
+     * @param hedgeTools where hedged tool calls go, a client that does not share connections or in-flight calls
+     *                   with {@code tools}; {@code null} for none. Ignored when {@code tools} is a
+     *                   {@link TargetedToolClient}, whose calls say themselves where a duplicate can go
+     */
+    public ResilientTransport(AgentTransport transport, AgentToolClient tools, AgentToolClient hedgeTools,
+                              Options options, MetricsRegistry registry) {
+        this.transport = transport;
+        this.tools = tools;
+        this.hedgeTools = hedgeTools;
+        this.options = options;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mesh-call-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (AgentDomain domain : AgentDomain.values()) {
+            Guard guard = new Guard(domain, options);
+            guards.put(domain, guard);
+            String agent = domain.getKey();
+            registry.gauge("mesh_agent_concurrency_limit", "Calls allowed in flight to the agent right now",
+                    guard.limit::limit, "agent", agent);
+            registry.gauge("mesh_agent_in_flight", "Calls in flight to the agent", guard.limit::inFlight,
+                    "agent", agent);
+            registry.gauge("mesh_agent_circuit_state", "Circuit breaker state: 0 closed, 1 open, 2 half open",
+                    () -> guard.breaker.state().ordinal(), "agent", agent);
+            registry.counter("mesh_agent_circuit_opened_total", "Times the circuit breaker opened",
+                    guard.breaker::opened, "agent", agent);
+            for (AgentUnavailableException.Reason reason : AgentUnavailableException.Reason.values()) {
+                registry.counter("mesh_agent_unavailable_total", "Calls refused or abandoned without an answer",
+                        guard.unavailable.get(reason)::sum,
+                        "agent", agent, "reason", reason.name().toLowerCase(Locale.ROOT));
+            }
+            registry.counter("mesh_agent_hedges_total", "Hedged duplicate calls sent", guard.hedges::sum,
+                    "agent", agent);
+            registry.counter("mesh_agent_hedge_wins_total", "Hedged calls whose duplicate answered first",
+                    guard.hedgeWins::sum, "agent", agent);
+        }
+    }
+
+    @Override
+    public String send(AgentDomain domain, String query) {
+        return call(domain, () -> transport.send(domain, query), null);
+    }
+
+    @Override
+    public String callTool(AgentDomain domain, String toolName, String plainEnglishArguments) {
+        if (tools instanceof TargetedToolClient targeted) {
+            TargetedToolClient.TargetedCall primary;
+            try {
+                primary = targeted.target(domain, toolName, plainEnglishArguments);
+            } catch (AgentUnavailableException e) {
+                guards.get(domain).unavailable.get(e.getReason()).increment();
+                throw e;
+            }
+            return call(domain, primary::call, hedged(toolName) ? () -> {
+                TargetedToolClient.TargetedCall duplicate = primary.elsewhere();
+                return duplicate != null ? duplicate::call : null;
+            } : null);
+        }
+        return call(domain, () -> tools.callTool(domain, toolName, plainEnglishArguments),
+                hedgeTools != null && hedged(toolName)
+                        ? () -> () -> hedgeTools.callTool(domain, toolName, plainEnglishArguments) : null);
+    }
+
+    /**
+     * Calls the action through the tool client, which has to be an {@link AgentActionClient} as well, behind the
+     * same guards. Typed calls are not hedged.
+     */
+    @Override
+    public String invoke(AgentDomain domain, String action, Object... arguments) {
+        if (!(tools instanceof AgentActionClient actions)) {
+            throw new UnsupportedOperationException(tools.getClass().getSimpleName() + " cannot invoke actions");
+        }
+        return call(domain, () -> actions.invoke(domain, action, arguments), null);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private boolean hedged(String toolName) {
+        for (String prefix : options.hedgePrefixes()) {
+            if (toolName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param hedge where a hedged duplicate would go, asked when it is due; {@code null}, or supplying
+     *              {@code null}, when there is nowhere for it to go
+     */
+    private String call(AgentDomain domain, Callable<String> primary, Supplier<Callable<String>> hedge) {
+        Guard guard = guards.get(domain);
+        Deadline deadline = Deadline.earliest(Deadline.current(), Deadline.after(options.timeout()));
+        if (deadline.expired()) {
+            throw guard.unavailable(AgentUnavailableException.Reason.DEADLINE_EXCEEDED,
+                    "deadline passed before the call");
+        }
+        if (!guard.breaker.tryAcquire()) {
+            throw guard.unavailable(AgentUnavailableException.Reason.CIRCUIT_OPEN, "recent calls failed");
+        }
+        if (!guard.limit.tryAcquire()) {
+            guard.breaker.release();
+            throw guard.unavailable(AgentUnavailableException.Reason.LIMIT_REACHED,
+                    guard.limit.limit() + " calls already in flight");
+        }
+        guard.hedgeBudget.call();
+        Race race = new Race(deadline);
+        long start = System.nanoTime();
+        boolean hedging = false;
+        boolean succeeded = false;
+        try {
+            race.start(primary);
+            boolean hedgeTried = hedge == null;
+            long hedgeAfter = hedge != null ? guard.hedgeDelayNanos(options.hedgeMinSamples()) : -1;
+            for (;;) {
+                long wait = deadline.remainingNanos();
+                if (!hedgeTried && hedgeAfter > 0) {
+                    wait = Math.min(wait, start + hedgeAfter - System.nanoTime());
+                }
+                boolean settled = race.await(wait);
+                if (race.answered()) {
+                    if (race.winnerIndex() == 1) {
+                        guard.hedgeWins.increment();
+                    }
+                    succeeded = true;
+                    return race.answer();
+                }
+                if (deadline.expired()) {
+                    throw guard.unavailable(AgentUnavailableException.Reason.DEADLINE_EXCEEDED,
+                            "no answer within " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+                }
+                if (settled && (hedgeTried || race.failure() instanceof IllegalArgumentException)) {
+                    // Every attempt failed and there is nothing left to try
+                    break;
+                }
+                if (!hedgeTried) {
+                    // The hedge is due, or the primary failed before it was: a read is safe to try elsewhere
+                    hedgeTried = true;
+                    Callable<String> duplicate = hedge.get();
+                    if (duplicate != null && guard.limit.tryAcquire()) {
+                        if (guard.hedgeBudget.tryHedge(options.hedgeMaxPercent())) {
+                            hedging = true;
+                            guard.hedges.increment();
+                            race.start(duplicate);
+                        } else {
+                            guard.limit.release();
+                        }
+                    }
+                }
+            }
+            Throwable failure = race.failure();
+            if (failure instanceof RuntimeException runtime) {
+                if (runtime instanceof IllegalArgumentException) {
+                    // The request was wrong, not the agent
+                    succeeded = true;
+                }
+                throw runtime;
+            }
+            throw new IllegalStateException(domain + " call failed", failure);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling " + domain, e);
+        } finally {
+            race.cancel();
+            long elapsed = System.nanoTime() - start;
+            if (hedging) {
+                guard.limit.release();
+            }
+            guard.limit.release(elapsed, !succeeded);
+            guard.breaker.record(succeeded);
+            if (succeeded) {
+                guard.latencies.record(elapsed);
+            }
+        }
+    }
+
+    /**
+     * The attempts of one call: the first to answer wins; the call has failed once every attempt started so far
+     * has failed, which leaves the caller free to start another.
+     */
+    private final class Race {
+
+        private final Deadline deadline;
+        private final List<Future<?>> attempts = new ArrayList<>(2);
+        private int running;
+        private int winnerIndex = -1;
+        private String answer;
+        private Throwable failure;
+
+        Race(Deadline deadline) {
+            this.deadline = deadline;
+        }
+
+        synchronized void start(Callable<String> attempt) {
+            int index = attempts.size();
+            running++;
+            attempts.add(executor.submit(() -> {
+                try (Deadline.Scope ignored = deadline.attach()) {
+                    answered(index, attempt.call());
+                } catch (Throwable e) {
+                    failed(e);
+                }
+            }));
+        }
+
+        /**
+         * Waits until an attempt answers or every attempt has failed, for at most {@code nanos}.
+         *
+         * @return whether the race is settled one way or the other
+         */
+        synchronized boolean await(long nanos) throws InterruptedException {
+            long end = System.nanoTime() + nanos;
+            while (winnerIndex < 0 && running > 0) {
+                long left = end - System.nanoTime();
+                if (left <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
+            return true;
+        }
+
+        synchronized boolean answered() {
+            return winnerIndex >= 0;
+        }
+
+        synchronized int winnerIndex() {
+            return winnerIndex;
+        }
+
+        synchronized String answer() {
+            return answer;
+        }
+
+        /**
+         * @return the first failure, e.g. the primary's when a hedge failed as well
+         */
+        synchronized Throwable failure() {
+            return failure;
+        }
+
+        synchronized void cancel() {
+            for (Future<?> attempt : attempts) {
+                attempt.cancel(true);
+            }
+        }
+
+        private synchronized void answered(int index, String value) {
+            if (winnerIndex < 0) {
+                winnerIndex = index;
+                answer = value;
+                notifyAll();
+            }
+        }
+
+        private synchronized void failed(Throwable e) {
+            running--;
+            if (failure == null) {
+                failure = e;
+            }
+            notifyAll();
+        }
+    }
+
+    private static final class Guard {
+
+        private final AgentDomain domain;
+        private final AdaptiveLimit limit;
+        private final CircuitBreaker breaker;
+        private final LatencyWindow latencies = new LatencyWindow();
+        private final HedgeBudget hedgeBudget = new HedgeBudget();
+        private final LongAdder hedges = new LongAdder();
+        private final LongAdder hedgeWins = new LongAdder();
+        private final Map<AgentUnavailableException.Reason, LongAdder> unavailable =
+                new EnumMap<>(AgentUnavailableException.Reason.class);
+
+        Guard(AgentDomain domain, Options options) {
+            this.domain = domain;
+            this.limit = AdaptiveLimit.of(options.limit(), options.initialLimit(), 1, options.maxLimit());
+            this.breaker = new CircuitBreaker(options.breakerWindow(), options.breakerFailurePercent(),
+                    options.breakerOpenMillis(), options.breakerProbes());
+            for (AgentUnavailableException.Reason reason : AgentUnavailableException.Reason.values()) {
+                unavailable.put(reason, new LongAdder());
+            }
+        }
+
+        AgentUnavailableException unavailable(AgentUnavailableException.Reason reason, String message) {
+            unavailable.get(reason).increment();
+            return new AgentUnavailableException(domain, reason, message);
+        }
+
+        /**
+         * @return the recent p95, or -1 until enough calls have been seen to trust it
+         */
+        long hedgeDelayNanos(int minSamples) {
+            return latencies.p95(minSamples);
+        }
+    }
+
+    /**
+     * Calls and hedges of the last ten seconds, in one-second buckets, so the hedge cap follows the agent's
+     * recent traffic rather than everything since startup.
+     */
+    private static final class HedgeBudget {
+
+        private static final int SECONDS = 10;
+
+        private final long[] bucketSecond = new long[SECONDS];
+        private final long[] calls = new long[SECONDS];
+        private final long[] hedges = new long[SECONDS];
+
+        synchronized void call() {
+            calls[bucket(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime()))]++;
+        }
+
+        synchronized boolean tryHedge(int maxPercent) {
+            long now = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+            int current = bucket(now);
+            long recentCalls = 0;
+            long recentHedges = 0;
+            for (int i = 0; i < SECONDS; i++) {
+                if (now - bucketSecond[i] < SECONDS) {
+                    recentCalls += calls[i];
+                    recentHedges += hedges[i];
+                }
+            }
+            if (recentHedges * 100 >= recentCalls * maxPercent) {
+                return false;
+            }
+            hedges[current]++;
+            return true;
+        }
+
+        private int bucket(long second) {
+            int index = (int) Math.floorMod(second, (long) SECONDS);
+            if (bucketSecond[index] != second) {
+                bucketSecond[index] = second;
+                calls[index] = 0;
+                hedges[index] = 0;
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Latencies of the last 512 successful calls; the p95 is recomputed every 32 calls.
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples = new long[512];
+        private int count;
+        private int next;
+        private long p95 = -1;
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            if (next % 32 == 0) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                p95 = sorted[(int) (sorted.length * 0.95)];
+            }
+        }
+
+        synchronized long p95(int minSamples) {
+            return count >= Math.min(minSamples, samples.length) ? p95 : -1;
+        }
+    }
+}
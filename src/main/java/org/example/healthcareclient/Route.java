@@ -0,0 +1,7 @@
+package org.example.healthcareclient;
+
+/**
+ * A resolved routing decision: which agent serves a query and which of its {@code @Action}s to call.
+ */
+public record Route(AgentDomain domain, String action) {
+}
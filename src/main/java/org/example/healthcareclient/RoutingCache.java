@@ -0,0 +1,174 @@
+package org.example.healthcareclient;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded map from {@link QueryTemplate} keys to resolved {@link Route}s with W-TinyLFU eviction.
+ * <p>
+ * New entries land in a small LRU window (1% of capacity). When the window overflows, its oldest
+ * entry competes with the main region's LRU victim and only the one with the higher estimated
+ * access frequency stays, so one-off phrasings cannot flush frequently used templates. The main
+ * region is a segmented LRU (probation + 80% protected). Frequencies come from a 4-way count-min
+ * sketch that halves all counters after every {@code 10 * capacity} increments.
+ */
+public class RoutingCache {
+
+    private final int windowCapacity;
+    private final int protectedCapacity;
+    private final int mainCapacity;
+    private final LinkedHashMap<String, Route> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Route> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Route> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder resolveNanos = new LongAdder();
+
+    public record Stats(long hits, long misses, long evictions, long size, double hitRate,
+                        long averageResolveNanos, long savedNanos) {
+    }
+
+    public RoutingCache(int maximumSize) {
+        if (maximumSize < 2) {
+            throw new IllegalArgumentException("Routing cache needs room for at least 2 entries");
+        }
+        this.windowCapacity = Math.max(1, maximumSize / 100);
+        this.mainCapacity = maximumSize - windowCapacity;
+        this.protectedCapacity = (int) (mainCapacity * 0.8);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    public synchronized Route get(String key) {
+        sketch.increment(key);
+        Route route = window.get(key);
+        if (route == null) {
+            route = protectedSegment.get(key);
+        }
+        if (route == null) {
+            route = probation.remove(key);
+            if (route != null) {
+                protectedSegment.put(key, route);
+                if (protectedSegment.size() > protectedCapacity) {
+                    Map.Entry<String, Route> demoted = removeEldest(protectedSegment);
+                    probation.put(demoted.getKey(), demoted.getValue());
+                }
+            }
+        }
+        if (route != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return route;
+    }
+
+    public synchronized void put(String key, Route route) {
+        if (window.containsKey(key) || probation.containsKey(key) || protectedSegment.containsKey(key)) {
+            return;
+        }
+        window.put(key, route);
+        if (window.size() <= windowCapacity) {
+            return;
+        }
+        Map.Entry<String, Route> candidate = removeEldest(window);
+        if (probation.size() + protectedSegment.size() < mainCapacity) {
+            probation.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+        LinkedHashMap<String, Route> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+        String victim = victimSegment.keySet().iterator().next();
+        if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim)) {
+            victimSegment.remove(victim);
+            probation.put(candidate.getKey(), candidate.getValue());
+        }
+        evictions.increment();
+    }
+
+    /**
+     * Records how long a miss took to resolve through the LLM, which is what each hit saves.
+     */
+    public void recordResolve(long nanos) {
+        resolveNanos.add(nanos);
+    }
+
+    public synchronized int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    public Stats stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        long averageResolve = missCount == 0 ? 0 : resolveNanos.sum() / missCount;
+        return new Stats(hitCount, missCount, evictions.sum(), size(),
+                total == 0 ? 0 : (double) hitCount / total, averageResolve, hitCount * averageResolve);
+    }
+
+    private static Map.Entry<String, Route> removeEldest(LinkedHashMap<String, Route> segment) {
+        Iterator<Map.Entry<String, Route>> iterator = segment.entrySet().iterator();
+        Map.Entry<String, Route> eldest = iterator.next();
+        Map.Entry<String, Route> copy = Map.entry(eldest.getKey(), eldest.getValue());
+        iterator.remove();
+        return copy;
+    }
+
+    /**
+     * Count-min sketch with 4-bit saturating counters and periodic halving.
+     */
+    static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int width = Integer.highestOneBit(Math.max(16, maximumSize * 4 - 1)) << 1;
+            this.counters = new byte[width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * maximumSize;
+        }
+
+        void increment(String key) {
+            int hash = spread(key.hashCode());
+            for (int i = 0; i < DEPTH; i++) {
+                int index = indexOf(hash, i);
+                if (counters[index] < 15) {
+                    counters[index]++;
+                }
+            }
+            if (++additions >= sampleSize) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(String key) {
+            int hash = spread(key.hashCode());
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < DEPTH; i++) {
+                frequency = Math.min(frequency, counters[indexOf(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static int spread(int hash) {
+            int h = hash * 0x45D9F3B;
+            return h ^ (h >>> 16);
+        }
+    }
+}
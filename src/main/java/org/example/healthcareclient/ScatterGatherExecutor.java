@@ -0,0 +1,116 @@
+package org.example.healthcareclient;
+
+import org.example.common.Deadline;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans independent sub-queries out to their agents at the same time and gathers whatever has
+ * answered by the deadline, so a cross-domain request costs about as much as its slowest agent
+ * rather than the sum of all of them. Calls that miss the deadline are interrupted and reported as
+ * {@link ScatterGatherResult.Status#TIMED_OUT}. The deadline, or the caller's own {@link Deadline} if that is
+ * earlier, bounds the wait and is attached to every call.
+ */
+public class ScatterGatherExecutor implements AutoCloseable {
+
+    private final AgentTransport transport;
+    private final ExecutorService executor;
+
+    public ScatterGatherExecutor(AgentTransport transport) {
+        this(transport, newFanOutPool());
+    }
+
+    public ScatterGatherExecutor(AgentTransport transport, ExecutorService executor) {
+        this.transport = transport;
+        this.executor = executor;
+    }
+
+    public ScatterGatherResult gather(List<SubQuery> subQueries, Duration deadline) {
+        long start = System.nanoTime();
+        Deadline callDeadline = Deadline.earliest(Deadline.current(), Deadline.after(deadline));
+        // Futures of the executor itself, not CompletableFutures: only these interrupt the call when cancelled
+        List<Future<String>> calls = new ArrayList<>(subQueries.size());
+        long[] finishedAt = new long[subQueries.size()];
+        for (int i = 0; i < subQueries.size(); i++) {
+            SubQuery subQuery = subQueries.get(i);
+            int index = i;
+            calls.add(executor.submit(() -> {
+                try (Deadline.Scope ignored = callDeadline.attach()) {
+                    return transport.send(subQuery.domain(), subQuery.query());
+                } finally {
+                    finishedAt[index] = System.nanoTime();
+                }
+            }));
+        }
+        for (Future<String> call : calls) {
+            long remaining = callDeadline.remainingNanos();
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                call.get(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | TimeoutException e) {
+                // Individual outcomes are collected below.
+            }
+        }
+
+        List<ScatterGatherResult.Part> parts = new ArrayList<>(subQueries.size());
+        for (int i = 0; i < subQueries.size(); i++) {
+            Future<String> call = calls.get(i);
+            SubQuery subQuery = subQueries.get(i);
+            if (!call.isDone()) {
+                call.cancel(true);
+                parts.add(new ScatterGatherResult.Part(subQuery, ScatterGatherResult.Status.TIMED_OUT,
+                        null, System.nanoTime() - start));
+                continue;
+            }
+            try {
+                parts.add(new ScatterGatherResult.Part(subQuery, ScatterGatherResult.Status.OK,
+                        call.get(), finishedAt[i] - start));
+            } catch (ExecutionException e) {
+                parts.add(new ScatterGatherResult.Part(subQuery, ScatterGatherResult.Status.FAILED,
+                        failureMessage(e), finishedAt[i] - start));
+            } catch (InterruptedException e) {
+                // Not expected: the call is done, so get() does not wait
+                Thread.currentThread().interrupt();
+                parts.add(new ScatterGatherResult.Part(subQuery, ScatterGatherResult.Status.FAILED,
+                        e.toString(), finishedAt[i] - start));
+            }
+        }
+        return new ScatterGatherResult(parts, System.nanoTime() - start);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Unbounded pool of daemon threads: fan-out calls spend nearly all of their time blocked on I/O.
+     */
+    static ExecutorService newFanOutPool() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mesh-fanout-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static String failureMessage(ExecutionException failure) {
+        Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+        return cause.getClass().getSimpleName() + (cause.getMessage() != null ? ": " + cause.getMessage() : "");
+    }
+}
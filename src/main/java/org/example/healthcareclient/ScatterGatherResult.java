@@ -0,0 +1,43 @@
+package org.example.healthcareclient;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a scatter-gather call: one entry per sub-query, in submission order.
+ */
+public record ScatterGatherResult(List<Part> parts, long elapsedNanos) {
+
+    public enum Status { OK, FAILED, TIMED_OUT }
+
+    public record Part(SubQuery subQuery, Status status, String text, long latencyNanos) {
+    }
+
+    public boolean isComplete() {
+        return parts.stream().allMatch(part -> part.status() == Status.OK);
+    }
+
+    public long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * Merges the parts into one text answer, marking anything that failed or missed the deadline.
+     */
+    public String getTextResult() {
+        StringBuilder merged = new StringBuilder();
+        for (Part part : parts) {
+            if (merged.length() > 0) {
+                merged.append("\n\n");
+            }
+            merged.append("--- ").append(part.subQuery().label()).append(" ---\n");
+            switch (part.status()) {
+                case OK -> merged.append(part.text());
+                case FAILED -> merged.append("Unavailable: ").append(part.text());
+                case TIMED_OUT -> merged.append("No response from ").append(part.subQuery().domain())
+                        .append(" within the deadline");
+            }
+        }
+        return merged.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.healthcareclient;
+
+import lombok.extern.java.Log;
+import org.example.common.metrics.LatencyMetric;
+import org.example.common.metrics.MetricsRegistry;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routes free-text queries without an LLM round trip for phrasings it has seen before.
+ * <p>
+ * The query is normalized into a {@link QueryTemplate}; a {@link RoutingCache} hit yields the
+ * (agent, action) pair directly. When the parameters pulled out of the query fill the action's parameters
+ * (see {@link QueryTemplate#arguments}) and an {@link AgentActionClient} is given, a hit is a typed call of the
+ * action and no LLM is involved at all; otherwise the query goes to that agent's tool as text, and only the
+ * agent's LLM maps it onto the arguments. On a miss the {@link LlmRouteResolver} picks the route and the result
+ * is cached. Queries the LLM cannot map to a single action fall back to the catalog transport.
+ */
+@Log
+public class SemanticRouter implements AgentTransport {
+
+    private final RoutingCache cache;
+    private final LlmRouteResolver resolver;
+    private final AgentToolClient agentClient;
+    private final AgentActionClient actions;
+    private final AgentTransport fallback;
+    private final LongAdder typedCalls = new LongAdder();
+    private final LatencyMetric llmRouting = MetricsRegistry.shared().latency("mesh_llm_route",
+            "LLM route resolution on routing cache misses");
+
+    public SemanticRouter(RoutingCache cache, LlmRouteResolver resolver, AgentToolClient agentClient,
+                          AgentTransport fallback) {
+        this(cache, resolver, agentClient, null, fallback);
+    }
+
+    /**
+     * @param actions where cache hits whose arguments could be bound go as typed calls; {@code null} to send every
+     *                query to the agent's tool as text
+     */
+    public SemanticRouter(RoutingCache cache, LlmRouteResolver resolver, AgentToolClient agentClient,
+                          AgentActionClient actions, AgentTransport fallback) {
+        this.cache = cache;
+        this.resolver = resolver;
+        this.agentClient = agentClient;
+        this.actions = actions;
+        this.fallback = fallback;
+        MetricsRegistry.shared().counter("mesh_route_typed_calls_total",
+                "Routing cache hits sent as typed action calls, skipping the agent's LLM", typedCalls::sum);
+    }
+
+    public Route route(String query) {
+        String key = QueryTemplate.of(query).key();
+        Route route = cache.get(key);
+        return route != null ? route : resolve(key, query);
+    }
+
+    private Route resolve(String key, String query) {
+        Route route;
+        long start = llmRouting.start();
+        boolean failed = true;
+        try {
+            route = resolver.resolve(query);
+            failed = false;
+        } finally {
+            cache.recordResolve(llmRouting.stop(start, failed));
+        }
+        if (route != null) {
+            cache.put(key, route);
+        } else {
+            log.fine("No single action for template '" + key + "'");
+        }
+        return route;
+    }
+
+    @Override
+    public String send(AgentDomain domain, String query) {
+        QueryTemplate template = QueryTemplate.of(query);
+        Route route = cache.get(template.key());
+        if (route != null && actions != null) {
+            Object[] arguments = template.arguments(resolver.parameterTypes(route));
+            if (arguments != null) {
+                typedCalls.increment();
+                return actions.invoke(route.domain(), route.action(), arguments);
+            }
+        }
+        if (route == null) {
+            route = resolve(template.key(), query);
+        }
+        if (route == null) {
+            return fallback.send(domain, query);
+        }
+        return agentClient.callTool(route.domain(), route.action(), query);
+    }
+
+    /**
+     * @return how many cache hits went to the agent as typed action calls
+     */
+    public long typedCalls() {
+        return typedCalls.sum();
+    }
+
+    public RoutingCache.Stats stats() {
+        return cache.stats();
+    }
+}
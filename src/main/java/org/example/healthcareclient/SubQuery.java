@@ -0,0 +1,24 @@
+package org.example.healthcareclient;
+
+import java.util.List;
+
+/**
+ * One independent piece of a cross-domain request, addressed to a single agent.
+ */
+public record SubQuery(String label, AgentDomain domain, String query) {
+
+    /**
+     * The classic "history + upcoming appointments + lab results + balance" request, split per agent.
+     */
+    public static List<SubQuery> patientOverview(String patientId) {
+        return List.of(
+                new SubQuery("Medical History", AgentDomain.PATIENT_RECORDS,
+                        "Get medical history for patient ID " + patientId),
+                new SubQuery("Upcoming Appointments", AgentDomain.APPOINTMENTS,
+                        "Get upcoming appointments for patient " + patientId),
+                new SubQuery("Recent Lab Results", AgentDomain.DIAGNOSTICS,
+                        "Analyze recent lab result trends for patient " + patientId),
+                new SubQuery("Account Balance", AgentDomain.BILLING,
+                        "Get account balance for patient " + patientId));
+    }
+}
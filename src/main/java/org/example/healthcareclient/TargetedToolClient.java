@@ -0,0 +1,28 @@
+package org.example.healthcareclient;
+
+/**
+ * An {@link AgentToolClient} that settles where a call goes before making it, so that {@link ResilientTransport}
+ * can send a hedged duplicate of the call somewhere else rather than back to the same place.
+ */
+public interface TargetedToolClient extends AgentToolClient {
+
+    /**
+     * @return the call, bound to where it will go
+     */
+    TargetedCall target(AgentDomain domain, String toolName, String plainEnglishArguments);
+
+    @Override
+    default String callTool(AgentDomain domain, String toolName, String plainEnglishArguments) {
+        return target(domain, toolName, plainEnglishArguments).call();
+    }
+
+    interface TargetedCall {
+
+        String call();
+
+        /**
+         * @return the same call bound to another place that can answer it, or {@code null} if there is none
+         */
+        TargetedCall elsewhere();
+    }
+}
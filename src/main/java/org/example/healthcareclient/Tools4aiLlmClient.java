@@ -0,0 +1,37 @@
+package org.example.healthcareclient;
+
+import com.t4a.predict.PredictionLoader;
+import com.t4a.processor.AIProcessingException;
+import com.t4a.processor.AIProcessor;
+
+/**
+ * {@link LlmClient} backed by the provider configured in {@code tools4ai.properties} ({@code agent.provider}).
+ * The processor is created on first use, so clients that never miss the routing cache never start one.
+ */
+public class Tools4aiLlmClient implements LlmClient {
+
+    private volatile AIProcessor processor;
+
+    @Override
+    public String complete(String prompt) {
+        try {
+            return processor().query(prompt);
+        } catch (AIProcessingException e) {
+            throw new IllegalStateException("LLM query failed", e);
+        }
+    }
+
+    private AIProcessor processor() {
+        AIProcessor current = processor;
+        if (current == null) {
+            synchronized (this) {
+                current = processor;
+                if (current == null) {
+                    current = PredictionLoader.getInstance().createOrGetAIProcessor();
+                    processor = current;
+                }
+            }
+        }
+        return current;
+    }
+}
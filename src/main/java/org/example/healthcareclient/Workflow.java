@@ -0,0 +1,112 @@
+package org.example.healthcareclient;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A DAG of agent calls. Each node names the nodes whose results it needs; its query is built
+ * from those results once they are available. Cycles and unknown dependencies are rejected by
+ * {@link Builder#build()}.
+ */
+public final class Workflow {
+
+    public record Node(String id, AgentDomain domain, List<String> dependsOn,
+                       Function<Map<String, String>, String> query) {
+    }
+
+    private final String name;
+    private final Map<String, Node> nodes;
+    private final List<String> topologicalOrder;
+    private final Map<String, List<String>> dependents;
+
+    private Workflow(String name, Map<String, Node> nodes, List<String> topologicalOrder,
+                     Map<String, List<String>> dependents) {
+        this.name = name;
+        this.nodes = nodes;
+        this.topologicalOrder = topologicalOrder;
+        this.dependents = dependents;
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Node> getNodes() {
+        return nodes;
+    }
+
+    public List<String> getTopologicalOrder() {
+        return topologicalOrder;
+    }
+
+    public List<String> getDependents(String nodeId) {
+        return dependents.getOrDefault(nodeId, Collections.emptyList());
+    }
+
+    public static final class Builder {
+        private final String name;
+        private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        public Builder node(String id, AgentDomain domain, String query) {
+            return node(id, domain, List.of(), upstream -> query);
+        }
+
+        public Builder node(String id, AgentDomain domain, List<String> dependsOn,
+                            Function<Map<String, String>, String> query) {
+            if (nodes.putIfAbsent(id, new Node(id, domain, List.copyOf(dependsOn), query)) != null) {
+                throw new IllegalArgumentException("Duplicate workflow node: " + id);
+            }
+            return this;
+        }
+
+        public Workflow build() {
+            Map<String, List<String>> dependents = new HashMap<>();
+            Map<String, Integer> pending = new HashMap<>();
+            for (Node node : nodes.values()) {
+                pending.put(node.id(), node.dependsOn().size());
+                for (String dependency : node.dependsOn()) {
+                    if (!nodes.containsKey(dependency)) {
+                        throw new IllegalArgumentException("Node " + node.id() + " depends on unknown node " + dependency);
+                    }
+                    dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(node.id());
+                }
+            }
+            Deque<String> ready = new ArrayDeque<>();
+            pending.forEach((id, count) -> {
+                if (count == 0) {
+                    ready.add(id);
+                }
+            });
+            List<String> order = new ArrayList<>(nodes.size());
+            while (!ready.isEmpty()) {
+                String id = ready.poll();
+                order.add(id);
+                for (String dependent : dependents.getOrDefault(id, Collections.emptyList())) {
+                    if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                        ready.add(dependent);
+                    }
+                }
+            }
+            if (order.size() != nodes.size()) {
+                throw new IllegalArgumentException("Workflow " + name + " contains a dependency cycle");
+            }
+            return new Workflow(name, Collections.unmodifiableMap(new LinkedHashMap<>(nodes)),
+                    Collections.unmodifiableList(order), dependents);
+        }
+    }
+}
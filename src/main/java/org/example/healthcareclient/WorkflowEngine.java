@@ -0,0 +1,200 @@
+package org.example.healthcareclient;
+
+import org.example.common.Deadline;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a {@link Workflow} with every ready node in flight at once. A node starts as soon as all of
+ * its dependencies have succeeded and receives their text results; when a node fails, everything
+ * downstream of it is cancelled without being sent. Results are streamed to a
+ * {@link WorkflowListener} as nodes finish. Every node's call carries the workflow's timeout as its
+ * {@link Deadline}, so a node started late gets only what is left of it. Once the workflow has timed out, nodes
+ * still in flight are interrupted and nothing more is started or reported.
+ */
+public class WorkflowEngine implements AutoCloseable {
+
+    private final AgentTransport transport;
+    private final ExecutorService executor;
+
+    public WorkflowEngine(AgentTransport transport) {
+        this(transport, ScatterGatherExecutor.newFanOutPool());
+    }
+
+    public WorkflowEngine(AgentTransport transport, ExecutorService executor) {
+        this.transport = transport;
+        this.executor = executor;
+    }
+
+    public WorkflowResult run(Workflow workflow, Duration timeout) {
+        return run(workflow, timeout, WorkflowListener.NONE);
+    }
+
+    public WorkflowResult run(Workflow workflow, Duration timeout, WorkflowListener listener) {
+        return new Run(workflow, listener).execute(timeout);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private final class Run {
+        private final Workflow workflow;
+        private final WorkflowListener listener;
+        private final Map<String, AtomicInteger> pendingDependencies = new HashMap<>();
+        private final Map<String, WorkflowResult.NodeResult> results = new ConcurrentHashMap<>();
+        private final Map<String, Future<?>> inFlight = new ConcurrentHashMap<>();
+        private final CountDownLatch finished;
+        private final long start = System.nanoTime();
+        private Deadline deadline;
+        private volatile boolean over;
+
+        Run(Workflow workflow, WorkflowListener listener) {
+            this.workflow = workflow;
+            this.listener = listener;
+            this.finished = new CountDownLatch(workflow.getNodes().size());
+            workflow.getNodes().values().forEach(node ->
+                    pendingDependencies.put(node.id(), new AtomicInteger(node.dependsOn().size())));
+        }
+
+        WorkflowResult execute(Duration timeout) {
+            deadline = Deadline.earliest(Deadline.current(), Deadline.after(timeout));
+            for (Workflow.Node node : workflow.getNodes().values()) {
+                if (node.dependsOn().isEmpty()) {
+                    submit(node);
+                }
+            }
+            try {
+                if (!finished.await(deadline.remainingNanos(), TimeUnit.NANOSECONDS)) {
+                    stop();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stop();
+            }
+            long end = System.nanoTime();
+            Map<String, WorkflowResult.NodeResult> ordered = new LinkedHashMap<>();
+            for (String id : workflow.getTopologicalOrder()) {
+                WorkflowResult.NodeResult result = results.get(id);
+                if (result == null) {
+                    Workflow.Node node = workflow.getNodes().get(id);
+                    result = new WorkflowResult.NodeResult(id, node.domain(), WorkflowResult.Status.CANCELLED,
+                            "Workflow timed out", end, end);
+                }
+                ordered.put(id, result);
+            }
+            return criticalPath(ordered, end - start);
+        }
+
+        /**
+         * Set before the in-flight nodes are cancelled, so a node that {@link #submit}s after reading it unset has
+         * its future in {@link #inFlight} by the time they are.
+         */
+        private void stop() {
+            over = true;
+            inFlight.values().forEach(future -> future.cancel(true));
+        }
+
+        private void submit(Workflow.Node node) {
+            if (over) {
+                return;
+            }
+            Future<?> future = executor.submit(() -> execute(node));
+            inFlight.put(node.id(), future);
+            if (over) {
+                future.cancel(true);
+            }
+        }
+
+        private void execute(Workflow.Node node) {
+            long nodeStart = System.nanoTime();
+            WorkflowResult.Status status;
+            String text;
+            try (Deadline.Scope ignored = deadline.attach()) {
+                Map<String, String> upstream = new HashMap<>();
+                for (String dependency : node.dependsOn()) {
+                    upstream.put(dependency, results.get(dependency).text());
+                }
+                text = transport.send(node.domain(), node.query().apply(upstream));
+                status = WorkflowResult.Status.SUCCEEDED;
+            } catch (RuntimeException e) {
+                text = e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+                status = WorkflowResult.Status.FAILED;
+            }
+            inFlight.remove(node.id());
+            if (over) {
+                // Already reported as timed out; its dependents are not started
+                return;
+            }
+            finish(new WorkflowResult.NodeResult(node.id(), node.domain(), status, text, nodeStart, System.nanoTime()));
+            for (String dependent : workflow.getDependents(node.id())) {
+                if (status != WorkflowResult.Status.SUCCEEDED) {
+                    cancel(dependent, node.id());
+                } else if (pendingDependencies.get(dependent).decrementAndGet() == 0
+                        && !results.containsKey(dependent)) {
+                    submit(workflow.getNodes().get(dependent));
+                }
+            }
+        }
+
+        private void cancel(String nodeId, String failedUpstream) {
+            Workflow.Node node = workflow.getNodes().get(nodeId);
+            long now = System.nanoTime();
+            WorkflowResult.NodeResult cancelled = new WorkflowResult.NodeResult(nodeId, node.domain(),
+                    WorkflowResult.Status.CANCELLED, "Cancelled because " + failedUpstream + " did not succeed", now, now);
+            if (!over && results.putIfAbsent(nodeId, cancelled) == null) {
+                listener.onNodeFinished(cancelled);
+                finished.countDown();
+                for (String dependent : workflow.getDependents(nodeId)) {
+                    cancel(dependent, failedUpstream);
+                }
+            }
+        }
+
+        private void finish(WorkflowResult.NodeResult result) {
+            results.put(result.nodeId(), result);
+            listener.onNodeFinished(result);
+            finished.countDown();
+        }
+
+        private WorkflowResult criticalPath(Map<String, WorkflowResult.NodeResult> ordered, long elapsed) {
+            Map<String, Long> longest = new HashMap<>();
+            Map<String, String> previous = new HashMap<>();
+            String tail = null;
+            for (String id : workflow.getTopologicalOrder()) {
+                long best = 0;
+                for (String dependency : workflow.getNodes().get(id).dependsOn()) {
+                    if (longest.get(dependency) > best) {
+                        best = longest.get(dependency);
+                        previous.put(id, dependency);
+                    }
+                }
+                long total = best + ordered.get(id).durationNanos();
+                longest.put(id, total);
+                if (tail == null || total > longest.get(tail)) {
+                    tail = id;
+                }
+            }
+            List<String> path = new ArrayList<>();
+            for (String id = tail; id != null; id = previous.get(id)) {
+                path.add(id);
+            }
+            Collections.reverse(path);
+            return new WorkflowResult(workflow.getName(), ordered, elapsed, path,
+                    tail == null ? 0 : longest.get(tail));
+        }
+    }
+}
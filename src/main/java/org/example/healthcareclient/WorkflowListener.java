@@ -0,0 +1,12 @@
+package org.example.healthcareclient;
+
+/**
+ * Receives node results as soon as they are known, before the whole workflow finishes.
+ */
+@FunctionalInterface
+public interface WorkflowListener {
+
+    WorkflowListener NONE = result -> { };
+
+    void onNodeFinished(WorkflowResult.NodeResult result);
+}
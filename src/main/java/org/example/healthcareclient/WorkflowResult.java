@@ -0,0 +1,45 @@
+package org.example.healthcareclient;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-node outcomes of a workflow run plus its critical path: the chain of dependent nodes
+ * with the largest summed execution time, which bounds how fast the workflow can ever finish.
+ */
+public record WorkflowResult(String workflow, Map<String, NodeResult> nodes, long elapsedNanos,
+                             List<String> criticalPath, long criticalPathNanos) {
+
+    public enum Status { SUCCEEDED, FAILED, CANCELLED }
+
+    public record NodeResult(String nodeId, AgentDomain domain, Status status, String text,
+                             long startNanos, long endNanos) {
+
+        public long durationNanos() {
+            return endNanos - startNanos;
+        }
+    }
+
+    public boolean isSuccessful() {
+        return nodes.values().stream().allMatch(node -> node.status() == Status.SUCCEEDED);
+    }
+
+    public String getTextResult(String nodeId) {
+        NodeResult node = nodes.get(nodeId);
+        return node == null ? null : node.text();
+    }
+
+    public String summary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append("Workflow ").append(workflow).append(" finished in ")
+               .append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)).append(" ms\n")
+               .append("Critical path: ").append(String.join(" -> ", criticalPath)).append(" (")
+               .append(TimeUnit.NANOSECONDS.toMillis(criticalPathNanos)).append(" ms)\n");
+        for (NodeResult node : nodes.values()) {
+            summary.append("  ").append(node.nodeId()).append(" [").append(node.status()).append(", ")
+                   .append(TimeUnit.NANOSECONDS.toMillis(node.durationNanos())).append(" ms]\n");
+        }
+        return summary.toString();
+    }
+}
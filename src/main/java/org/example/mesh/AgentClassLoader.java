@@ -0,0 +1,86 @@
+package org.example.mesh;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Class loader for one co-located agent. The application classes and the agent framework (tools4ai, a2ajava)
+ * are loaded again for every agent, so their static state - the tools4ai prediction loader, its configuration
+ * and action scan, the metrics registry, journals - is the agent's own, as it would be in a separate process.
+ * Everything else (the JDK, Spring, Tomcat, Jackson, LLM clients) is shared with the parent. So are this package,
+ * {@code InsurancePolicyChanges} and the {@code org.example.common.events} bus, which the agents use to reach each
+ * other.
+ * <p>
+ * Resources always come from the parent, once each; {@code tools4ai.properties} is answered with the agent's
+ * own file, e.g. {@code tools4ai_billing.properties}.
+ */
+final class AgentClassLoader extends URLClassLoader {
+
+    private static final List<String> ISOLATED = List.of("org.example.", "com.t4a.", "io.github.vishalmysore.");
+    private static final List<String> SHARED = List.of("org.example.mesh.",
+            "org.example.common.InsurancePolicyChanges", "org.example.common.events.");
+    private static final String TOOLS4AI_PROPERTIES = "tools4ai.properties";
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final String tools4aiProperties;
+
+    AgentClassLoader(String name, URL[] classPath, ClassLoader parent, String tools4aiProperties) {
+        super(name, classPath, parent);
+        this.tools4aiProperties = tools4aiProperties;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!isolated(name)) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded == null) {
+                try {
+                    loaded = findClass(name);
+                } catch (ClassNotFoundException e) {
+                    loaded = super.loadClass(name, false);
+                }
+            }
+            if (resolve) {
+                resolveClass(loaded);
+            }
+            return loaded;
+        }
+    }
+
+    @Override
+    public URL getResource(String name) {
+        return getParent().getResource(rename(name));
+    }
+
+    @Override
+    public Enumeration<URL> getResources(String name) throws IOException {
+        return getParent().getResources(rename(name));
+    }
+
+    private String rename(String name) {
+        return TOOLS4AI_PROPERTIES.equals(name) ? tools4aiProperties : name;
+    }
+
+    private static boolean isolated(String name) {
+        for (String prefix : SHARED) {
+            if (name.startsWith(prefix)) {
+                return false;
+            }
+        }
+        for (String prefix : ISOLATED) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.mesh;
+
+import lombok.extern.java.Log;
+import org.example.healthcareclient.AgentDomain;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The four agent servers in one JVM. Each server is started from its own {@link AgentClassLoader} with its own
+ * Spring context, port and tools4ai configuration, so to the outside nothing changes: the JSON-RPC, fast-path and
+ * REST endpoints answer on 8871-8874 as before. Inside the JVM the agents are reached through {@link #agent}
+ * without HTTP or JSON, which is what {@code InProcessTransport} does for the mesh client.
+ * <p>
+ * Run it in place of the four servers with {@code java -cp ... org.example.mesh.CoLocatedMesh}, or as the main
+ * class of an executable Spring Boot jar; Spring arguments such as {@code --server.port=0} apply to every agent.
+ */
+@Log
+public final class CoLocatedMesh implements AutoCloseable {
+
+    private static final String ENDPOINT = "org.example.common.InProcessAgent";
+
+    private record Member(AgentClassLoader loader, ConfigurableApplicationContext context, LocalAgent agent) {
+    }
+
+    private final Map<AgentDomain, Member> members;
+
+    private CoLocatedMesh(Map<AgentDomain, Member> members) {
+        this.members = members;
+    }
+
+    public static void main(String[] args) {
+        CoLocatedMesh mesh = start(args);
+        Runtime.getRuntime().addShutdownHook(new Thread(mesh::close, "mesh-shutdown"));
+        log.info("Co-located mesh started: " + mesh.members.keySet());
+    }
+
+    /**
+     * Starts all four agents, one after another.
+     *
+     * @param args Spring Boot arguments for every agent
+     */
+    public static CoLocatedMesh start(String... args) {
+        ClassLoader parent = CoLocatedMesh.class.getClassLoader();
+        URL[] classPath = classPath(parent);
+        Map<AgentDomain, Member> members = new EnumMap<>(AgentDomain.class);
+        CoLocatedMesh mesh = new CoLocatedMesh(members);
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        try {
+            for (AgentDomain domain : AgentDomain.values()) {
+                AgentClassLoader loader = new AgentClassLoader(domain.getKey(), classPath, parent,
+                        "tools4ai_" + domain.getKey() + ".properties");
+                thread.setContextClassLoader(loader);
+                ConfigurableApplicationContext context = new SpringApplication(new DefaultResourceLoader(loader),
+                        loader.loadClass(serverClassName(domain))).run(args);
+                members.put(domain, new Member(loader, context, endpoint(loader, context)));
+                log.info(domain + " agent started in-process");
+            }
+            return mesh;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            mesh.close();
+            throw new IllegalStateException("Unable to start the co-located mesh", e);
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    public LocalAgent agent(AgentDomain domain) {
+        Member member = members.get(domain);
+        if (member == null) {
+            throw new IllegalArgumentException(domain + " is not running in this mesh");
+        }
+        return member.agent();
+    }
+
+    /**
+     * The port the agent's server listens on, e.g. after starting with {@code --server.port=0}.
+     */
+    public int port(AgentDomain domain) {
+        Member member = members.get(domain);
+        return member == null ? -1
+                : Integer.parseInt(member.context().getEnvironment().getProperty("local.server.port", "-1"));
+    }
+
+    @Override
+    public void close() {
+        List<AgentDomain> started = new ArrayList<>(members.keySet());
+        Collections.reverse(started);
+        for (AgentDomain domain : started) {
+            Member member = members.remove(domain);
+            try {
+                member.context().close();
+                member.loader().close();
+            } catch (Exception e) {
+                log.warning("Unable to stop " + domain + " cleanly: " + e);
+            }
+        }
+    }
+
+    private static LocalAgent endpoint(ClassLoader loader, ApplicationContext context)
+            throws ReflectiveOperationException {
+        return (LocalAgent) loader.loadClass(ENDPOINT).getConstructor(ApplicationContext.class).newInstance(context);
+    }
+
+    static String serverClassName(AgentDomain domain) {
+        return switch (domain) {
+            case PATIENT_RECORDS -> "org.example.patientrecords.PatientRecordsServer";
+            case APPOINTMENTS -> "org.example.appointments.AppointmentsServer";
+            case DIAGNOSTICS -> "org.example.diagnostics.DiagnosticsServer";
+            case BILLING -> "org.example.billing.BillingServer";
+        };
+    }
+
+    /**
+     * Where the application's classes come from: the URLs of a URL class loader, as Spring Boot's launcher uses
+     * for the nested {@code BOOT-INF/classes} and {@code BOOT-INF/lib} entries of an executable jar, otherwise the
+     * JVM's class path.
+     */
+    static URL[] classPath(ClassLoader loader) {
+        if (loader instanceof URLClassLoader urls && urls.getURLs().length > 0) {
+            return urls.getURLs();
+        }
+        String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+        URL[] urls = new URL[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            try {
+                urls[i] = Path.of(entries[i]).toUri().toURL();
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException("Unusable class path entry " + entries[i], e);
+            }
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.mesh;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One agent of a {@link CoLocatedMesh}, called in-process. Only JDK types cross this interface, because the agent
+ * lives in its own class loader.
+ */
+public interface LocalAgent {
+
+    /**
+     * @return the names of the agent's {@code @Action} methods
+     */
+    List<String> actions();
+
+    /**
+     * Invokes an action with positional arguments, like {@code POST /actions/{action}}; no LLM is involved.
+     */
+    String invoke(String action, List<?> arguments);
+
+    /**
+     * Invokes an action with named arguments.
+     */
+    String invoke(String action, Map<String, ?> namedArguments);
+
+    /**
+     * Invokes a known action, letting the agent's LLM read its arguments from plain English, like a JSON-RPC
+     * {@code tools/call}.
+     */
+    String callTool(String action, String plainEnglishArguments);
+
+    /**
+     * Answers a free-text query, letting the agent's LLM choose the action and its arguments.
+     */
+    String query(String query);
+}
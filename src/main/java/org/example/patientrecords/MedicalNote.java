@@ -0,0 +1,6 @@
+package org.example.patientrecords;
+
+import java.time.LocalDateTime;
+
+public record MedicalNote(String noteId, String noteType, String text, String author, LocalDateTime timestamp) {
+}
@@ -0,0 +1,43 @@
+package org.example.patientrecords;
+
+import java.util.Locale;
+
+/**
+ * Patient record fields that can be changed through {@code updatePatientInfo}.
+ * Lookup is tolerant of case, spaces and underscores since field names come from free text.
+ */
+public enum PatientField {
+    NAME("name", "patientname", "fullname"),
+    AGE("age"),
+    BLOOD_TYPE("bloodtype", "bloodgroup"),
+    ADDRESS("address", "homeaddress"),
+    PHONE("phone", "phonenumber", "contactnumber"),
+    DATE_OF_BIRTH("dateofbirth", "dob", "birthdate"),
+    ALLERGIES("allergies"),
+    CHRONIC_CONDITIONS("chronicconditions", "conditions"),
+    MEDICATIONS("medications", "currentmedications"),
+    EMERGENCY_CONTACT("emergencycontact"),
+    INSURANCE_PROVIDER("insuranceprovider", "insurance"),
+    POLICY_NUMBER("policynumber", "insurancepolicy", "policy");
+
+    private final String[] aliases;
+
+    PatientField(String... aliases) {
+        this.aliases = aliases;
+    }
+
+    public static PatientField fromName(String fieldName) {
+        if (fieldName == null) {
+            return null;
+        }
+        String normalized = fieldName.replaceAll("[\\s_\\-]", "").toLowerCase(Locale.ROOT);
+        for (PatientField field : values()) {
+            for (String alias : field.aliases) {
+                if (alias.equals(normalized)) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+}
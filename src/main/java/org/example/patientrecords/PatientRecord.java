@@ -0,0 +1,214 @@
+package org.example.patientrecords;
+
+import java.time.LocalDate;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A patient held by {@link PatientStore}. Mutable fields are volatile so readers never lock;
+ * writers serialize on the record itself inside the store. Notes are appended without copying.
+ */
+public class PatientRecord {
+    private final String patientId;
+    private final LocalDate createdDate;
+    private volatile String name;
+    private volatile int age;
+    private volatile String bloodType;
+    private volatile String address;
+    private volatile String phone;
+    private volatile String dateOfBirth;
+    private volatile String allergies;
+    private volatile String chronicConditions;
+    private volatile String medications;
+    private volatile String emergencyContact;
+    private volatile String insuranceProvider;
+    private volatile String policyNumber;
+    private volatile LocalDate lastVisit;
+    private volatile VitalSigns latestVitals;
+    private final Queue<MedicalNote> notes = new ConcurrentLinkedQueue<>();
+    private int searchDoc = -1;
+
+    PatientRecord(String patientId, LocalDate createdDate) {
+        this.patientId = patientId;
+        this.createdDate = createdDate;
+    }
+
+    public String getPatientId() {
+        return patientId;
+    }
+
+    public LocalDate getCreatedDate() {
+        return createdDate;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void setName(String name) {
+        this.name = name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    void setAge(int age) {
+        this.age = age;
+    }
+
+    public String getBloodType() {
+        return bloodType;
+    }
+
+    void setBloodType(String bloodType) {
+        this.bloodType = bloodType;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    void setAddress(String address) {
+        this.address = address;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    void setPhone(String phone) {
+        this.phone = phone;
+    }
+
+    public String getDateOfBirth() {
+        return dateOfBirth;
+    }
+
+    void setDateOfBirth(String dateOfBirth) {
+        this.dateOfBirth = dateOfBirth;
+    }
+
+    public String getAllergies() {
+        return allergies;
+    }
+
+    void setAllergies(String allergies) {
+        this.allergies = allergies;
+    }
+
+    public String getChronicConditions() {
+        return chronicConditions;
+    }
+
+    void setChronicConditions(String chronicConditions) {
+        this.chronicConditions = chronicConditions;
+    }
+
+    public String getMedications() {
+        return medications;
+    }
+
+    void setMedications(String medications) {
+        this.medications = medications;
+    }
+
+    public String getEmergencyContact() {
+        return emergencyContact;
+    }
+
+    void setEmergencyContact(String emergencyContact) {
+        this.emergencyContact = emergencyContact;
+    }
+
+    public String getInsuranceProvider() {
+        return insuranceProvider;
+    }
+
+    void setInsuranceProvider(String insuranceProvider) {
+        this.insuranceProvider = insuranceProvider;
+    }
+
+    public String getPolicyNumber() {
+        return policyNumber;
+    }
+
+    void setPolicyNumber(String policyNumber) {
+        this.policyNumber = policyNumber;
+    }
+
+    public LocalDate getLastVisit() {
+        return lastVisit;
+    }
+
+    void setLastVisit(LocalDate lastVisit) {
+        this.lastVisit = lastVisit;
+    }
+
+    public VitalSigns getLatestVitals() {
+        return latestVitals;
+    }
+
+    void setLatestVitals(VitalSigns latestVitals) {
+        this.latestVitals = latestVitals;
+    }
+
+    public Iterable<MedicalNote> getNotes() {
+        return notes;
+    }
+
+    public int getNoteCount() {
+        return notes.size();
+    }
+
+    void appendNote(MedicalNote note) {
+        notes.add(note);
+    }
+
+    /**
+     * Document number in {@link PatientSearchIndex}, guarded by the index.
+     */
+    int getSearchDoc() {
+        return searchDoc;
+    }
+
+    void setSearchDoc(int searchDoc) {
+        this.searchDoc = searchDoc;
+    }
+
+    String get(PatientField field) {
+        switch (field) {
+            case NAME: return name;
+            case AGE: return String.valueOf(age);
+            case BLOOD_TYPE: return bloodType;
+            case ADDRESS: return address;
+            case PHONE: return phone;
+            case DATE_OF_BIRTH: return dateOfBirth;
+            case ALLERGIES: return allergies;
+            case CHRONIC_CONDITIONS: return chronicConditions;
+            case MEDICATIONS: return medications;
+            case EMERGENCY_CONTACT: return emergencyContact;
+            case INSURANCE_PROVIDER: return insuranceProvider;
+            case POLICY_NUMBER: return policyNumber;
+            default: throw new IllegalArgumentException("Unsupported field " + field);
+        }
+    }
+
+    void set(PatientField field, String value) {
+        switch (field) {
+            case NAME: name = value; break;
+            case AGE: age = Integer.parseInt(value.trim()); break;
+            case BLOOD_TYPE: bloodType = value; break;
+            case ADDRESS: address = value; break;
+            case PHONE: phone = value; break;
+            case DATE_OF_BIRTH: dateOfBirth = value; break;
+            case ALLERGIES: allergies = value; break;
+            case CHRONIC_CONDITIONS: chronicConditions = value; break;
+            case MEDICATIONS: medications = value; break;
+            case EMERGENCY_CONTACT: emergencyContact = value; break;
+            case INSURANCE_PROVIDER: insuranceProvider = value; break;
+            case POLICY_NUMBER: policyNumber = value; break;
+            default: throw new IllegalArgumentException("Unsupported field " + field);
+        }
+    }
+}
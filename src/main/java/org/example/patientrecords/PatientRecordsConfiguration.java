@@ -0,0 +1,19 @@
+package org.example.patientrecords;
+
+import org.example.common.wal.Journals;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The patient records server's {@link PatientStore}, replayed from the {@code patientrecords} journal and sized
+ * with {@code -Dpatientrecords.store.capacity} (default 65,536).
+ */
+@Configuration
+public class PatientRecordsConfiguration {
+
+    @Bean
+    public PatientStore patientStore() {
+        return new PatientStore(Integer.getInteger("patientrecords.store.capacity", 1 << 16),
+                Journals.open("patientrecords"));
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.patientrecords;
+
+import org.example.common.DomainEvents;
+import org.example.common.events.DomainEvent;
+import org.example.common.events.EventBus;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Keeps patient records current with check-ins, completed lab orders and diagnostic reports from the shared event
+ * bus.
+ */
+@Component
+public class PatientRecordsEvents implements AutoCloseable {
+
+    private final EventBus.Subscription clinical;
+
+    public PatientRecordsEvents(PatientRecordsService records) {
+        this.clinical = DomainEvents.subscribe("patientrecords-clinical", records::applyEvents,
+                Set.of(DomainEvent.AppointmentCheckedIn.class, DomainEvent.LabResultReady.class,
+                        DomainEvent.DiagnosticReportCreated.class));
+    }
+
+    @Override
+    public void close() {
+        clinical.close();
+    }
+}
@@ -2,99 +2,247 @@ package org.example.patientrecords;
 
 import com.t4a.annotations.Action;
 import com.t4a.annotations.Agent;
+import org.example.common.InsurancePolicyChanges;
+import org.example.common.ResponseTemplate;
+import org.example.common.events.DomainEvent;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
 @Agent(groupName = "patientRecordsOperations")
 @Service
 public class PatientRecordsService {
 
+    private static final ResponseTemplate CREATE_PATIENT_RECORD = ResponseTemplate.compile(
+            "Patient record created successfully!\n" +
+            "Patient ID: %s\n" +
+            "Name: %s\n" +
+            "Age: %d years\n" +
+            "Blood Type: %s\n" +
+            "Address: %s\n" +
+            "Status: ACTIVE\n" +
+            "Created: %s");
+
+    private static final ResponseTemplate GET_PATIENT_HISTORY = ResponseTemplate.compile(
+            "Medical History for Patient %s:\n" +
+            "=================================\n" +
+            "Name: %s\n" +
+            "Age: %d years\n" +
+            "Blood Type: %s\n" +
+            "Allergies: %s\n" +
+            "Chronic Conditions: %s\n" +
+            "Current Medications: %s\n" +
+            "Last Visit: %s\n" +
+            "Emergency Contact: %s");
+
+    private static final ResponseTemplate UNKNOWN_FIELD = ResponseTemplate.compile(
+            "Unknown patient field '%s'. Updatable fields: name, age, bloodType, address, " +
+            "phone, dateOfBirth, allergies, chronicConditions, medications, emergencyContact, " +
+            "insuranceProvider, policyNumber");
+
+    private static final ResponseTemplate INVALID_FIELD_VALUE = ResponseTemplate.compile(
+            "Invalid value '%s' for field %s");
+
+    private static final ResponseTemplate FIELD_UPDATED = ResponseTemplate.compile(
+            "Patient record %s updated successfully.\n" +
+            "Field Updated: %s\n" +
+            "New Value: %s\n" +
+            "Updated: %s\n" +
+            "Status: CONFIRMED");
+
+    private static final ResponseTemplate ADD_MEDICAL_NOTE = ResponseTemplate.compile(
+            "Medical note added to Patient %s:\n" +
+            "Note Type: %s\n" +
+            "Note: %s\n" +
+            "Added By: %s\n" +
+            "Timestamp: %s\n" +
+            "Note ID: %s");
+
+    private static final ResponseTemplate RECORD_VITAL_SIGNS = ResponseTemplate.compile(
+            "Vital signs recorded for Patient %s at %s");
+
+    private static final ResponseTemplate NO_VITAL_SIGNS = ResponseTemplate.compile(
+            "No vital signs recorded for Patient %s");
+
+    private static final ResponseTemplate VITAL_SIGNS = ResponseTemplate.compile(
+            "Vital Signs for Patient %s:\n" +
+            "=================================\n" +
+            "Blood Pressure: %s mmHg\n" +
+            "Heart Rate: %d bpm\n" +
+            "Temperature: %.1f°F (%.1f°C)\n" +
+            "Oxygen Saturation: %d%%\n" +
+            "Last Updated: %s");
+
+    private static final ResponseTemplate SEARCH_HEADER = ResponseTemplate.compile(
+            "Patient Search Results for '%s':\n\n");
+
+    private static final ResponseTemplate GET_IMMUNIZATION_RECORDS = ResponseTemplate.compile(
+            "Immunization Records for Patient %s:\n" +
+            "=================================\n" +
+            "COVID-19: Moderna (3 doses) - Last: 2025-09-15\n" +
+            "Influenza: Annual - Last: 2025-10-01\n" +
+            "Tdap: Booster - Last: 2023-03-15\n" +
+            "Hepatitis B: Complete Series (3 doses)\n" +
+            "MMR: Complete (2 doses)\n" +
+            "Next Due: Influenza (2026-10-01)");
+
+    private static final ResponseTemplate NOT_FOUND = ResponseTemplate.compile(
+            "Patient %s not found");
+
+    private static final String NOT_RECORDED = "Not recorded";
+    private static final String SEARCH_MORE = "\nMore results: narrow the search or page through GET /patients/search";
+    private static final int SEARCH_LIMIT = 20;
+
+    private final PatientStore store;
+
+    public PatientRecordsService(PatientStore store) {
+        this.store = store;
+    }
+
     @Action(description = "Create a new patient record")
     public String createPatientRecord(String patientName, int age, String bloodType, String address) {
-        String patientId = "PT-" + (System.currentTimeMillis() % 100000);
-        return String.format("Patient record created successfully!\n" +
-               "Patient ID: %s\n" +
-               "Name: %s\n" +
-               "Age: %d years\n" +
-               "Blood Type: %s\n" +
-               "Address: %s\n" +
-               "Status: ACTIVE\n" +
-               "Created: %s", 
-               patientId, patientName, age, bloodType, address,
-               java.time.LocalDate.now());
+        PatientRecord record = store.create(patientName, age, bloodType, address);
+        return CREATE_PATIENT_RECORD.render().arg(record.getPatientId()).arg(record.getName())
+                .arg(record.getAge()).arg(record.getBloodType()).arg(record.getAddress())
+                .arg(record.getCreatedDate()).build();
     }
 
     @Action(description = "Get patient medical history")
     public String getPatientHistory(String patientId) {
-        return String.format("Medical History for Patient %s:\n" +
-               "=================================\n" +
-               "Name: John Doe\n" +
-               "Age: 45 years\n" +
-               "Blood Type: O+\n" +
-               "Allergies: Penicillin, Peanuts\n" +
-               "Chronic Conditions: Type 2 Diabetes, Hypertension\n" +
-               "Current Medications: Metformin 500mg, Lisinopril 10mg\n" +
-               "Last Visit: 2026-01-15\n" +
-               "Emergency Contact: Jane Doe (555-1234)", 
-               patientId);
+        PatientRecord record = store.find(patientId);
+        if (record == null) {
+            return notFound(patientId);
+        }
+        ResponseTemplate.Renderer history = GET_PATIENT_HISTORY.render().arg(record.getPatientId())
+                .arg(record.getName()).arg(record.getAge()).arg(record.getBloodType())
+                .arg(orNotRecorded(record.getAllergies())).arg(orNotRecorded(record.getChronicConditions()))
+                .arg(orNotRecorded(record.getMedications())).arg(orNotRecorded(record.getLastVisit()))
+                .arg(orNotRecorded(record.getEmergencyContact()));
+        history.text("\nMedical Notes: ").text(record.getNoteCount());
+        for (MedicalNote note : record.getNotes()) {
+            history.text("\n  ").text(note.timestamp().toLocalDate().toString())
+                   .text(" [").text(note.noteType()).text("] ").text(note.text());
+        }
+        return history.build();
     }
 
     @Action(description = "Update patient information")
     public String updatePatientInfo(String patientId, String fieldName, String newValue) {
-        return String.format("Patient record %s updated successfully.\n" +
-               "Field Updated: %s\n" +
-               "New Value: %s\n" +
-               "Updated: %s\n" +
-               "Status: CONFIRMED", 
-               patientId, fieldName, newValue, java.time.LocalDateTime.now());
+        PatientField field = PatientField.fromName(fieldName);
+        if (field == null) {
+            return UNKNOWN_FIELD.render().arg(fieldName).build();
+        }
+        boolean insurance = field == PatientField.INSURANCE_PROVIDER || field == PatientField.POLICY_NUMBER;
+        PatientRecord before = insurance ? store.find(patientId) : null;
+        String previousProvider = before == null ? null : before.getInsuranceProvider();
+        String previousPolicy = before == null ? null : before.getPolicyNumber();
+        PatientRecord record;
+        try {
+            record = store.update(patientId, field, newValue);
+        } catch (NumberFormatException e) {
+            return INVALID_FIELD_VALUE.render().arg(newValue).arg(fieldName).build();
+        }
+        if (record == null) {
+            return notFound(patientId);
+        }
+        if (insurance) {
+            InsurancePolicyChanges.changed(previousProvider, previousPolicy);
+            InsurancePolicyChanges.changed(record.getInsuranceProvider(), record.getPolicyNumber());
+        }
+        return FIELD_UPDATED.render().arg(record.getPatientId()).arg(fieldName).arg(newValue)
+                .arg(LocalDateTime.now()).build();
     }
 
     @Action(description = "Add medical note to patient record")
     public String addMedicalNote(String patientId, String noteType, String note) {
-        return String.format("Medical note added to Patient %s:\n" +
-               "Note Type: %s\n" +
-               "Note: %s\n" +
-               "Added By: Dr. Smith\n" +
-               "Timestamp: %s\n" +
-               "Note ID: NOTE-%d", 
-               patientId, noteType, note, java.time.LocalDateTime.now(),
-               System.currentTimeMillis() % 100000);
+        MedicalNote added = store.addNote(patientId, noteType, note, "Dr. Smith");
+        if (added == null) {
+            return notFound(patientId);
+        }
+        return ADD_MEDICAL_NOTE.render().arg(patientId).arg(added.noteType()).arg(added.text())
+                .arg(added.author()).arg(added.timestamp()).arg(added.noteId()).build();
+    }
+
+    @Action(description = "Record patient vital signs")
+    public String recordVitalSigns(String patientId, String bloodPressure, int heartRate, double temperature, int oxygenSaturation) {
+        VitalSigns vitals = store.recordVitals(patientId,
+                new VitalSigns(bloodPressure, heartRate, temperature, oxygenSaturation, LocalDateTime.now()));
+        if (vitals == null) {
+            return notFound(patientId);
+        }
+        return RECORD_VITAL_SIGNS.render().arg(patientId).arg(vitals.recordedAt()).build();
     }
 
     @Action(description = "Get patient vital signs history")
     public String getVitalSigns(String patientId) {
-        return String.format("Vital Signs for Patient %s:\n" +
-               "=================================\n" +
-               "Blood Pressure: 120/80 mmHg\n" +
-               "Heart Rate: 72 bpm\n" +
-               "Temperature: 98.6°F (37°C)\n" +
-               "Respiratory Rate: 16 breaths/min\n" +
-               "Oxygen Saturation: 98%%\n" +
-               "Weight: 175 lbs (79.4 kg)\n" +
-               "Height: 5'10\" (178 cm)\n" +
-               "BMI: 25.1 (Normal)\n" +
-               "Last Updated: %s", 
-               patientId, java.time.LocalDateTime.now());
+        PatientRecord record = store.find(patientId);
+        if (record == null) {
+            return notFound(patientId);
+        }
+        VitalSigns vitals = record.getLatestVitals();
+        if (vitals == null) {
+            return NO_VITAL_SIGNS.render().arg(patientId).build();
+        }
+        return VITAL_SIGNS.render().arg(patientId).arg(vitals.bloodPressure()).arg(vitals.heartRate())
+                .arg(vitals.temperatureF()).arg(vitals.temperatureC()).arg(vitals.oxygenSaturation())
+                .arg(vitals.recordedAt()).build();
     }
 
-    @Action(description = "Search for patients by name or ID")
+    @Action(description = "Search for patients by ID, partial name, phone number, address or date of birth")
     public String searchPatients(String searchTerm) {
-        return String.format("Patient Search Results for '%s':\n\n", searchTerm) +
-               "1. PT-12345 - John Doe - Age 45 - Last Visit: 2026-01-15\n" +
-               "2. PT-12346 - Jane Doe - Age 38 - Last Visit: 2026-01-20\n" +
-               "3. PT-12347 - Bob Smith - Age 52 - Last Visit: 2026-01-28\n" +
-               "Total Results: 3";
+        PatientSearchIndex.Page page = store.search(searchTerm, 0, SEARCH_LIMIT);
+        ResponseTemplate.Renderer results = SEARCH_HEADER.render().arg(searchTerm);
+        int rank = 1;
+        for (PatientSearchIndex.Hit hit : page.hits()) {
+            PatientRecord record = hit.record();
+            results.text(rank++).text(". ").text(record.getPatientId()).text(" - ").text(record.getName())
+                   .text(" - Age ").text(record.getAge()).text(" - Last Visit: ")
+                   .text(orNotRecorded(record.getLastVisit())).text("\n");
+        }
+        results.text("Total Results: ").text(page.hits().size());
+        return page.more() ? results.text(SEARCH_MORE).build() : results.build();
+    }
+
+    /**
+     * Domain events from the other agents, see {@link PatientRecordsEvents}: a check-in is the patient's last
+     * visit, and completed lab orders and diagnostic reports are added as notes. Events for unknown patients are
+     * ignored.
+     */
+    public void applyEvents(List<DomainEvent> batch) {
+        for (DomainEvent event : batch) {
+            if (event instanceof DomainEvent.AppointmentCheckedIn checkedIn) {
+                store.recordVisit(checkedIn.patientId(),
+                        checkedIn.occurredAt().atZone(ZoneId.systemDefault()).toLocalDate());
+            } else if (event instanceof DomainEvent.LabResultReady lab) {
+                store.addNote(lab.patientId(), "Lab Result", lab.testType() + " (" + lab.labOrderId() + ") completed: "
+                        + (lab.outOfRange() == 0 ? "all values within normal limits"
+                                : lab.outOfRange() + " value(s) outside the reference range"), "Diagnostics");
+            } else if (event instanceof DomainEvent.DiagnosticReportCreated report) {
+                store.addNote(report.patientId(), "Diagnostic Report",
+                        report.reportType() + " report " + report.reportId() + " finalized", "Diagnostics");
+            }
+        }
+    }
+
+    /**
+     * The structured search behind {@link PatientSearchController}.
+     */
+    public PatientSearchIndex.Page search(String query, int offset, int limit) {
+        return store.search(query, offset, limit);
     }
 
     @Action(description = "Get patient immunization records")
     public String getImmunizationRecords(String patientId) {
-        return String.format("Immunization Records for Patient %s:\n" +
-               "=================================\n" +
-               "COVID-19: Moderna (3 doses) - Last: 2025-09-15\n" +
-               "Influenza: Annual - Last: 2025-10-01\n" +
-               "Tdap: Booster - Last: 2023-03-15\n" +
-               "Hepatitis B: Complete Series (3 doses)\n" +
-               "MMR: Complete (2 doses)\n" +
-               "Next Due: Influenza (2026-10-01)", 
-               patientId);
+        return GET_IMMUNIZATION_RECORDS.render().arg(patientId).build();
+    }
+
+    private static String notFound(String patientId) {
+        return NOT_FOUND.render().arg(patientId).build();
+    }
+
+    private static String orNotRecorded(Object value) {
+        return value == null ? NOT_RECORDED : value.toString();
     }
 }
@@ -0,0 +1,60 @@
+package org.example.patientrecords;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Front-desk patient search without an LLM round trip:
+ * {@code GET /patients/search?q=&page=&size=} returns one page of {@link Results}, best matches first. The query
+ * takes a patient ID or any mix of name and address words (whole or prefixes, names also misspelt), a phone
+ * number or its last four digits, and a date of birth as {@code 1980-04-12} or {@code 4/12/1980}.
+ */
+@RestController
+@RequestMapping("/patients")
+public class PatientSearchController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    public record Result(String patientId, String name, int age, String dateOfBirth, String phone, String address,
+                         String lastVisit, PatientSearchIndex.Match match) {
+    }
+
+    /**
+     * @param more whether page {@code page + 1} has results
+     */
+    public record Results(String query, int page, int size, boolean more, List<Result> patients) {
+    }
+
+    private final PatientRecordsService service;
+
+    public PatientSearchController(PatientRecordsService service) {
+        this.service = service;
+    }
+
+    @GetMapping(path = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Results search(@RequestParam("q") String query,
+                          @RequestParam(name = "page", defaultValue = "0") int page,
+                          @RequestParam(name = "size", defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "page must be 0 or more and size between 1 and " + MAX_PAGE_SIZE);
+        }
+        PatientSearchIndex.Page found = service.search(query, Math.multiplyExact(page, size), size);
+        List<Result> patients = new ArrayList<>(found.hits().size());
+        for (PatientSearchIndex.Hit hit : found.hits()) {
+            PatientRecord record = hit.record();
+            patients.add(new Result(record.getPatientId(), record.getName(), record.getAge(),
+                    record.getDateOfBirth(), record.getPhone(), record.getAddress(),
+                    record.getLastVisit() == null ? null : record.getLastVisit().toString(), hit.match()));
+        }
+        return new Results(query, page, size, found.more(), patients);
+    }
+}
@@ -0,0 +1,716 @@
+package org.example.patientrecords;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over the searchable patient fields - name, address, phone and date of birth - behind
+ * {@link PatientStore#search}.
+ * <p>
+ * Every record is a document number, and every field is split into words that are indexed as
+ * <ul>
+ *     <li>{@code =word} - the whole word, for letters-only words and dates of birth ({@code =19800412})</li>
+ *     <li>trigrams - {@code ^jo}, {@code joh}, {@code ohn}; a query word is a prefix of a record word only if
+ *     all of its trigrams are in the record, so prefix search is an intersection</li>
+ *     <li>{@code ~J500} - the Soundex code of letters-only words, for misspelt names</li>
+ * </ul>
+ * Phone numbers are indexed as their digits and their last four digits. A query matches a record when every query
+ * word matches one of its words; results are ranked exact before prefix before phonetic matches and, within a rank,
+ * most recently created or edited first.
+ * <p>
+ * Posting lists are append-only and ascending: a record that is edited is retired and indexed again under a new,
+ * higher document number, so a list never changes in the middle. They are kept as sealed blocks of 128 document
+ * numbers, delta-varint encoded behind their first and last number, and a small open tail. Readers take one
+ * immutable snapshot of each list and never lock; writers serialize on the index, which keeps document numbers in
+ * the order they are appended. Candidates are walked newest first and checked against the live record, so a query
+ * stops as soon as its page is full. Retired numbers stay in the lists until the index is rebuilt on restart.
+ */
+public final class PatientSearchIndex {
+
+    /**
+     * How well the weakest word of a query matched, best first.
+     */
+    public enum Match {
+        EXACT, PREFIX, PHONETIC
+    }
+
+    public record Hit(PatientRecord record, Match match) {
+    }
+
+    /**
+     * @param more whether there is at least one more page
+     */
+    public record Page(List<Hit> hits, boolean more) {
+    }
+
+    private static final int BLOCK = 128;
+    private static final int PAGE_BITS = 16;
+    private static final int NO_MORE = -1;
+    private static final int UNSTARTED = Integer.MAX_VALUE;
+    private static final int MAX_QUERY_WORDS = 8;
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+    private static final Match[] MATCHES = Match.values();
+    private static final Postings EMPTY = new Postings();
+    private static final DateTimeFormatter US_DATE = DateTimeFormatter.ofPattern("M/d/uuuu");
+    private static final Pattern DATE_SHAPE = Pattern.compile("[0-9]{1,4}[-/][0-9]{1,2}[-/][0-9]{1,4}");
+    private static final String PHONE_CHARACTERS = "()-.+0123456789";
+
+    private enum Kind {
+        ALPHA, DATE, OTHER
+    }
+
+    private record Word(String text, Kind kind) {
+    }
+
+    private final Map<String, Postings> postings = new ConcurrentHashMap<>(1 << 16);
+    private volatile AtomicReferenceArray<PatientRecord>[] docs = newPages(16);
+    private int nextDoc;
+
+    static boolean isSearchable(PatientField field) {
+        return field == PatientField.NAME || field == PatientField.ADDRESS || field == PatientField.PHONE
+                || field == PatientField.DATE_OF_BIRTH;
+    }
+
+    synchronized void add(PatientRecord record) {
+        int doc = nextDoc++;
+        AtomicReferenceArray<PatientRecord>[] pages = docs;
+        int page = doc >>> PAGE_BITS;
+        if (page == pages.length) {
+            pages = Arrays.copyOf(pages, pages.length * 2);
+            docs = pages;
+        }
+        if (pages[page] == null) {
+            pages[page] = new AtomicReferenceArray<>(1 << PAGE_BITS);
+        }
+        pages[page].set(doc & ((1 << PAGE_BITS) - 1), record);
+        record.setSearchDoc(doc);
+        Set<String> tokens = new HashSet<>();
+        for (Word word : words(record)) {
+            tokens(word, tokens);
+        }
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, t -> new Postings()).add(doc);
+        }
+    }
+
+    /**
+     * Indexes the record again after one of its searchable fields changed.
+     */
+    synchronized void update(PatientRecord record) {
+        int previous = record.getSearchDoc();
+        if (previous >= 0) {
+            docs[previous >>> PAGE_BITS].set(previous & ((1 << PAGE_BITS) - 1), null);
+        }
+        add(record);
+    }
+
+    /**
+     * One page of the records matching every word of {@code query}, best matches first.
+     *
+     * @param offset number of matches to skip
+     * @param limit  page size
+     */
+    public Page search(String query, int offset, int limit) {
+        Word[] words = parse(query);
+        List<Hit> hits = new ArrayList<>(Math.min(limit, 256));
+        if (words.length == 0 || limit <= 0) {
+            return new Page(hits, false);
+        }
+        Set<String> seen = new HashSet<>();
+        int skipped = 0;
+        for (Match match : MATCHES) {
+            Cursor candidates = candidates(words, match);
+            for (int doc = candidates.next(); doc != NO_MORE; doc = candidates.next()) {
+                PatientRecord record = document(doc);
+                if (record == null || level(record, words) != match.ordinal()
+                        || !seen.add(record.getPatientId())) {
+                    continue;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                } else if (hits.size() == limit) {
+                    return new Page(hits, true);
+                } else {
+                    hits.add(new Hit(record, match));
+                }
+            }
+        }
+        return new Page(hits, false);
+    }
+
+    /**
+     * Distinct tokens in the index.
+     */
+    public int tokenCount() {
+        return postings.size();
+    }
+
+    /**
+     * Bytes held by sealed posting blocks and open tails, without object headers.
+     */
+    public long postingBytes() {
+        long bytes = 0;
+        for (Postings list : postings.values()) {
+            State state = list.state;
+            bytes += state.tail().length * 4L;
+            for (Block block : state.blocks()) {
+                bytes += block.data().length + 12;
+            }
+        }
+        return bytes;
+    }
+
+    private PatientRecord document(int doc) {
+        AtomicReferenceArray<PatientRecord>[] pages = docs;
+        AtomicReferenceArray<PatientRecord> page = pages[doc >>> PAGE_BITS];
+        return page.get(doc & ((1 << PAGE_BITS) - 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AtomicReferenceArray<PatientRecord>[] newPages(int count) {
+        return new AtomicReferenceArray[count];
+    }
+
+    private Cursor candidates(Word[] words, Match match) {
+        Cursor[] perWord = new Cursor[words.length];
+        for (int i = 0; i < words.length; i++) {
+            perWord[i] = candidates(words[i], match);
+        }
+        return perWord.length == 1 ? perWord[0] : new AndCursor(perWord);
+    }
+
+    private Cursor candidates(Word word, Match match) {
+        String text = word.text();
+        if (word.kind() == Kind.DATE || word.kind() == Kind.ALPHA && (match == Match.EXACT || text.length() == 1)) {
+            return list("=" + text);
+        }
+        Cursor prefix = trigramCursor(text);
+        if (match == Match.PHONETIC && word.kind() == Kind.ALPHA && text.length() >= 3) {
+            String code = soundex(text);
+            return code == null ? prefix : new OrCursor(prefix, list("~" + code));
+        }
+        return prefix;
+    }
+
+    private Cursor trigramCursor(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        trigrams(text, grams);
+        Cursor[] lists = new Cursor[grams.size()];
+        int i = 0;
+        for (String gram : grams) {
+            lists[i++] = list(gram);
+        }
+        return lists.length == 1 ? lists[0] : new AndCursor(lists);
+    }
+
+    private Cursor list(String token) {
+        return new PostingsCursor(postings.getOrDefault(token, EMPTY).state);
+    }
+
+    /**
+     * The ordinal of the weakest {@link Match} over all query words, or {@link #NO_MATCH}.
+     */
+    private static int level(PatientRecord record, Word[] query) {
+        List<Word> recordWords = words(record);
+        int worst = Match.EXACT.ordinal();
+        for (Word word : query) {
+            int best = NO_MATCH;
+            for (Word candidate : recordWords) {
+                best = Math.min(best, match(word, candidate));
+                if (best == 0) {
+                    break;
+                }
+            }
+            if (best == NO_MATCH) {
+                return NO_MATCH;
+            }
+            worst = Math.max(worst, best);
+        }
+        return worst;
+    }
+
+    private static int match(Word query, Word candidate) {
+        String text = query.text();
+        if (text.equals(candidate.text())) {
+            return Match.EXACT.ordinal();
+        }
+        if (query.kind() != Kind.DATE && text.length() >= 2 && candidate.kind() != Kind.DATE
+                && candidate.text().startsWith(text)) {
+            return Match.PREFIX.ordinal();
+        }
+        if (query.kind() == Kind.ALPHA && candidate.kind() == Kind.ALPHA && text.length() >= 3
+                && editDistance(text, candidate.text(), text.length() <= 4 ? 1 : 2) >= 0) {
+            String code = soundex(text);
+            if (code != null && code.equals(soundex(candidate.text()))) {
+                return Match.PHONETIC.ordinal();
+            }
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * Optimal string alignment distance (adjacent transpositions count once), or -1 if it exceeds {@code bound}.
+     */
+    static int editDistance(String a, String b, int bound) {
+        if (Math.abs(a.length() - b.length()) > bound) {
+            return -1;
+        }
+        int[] before = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance = Math.min(distance, before[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > bound) {
+                return -1;
+            }
+            int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+        }
+        int distance = previous[b.length()];
+        return distance <= bound ? distance : -1;
+    }
+
+    /**
+     * American Soundex of a lower-case word, or {@code null} if it does not start with a letter a-z.
+     */
+    static String soundex(String word) {
+        char first = word.charAt(0);
+        if (first < 'a' || first > 'z') {
+            return null;
+        }
+        char[] code = {Character.toUpperCase(first), '0', '0', '0'};
+        int length = 1;
+        char previous = soundexDigit(first);
+        for (int i = 1; i < word.length() && length < 4; i++) {
+            char c = word.charAt(i);
+            if (c == 'h' || c == 'w') {
+                continue;
+            }
+            char digit = soundexDigit(c);
+            if (digit != '0' && digit != previous) {
+                code[length++] = digit;
+            }
+            previous = digit;
+        }
+        return new String(code);
+    }
+
+    private static char soundexDigit(char c) {
+        switch (c) {
+            case 'b': case 'f': case 'p': case 'v': return '1';
+            case 'c': case 'g': case 'j': case 'k': case 'q': case 's': case 'x': case 'z': return '2';
+            case 'd': case 't': return '3';
+            case 'l': return '4';
+            case 'm': case 'n': return '5';
+            case 'r': return '6';
+            default: return '0';
+        }
+    }
+
+    private static void tokens(Word word, Set<String> tokens) {
+        if (word.kind() == Kind.DATE) {
+            tokens.add("=" + word.text());
+            return;
+        }
+        trigrams(word.text(), tokens);
+        if (word.kind() == Kind.ALPHA) {
+            tokens.add("=" + word.text());
+            String code = word.text().length() >= 2 ? soundex(word.text()) : null;
+            if (code != null) {
+                tokens.add("~" + code);
+            }
+        }
+    }
+
+    /**
+     * {@code ^} and the first two characters, then every three consecutive characters.
+     */
+    private static void trigrams(String word, Set<String> grams) {
+        grams.add("^" + word.substring(0, Math.min(2, word.length())));
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            grams.add(word.substring(i, i + 3));
+        }
+    }
+
+    private static List<Word> words(PatientRecord record) {
+        List<Word> words = new ArrayList<>();
+        split(record.getName(), words);
+        split(record.getAddress(), words);
+        String phone = digits(record.getPhone());
+        if (phone.length() >= 4) {
+            words.add(new Word(phone, Kind.OTHER));
+            words.add(new Word(phone.substring(phone.length() - 4), Kind.OTHER));
+        }
+        String dateOfBirth = record.getDateOfBirth();
+        String date = dateOfBirth == null ? null : date(dateOfBirth.trim());
+        if (date != null) {
+            words.add(new Word(date, Kind.DATE));
+        } else {
+            split(dateOfBirth, words);
+        }
+        return words;
+    }
+
+    /**
+     * Query words: each whitespace-separated chunk is a date, a phone number (seven or more digits written with
+     * any of {@code ( ) - . +}), or split into words like the record fields.
+     */
+    private static Word[] parse(String query) {
+        List<Word> words = new ArrayList<>();
+        if (query != null) {
+            for (String chunk : query.trim().split("\\s+")) {
+                String date = date(chunk);
+                String digits = digits(chunk);
+                if (date != null) {
+                    words.add(new Word(date, Kind.DATE));
+                } else if (digits.length() >= 7 && isPhone(chunk)) {
+                    words.add(new Word(digits, Kind.OTHER));
+                } else {
+                    split(chunk, words);
+                }
+            }
+        }
+        return words.subList(0, Math.min(words.size(), MAX_QUERY_WORDS)).toArray(new Word[0]);
+    }
+
+    /**
+     * Lower-case words of letters and digits, accents removed.
+     */
+    private static void split(String text, List<Word> words) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String folded = text;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7f) {
+                folded = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+                break;
+            }
+        }
+        folded = folded.toLowerCase(Locale.ROOT);
+        int start = -1;
+        boolean letters = true;
+        for (int i = 0; i <= folded.length(); i++) {
+            char c = i < folded.length() ? folded.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (start < 0) {
+                    start = i;
+                    letters = true;
+                }
+                letters &= Character.isLetter(c);
+            } else if (start >= 0) {
+                words.add(new Word(folded.substring(start, i), letters ? Kind.ALPHA : Kind.OTHER));
+                start = -1;
+            }
+        }
+    }
+
+    private static boolean isPhone(String chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            if (PHONE_CHARACTERS.indexOf(chunk.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String digits(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    /**
+     * {@code yyyyMMdd} for an ISO ({@code 1980-04-12}) or US ({@code 4/12/1980}) date, otherwise {@code null}.
+     */
+    private static String date(String text) {
+        if (text.length() < 8 || text.length() > 10 || !DATE_SHAPE.matcher(text).matches()) {
+            return null;
+        }
+        try {
+            LocalDate date = text.indexOf('/') > 0 ? LocalDate.parse(text, US_DATE) : LocalDate.parse(text);
+            return date.format(DateTimeFormatter.BASIC_ISO_DATE);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sealed blocks hold {@link #BLOCK} document numbers: {@code first} and {@code last} in the clear so a cursor
+     * can skip the block, and the gaps between them as varints.
+     */
+    private record Block(int first, int last, byte[] data) {
+
+        static Block encode(int[] docs) {
+            byte[] buffer = new byte[docs.length * 5];
+            int length = 0;
+            for (int i = 1; i < docs.length; i++) {
+                int gap = docs[i] - docs[i - 1];
+                while ((gap & ~0x7f) != 0) {
+                    buffer[length++] = (byte) (gap & 0x7f | 0x80);
+                    gap >>>= 7;
+                }
+                buffer[length++] = (byte) gap;
+            }
+            return new Block(docs[0], docs[docs.length - 1], Arrays.copyOf(buffer, length));
+        }
+
+        void decode(int[] into) {
+            int doc = first;
+            into[0] = doc;
+            int offset = 0;
+            for (int i = 1; i < BLOCK; i++) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[offset++];
+                    gap |= (b & 0x7f) << shift;
+                    shift += 7;
+                } while (b < 0);
+                doc += gap;
+                into[i] = doc;
+            }
+        }
+    }
+
+    /**
+     * A snapshot of one posting list. Tail slots below {@code tailSize} are never written again.
+     */
+    private record State(Block[] blocks, int[] tail, int tailSize) {
+
+        int size() {
+            return blocks.length * BLOCK + tailSize;
+        }
+    }
+
+    private static final class Postings {
+
+        volatile State state = new State(new Block[0], new int[4], 0);
+
+        /**
+         * Called with ascending document numbers, under the index lock.
+         */
+        void add(int doc) {
+            State current = state;
+            int[] tail = current.tail();
+            int size = current.tailSize();
+            Block[] blocks = current.blocks();
+            if (size == BLOCK) {
+                blocks = Arrays.copyOf(blocks, blocks.length + 1);
+                blocks[blocks.length - 1] = Block.encode(tail);
+                tail = new int[4];
+                size = 0;
+            } else if (size == tail.length) {
+                tail = Arrays.copyOf(tail, tail.length * 2);
+            }
+            tail[size] = doc;
+            state = new State(blocks, tail, size + 1);
+        }
+    }
+
+    /**
+     * Walks document numbers from the highest down. {@code advance(target)} moves to the highest number at or
+     * below {@code target}, staying put if the cursor is already there.
+     */
+    private abstract static class Cursor {
+
+        int doc = UNSTARTED;
+
+        abstract int next();
+
+        abstract int advance(int target);
+
+        abstract long cost();
+    }
+
+    private static final class PostingsCursor extends Cursor {
+
+        private final State state;
+        private final int[] decoded = new int[BLOCK];
+        private int[] buffer;
+        private int block;
+        private int position;
+
+        PostingsCursor(State state) {
+            this.state = state;
+            this.block = state.blocks().length;
+            this.buffer = state.tail();
+            this.position = state.tailSize();
+        }
+
+        @Override
+        int next() {
+            while (--position < 0) {
+                if (block == 0) {
+                    return doc = NO_MORE;
+                }
+                load(--block);
+            }
+            return doc = buffer[position];
+        }
+
+        @Override
+        int advance(int target) {
+            if (doc <= target) {
+                return doc;
+            }
+            if (position > 0 && buffer[0] <= target) {
+                return scan(target);
+            }
+            Block[] blocks = state.blocks();
+            int low = 0;
+            int high = block - 1;
+            int b = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (blocks[middle].first() <= target) {
+                    b = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (b < 0) {
+                block = 0;
+                position = 0;
+                return doc = NO_MORE;
+            }
+            block = b;
+            load(b);
+            return scan(target);
+        }
+
+        @Override
+        long cost() {
+            return state.size();
+        }
+
+        private void load(int b) {
+            state.blocks()[b].decode(decoded);
+            buffer = decoded;
+            position = BLOCK;
+        }
+
+        private int scan(int target) {
+            while (--position >= 0) {
+                if (buffer[position] <= target) {
+                    return doc = buffer[position];
+                }
+            }
+            return doc = NO_MORE;
+        }
+    }
+
+    private static final class AndCursor extends Cursor {
+
+        private final Cursor[] cursors;
+
+        AndCursor(Cursor[] cursors) {
+            this.cursors = cursors.clone();
+            Arrays.sort(this.cursors, Comparator.comparingLong(Cursor::cost));
+        }
+
+        @Override
+        int next() {
+            return doc = align(cursors[0].next());
+        }
+
+        @Override
+        int advance(int target) {
+            return doc <= target ? doc : (doc = align(cursors[0].advance(target)));
+        }
+
+        @Override
+        long cost() {
+            return cursors[0].cost();
+        }
+
+        private int align(int candidate) {
+            int i = 1;
+            while (candidate != NO_MORE && i < cursors.length) {
+                int found = cursors[i].advance(candidate);
+                if (found == candidate) {
+                    i++;
+                } else {
+                    candidate = found == NO_MORE ? NO_MORE : cursors[0].advance(found);
+                    i = 1;
+                }
+            }
+            return candidate;
+        }
+    }
+
+    private static final class OrCursor extends Cursor {
+
+        private final Cursor first;
+        private final Cursor second;
+
+        OrCursor(Cursor first, Cursor second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        int next() {
+            int current = doc;
+            if (first.doc == current) {
+                first.next();
+            }
+            if (second.doc == current) {
+                second.next();
+            }
+            return doc = Math.max(first.doc, second.doc);
+        }
+
+        @Override
+        int advance(int target) {
+            if (doc <= target) {
+                return doc;
+            }
+            return doc = Math.max(first.advance(target), second.advance(target));
+        }
+
+        @Override
+        long cost() {
+            return first.cost() + second.cost();
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package org.example.patientrecords;
+
+import org.example.common.IdGenerator;
+import org.example.common.wal.FieldCodec;
+import org.example.common.wal.Journal;
+import org.example.common.wal.LogEntry;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory patient store keyed by patient ID with a secondary index on blood type and a
+ * {@link PatientSearchIndex} over name, address, phone and date of birth.
+ * <p>
+ * Lookups by ID are a single {@link ConcurrentHashMap} read. Writers for the same patient
+ * serialize on the record, so updates to different patients never contend and readers never block.
+ * The server's store is a bean of {@link PatientRecordsConfiguration}; size its primary map up front
+ * with {@code -Dpatientrecords.store.capacity} when loading millions of patients.
+ * <p>
+ * Every mutation is appended to the domain {@link Journal} before it is applied in memory, and is not
+ * applied if the journal refuses it, so memory never holds a change that replay would not bring back. The
+ * journal is replayed when the store is constructed. The search index is built once replay is done, oldest
+ * patient ID first.
+ */
+public class PatientStore {
+
+    private static final String PATIENT_STREAM = "patient";
+    private static final String NOTE_STREAM = "note";
+
+    private final Map<String, PatientRecord> byId;
+    private final Map<String, Set<String>> byBloodType = new ConcurrentHashMap<>();
+    private final PatientSearchIndex searchIndex = new PatientSearchIndex();
+    private final Journal journal;
+
+    public PatientStore(int expectedPatients) {
+        this(expectedPatients, Journal.NOOP);
+    }
+
+    public PatientStore(int expectedPatients, Journal journal) {
+        this.byId = new ConcurrentHashMap<>(expectedPatients, 0.75f, Runtime.getRuntime().availableProcessors());
+        this.journal = journal;
+        journal.replay(this::recover);
+        byId.values().stream()
+                .sorted(Comparator.comparing(PatientRecord::getPatientId))
+                .forEach(searchIndex::add);
+    }
+
+    public PatientRecord create(String name, int age, String bloodType, String address) {
+        PatientRecord record = new PatientRecord(IdGenerator.next("PT"), LocalDate.now());
+        record.setName(name);
+        record.setAge(age);
+        record.setBloodType(bloodType);
+        record.setAddress(address);
+        write(PATIENT_STREAM, record.getPatientId(), fields(record));
+        put(record);
+        return record;
+    }
+
+    private void put(PatientRecord record) {
+        byId.put(record.getPatientId(), record);
+        indexBloodType(record.getPatientId(), null, record.getBloodType());
+        searchIndex.add(record);
+    }
+
+    public PatientRecord find(String patientId) {
+        return patientId == null ? null : byId.get(patientId.trim());
+    }
+
+    /**
+     * Applies a single field change and keeps secondary indexes in step.
+     *
+     * @return the updated record, or {@code null} if the patient does not exist
+     */
+    public PatientRecord update(String patientId, PatientField field, String value) {
+        PatientRecord record = find(patientId);
+        if (record == null) {
+            return null;
+        }
+        if (field == PatientField.AGE) {
+            // Rejected here rather than journalled and failing on replay
+            value = String.valueOf(Integer.parseInt(value.trim()));
+        }
+        synchronized (record) {
+            Map<String, String> fields = fields(record);
+            fields.put(field.name(), value);
+            write(PATIENT_STREAM, record.getPatientId(), fields);
+            String previous = record.get(field);
+            record.set(field, value);
+            if (field == PatientField.BLOOD_TYPE) {
+                indexBloodType(record.getPatientId(), previous, value);
+            }
+            if (PatientSearchIndex.isSearchable(field)) {
+                searchIndex.update(record);
+            }
+        }
+        return record;
+    }
+
+    public MedicalNote addNote(String patientId, String noteType, String text, String author) {
+        PatientRecord record = find(patientId);
+        if (record == null) {
+            return null;
+        }
+        MedicalNote note = new MedicalNote(IdGenerator.next("NOTE"), noteType, text, author, LocalDateTime.now());
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("patientId", record.getPatientId());
+        fields.put("noteType", note.noteType());
+        fields.put("text", note.text());
+        fields.put("author", note.author());
+        fields.put("timestamp", note.timestamp().toString());
+        write(NOTE_STREAM, note.noteId(), fields);
+        record.appendNote(note);
+        return note;
+    }
+
+    public VitalSigns recordVitals(String patientId, VitalSigns vitals) {
+        PatientRecord record = find(patientId);
+        if (record == null) {
+            return null;
+        }
+        synchronized (record) {
+            Map<String, String> fields = fields(record);
+            fields.put("lastVisit", vitals.recordedAt().toLocalDate().toString());
+            putVitals(fields, vitals);
+            write(PATIENT_STREAM, record.getPatientId(), fields);
+            record.setLatestVitals(vitals);
+            record.setLastVisit(vitals.recordedAt().toLocalDate());
+        }
+        return vitals;
+    }
+
+    /**
+     * Moves the last visit forward to {@code date}; an earlier date is ignored.
+     */
+    public PatientRecord recordVisit(String patientId, LocalDate date) {
+        PatientRecord record = find(patientId);
+        if (record == null) {
+            return null;
+        }
+        synchronized (record) {
+            if (record.getLastVisit() == null || record.getLastVisit().isBefore(date)) {
+                Map<String, String> fields = fields(record);
+                fields.put("lastVisit", date.toString());
+                write(PATIENT_STREAM, record.getPatientId(), fields);
+                record.setLastVisit(date);
+            }
+        }
+        return record;
+    }
+
+    public Set<String> findByBloodType(String bloodType) {
+        Set<String> ids = byBloodType.get(normalize(bloodType));
+        return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Ranked, paged search over name, address, phone and date of birth; see {@link PatientSearchIndex}.
+     * A patient ID finds that patient alone.
+     */
+    public PatientSearchIndex.Page search(String query, int offset, int limit) {
+        PatientRecord exact = find(query);
+        if (exact == null) {
+            return searchIndex.search(query, offset, limit);
+        }
+        List<PatientSearchIndex.Hit> hits = offset == 0 && limit > 0
+                ? List.of(new PatientSearchIndex.Hit(exact, PatientSearchIndex.Match.EXACT)) : List.of();
+        return new PatientSearchIndex.Page(hits, false);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Queues an entry on the journal.
+     *
+     * @throws java.util.concurrent.CompletionException if the journal refused it, e.g. because it is closed
+     */
+    private void write(String stream, String key, Map<String, String> fields) {
+        CompletableFuture<Void> appended = journal.append(stream, key, fields);
+        if (appended.isCompletedExceptionally()) {
+            appended.join();
+        }
+    }
+
+    private static Map<String, String> fields(PatientRecord record) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("createdDate", record.getCreatedDate().toString());
+        for (PatientField field : PatientField.values()) {
+            fields.put(field.name(), record.get(field));
+        }
+        if (record.getLastVisit() != null) {
+            fields.put("lastVisit", record.getLastVisit().toString());
+        }
+        if (record.getLatestVitals() != null) {
+            putVitals(fields, record.getLatestVitals());
+        }
+        return fields;
+    }
+
+    private static void putVitals(Map<String, String> fields, VitalSigns vitals) {
+        fields.put("vitals.bloodPressure", vitals.bloodPressure());
+        fields.put("vitals.heartRate", String.valueOf(vitals.heartRate()));
+        fields.put("vitals.temperatureF", String.valueOf(vitals.temperatureF()));
+        fields.put("vitals.oxygenSaturation", String.valueOf(vitals.oxygenSaturation()));
+        fields.put("vitals.recordedAt", vitals.recordedAt().toString());
+    }
+
+    private void recover(LogEntry entry) {
+        if (entry.isTombstone()) {
+            return;
+        }
+        Map<String, String> fields = FieldCodec.decode(entry.payload());
+        if (PATIENT_STREAM.equals(entry.stream())) {
+            PatientRecord previous = byId.get(entry.key());
+            PatientRecord record = previous != null ? previous
+                    : new PatientRecord(entry.key(), LocalDate.parse(fields.get("createdDate")));
+            String oldBloodType = record.getBloodType();
+            for (PatientField field : PatientField.values()) {
+                String value = fields.get(field.name());
+                if (value != null) {
+                    record.set(field, value);
+                }
+            }
+            if (fields.containsKey("lastVisit")) {
+                record.setLastVisit(LocalDate.parse(fields.get("lastVisit")));
+            }
+            if (fields.containsKey("vitals.recordedAt")) {
+                record.setLatestVitals(new VitalSigns(fields.get("vitals.bloodPressure"),
+                        Integer.parseInt(fields.get("vitals.heartRate")),
+                        Double.parseDouble(fields.get("vitals.temperatureF")),
+                        Integer.parseInt(fields.get("vitals.oxygenSaturation")),
+                        LocalDateTime.parse(fields.get("vitals.recordedAt"))));
+            }
+            byId.put(record.getPatientId(), record);
+            indexBloodType(record.getPatientId(), oldBloodType, record.getBloodType());
+        } else if (NOTE_STREAM.equals(entry.stream())) {
+            PatientRecord record = byId.get(fields.get("patientId"));
+            if (record != null) {
+                record.appendNote(new MedicalNote(entry.key(), fields.get("noteType"), fields.get("text"),
+                        fields.get("author"), LocalDateTime.parse(fields.get("timestamp"))));
+            }
+        }
+    }
+
+    private void indexBloodType(String patientId, String previous, String current) {
+        if (previous != null) {
+            Set<String> ids = byBloodType.get(normalize(previous));
+            if (ids != null) {
+                ids.remove(patientId);
+            }
+        }
+        if (current != null) {
+            byBloodType.computeIfAbsent(normalize(current), k -> ConcurrentHashMap.newKeySet()).add(patientId);
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
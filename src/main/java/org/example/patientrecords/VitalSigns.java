@@ -0,0 +1,11 @@
+package org.example.patientrecords;
+
+import java.time.LocalDateTime;
+
+public record VitalSigns(String bloodPressure, int heartRate, double temperatureF, int oxygenSaturation,
+                         LocalDateTime recordedAt) {
+
+    public double temperatureC() {
+        return (temperatureF - 32) * 5 / 9;
+    }
+}
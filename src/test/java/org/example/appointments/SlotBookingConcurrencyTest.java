@@ -0,0 +1,85 @@
+package org.example.appointments;
+
+import org.example.common.wal.Journal;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlotBookingConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final LocalDate DAY = LocalDate.of(2026, 11, 2);
+    private static final int LAST_RUN = SlotCalendar.SLOTS_PER_DAY - AppointmentBook.DEFAULT_SLOT_COUNT;
+
+    @Test
+    void exactlyOneCallerReservesContestedSlots() throws Exception {
+        SlotCalendar calendar = new SlotCalendar(DAY, 30);
+        for (int round = 0; round < 200; round++) {
+            LocalDate day = DAY.plusDays(round % 30);
+            long mask = SlotCalendar.mask(round % LAST_RUN, AppointmentBook.DEFAULT_SLOT_COUNT);
+            String doctor = "dr-" + round;
+            List<Boolean> reserved = race(() -> calendar.tryReserve(doctor, day, mask));
+            assertThat(reserved.stream().filter(Boolean::booleanValue).count()).as("round %d", round).isEqualTo(1L);
+        }
+    }
+
+    @Test
+    void exactlyOnePatientGetsADoctorsLastFreeSlot() throws Exception {
+        AppointmentBook book = new AppointmentBook(DAY, 30, List.of("Room 201", "Room 202", "Room 203"),
+                Journal.NOOP);
+        List<AppointmentBook.Booking> bookings = race(() -> book.book("PT-" + Thread.currentThread().getId(),
+                "Dr. Johnson", "Consultation", DAY, LAST_RUN, AppointmentBook.DEFAULT_SLOT_COUNT));
+
+        assertThat(count(bookings, AppointmentBook.Outcome.BOOKED)).isEqualTo(1L);
+        assertThat(count(bookings, AppointmentBook.Outcome.NO_SLOT)).isEqualTo((long) THREADS - 1);
+    }
+
+    @Test
+    void exactlyOneDoctorGetsTheLastFreeRoom() throws Exception {
+        AppointmentBook book = new AppointmentBook(DAY, 30, List.of("Room 201"), Journal.NOOP);
+        List<AppointmentBook.Booking> bookings = race(() -> book.book("PT-1",
+                "Dr. " + Thread.currentThread().getId(), "Consultation", DAY, LAST_RUN,
+                AppointmentBook.DEFAULT_SLOT_COUNT));
+
+        assertThat(count(bookings, AppointmentBook.Outcome.BOOKED)).isEqualTo(1L);
+        assertThat(count(bookings, AppointmentBook.Outcome.NO_SLOT)).isEqualTo((long) THREADS - 1);
+    }
+
+    private static long count(List<AppointmentBook.Booking> bookings, AppointmentBook.Outcome outcome) {
+        return bookings.stream().filter(booking -> booking.outcome() == outcome).count();
+    }
+
+    /**
+     * Runs {@code call} on {@value #THREADS} threads released at the same moment.
+     */
+    private static <T> List<T> race(Callable<T> call) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(threads.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+}
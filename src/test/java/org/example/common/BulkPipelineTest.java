@@ -0,0 +1,48 @@
+package org.example.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkPipelineTest {
+
+    @Test
+    @Timeout(10)
+    void anErrorInATaskBecomesAFailureResult() throws Exception {
+        List<String> results = new ArrayList<>();
+        try (BulkPipeline pipeline = new BulkPipeline("test", 4, 8)) {
+            long processed = pipeline.run(LongStream.range(0, 100).boxed().iterator(), (index, item) -> {
+                if (item == 42) {
+                    throw new StackOverflowError();
+                }
+                return "ok";
+            }, (index, item, error) -> "failed " + error.getClass().getSimpleName(), results::add);
+            assertThat(processed).isEqualTo(100L);
+        }
+        assertThat(results).hasSize(100);
+        assertThat(results).contains("failed StackOverflowError");
+    }
+
+    @Test
+    @Timeout(10)
+    void anItemWithoutAResultFailsTheRequestInsteadOfHangingIt() {
+        List<String> results = new ArrayList<>();
+        try (BulkPipeline pipeline = new BulkPipeline("test", 4, 8)) {
+            assertThatThrownBy(() -> pipeline.run(LongStream.range(0, 100).boxed().iterator(), (index, item) -> {
+                if (item == 42) {
+                    throw new IllegalArgumentException("bad item");
+                }
+                return item == 43 ? null : "ok";
+            }, (index, item, error) -> {
+                throw new IllegalStateException("handler failed");
+            }, results::add)).isInstanceOf(IllegalStateException.class).hasMessageContaining("has no result");
+        }
+        assertThat(results.size()).isLessThan(100);
+    }
+}
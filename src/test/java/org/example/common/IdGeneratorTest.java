@@ -0,0 +1,119 @@
+package org.example.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 250_000;
+
+    @Test
+    void concurrentCallersNeverGetTheSameId() throws Exception {
+        IdGenerator generator = new IdGenerator(7);
+        Set<Long> seen = ConcurrentHashMap.newKeySet(THREADS * IDS_PER_THREAD);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(threads.submit(() -> {
+                    start.await();
+                    long previous = Long.MIN_VALUE;
+                    int duplicates = 0;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        long id = generator.nextLong();
+                        // Each caller sees its own IDs strictly increasing
+                        assertThat(id).isGreaterThan(previous);
+                        previous = id;
+                        if (!seen.add(id)) {
+                            duplicates++;
+                        }
+                    }
+                    return duplicates;
+                }));
+            }
+            start.countDown();
+            int duplicates = 0;
+            for (Future<Integer> result : results) {
+                duplicates += result.get(60, TimeUnit.SECONDS);
+            }
+            assertThat(duplicates).isZero();
+            assertThat(seen).hasSize(THREADS * IDS_PER_THREAD);
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void generatorsWithDistinctNodesNeverCollide() throws Exception {
+        IdGenerator first = new IdGenerator(1);
+        IdGenerator second = new IdGenerator(2);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        Thread other = new Thread(() -> {
+            for (int i = 0; i < 200_000; i++) {
+                ids.add(second.nextId("PT"));
+            }
+        });
+        other.start();
+        for (int i = 0; i < 200_000; i++) {
+            ids.add(first.nextId("PT"));
+        }
+        other.join();
+        assertThat(ids).hasSize(400_000);
+    }
+
+    @Test
+    void formattedIdsSortInAllocationOrderAndParseBack() {
+        IdGenerator generator = new IdGenerator(IdGenerator.MAX_NODE_ID);
+        String previous = "";
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            long id = generator.nextLong();
+            String formatted = IdGenerator.format("APT", id);
+            assertThat(formatted).matches("APT-[0-9A-Z]{13}");
+            assertThat(formatted.compareTo(previous)).isGreaterThan(0);
+            assertThat(IdGenerator.parse(formatted)).isEqualTo(id);
+            assertThat(IdGenerator.nodeOf(id)).isEqualTo(IdGenerator.MAX_NODE_ID);
+            ids.add(formatted);
+            previous = formatted;
+        }
+        assertThat(ids).hasSize(100_000);
+    }
+
+    @Test
+    void aRestartedGeneratorNeverReissuesIdsBorrowedAhead() {
+        long maxLeadMillis = 20;
+        IdGenerator before = new IdGenerator(5, maxLeadMillis);
+        long last = 0;
+        // Far more than 4096 IDs/ms, so allocation borrows ahead until it reaches the lead
+        for (int i = 0; i < 1_000_000; i++) {
+            last = before.nextLong();
+            long millis = (last >>> (IdGenerator.NODE_BITS + IdGenerator.SEQUENCE_BITS)) + IdGenerator.EPOCH_MILLIS;
+            assertThat(millis).isLessThanOrEqualTo(System.currentTimeMillis() + maxLeadMillis);
+        }
+
+        IdGenerator restarted = new IdGenerator(5, maxLeadMillis);
+        assertThat(restarted.nextLong()).isGreaterThan(last);
+    }
+
+    @Test
+    void nodeIdOutsideTenBitsIsRejected() {
+        assertThatThrownBy(() -> new IdGenerator(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new IdGenerator(IdGenerator.MAX_NODE_ID + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
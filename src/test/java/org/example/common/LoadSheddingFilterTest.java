@@ -0,0 +1,44 @@
+package org.example.common;
+
+import org.example.common.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoadSheddingFilterTest {
+
+    private final LoadSheddingFilter filter = new LoadSheddingFilter(4, new MetricsRegistry(), "test");
+
+    private static MockHttpServletRequest action(String deadlineMillis) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/actions/getPatientHistory");
+        request.setServletPath("/actions/getPatientHistory");
+        request.addHeader(Deadline.HEADER, deadlineMillis);
+        return request;
+    }
+
+    @Test
+    void anExpiredDeadlineIsAnswered504WithoutCallingTheAgent() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(action("0"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(504);
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    void aLiveDeadlineIsAttachedWhileTheAgentRuns() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Deadline[] seen = new Deadline[1];
+
+        filter.doFilter(action("5000"), response, (request, ignored) -> seen[0] = Deadline.current());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(seen[0].remainingNanos()).isGreaterThan(0L);
+        assertThat(Deadline.current()).as("detached after the request").isNull();
+    }
+}
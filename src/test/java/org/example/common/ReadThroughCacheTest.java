@@ -0,0 +1,33 @@
+package org.example.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadThroughCacheTest {
+
+    private final List<String> loads = new ArrayList<>();
+
+    private ReadThroughCache<String, String> cache(int maxEntries) {
+        return new ReadThroughCache<>("test", new ReadThroughCache.Options(60_000, 0, maxEntries), key -> {
+            loads.add(key);
+            return key.toUpperCase();
+        });
+    }
+
+    @Test
+    void aNewEntryIsNotEvictedByItsOwnInsert() {
+        try (ReadThroughCache<String, String> cache = cache(1)) {
+            assertThat(cache.get("a")).isEqualTo("A");
+            assertThat(cache.get("b")).isEqualTo("B");
+            assertThat(cache.get("b")).isEqualTo("B");
+
+            assertThat(loads).containsExactly("a", "b");
+            assertThat(cache.hits()).isEqualTo(1L);
+            assertThat(cache.size()).isEqualTo(1);
+        }
+    }
+}
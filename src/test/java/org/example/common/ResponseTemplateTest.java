@@ -0,0 +1,115 @@
+package org.example.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResponseTemplateTest {
+
+    private static final double[] EDGE_CASES = {
+            0, -0.0, 0.001, -0.001, 0.004, 0.005, 0.0049999, 0.125, 0.135, 0.145, 1.005, 1.015, 1.045, 2.675,
+            8.345, 99.995, 100, 150.0, 162.0, 1234.5, 1234.565, -1234.565, 0.5, 1.5, 2.5, -2.5, 12.0 / 7,
+            999_999.995, 4_999_999.999, 1e9, 123_456_789.125, 1e15 + 0.3, Double.MIN_VALUE, Double.MAX_VALUE,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+    };
+
+    @Test
+    void fixedMatchesStringFormatOnEdgeCases() {
+        for (int precision = 0; precision <= 6; precision++) {
+            String pattern = "Total: $%." + precision + "f";
+            ResponseTemplate template = ResponseTemplate.compile(pattern);
+            for (double value : EDGE_CASES) {
+                assertThat(template.render().arg(value).build())
+                        .as("%s with %s", pattern, value)
+                        .isEqualTo(String.format(Locale.ROOT, pattern, value));
+            }
+        }
+    }
+
+    @Test
+    void fixedMatchesStringFormatOnRandomAmounts() {
+        ResponseTemplate oneDecimal = ResponseTemplate.compile("%.1f");
+        ResponseTemplate twoDecimals = ResponseTemplate.compile("%.2f");
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 200_000; i++) {
+            double cents = random.nextLong(-10_000_000, 10_000_000) / 100.0;
+            double rate = cents * 0.08;
+            double reading = random.nextDouble(-50, 250);
+            assertThat(twoDecimals.render().arg(cents).build()).isEqualTo(String.format(Locale.ROOT, "%.2f", cents));
+            assertThat(twoDecimals.render().arg(rate).build()).isEqualTo(String.format(Locale.ROOT, "%.2f", rate));
+            assertThat(oneDecimal.render().arg(reading).build())
+                    .isEqualTo(String.format(Locale.ROOT, "%.1f", reading));
+        }
+    }
+
+    @Test
+    void mixedTemplateMatchesStringFormat() {
+        String pattern = "Invoice %s for %s%n==%%==%nDays: %d, Amount: $%.2f, Rate: %.1f%%, Note: %s";
+        ResponseTemplate template = ResponseTemplate.compile(pattern);
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 10_000; i++) {
+            String invoice = "INV-" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36).toUpperCase(Locale.ROOT);
+            String patient = i % 100 == 0 ? null : "Patient Ünïcode " + i;
+            long days = random.nextLong(-1000, 100_000);
+            double amount = random.nextLong(0, 100_000_000) / 100.0;
+            double rate = random.nextDouble(0, 100);
+            Object note = i % 3 == 0 ? LocalDate.ofEpochDay(i) : Integer.valueOf(i);
+            assertThat(template.render().arg(invoice).arg(patient).arg(days).arg(amount).arg(rate).arg(note).build())
+                    .isEqualTo(String.format(Locale.ROOT, pattern, invoice, patient, days, amount, rate, note));
+        }
+    }
+
+    @Test
+    void renderToAppendableMatchesBuild() throws IOException {
+        ResponseTemplate template = ResponseTemplate.compile("Paid $%.2f for %s on %s");
+        StringWriter writer = new StringWriter();
+        LocalDate date = LocalDate.of(2026, 3, 9);
+        assertThat(template.renderTo(writer).arg(19.999).arg("INV-1").arg(date, DateTimeFormatter.ISO_LOCAL_DATE)
+                .build()).isNull();
+        writer.close();
+        assertThat(writer.toString())
+                .isEqualTo(template.render().arg(19.999).arg("INV-1").arg(date, DateTimeFormatter.ISO_LOCAL_DATE)
+                        .build())
+                .isEqualTo(String.format(Locale.ROOT, "Paid $%.2f for %s on %s", 19.999, "INV-1", date));
+    }
+
+    @Test
+    void abandonedRenderDoesNotBreakTheNextOne() {
+        ResponseTemplate template = ResponseTemplate.compile("Patient %s, age %d");
+        assertThatThrownBy(() -> template.render().arg("PT-1").arg(failingAge()))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(template.render().arg("PT-2").arg(40).build()).isEqualTo("Patient PT-2, age 40");
+    }
+
+    @Test
+    void templateRenderedForAnArgumentDoesNotDisturbTheOuterOne() {
+        ResponseTemplate outer = ResponseTemplate.compile("Claim %s: %s (%.2f)");
+        ResponseTemplate inner = ResponseTemplate.compile("%s via %s");
+        String rendered = outer.render().arg("CLM-1").arg(inner.render().arg("APPROVED").arg("Aetna").build())
+                .arg(80.5).build();
+        assertThat(rendered).isEqualTo("Claim CLM-1: APPROVED via Aetna (80.50)");
+        assertThat(outer.render().arg("CLM-2").arg("DENIED").arg(0.0).build()).isEqualTo("Claim CLM-2: DENIED (0.00)");
+    }
+
+    @Test
+    void argumentMismatchesAreRejected() {
+        ResponseTemplate template = ResponseTemplate.compile("%d visits");
+        assertThatThrownBy(() -> template.render().arg(1.5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> template.render().build()).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> template.render().arg(1).arg(2)).isInstanceOf(IllegalStateException.class);
+        assertThat(template.render().arg(3).build()).isEqualTo("3 visits");
+        assertThatThrownBy(() -> ResponseTemplate.compile("%x")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static int failingAge() {
+        throw new IllegalStateException("age unavailable");
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.common.wal;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentLogTest {
+
+    private static final SegmentLog.Options OPTIONS = new SegmentLog.Options(64L << 20, 4096, 1024, 4, false);
+
+    @Test
+    void recordsAppendedAfterAFailedWriteAreReplayed() throws Exception {
+        Path directory = Files.createTempDirectory("segment-log-test");
+        SegmentLog log = SegmentLog.open(directory, OPTIONS);
+        log.append(entry("before", 16)).join();
+
+        // Two records bigger than half the write buffer, so the first reaches the segment before the third
+        // record of the batch fails to encode
+        List<SegmentLog.PendingAppend> batch = List.of(pending(entry("failed-1", 700 << 10)),
+                pending(entry("failed-2", 700 << 10)), pending(new LogEntry("patient", null, new byte[16])));
+        assertThatThrownBy(() -> log.writeBatch(batch)).isInstanceOf(NullPointerException.class);
+
+        log.append(entry("after-1", 16)).join();
+        log.append(entry("after-2", 16)).join();
+        log.close();
+
+        SegmentLog reopened = SegmentLog.open(directory, OPTIONS);
+        List<String> replayed = new ArrayList<>();
+        reopened.replay(entry -> replayed.add(entry.key()));
+        reopened.close();
+        assertThat(replayed).containsExactly("before", "after-1", "after-2");
+    }
+
+    private static LogEntry entry(String key, int payloadBytes) {
+        return new LogEntry("patient", key, new byte[payloadBytes]);
+    }
+
+    private static SegmentLog.PendingAppend pending(LogEntry entry) {
+        return new SegmentLog.PendingAppend(entry, new CompletableFuture<>());
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.healthcareclient;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveLimitTest {
+
+    @Test
+    void aimdRejectsOnceTheLimitIsReached() {
+        rejectsOnceTheLimitIsReached(AdaptiveLimit.of("aimd", 2, 1, 10));
+    }
+
+    @Test
+    void gradientRejectsOnceTheLimitIsReached() {
+        rejectsOnceTheLimitIsReached(AdaptiveLimit.of("gradient", 2, 1, 10));
+    }
+
+    @Test
+    void aimdCutsTheLimitAfterADrop() {
+        AdaptiveLimit limit = AdaptiveLimit.of("aimd", 10, 1, 10);
+        assertThat(limit.tryAcquire()).isTrue();
+        limit.release(1_000_000, true);
+        assertThat(limit.limit()).isLessThan(10);
+    }
+
+    private static void rejectsOnceTheLimitIsReached(AdaptiveLimit limit) {
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+        assertThat(limit.inFlight()).isEqualTo(2);
+
+        limit.release();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.healthcareclient;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 50;
+
+    @Test
+    void opensOnceTheFailuresReachTheThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 50, OPEN_MILLIS, 2);
+        record(breaker, true, true, true, false, false);
+        assertThat(breaker.state()).as("2 failures out of 5").isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        record(breaker, false);
+        assertThat(breaker.state()).as("3 failures out of 6").isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.opened()).isEqualTo(1L);
+    }
+
+    @Test
+    void waitsForHalfTheWindowBeforeOpening() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 50, OPEN_MILLIS, 2);
+        record(breaker, false, false, false, false);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        record(breaker, false);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void halfOpensAfterTheCoolDownAndClosesWhenTheProbesSucceed() throws InterruptedException {
+        CircuitBreaker breaker = open();
+        Thread.sleep(OPEN_MILLIS * 2);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).as("only two probes").isFalse();
+
+        record(breaker, true, true);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void aFailedProbeOpensItAgain() throws InterruptedException {
+        CircuitBreaker breaker = open();
+        Thread.sleep(OPEN_MILLIS * 2);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        record(breaker, false);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.opened()).isEqualTo(2L);
+    }
+
+    private static CircuitBreaker open() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 50, OPEN_MILLIS, 2);
+        record(breaker, false, false, false, false, false);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        return breaker;
+    }
+
+    private static void record(CircuitBreaker breaker, boolean... outcomes) {
+        for (boolean success : outcomes) {
+            breaker.record(success);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.healthcareclient;
+
+import org.example.common.Deadline;
+import org.example.common.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResilientTransportTest {
+
+    /** Calls it takes before the hedge delay, the p95 latency, is known */
+    private static final int HEDGE_MIN_SAMPLES = 32;
+
+    private final AtomicInteger agentCalls = new AtomicInteger();
+
+    private static ResilientTransport.Options options(int limit, int breakerWindow) {
+        return new ResilientTransport.Options("aimd", limit, limit, breakerWindow, 50, 60_000, 1,
+                Duration.ofSeconds(10), List.of("get"), 100, HEDGE_MIN_SAMPLES);
+    }
+
+    private ResilientTransport transport(AgentToolClient tools, AgentToolClient hedgeTools,
+                                         ResilientTransport.Options options) {
+        return new ResilientTransport((domain, query) -> {
+            agentCalls.incrementAndGet();
+            return "sent";
+        }, tools, hedgeTools, options, new MetricsRegistry());
+    }
+
+    @Test
+    @Timeout(10)
+    void theHedgeAnswersWhenThePrimaryStalls() {
+        AtomicBoolean stall = new AtomicBoolean();
+        CountDownLatch unstall = new CountDownLatch(1);
+        AgentToolClient primary = (domain, tool, arguments) -> {
+            if (stall.get()) {
+                await(unstall);
+            }
+            return "primary";
+        };
+        try (ResilientTransport transport = transport(primary, (domain, tool, arguments) -> "hedge",
+                options(4, 20))) {
+            for (int i = 0; i < HEDGE_MIN_SAMPLES; i++) {
+                assertThat(transport.callTool(AgentDomain.PATIENT_RECORDS, "getPatientHistory", "PT-1"))
+                        .isEqualTo("primary");
+            }
+
+            stall.set(true);
+            long start = System.nanoTime();
+            assertThat(transport.callTool(AgentDomain.PATIENT_RECORDS, "getPatientHistory", "PT-1"))
+                    .isEqualTo("hedge");
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000);
+        } finally {
+            unstall.countDown();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void aCallBeyondTheLimitIsRejectedWithoutCallingTheAgent() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AgentToolClient tools = (domain, tool, arguments) -> {
+            agentCalls.incrementAndGet();
+            entered.countDown();
+            await(finish);
+            return "booked";
+        };
+        try (ResilientTransport transport = transport(tools, null, options(1, 20))) {
+            CompletableFuture<String> first = CompletableFuture.supplyAsync(
+                    () -> transport.callTool(AgentDomain.APPOINTMENTS, "scheduleAppointment", "PT-1"));
+            entered.await();
+
+            assertThatThrownBy(() -> transport.callTool(AgentDomain.APPOINTMENTS, "scheduleAppointment", "PT-2"))
+                    .isInstanceOf(AgentUnavailableException.class).hasMessageContaining("LIMIT_REACHED");
+            assertThat(agentCalls.get()).isEqualTo(1);
+
+            finish.countDown();
+            assertThat(first.get()).isEqualTo("booked");
+        } finally {
+            finish.countDown();
+        }
+    }
+
+    @Test
+    void anOpenBreakerRejectsWithoutCallingTheAgent() {
+        AgentToolClient failing = (domain, tool, arguments) -> {
+            agentCalls.incrementAndGet();
+            throw new IllegalStateException("agent down");
+        };
+        try (ResilientTransport transport = transport(failing, null, options(4, 4))) {
+            for (int i = 0; i < 2; i++) {
+                assertThatThrownBy(() -> transport.callTool(AgentDomain.BILLING, "processPayment", "PT-1"))
+                        .isInstanceOf(IllegalStateException.class).hasMessageContaining("agent down");
+            }
+
+            assertThatThrownBy(() -> transport.callTool(AgentDomain.BILLING, "processPayment", "PT-1"))
+                    .isInstanceOf(AgentUnavailableException.class).hasMessageContaining("CIRCUIT_OPEN");
+            assertThat(agentCalls.get()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void anExpiredDeadlineIsRejectedWithoutCallingTheAgent() {
+        try (ResilientTransport transport = transport((domain, tool, arguments) -> {
+            agentCalls.incrementAndGet();
+            return "history";
+        }, null, options(4, 20)); Deadline.Scope ignored = Deadline.fromHeader("0").attach()) {
+            assertThatThrownBy(() -> transport.send(AgentDomain.DIAGNOSTICS, "Analyze lab results for PT-1"))
+                    .isInstanceOf(AgentUnavailableException.class).hasMessageContaining("DEADLINE_EXCEEDED");
+            assertThatThrownBy(() -> transport.callTool(AgentDomain.DIAGNOSTICS, "getLabResults", "PT-1"))
+                    .isInstanceOf(AgentUnavailableException.class).hasMessageContaining("DEADLINE_EXCEEDED");
+        }
+        assertThat(agentCalls.get()).isEqualTo(0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.healthcareclient;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SemanticRouterTest {
+
+    private final AtomicInteger llmCalls = new AtomicInteger();
+    private final List<String> toolCalls = new ArrayList<>();
+    private final List<String> typedCalls = new ArrayList<>();
+    private final List<String> fallbackCalls = new ArrayList<>();
+
+    /**
+     * Answers like the LLM would for the few query shapes used here, and counts how often it is asked.
+     */
+    private final LlmClient llm = prompt -> {
+        llmCalls.incrementAndGet();
+        String query = prompt.substring(prompt.lastIndexOf("Query: "));
+        if (query.contains("medical history")) {
+            return "patientRecordsOperations.getPatientHistory";
+        }
+        if (query.contains("account balance")) {
+            return "billingOperations.getAccountBalance";
+        }
+        if (query.contains("claim status")) {
+            return "billingOperations.getClaimStatus";
+        }
+        if (query.contains("Schedule appointment")) {
+            return "appointmentsOperations.scheduleAppointment";
+        }
+        return "I am not sure";
+    };
+
+    private SemanticRouter router(int cacheSize) {
+        return new SemanticRouter(new RoutingCache(cacheSize), new LlmRouteResolver(llm),
+                (domain, tool, text) -> record(toolCalls, domain + "." + tool + ": " + text),
+                (domain, action, arguments) -> record(typedCalls, domain + "." + action + List.of(arguments)),
+                (domain, query) -> record(fallbackCalls, query));
+    }
+
+    private static String record(List<String> calls, String call) {
+        calls.add(call);
+        return "ok";
+    }
+
+    @Test
+    void aMissAsksTheLlmOnceAndLaterHitsAreTypedCalls() {
+        SemanticRouter router = router(100);
+
+        router.send(AgentDomain.PATIENT_RECORDS, "Get medical history for patient ID PT-12345");
+        router.send(AgentDomain.PATIENT_RECORDS, "get medical history for patient id PT-99.");
+
+        assertThat(llmCalls.get()).isEqualTo(1);
+        assertThat(toolCalls).containsExactly(
+                "PATIENT_RECORDS.getPatientHistory: Get medical history for patient ID PT-12345");
+        assertThat(typedCalls).containsExactly("PATIENT_RECORDS.getPatientHistory[PT-99]");
+        assertThat(router.stats().hits()).isEqualTo(1L);
+        assertThat(router.stats().misses()).isEqualTo(1L);
+        assertThat(router.typedCalls()).isEqualTo(1L);
+    }
+
+    @Test
+    void aHitWhoseParametersDoNotFillTheActionGoesToTheToolAsText() {
+        SemanticRouter router = router(100);
+        String first = "Schedule appointment for patient PT-1 with Dr. Johnson for cardiology on 2026-11-02";
+        String second = "Schedule appointment for patient PT-2 with Dr. Johnson for cardiology on 2026-11-03";
+
+        router.send(AgentDomain.APPOINTMENTS, first);
+        router.send(AgentDomain.APPOINTMENTS, second);
+
+        assertThat(llmCalls.get()).isEqualTo(1);
+        assertThat(typedCalls).isEmpty();
+        assertThat(toolCalls).containsExactly("APPOINTMENTS.scheduleAppointment: " + first,
+                "APPOINTMENTS.scheduleAppointment: " + second);
+    }
+
+    @Test
+    void aQueryTheLlmCannotRouteFallsBackAndIsNotCached() {
+        SemanticRouter router = router(100);
+
+        router.send(AgentDomain.BILLING, "What should I do about my bill?");
+        router.send(AgentDomain.BILLING, "What should I do about my bill?");
+
+        assertThat(llmCalls.get()).isEqualTo(2);
+        assertThat(fallbackCalls).hasSize(2);
+        assertThat(router.stats().size()).isEqualTo(0L);
+    }
+
+    @Test
+    void aFullCacheEvictsAndAnEvictedTemplateIsResolvedAgain() {
+        SemanticRouter router = router(2);
+        List<String> queries = List.of("Get medical history for patient ID PT-1",
+                "Get account balance for patient PT-1", "Get claim status for claim CLM-1");
+
+        for (String query : queries) {
+            router.send(AgentDomain.BILLING, query);
+        }
+        assertThat(llmCalls.get()).isEqualTo(3);
+        assertThat(router.stats().evictions()).isEqualTo(1L);
+        assertThat(router.stats().size()).isEqualTo(2L);
+
+        for (String query : queries) {
+            router.send(AgentDomain.BILLING, query);
+        }
+        // At least the template evicted above is resolved again; the cache still answers some from memory
+        assertThat(llmCalls.get()).isGreaterThan(3);
+        assertThat(router.stats().hits()).isGreaterThanOrEqualTo(1);
+        assertThat(router.stats().size()).isEqualTo(2L);
+    }
+}